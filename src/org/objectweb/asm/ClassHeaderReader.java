@@ -0,0 +1,236 @@
+/***
+ * ASM: a very small and fast Java bytecode manipulation framework
+ * Copyright (c) 2000-2011 INRIA, France Telecom
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.objectweb.asm;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A lightweight parser for the header of a Java class (access flags, name,
+ * super class and interfaces). Contrary to {@link ClassReader}, this class
+ * only computes the start offset of each constant pool item, and decodes the
+ * few CONSTANT_Utf8 items it needs on demand. It is intended for tools that
+ * index the classes of large class paths and that never need to visit the
+ * class content.
+ */
+public class ClassHeaderReader {
+
+    /**
+     * The class to be parsed. <i>The content of this array must not be
+     * modified.</i>
+     */
+    public final byte[] b;
+
+    /**
+     * The start index of each constant pool item in {@link #b b}, plus one.
+     * The one byte offset skips the constant pool item tag that indicates its
+     * type.
+     */
+    private final int[] items;
+
+    /**
+     * Start index of the class header information (access, name...) in
+     * {@link #b b}.
+     */
+    public final int header;
+
+    /**
+     * Start index of the class data in {@link #b b}.
+     */
+    private final int off;
+
+    // ------------------------------------------------------------------------
+    // Constructors
+    // ------------------------------------------------------------------------
+
+    /**
+     * Constructs a new {@link ClassHeaderReader} object.
+     *
+     * @param b the bytecode of the class to be read.
+     */
+    public ClassHeaderReader(final byte[] b) {
+        this(b, 0, b.length);
+    }
+
+    /**
+     * Constructs a new {@link ClassHeaderReader} object.
+     *
+     * @param b the bytecode of the class to be read.
+     * @param off the start offset of the class data.
+     * @param len the length of the class data.
+     */
+    public ClassHeaderReader(final byte[] b, final int off, final int len) {
+        this.b = b;
+        this.off = off;
+        // skips the constant pool, only recording the start of each item
+        int n = readUnsignedShort(off + 8);
+        int[] items = new int[n];
+        int index = off + 10;
+        for (int i = 1; i < n; ++i) {
+            items[i] = index + 1;
+            switch (b[index]) {
+                case ClassWriter.FIELD:
+                case ClassWriter.METH:
+                case ClassWriter.IMETH:
+                case ClassWriter.INT:
+                case ClassWriter.FLOAT:
+                case ClassWriter.NAME_TYPE:
+                case ClassWriter.INDY:
+                case ClassWriter.CONDY:
+                    index += 5;
+                    break;
+                case ClassWriter.LONG:
+                case ClassWriter.DOUBLE:
+                    index += 9;
+                    ++i;
+                    break;
+                case ClassWriter.UTF8:
+                    index += 3 + readUnsignedShort(index + 1);
+                    break;
+                case ClassWriter.HANDLE:
+                    index += 4;
+                    break;
+                // case ClassWriter.CLASS:
+                // case ClassWriter.STR:
+                // case ClassWriter.MTYPE
+                // case ClassWriter.MODULE
+                // case ClassWriter.PACKAGE
+                default:
+                    index += 3;
+                    break;
+            }
+        }
+        this.items = items;
+        // the class header information starts just after the constant pool
+        header = index;
+    }
+
+    /**
+     * Constructs a new {@link ClassHeaderReader} object.
+     *
+     * @param is an input stream from which to read the class.
+     * @throws IOException if a problem occurs during reading.
+     */
+    public ClassHeaderReader(final InputStream is) throws IOException {
+        this(ClassReader.readClass(is, false));
+    }
+
+    // ------------------------------------------------------------------------
+    // Public methods
+    // ------------------------------------------------------------------------
+
+    /**
+     * Returns the class file version of the class (major version in the low
+     * 16 bits, minor version in the high 16 bits, as in
+     * {@link ClassVisitor#visit visit}).
+     *
+     * @return the class file version.
+     */
+    public int getVersion() {
+        return readInt(off + 4);
+    }
+
+    /**
+     * Returns the class's access flags (see {@link Opcodes}). This value does
+     * not reflect Deprecated and Synthetic flags represented by attributes.
+     *
+     * @return the class access flags
+     */
+    public int getAccess() {
+        return readUnsignedShort(header);
+    }
+
+    /**
+     * Returns the internal name of the class (see
+     * {@link Type#getInternalName() getInternalName}).
+     *
+     * @return the internal class name
+     */
+    public String getClassName() {
+        return readClass(header + 2);
+    }
+
+    /**
+     * Returns the internal of name of the super class (see
+     * {@link Type#getInternalName() getInternalName}). For interfaces, the
+     * super class is {@link Object}.
+     *
+     * @return the internal name of super class, or <tt>null</tt> for
+     *         {@link Object} class.
+     */
+    public String getSuperName() {
+        return readUnsignedShort(header + 4) == 0 ? null : readClass(header + 4);
+    }
+
+    /**
+     * Returns the internal names of the class's interfaces (see
+     * {@link Type#getInternalName() getInternalName}).
+     *
+     * @return the array of internal names for all implemented interfaces.
+     */
+    public String[] getInterfaces() {
+        int index = header + 6;
+        int n = readUnsignedShort(index);
+        String[] interfaces = new String[n];
+        for (int i = 0; i < n; ++i) {
+            index += 2;
+            interfaces[i] = readClass(index);
+        }
+        return interfaces;
+    }
+
+    // ------------------------------------------------------------------------
+    // Utility methods: low level parsing
+    // ------------------------------------------------------------------------
+
+    private int readUnsignedShort(final int index) {
+        byte[] b = this.b;
+        return ((b[index] & 0xFF) << 8) | (b[index + 1] & 0xFF);
+    }
+
+    private int readInt(final int index) {
+        byte[] b = this.b;
+        return ((b[index] & 0xFF) << 24) | ((b[index + 1] & 0xFF) << 16)
+                | ((b[index + 2] & 0xFF) << 8) | (b[index + 3] & 0xFF);
+    }
+
+    /**
+     * Reads a class constant pool item in {@link #b b}.
+     *
+     * @param index the start index of an unsigned short value in {@link #b b},
+     *        whose value is the index of a class constant pool item.
+     * @return the String corresponding to the specified class item.
+     */
+    private String readClass(final int index) {
+        int utf8 = items[readUnsignedShort(items[readUnsignedShort(index)])];
+        int utfLen = readUnsignedShort(utf8);
+        return ClassReader.readUTF(b, utf8 + 2, utfLen, new char[utfLen]);
+    }
+}
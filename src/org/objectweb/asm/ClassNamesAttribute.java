@@ -0,0 +1,124 @@
+/***
+ * ASM: a very small and fast Java bytecode manipulation framework
+ * Copyright (c) 2000-2011 INRIA, France Telecom
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.objectweb.asm;
+
+/**
+ * A class attribute whose content is a list of class constant pool items,
+ * such as the Java 11 <tt>NestHost</tt> and <tt>NestMembers</tt> attributes.
+ * Unlike unknown attributes, which are copied as is, these attributes are
+ * decoded into class names and re-encoded with
+ * {@link ClassWriter#newClass newClass}, so that they remain valid when the
+ * constant pool of the original class is not copied in the new class.
+ */
+public class ClassNamesAttribute extends Attribute {
+
+    /**
+     * The internal names of the classes referenced by this attribute. For a
+     * <tt>NestHost</tt> attribute this array contains exactly one element.
+     */
+    public final String[] classNames;
+
+    /**
+     * Constructs a new empty {@link ClassNamesAttribute}.
+     *
+     * @param type the type of the attribute. Must be <tt>"NestHost"</tt>,
+     *        <tt>"NestMembers"</tt> or <tt>"PermittedSubclasses"</tt>.
+     */
+    public ClassNamesAttribute(final String type) {
+        this(type, null);
+    }
+
+    /**
+     * Constructs a new {@link ClassNamesAttribute}.
+     *
+     * @param type the type of the attribute. Must be <tt>"NestHost"</tt>,
+     *        <tt>"NestMembers"</tt> or <tt>"PermittedSubclasses"</tt>.
+     * @param classNames the internal names of the referenced classes.
+     */
+    public ClassNamesAttribute(final String type, final String[] classNames) {
+        super(type);
+        this.classNames = classNames;
+    }
+
+    /**
+     * Returns <tt>true</tt> if the given attribute type is one of the types
+     * handled by this class.
+     *
+     * @param type an attribute type.
+     * @return <tt>true</tt> if the given attribute type is one of the types
+     *         handled by this class.
+     */
+    static boolean isClassNamesAttribute(final String type) {
+        return "NestHost".equals(type) || "NestMembers".equals(type)
+                || "PermittedSubclasses".equals(type);
+    }
+
+    public boolean isUnknown() {
+        return false;
+    }
+
+    protected Attribute read(
+        final ClassReader cr,
+        final int off,
+        final int len,
+        final char[] buf,
+        final int codeOff,
+        final Label[] labels)
+    {
+        char[] c = buf == null ? new char[cr.getMaxStringLength()] : buf;
+        String[] names;
+        if ("NestHost".equals(type)) {
+            names = new String[] { cr.readClass(off, c) };
+        } else {
+            names = new String[cr.readUnsignedShort(off)];
+            for (int i = 0; i < names.length; ++i) {
+                names[i] = cr.readClass(off + 2 + 2 * i, c);
+            }
+        }
+        return new ClassNamesAttribute(type, names);
+    }
+
+    protected ByteVector write(
+        final ClassWriter cw,
+        final byte[] code,
+        final int len,
+        final int maxStack,
+        final int maxLocals)
+    {
+        ByteVector v = new ByteVector();
+        if (!"NestHost".equals(type)) {
+            v.putShort(classNames.length);
+        }
+        for (int i = 0; i < classNames.length; ++i) {
+            v.putShort(cw.newClass(classNames[i]));
+        }
+        return v;
+    }
+}
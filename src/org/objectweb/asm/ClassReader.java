@@ -134,6 +134,19 @@ public class ClassReader {
      */
     private final int maxStringLength;
 
+    /**
+     * The cache used to share the String objects corresponding to the
+     * CONSTANT_Utf8 items between several class readers, or <tt>null</tt>.
+     */
+    private final UTF8Cache utf8Cache;
+
+    /**
+     * The start offsets of the bootstrap methods of this class, or
+     * <tt>null</tt> if they have not been read yet. Used to read the
+     * CONSTANT_Dynamic items.
+     */
+    private int[] bootstrapMethods;
+
     /**
      * Start index of the class header information (access, name...) in
      * {@link #b b}.
@@ -161,12 +174,43 @@ public class ClassReader {
      * @param len the length of the class data.
      */
     public ClassReader(final byte[] b, final int off, final int len) {
+        this(b, off, len, null);
+    }
+
+    /**
+     * Constructs a new {@link ClassReader} object that shares the decoded
+     * CONSTANT_Utf8 items with other readers through the given cache.
+     *
+     * @param b the bytecode of the class to be read.
+     * @param utf8Cache the cache to be used to decode CONSTANT_Utf8 items, or
+     *        <tt>null</tt>.
+     */
+    public ClassReader(final byte[] b, final UTF8Cache utf8Cache) {
+        this(b, 0, b.length, utf8Cache);
+    }
+
+    /**
+     * Constructs a new {@link ClassReader} object that shares the decoded
+     * CONSTANT_Utf8 items with other readers through the given cache.
+     *
+     * @param b the bytecode of the class to be read.
+     * @param off the start offset of the class data.
+     * @param len the length of the class data.
+     * @param utf8Cache the cache to be used to decode CONSTANT_Utf8 items, or
+     *        <tt>null</tt>.
+     */
+    public ClassReader(
+        final byte[] b,
+        final int off,
+        final int len,
+        final UTF8Cache utf8Cache)
+    {
         this.b = b;
-        // checks the class version
-        if (readShort(6) > Opcodes.V1_7) {
-            throw new IllegalArgumentException();
-        }
-        // parses the constant pool
+        this.utf8Cache = utf8Cache;
+        // parses the constant pool (there is no check of the class version:
+        // more recent class files are parsed as long as their constant pool
+        // only contains known item types, their unknown attributes being
+        // handled as opaque Attribute objects)
         items = new int[readUnsignedShort(off + 8)];
         int n = items.length;
         strings = new String[n];
@@ -183,6 +227,7 @@ public class ClassReader {
                 case ClassWriter.FLOAT:
                 case ClassWriter.NAME_TYPE:
                 case ClassWriter.INDY:
+                case ClassWriter.CONDY:
                     size = 5;
                     break;
                 case ClassWriter.LONG:
@@ -199,12 +244,18 @@ public class ClassReader {
                 case ClassWriter.HANDLE:
                     size = 4;
                     break;
-                // case ClassWriter.CLASS:
-                // case ClassWriter.STR:
-                // case ClassWriter.MTYPE
-                default:
+                case ClassWriter.CLASS:
+                case ClassWriter.STR:
+                case ClassWriter.MTYPE:
+                case ClassWriter.MODULE:
+                case ClassWriter.PACKAGE:
                     size = 3;
                     break;
+                default:
+                    throw new IllegalArgumentException("Unknown constant pool item type "
+                            + b[index]
+                            + " in class file version "
+                            + readUnsignedShort(off + 6));
             }
             index += size;
         }
@@ -330,10 +381,7 @@ public class ClassReader {
                 case ClassWriter.UTF8: {
                     String s = strings[i];
                     if (s == null) {
-                        index = items[i];
-                        s = strings[i] = readUTF(index + 2,
-                                readUnsignedShort(index),
-                                buf);
+                        s = strings[i] = readUTF8Item(index, buf);
                     }
                     item.set(tag, s, null, null);
                 }
@@ -352,11 +400,13 @@ public class ClassReader {
 
 
                 case ClassWriter.INDY:
+                case ClassWriter.CONDY:
                     if (classWriter.bootstrapMethods == null) {
                         copyBootstrapMethods(classWriter, items2, buf);
                     }
                     nameType = items[readUnsignedShort(index + 2)];
-                    item.set(readUTF8(nameType, buf),
+                    item.set(tag,
+                            readUTF8(nameType, buf),
                             readUTF8(nameType + 2, buf),
                             readUnsignedShort(index));
                     break;
@@ -365,6 +415,8 @@ public class ClassReader {
                 // case ClassWriter.STR:
                 // case ClassWriter.CLASS:
                 // case ClassWriter.MTYPE
+                // case ClassWriter.MODULE
+                // case ClassWriter.PACKAGE
                 default:
                     item.set(tag, readUTF8(index, buf), null, null);
                     break;
@@ -477,7 +529,7 @@ public class ClassReader {
      * @return the bytecode read from the given input stream.
      * @throws IOException if a problem occurs during reading.
      */
-    private static byte[] readClass(final InputStream is, boolean close)
+    static byte[] readClass(final InputStream is, boolean close)
             throws IOException
     {
         if (is == null) {
@@ -587,7 +639,6 @@ public class ClassReader {
 
         boolean skipCode = (flags & SKIP_CODE) != 0;
         boolean skipDebug = (flags & SKIP_DEBUG) != 0;
-        boolean unzip = (flags & EXPAND_FRAMES) != 0;
 
         // skips fields and methods
         v = u;
@@ -984,650 +1035,774 @@ public class ClassReader {
             }
 
             if (mv != null && v != 0) {
-                int maxStack = readUnsignedShort(v);
-                int maxLocals = readUnsignedShort(v + 2);
-                int codeLength = readInt(v + 4);
-                v += 8;
-
-                int codeStart = v;
-                int codeEnd = v + codeLength;
-
-                mv.visitCode();
-
-                // 1st phase: finds the labels
-                int label;
-                Label[] labels = new Label[codeLength + 2];
-                readLabel(codeLength + 1, labels);
-                while (v < codeEnd) {
-                    w = v - codeStart;
-                    int opcode = b[v] & 0xFF;
-                    switch (ClassWriter.TYPE[opcode]) {
-                        case ClassWriter.NOARG_INSN:
-                        case ClassWriter.IMPLVAR_INSN:
-                            v += 1;
-                            break;
-                        case ClassWriter.LABEL_INSN:
-                            readLabel(w + readShort(v + 1), labels);
-                            v += 3;
-                            break;
-                        case ClassWriter.LABELW_INSN:
-                            readLabel(w + readInt(v + 1), labels);
-                            v += 5;
-                            break;
-                        case ClassWriter.WIDE_INSN:
-                            opcode = b[v + 1] & 0xFF;
-                            if (opcode == Opcodes.IINC) {
-                                v += 6;
-                            } else {
-                                v += 4;
-                            }
-                            break;
-                        case ClassWriter.TABL_INSN:
-                            // skips 0 to 3 padding bytes*
-                            v = v + 4 - (w & 3);
-                            // reads instruction
-                            readLabel(w + readInt(v), labels);
-                            j = readInt(v + 8) - readInt(v + 4) + 1;
-                            v += 12;
-                            for (; j > 0; --j) {
-                                readLabel(w + readInt(v), labels);
-                                v += 4;
-                            }
-                            break;
-                        case ClassWriter.LOOK_INSN:
-                            // skips 0 to 3 padding bytes*
-                            v = v + 4 - (w & 3);
-                            // reads instruction
-                            readLabel(w + readInt(v), labels);
-                            j = readInt(v + 4);
-                            v += 8;
-                            for (; j > 0; --j) {
-                                readLabel(w + readInt(v + 4), labels);
-                                v += 8;
-                            }
-                            break;
-                        case ClassWriter.VAR_INSN:
-                        case ClassWriter.SBYTE_INSN:
-                        case ClassWriter.LDC_INSN:
-                            v += 2;
-                            break;
-                        case ClassWriter.SHORT_INSN:
-                        case ClassWriter.LDCW_INSN:
-                        case ClassWriter.FIELDORMETH_INSN:
-                        case ClassWriter.TYPE_INSN:
-                        case ClassWriter.IINC_INSN:
-                            v += 3;
-                            break;
-                        case ClassWriter.ITFMETH_INSN:
-                        case ClassWriter.INDYMETH_INSN:
-                            v += 5;
-                            break;
-                        // case MANA_INSN:
-                        default:
-                            v += 4;
-                            break;
-                    }
-                }
-                // parses the try catch entries
-                j = readUnsignedShort(v);
-                v += 2;
+                readCode(mv, v, access, name, desc, bootstrapMethods, attrs, flags, c);
+            }
+
+            if (mv != null) {
+                mv.visitEnd();
+            }
+        }
+
+        // visits the end of the class
+        classVisitor.visitEnd();
+    }
+
+    /**
+     * Makes the given visitor visit the code of a method of this class. Only
+     * the methods of the visitor that visit the code are called, from
+     * {@link MethodVisitor#visitCode visitCode} to
+     * {@link MethodVisitor#visitMaxs visitMaxs}. This method can be used to
+     * decode the code of a single method, without reading the rest of the
+     * class.
+     *
+     * @param mv the visitor that must visit the code of the method.
+     * @param method the start offset in {@link #b b} of the method_info
+     *        structure of the method.
+     * @param attrs prototypes of the attributes that must be parsed during the
+     *        visit of the code. Any attribute whose type is not equal to the
+     *        type of one the prototypes is ignored.
+     * @param flags option flags that can be used to modify the default behavior
+     *        of this method. See {@link #SKIP_DEBUG}, {@link #EXPAND_FRAMES},
+     *        {@link #SKIP_FRAMES}.
+     * @return <tt>true</tt> if the code of the method was visited, or
+     *         <tt>false</tt> if this method does not have a Code attribute.
+     */
+    public boolean acceptCode(
+        final MethodVisitor mv,
+        final int method,
+        final Attribute[] attrs,
+        final int flags)
+    {
+        char[] c = new char[maxStringLength];
+        int access = readUnsignedShort(method);
+        String name = readUTF8(method + 2, c);
+        String desc = readUTF8(method + 4, c);
+        int u = method + 8;
+        for (int i = readUnsignedShort(method + 6); i > 0; --i) {
+            if ("Code".equals(readUTF8(u, c))) {
+                readCode(mv, u + 6, access, name, desc, null, attrs, flags, c);
+                return true;
+            }
+            u += 6 + readInt(u + 2);
+        }
+        return false;
+    }
+
+    /**
+     * Returns the start offsets of the bootstrap methods of this class.
+     *
+     * @param c buffer to be used to call {@link #readUTF8 readUTF8}.
+     * @return the start offsets in {@link #b b} of the bootstrap methods of
+     *         this class, or <tt>null</tt> if this class does not have a
+     *         BootstrapMethods attribute.
+     */
+    private int[] readBootstrapMethods(final char[] c) {
+        int u = header + 8 + 2 * readUnsignedShort(header + 6);
+        for (int i = 0; i < 2; ++i) {
+            int n = readUnsignedShort(u);
+            u += 2;
+            for (; n > 0; --n) {
+                int j = readUnsignedShort(u + 6);
+                u += 8;
                 for (; j > 0; --j) {
-                    Label start = readLabel(readUnsignedShort(v), labels);
-                    Label end = readLabel(readUnsignedShort(v + 2), labels);
-                    Label handler = readLabel(readUnsignedShort(v + 4), labels);
-                    int type = readUnsignedShort(v + 6);
-                    if (type == 0) {
-                        mv.visitTryCatchBlock(start, end, handler, null);
+                    u += 6 + readInt(u + 2);
+                }
+            }
+        }
+        int n = readUnsignedShort(u);
+        u += 2;
+        for (; n > 0; --n) {
+            if ("BootstrapMethods".equals(readUTF8(u, c))) {
+                int[] bootstrapMethods = new int[readUnsignedShort(u + 6)];
+                int x = u + 8;
+                for (int j = 0; j < bootstrapMethods.length; j++) {
+                    bootstrapMethods[j] = x;
+                    x += 2 + readUnsignedShort(x + 2) << 1;
+                }
+                return bootstrapMethods;
+            }
+            u += 6 + readInt(u + 2);
+        }
+        return null;
+    }
+
+    /**
+     * Reads the code of a method and makes the given visitor visit it.
+     *
+     * @param mv the visitor that must visit the code of the method.
+     * @param v start offset in {@link #b b} of the content of the Code
+     *        attribute of the method.
+     * @param access the method's access flags.
+     * @param name the method's name.
+     * @param desc the method's descriptor.
+     * @param bootstrapMethods the start offsets of the bootstrap methods of
+     *        this class, or <tt>null</tt> if they have not been read yet.
+     * @param attrs prototypes of the attributes that must be parsed during the
+     *        visit of the code.
+     * @param flags option flags. See {@link #accept(ClassVisitor, int) accept}.
+     * @param c buffer to be used to call {@link #readUTF8 readUTF8},
+     *        {@link #readClass(int,char[]) readClass} or
+     *        {@link #readConst readConst}.
+     */
+    private void readCode(
+        final MethodVisitor mv,
+        int v,
+        final int access,
+        final String name,
+        final String desc,
+        final int[] bootstrapMethods,
+        final Attribute[] attrs,
+        final int flags,
+        final char[] c)
+    {
+        byte[] b = this.b; // the bytecode array
+        int j, k; // loop variables
+        int w; // index in b
+        String attrName;
+        Attribute attr;
+        Attribute cattrs;
+        int[] bsms = bootstrapMethods;
+        boolean skipDebug = (flags & SKIP_DEBUG) != 0;
+        boolean unzip = (flags & EXPAND_FRAMES) != 0;
+
+        int maxStack = readUnsignedShort(v);
+        int maxLocals = readUnsignedShort(v + 2);
+        int codeLength = readInt(v + 4);
+        v += 8;
+
+        int codeStart = v;
+        int codeEnd = v + codeLength;
+
+        mv.visitCode();
+
+        // 1st phase: finds the labels
+        int label;
+        Label[] labels = new Label[codeLength + 2];
+        readLabel(codeLength + 1, labels);
+        while (v < codeEnd) {
+            w = v - codeStart;
+            int opcode = b[v] & 0xFF;
+            switch (ClassWriter.TYPE[opcode]) {
+                case ClassWriter.NOARG_INSN:
+                case ClassWriter.IMPLVAR_INSN:
+                    v += 1;
+                    break;
+                case ClassWriter.LABEL_INSN:
+                    readLabel(w + readShort(v + 1), labels);
+                    v += 3;
+                    break;
+                case ClassWriter.LABELW_INSN:
+                    readLabel(w + readInt(v + 1), labels);
+                    v += 5;
+                    break;
+                case ClassWriter.WIDE_INSN:
+                    opcode = b[v + 1] & 0xFF;
+                    if (opcode == Opcodes.IINC) {
+                        v += 6;
                     } else {
-                        mv.visitTryCatchBlock(start,
-                                end,
-                                handler,
-                                readUTF8(items[type], c));
+                        v += 4;
                     }
+                    break;
+                case ClassWriter.TABL_INSN:
+                    // skips 0 to 3 padding bytes*
+                    v = v + 4 - (w & 3);
+                    // reads instruction
+                    readLabel(w + readInt(v), labels);
+                    j = readInt(v + 8) - readInt(v + 4) + 1;
+                    v += 12;
+                    for (; j > 0; --j) {
+                        readLabel(w + readInt(v), labels);
+                        v += 4;
+                    }
+                    break;
+                case ClassWriter.LOOK_INSN:
+                    // skips 0 to 3 padding bytes*
+                    v = v + 4 - (w & 3);
+                    // reads instruction
+                    readLabel(w + readInt(v), labels);
+                    j = readInt(v + 4);
                     v += 8;
-                }
-                // parses the local variable, line number tables, and code
-                // attributes
-                int varTable = 0;
-                int varTypeTable = 0;
-                int stackMap = 0;
-                int stackMapSize = 0;
-                int frameCount = 0;
-                int frameMode = 0;
-                int frameOffset = 0;
-                int frameLocalCount = 0;
-                int frameLocalDiff = 0;
-                int frameStackCount = 0;
-                Object[] frameLocal = null;
-                Object[] frameStack = null;
-                boolean zip = true;
-                cattrs = null;
-                j = readUnsignedShort(v);
-                v += 2;
-                for (; j > 0; --j) {
-                    attrName = readUTF8(v, c);
-                    if ("LocalVariableTable".equals(attrName)) {
-                        if (!skipDebug) {
-                            varTable = v + 6;
-                            k = readUnsignedShort(v + 6);
-                            w = v + 8;
-                            for (; k > 0; --k) {
-                                label = readUnsignedShort(w);
-                                if (labels[label] == null) {
-                                    readLabel(label, labels).status |= Label.DEBUG;
-                                }
-                                label += readUnsignedShort(w + 2);
-                                if (labels[label] == null) {
-                                    readLabel(label, labels).status |= Label.DEBUG;
-                                }
-                                w += 10;
-                            }
-                        }
-                    } else if ("LocalVariableTypeTable".equals(attrName)) {
-                        varTypeTable = v + 6;
-                    } else if ("LineNumberTable".equals(attrName)) {
-                        if (!skipDebug) {
-                            k = readUnsignedShort(v + 6);
-                            w = v + 8;
-                            for (; k > 0; --k) {
-                                label = readUnsignedShort(w);
-                                if (labels[label] == null) {
-                                    readLabel(label, labels).status |= Label.DEBUG;
-                                }
-                                labels[label].line = readUnsignedShort(w + 2);
-                                w += 4;
-                            }
+                    for (; j > 0; --j) {
+                        readLabel(w + readInt(v + 4), labels);
+                        v += 8;
+                    }
+                    break;
+                case ClassWriter.VAR_INSN:
+                case ClassWriter.SBYTE_INSN:
+                case ClassWriter.LDC_INSN:
+                    v += 2;
+                    break;
+                case ClassWriter.SHORT_INSN:
+                case ClassWriter.LDCW_INSN:
+                case ClassWriter.FIELDORMETH_INSN:
+                case ClassWriter.TYPE_INSN:
+                case ClassWriter.IINC_INSN:
+                    v += 3;
+                    break;
+                case ClassWriter.ITFMETH_INSN:
+                case ClassWriter.INDYMETH_INSN:
+                    v += 5;
+                    break;
+                // case MANA_INSN:
+                default:
+                    v += 4;
+                    break;
+            }
+        }
+        // parses the try catch entries
+        j = readUnsignedShort(v);
+        v += 2;
+        for (; j > 0; --j) {
+            Label start = readLabel(readUnsignedShort(v), labels);
+            Label end = readLabel(readUnsignedShort(v + 2), labels);
+            Label handler = readLabel(readUnsignedShort(v + 4), labels);
+            int type = readUnsignedShort(v + 6);
+            if (type == 0) {
+                mv.visitTryCatchBlock(start, end, handler, null);
+            } else {
+                mv.visitTryCatchBlock(start,
+                        end,
+                        handler,
+                        readUTF8(items[type], c));
+            }
+            v += 8;
+        }
+        // parses the local variable, line number tables, and code
+        // attributes
+        int varTable = 0;
+        int varTypeTable = 0;
+        int stackMap = 0;
+        int stackMapSize = 0;
+        int frameCount = 0;
+        int frameMode = 0;
+        int frameOffset = 0;
+        int frameLocalCount = 0;
+        int frameLocalDiff = 0;
+        int frameStackCount = 0;
+        Object[] frameLocal = null;
+        Object[] frameStack = null;
+        boolean zip = true;
+        cattrs = null;
+        j = readUnsignedShort(v);
+        v += 2;
+        for (; j > 0; --j) {
+            attrName = readUTF8(v, c);
+            if ("LocalVariableTable".equals(attrName)) {
+                if (!skipDebug) {
+                    varTable = v + 6;
+                    k = readUnsignedShort(v + 6);
+                    w = v + 8;
+                    for (; k > 0; --k) {
+                        label = readUnsignedShort(w);
+                        if (labels[label] == null) {
+                            readLabel(label, labels).status |= Label.DEBUG;
                         }
-                    } else if (FRAMES && "StackMapTable".equals(attrName)) {
-                        if ((flags & SKIP_FRAMES) == 0) {
-                            stackMap = v + 8;
-                            stackMapSize = readInt(v + 2);
-                            frameCount = readUnsignedShort(v + 6);
+                        label += readUnsignedShort(w + 2);
+                        if (labels[label] == null) {
+                            readLabel(label, labels).status |= Label.DEBUG;
                         }
-                        /*
-                         * here we do not extract the labels corresponding to
-                         * the attribute content. This would require a full
-                         * parsing of the attribute, which would need to be
-                         * repeated in the second phase (see below). Instead the
-                         * content of the attribute is read one frame at a time
-                         * (i.e. after a frame has been visited, the next frame
-                         * is read), and the labels it contains are also
-                         * extracted one frame at a time. Thanks to the ordering
-                         * of frames, having only a "one frame lookahead" is not
-                         * a problem, i.e. it is not possible to see an offset
-                         * smaller than the offset of the current insn and for
-                         * which no Label exist.
-                         */
-                        /*
-                         * This is not true for UNINITIALIZED type offsets. We
-                         * solve this by parsing the stack map table without a
-                         * full decoding (see below).
-                         */
-                    } else if (FRAMES && "StackMap".equals(attrName)) {
-                        if ((flags & SKIP_FRAMES) == 0) {
-                            stackMap = v + 8;
-                            stackMapSize = readInt(v + 2);
-                            frameCount = readUnsignedShort(v + 6);
-                            zip = false;
+                        w += 10;
+                    }
+                }
+            } else if ("LocalVariableTypeTable".equals(attrName)) {
+                varTypeTable = v + 6;
+            } else if ("LineNumberTable".equals(attrName)) {
+                if (!skipDebug) {
+                    k = readUnsignedShort(v + 6);
+                    w = v + 8;
+                    for (; k > 0; --k) {
+                        label = readUnsignedShort(w);
+                        if (labels[label] == null) {
+                            readLabel(label, labels).status |= Label.DEBUG;
                         }
-                        /*
-                         * IMPORTANT! here we assume that the frames are
-                         * ordered, as in the StackMapTable attribute, although
-                         * this is not guaranteed by the attribute format.
-                         */
-                    } else {
-                        for (k = 0; k < attrs.length; ++k) {
-                            if (attrs[k].type.equals(attrName)) {
-                                attr = attrs[k].read(this,
-                                        v + 6,
-                                        readInt(v + 2),
-                                        c,
-                                        codeStart - 8,
-                                        labels);
-                                if (attr != null) {
-                                    attr.next = cattrs;
-                                    cattrs = attr;
-                                }
-                            }
+                        labels[label].line = readUnsignedShort(w + 2);
+                        w += 4;
+                    }
+                }
+            } else if (FRAMES && "StackMapTable".equals(attrName)) {
+                if ((flags & SKIP_FRAMES) == 0) {
+                    stackMap = v + 8;
+                    stackMapSize = readInt(v + 2);
+                    frameCount = readUnsignedShort(v + 6);
+                }
+                /*
+                 * here we do not extract the labels corresponding to
+                 * the attribute content. This would require a full
+                 * parsing of the attribute, which would need to be
+                 * repeated in the second phase (see below). Instead the
+                 * content of the attribute is read one frame at a time
+                 * (i.e. after a frame has been visited, the next frame
+                 * is read), and the labels it contains are also
+                 * extracted one frame at a time. Thanks to the ordering
+                 * of frames, having only a "one frame lookahead" is not
+                 * a problem, i.e. it is not possible to see an offset
+                 * smaller than the offset of the current insn and for
+                 * which no Label exist.
+                 */
+                /*
+                 * This is not true for UNINITIALIZED type offsets. We
+                 * solve this by parsing the stack map table without a
+                 * full decoding (see below).
+                 */
+            } else if (FRAMES && "StackMap".equals(attrName)) {
+                if ((flags & SKIP_FRAMES) == 0) {
+                    stackMap = v + 8;
+                    stackMapSize = readInt(v + 2);
+                    frameCount = readUnsignedShort(v + 6);
+                    zip = false;
+                }
+                /*
+                 * IMPORTANT! here we assume that the frames are
+                 * ordered, as in the StackMapTable attribute, although
+                 * this is not guaranteed by the attribute format.
+                 */
+            } else {
+                for (k = 0; k < attrs.length; ++k) {
+                    if (attrs[k].type.equals(attrName)) {
+                        attr = attrs[k].read(this,
+                                v + 6,
+                                readInt(v + 2),
+                                c,
+                                codeStart - 8,
+                                labels);
+                        if (attr != null) {
+                            attr.next = cattrs;
+                            cattrs = attr;
                         }
                     }
-                    v += 6 + readInt(v + 2);
                 }
+            }
+            v += 6 + readInt(v + 2);
+        }
 
-                // 2nd phase: visits each instruction
-                if (FRAMES && stackMap != 0) {
-                    // creates the very first (implicit) frame from the method
-                    // descriptor
-                    frameLocal = new Object[maxLocals];
-                    frameStack = new Object[maxStack];
-                    if (unzip) {
-                        int local = 0;
-                        if ((access & Opcodes.ACC_STATIC) == 0) {
-                            if ("<init>".equals(name)) {
-                                frameLocal[local++] = Opcodes.UNINITIALIZED_THIS;
-                            } else {
-                                frameLocal[local++] = readClass(header + 2, c);
-                            }
-                        }
-                        j = 1;
-                        loop: while (true) {
-                            k = j;
-                            switch (desc.charAt(j++)) {
-                                case 'Z':
-                                case 'C':
-                                case 'B':
-                                case 'S':
-                                case 'I':
-                                    frameLocal[local++] = Opcodes.INTEGER;
-                                    break;
-                                case 'F':
-                                    frameLocal[local++] = Opcodes.FLOAT;
-                                    break;
-                                case 'J':
-                                    frameLocal[local++] = Opcodes.LONG;
-                                    break;
-                                case 'D':
-                                    frameLocal[local++] = Opcodes.DOUBLE;
-                                    break;
-                                case '[':
-                                    while (desc.charAt(j) == '[') {
-                                        ++j;
-                                    }
-                                    if (desc.charAt(j) == 'L') {
-                                        ++j;
-                                        while (desc.charAt(j) != ';') {
-                                            ++j;
-                                        }
-                                    }
-                                    frameLocal[local++] = desc.substring(k, ++j);
-                                    break;
-                                case 'L':
-                                    while (desc.charAt(j) != ';') {
-                                        ++j;
-                                    }
-                                    frameLocal[local++] = desc.substring(k + 1,
-                                            j++);
-                                    break;
-                                default:
-                                    break loop;
-                            }
-                        }
-                        frameLocalCount = local;
+        // 2nd phase: visits each instruction
+        if (FRAMES && stackMap != 0) {
+            // creates the very first (implicit) frame from the method
+            // descriptor
+            frameLocal = new Object[maxLocals];
+            frameStack = new Object[maxStack];
+            if (unzip) {
+                int local = 0;
+                if ((access & Opcodes.ACC_STATIC) == 0) {
+                    if ("<init>".equals(name)) {
+                        frameLocal[local++] = Opcodes.UNINITIALIZED_THIS;
+                    } else {
+                        frameLocal[local++] = readClass(header + 2, c);
                     }
-                    /*
-                     * for the first explicit frame the offset is not
-                     * offset_delta + 1 but only offset_delta; setting the
-                     * implicit frame offset to -1 allow the use of the
-                     * "offset_delta + 1" rule in all cases
-                     */
-                    frameOffset = -1;
-                    /*
-                     * Finds labels for UNINITIALIZED frame types. Instead of
-                     * decoding each element of the stack map table, we look
-                     * for 3 consecutive bytes that "look like" an UNINITIALIZED
-                     * type (tag 8, offset within code bounds, NEW instruction
-                     * at this offset). We may find false positives (i.e. not
-                     * real UNINITIALIZED types), but this should be rare, and
-                     * the only consequence will be the creation of an unneeded
-                     * label. This is better than creating a label for each NEW
-                     * instruction, and faster than fully decoding the whole
-                     * stack map table.
-                     */
-                    for (j = stackMap; j < stackMap + stackMapSize - 2; ++j) {
-                        if (b[j] == 8) { // UNINITIALIZED FRAME TYPE
-                            k = readUnsignedShort(j + 1);
-                            if (k >= 0 && k < codeLength) { // potential offset
-                                if ((b[codeStart + k] & 0xFF) == Opcodes.NEW) { // NEW at this offset
-                                    readLabel(k, labels);
+                }
+                j = 1;
+                loop: while (true) {
+                    k = j;
+                    switch (desc.charAt(j++)) {
+                        case 'Z':
+                        case 'C':
+                        case 'B':
+                        case 'S':
+                        case 'I':
+                            frameLocal[local++] = Opcodes.INTEGER;
+                            break;
+                        case 'F':
+                            frameLocal[local++] = Opcodes.FLOAT;
+                            break;
+                        case 'J':
+                            frameLocal[local++] = Opcodes.LONG;
+                            break;
+                        case 'D':
+                            frameLocal[local++] = Opcodes.DOUBLE;
+                            break;
+                        case '[':
+                            while (desc.charAt(j) == '[') {
+                                ++j;
+                            }
+                            if (desc.charAt(j) == 'L') {
+                                ++j;
+                                while (desc.charAt(j) != ';') {
+                                    ++j;
                                 }
                             }
-                        }
+                            frameLocal[local++] = desc.substring(k, ++j);
+                            break;
+                        case 'L':
+                            while (desc.charAt(j) != ';') {
+                                ++j;
+                            }
+                            frameLocal[local++] = desc.substring(k + 1,
+                                    j++);
+                            break;
+                        default:
+                            break loop;
                     }
                 }
-                v = codeStart;
-                Label l;
-                while (v < codeEnd) {
-                    w = v - codeStart;
-
-                    l = labels[w];
-                    if (l != null) {
-                        mv.visitLabel(l);
-                        if (!skipDebug && l.line > 0) {
-                            mv.visitLineNumber(l.line, l);
+                frameLocalCount = local;
+            }
+            /*
+             * for the first explicit frame the offset is not
+             * offset_delta + 1 but only offset_delta; setting the
+             * implicit frame offset to -1 allow the use of the
+             * "offset_delta + 1" rule in all cases
+             */
+            frameOffset = -1;
+            /*
+             * Finds labels for UNINITIALIZED frame types. Instead of
+             * decoding each element of the stack map table, we look
+             * for 3 consecutive bytes that "look like" an UNINITIALIZED
+             * type (tag 8, offset within code bounds, NEW instruction
+             * at this offset). We may find false positives (i.e. not
+             * real UNINITIALIZED types), but this should be rare, and
+             * the only consequence will be the creation of an unneeded
+             * label. This is better than creating a label for each NEW
+             * instruction, and faster than fully decoding the whole
+             * stack map table.
+             */
+            for (j = stackMap; j < stackMap + stackMapSize - 2; ++j) {
+                if (b[j] == 8) { // UNINITIALIZED FRAME TYPE
+                    k = readUnsignedShort(j + 1);
+                    if (k >= 0 && k < codeLength) { // potential offset
+                        if ((b[codeStart + k] & 0xFF) == Opcodes.NEW) { // NEW at this offset
+                            readLabel(k, labels);
                         }
                     }
+                }
+            }
+        }
+        v = codeStart;
+        Label l;
+        while (v < codeEnd) {
+            w = v - codeStart;
+
+            l = labels[w];
+            if (l != null) {
+                mv.visitLabel(l);
+                if (!skipDebug && l.line > 0) {
+                    mv.visitLineNumber(l.line, l);
+                }
+            }
 
-                    while (FRAMES && frameLocal != null
-                            && (frameOffset == w || frameOffset == -1))
-                    {
-                        // if there is a frame for this offset,
-                        // makes the visitor visit it,
-                        // and reads the next frame if there is one.
-                        if (!zip || unzip) {
-                            mv.visitFrame(Opcodes.F_NEW,
-                                    frameLocalCount,
-                                    frameLocal,
-                                    frameStackCount,
-                                    frameStack);
-                        } else if (frameOffset != -1) {
-                            mv.visitFrame(frameMode,
-                                    frameLocalDiff,
-                                    frameLocal,
-                                    frameStackCount,
-                                    frameStack);
-                        }
+            while (FRAMES && frameLocal != null
+                    && (frameOffset == w || frameOffset == -1))
+            {
+                // if there is a frame for this offset,
+                // makes the visitor visit it,
+                // and reads the next frame if there is one.
+                if (!zip || unzip) {
+                    mv.visitFrame(Opcodes.F_NEW,
+                            frameLocalCount,
+                            frameLocal,
+                            frameStackCount,
+                            frameStack);
+                } else if (frameOffset != -1) {
+                    mv.visitFrame(frameMode,
+                            frameLocalDiff,
+                            frameLocal,
+                            frameStackCount,
+                            frameStack);
+                }
 
-                        if (frameCount > 0) {
-                            int tag, delta, n;
-                            if (zip) {
-                                tag = b[stackMap++] & 0xFF;
-                            } else {
-                                tag = MethodWriter.FULL_FRAME;
-                                frameOffset = -1;
-                            }
-                            frameLocalDiff = 0;
-                            if (tag < MethodWriter.SAME_LOCALS_1_STACK_ITEM_FRAME)
+                if (frameCount > 0) {
+                    int tag, delta, n;
+                    if (zip) {
+                        tag = b[stackMap++] & 0xFF;
+                    } else {
+                        tag = MethodWriter.FULL_FRAME;
+                        frameOffset = -1;
+                    }
+                    frameLocalDiff = 0;
+                    if (tag < MethodWriter.SAME_LOCALS_1_STACK_ITEM_FRAME)
+                    {
+                        delta = tag;
+                        frameMode = Opcodes.F_SAME;
+                        frameStackCount = 0;
+                    } else if (tag < MethodWriter.RESERVED) {
+                        delta = tag
+                                - MethodWriter.SAME_LOCALS_1_STACK_ITEM_FRAME;
+                        stackMap = readFrameType(frameStack,
+                                0,
+                                stackMap,
+                                c,
+                                labels);
+                        frameMode = Opcodes.F_SAME1;
+                        frameStackCount = 1;
+                    } else {
+                        delta = readUnsignedShort(stackMap);
+                        stackMap += 2;
+                        if (tag == MethodWriter.SAME_LOCALS_1_STACK_ITEM_FRAME_EXTENDED)
+                        {
+                            stackMap = readFrameType(frameStack,
+                                    0,
+                                    stackMap,
+                                    c,
+                                    labels);
+                            frameMode = Opcodes.F_SAME1;
+                            frameStackCount = 1;
+                        } else if (tag >= MethodWriter.CHOP_FRAME
+                                && tag < MethodWriter.SAME_FRAME_EXTENDED)
+                        {
+                            frameMode = Opcodes.F_CHOP;
+                            frameLocalDiff = MethodWriter.SAME_FRAME_EXTENDED
+                                    - tag;
+                            frameLocalCount -= frameLocalDiff;
+                            frameStackCount = 0;
+                        } else if (tag == MethodWriter.SAME_FRAME_EXTENDED)
+                        {
+                            frameMode = Opcodes.F_SAME;
+                            frameStackCount = 0;
+                        } else if (tag < MethodWriter.FULL_FRAME) {
+                            j = unzip ? frameLocalCount : 0;
+                            for (k = tag
+                                    - MethodWriter.SAME_FRAME_EXTENDED; k > 0; k--)
                             {
-                                delta = tag;
-                                frameMode = Opcodes.F_SAME;
-                                frameStackCount = 0;
-                            } else if (tag < MethodWriter.RESERVED) {
-                                delta = tag
-                                        - MethodWriter.SAME_LOCALS_1_STACK_ITEM_FRAME;
+                                stackMap = readFrameType(frameLocal,
+                                        j++,
+                                        stackMap,
+                                        c,
+                                        labels);
+                            }
+                            frameMode = Opcodes.F_APPEND;
+                            frameLocalDiff = tag
+                                    - MethodWriter.SAME_FRAME_EXTENDED;
+                            frameLocalCount += frameLocalDiff;
+                            frameStackCount = 0;
+                        } else { // if (tag == FULL_FRAME) {
+                            frameMode = Opcodes.F_FULL;
+                            n = frameLocalDiff = frameLocalCount = readUnsignedShort(stackMap);
+                            stackMap += 2;
+                            for (j = 0; n > 0; n--) {
+                                stackMap = readFrameType(frameLocal,
+                                        j++,
+                                        stackMap,
+                                        c,
+                                        labels);
+                            }
+                            n = frameStackCount = readUnsignedShort(stackMap);
+                            stackMap += 2;
+                            for (j = 0; n > 0; n--) {
                                 stackMap = readFrameType(frameStack,
-                                        0,
+                                        j++,
                                         stackMap,
                                         c,
                                         labels);
-                                frameMode = Opcodes.F_SAME1;
-                                frameStackCount = 1;
-                            } else {
-                                delta = readUnsignedShort(stackMap);
-                                stackMap += 2;
-                                if (tag == MethodWriter.SAME_LOCALS_1_STACK_ITEM_FRAME_EXTENDED)
-                                {
-                                    stackMap = readFrameType(frameStack,
-                                            0,
-                                            stackMap,
-                                            c,
-                                            labels);
-                                    frameMode = Opcodes.F_SAME1;
-                                    frameStackCount = 1;
-                                } else if (tag >= MethodWriter.CHOP_FRAME
-                                        && tag < MethodWriter.SAME_FRAME_EXTENDED)
-                                {
-                                    frameMode = Opcodes.F_CHOP;
-                                    frameLocalDiff = MethodWriter.SAME_FRAME_EXTENDED
-                                            - tag;
-                                    frameLocalCount -= frameLocalDiff;
-                                    frameStackCount = 0;
-                                } else if (tag == MethodWriter.SAME_FRAME_EXTENDED)
-                                {
-                                    frameMode = Opcodes.F_SAME;
-                                    frameStackCount = 0;
-                                } else if (tag < MethodWriter.FULL_FRAME) {
-                                    j = unzip ? frameLocalCount : 0;
-                                    for (k = tag
-                                            - MethodWriter.SAME_FRAME_EXTENDED; k > 0; k--)
-                                    {
-                                        stackMap = readFrameType(frameLocal,
-                                                j++,
-                                                stackMap,
-                                                c,
-                                                labels);
-                                    }
-                                    frameMode = Opcodes.F_APPEND;
-                                    frameLocalDiff = tag
-                                            - MethodWriter.SAME_FRAME_EXTENDED;
-                                    frameLocalCount += frameLocalDiff;
-                                    frameStackCount = 0;
-                                } else { // if (tag == FULL_FRAME) {
-                                    frameMode = Opcodes.F_FULL;
-                                    n = frameLocalDiff = frameLocalCount = readUnsignedShort(stackMap);
-                                    stackMap += 2;
-                                    for (j = 0; n > 0; n--) {
-                                        stackMap = readFrameType(frameLocal,
-                                                j++,
-                                                stackMap,
-                                                c,
-                                                labels);
-                                    }
-                                    n = frameStackCount = readUnsignedShort(stackMap);
-                                    stackMap += 2;
-                                    for (j = 0; n > 0; n--) {
-                                        stackMap = readFrameType(frameStack,
-                                                j++,
-                                                stackMap,
-                                                c,
-                                                labels);
-                                    }
-                                }
                             }
-                            frameOffset += delta + 1;
-                            readLabel(frameOffset, labels);
-
-                            --frameCount;
-                        } else {
-                            frameLocal = null;
                         }
                     }
+                    frameOffset += delta + 1;
+                    readLabel(frameOffset, labels);
 
-                    int opcode = b[v] & 0xFF;
-                    switch (ClassWriter.TYPE[opcode]) {
-                        case ClassWriter.NOARG_INSN:
-                            mv.visitInsn(opcode);
-                            v += 1;
-                            break;
-                        case ClassWriter.IMPLVAR_INSN:
-                            if (opcode > Opcodes.ISTORE) {
-                                opcode -= 59; // ISTORE_0
-                                mv.visitVarInsn(Opcodes.ISTORE + (opcode >> 2),
-                                        opcode & 0x3);
-                            } else {
-                                opcode -= 26; // ILOAD_0
-                                mv.visitVarInsn(Opcodes.ILOAD + (opcode >> 2),
-                                        opcode & 0x3);
-                            }
-                            v += 1;
-                            break;
-                        case ClassWriter.LABEL_INSN:
-                            mv.visitJumpInsn(opcode, labels[w
-                                    + readShort(v + 1)]);
-                            v += 3;
-                            break;
-                        case ClassWriter.LABELW_INSN:
-                            mv.visitJumpInsn(opcode - 33, labels[w
-                                    + readInt(v + 1)]);
-                            v += 5;
-                            break;
-                        case ClassWriter.WIDE_INSN:
-                            opcode = b[v + 1] & 0xFF;
-                            if (opcode == Opcodes.IINC) {
-                                mv.visitIincInsn(readUnsignedShort(v + 2),
-                                        readShort(v + 4));
-                                v += 6;
-                            } else {
-                                mv.visitVarInsn(opcode,
-                                        readUnsignedShort(v + 2));
-                                v += 4;
-                            }
-                            break;
-                        case ClassWriter.TABL_INSN:
-                            // skips 0 to 3 padding bytes
-                            v = v + 4 - (w & 3);
-                            // reads instruction
-                            label = w + readInt(v);
-                            int min = readInt(v + 4);
-                            int max = readInt(v + 8);
-                            v += 12;
-                            Label[] table = new Label[max - min + 1];
-                            for (j = 0; j < table.length; ++j) {
-                                table[j] = labels[w + readInt(v)];
-                                v += 4;
-                            }
-                            mv.visitTableSwitchInsn(min,
-                                    max,
-                                    labels[label],
-                                    table);
-                            break;
-                        case ClassWriter.LOOK_INSN:
-                            // skips 0 to 3 padding bytes
-                            v = v + 4 - (w & 3);
-                            // reads instruction
-                            label = w + readInt(v);
-                            j = readInt(v + 4);
-                            v += 8;
-                            int[] keys = new int[j];
-                            Label[] values = new Label[j];
-                            for (j = 0; j < keys.length; ++j) {
-                                keys[j] = readInt(v);
-                                values[j] = labels[w + readInt(v + 4)];
-                                v += 8;
-                            }
-                            mv.visitLookupSwitchInsn(labels[label],
-                                    keys,
-                                    values);
-                            break;
-                        case ClassWriter.VAR_INSN:
-                            mv.visitVarInsn(opcode, b[v + 1] & 0xFF);
-                            v += 2;
-                            break;
-                        case ClassWriter.SBYTE_INSN:
-                            mv.visitIntInsn(opcode, b[v + 1]);
-                            v += 2;
-                            break;
-                        case ClassWriter.SHORT_INSN:
-                            mv.visitIntInsn(opcode, readShort(v + 1));
-                            v += 3;
-                            break;
-                        case ClassWriter.LDC_INSN:
-                            mv.visitLdcInsn(readConst(b[v + 1] & 0xFF, c));
-                            v += 2;
-                            break;
-                        case ClassWriter.LDCW_INSN:
-                            mv.visitLdcInsn(readConst(readUnsignedShort(v + 1),
-                                    c));
-                            v += 3;
-                            break;
-                        case ClassWriter.FIELDORMETH_INSN:
-                        case ClassWriter.ITFMETH_INSN: {
-                            int cpIndex = items[readUnsignedShort(v + 1)];
-                            String iowner = readClass(cpIndex, c);
-                            cpIndex = items[readUnsignedShort(cpIndex + 2)];
-                            String iname = readUTF8(cpIndex, c);
-                            String idesc = readUTF8(cpIndex + 2, c);
-                            if (opcode < Opcodes.INVOKEVIRTUAL) {
-                                mv.visitFieldInsn(opcode, iowner, iname, idesc);
-                            } else {
-                                mv.visitMethodInsn(opcode, iowner, iname, idesc);
-                            }
-                            if (opcode == Opcodes.INVOKEINTERFACE) {
-                                v += 5;
-                            } else {
-                                v += 3;
-                            }
-                            break;
-                        }
-                        case ClassWriter.INDYMETH_INSN: {
-                            int cpIndex = items[readUnsignedShort(v + 1)];
-                            int bsmIndex = bootstrapMethods[readUnsignedShort(cpIndex)];
-                            cpIndex = items[readUnsignedShort(cpIndex + 2)];
-                            String iname = readUTF8(cpIndex, c);
-                            String idesc = readUTF8(cpIndex + 2, c);
-
-                            int mhIndex = readUnsignedShort(bsmIndex);
-                            Handle bsm = (Handle) readConst(mhIndex, c);
-                            int bsmArgCount = readUnsignedShort(bsmIndex + 2);
-                            Object[] bsmArgs = new Object[bsmArgCount];
-                            bsmIndex += 4;
-                            for(int a = 0; a < bsmArgCount; a++) {
-                                int argIndex = readUnsignedShort(bsmIndex);
-                                bsmArgs[a] = readConst(argIndex, c);
-                                bsmIndex += 2;
-                            }
-                            mv.visitInvokeDynamicInsn(iname, idesc, bsm, bsmArgs);
+                    --frameCount;
+                } else {
+                    frameLocal = null;
+                }
+            }
 
-                            v += 5;
-                            break;
-                        }
-                        case ClassWriter.TYPE_INSN:
-                            mv.visitTypeInsn(opcode, readClass(v + 1, c));
-                            v += 3;
-                            break;
-                        case ClassWriter.IINC_INSN:
-                            mv.visitIincInsn(b[v + 1] & 0xFF, b[v + 2]);
-                            v += 3;
-                            break;
-                        // case MANA_INSN:
-                        default:
-                            mv.visitMultiANewArrayInsn(readClass(v + 1, c),
-                                    b[v + 3] & 0xFF);
-                            v += 4;
-                            break;
+            int opcode = b[v] & 0xFF;
+            switch (ClassWriter.TYPE[opcode]) {
+                case ClassWriter.NOARG_INSN:
+                    mv.visitInsn(opcode);
+                    v += 1;
+                    break;
+                case ClassWriter.IMPLVAR_INSN:
+                    if (opcode > Opcodes.ISTORE) {
+                        opcode -= 59; // ISTORE_0
+                        mv.visitVarInsn(Opcodes.ISTORE + (opcode >> 2),
+                                opcode & 0x3);
+                    } else {
+                        opcode -= 26; // ILOAD_0
+                        mv.visitVarInsn(Opcodes.ILOAD + (opcode >> 2),
+                                opcode & 0x3);
                     }
-                }
-                l = labels[codeEnd - codeStart];
-                if (l != null) {
-                    mv.visitLabel(l);
-                }
-                // visits the local variable tables
-                if (!skipDebug && varTable != 0) {
-                    int[] typeTable = null;
-                    if (varTypeTable != 0) {
-                        k = readUnsignedShort(varTypeTable) * 3;
-                        w = varTypeTable + 2;
-                        typeTable = new int[k];
-                        while (k > 0) {
-                            typeTable[--k] = w + 6; // signature
-                            typeTable[--k] = readUnsignedShort(w + 8); // index
-                            typeTable[--k] = readUnsignedShort(w); // start
-                            w += 10;
-                        }
+                    v += 1;
+                    break;
+                case ClassWriter.LABEL_INSN:
+                    mv.visitJumpInsn(opcode, labels[w
+                            + readShort(v + 1)]);
+                    v += 3;
+                    break;
+                case ClassWriter.LABELW_INSN:
+                    mv.visitJumpInsn(opcode - 33, labels[w
+                            + readInt(v + 1)]);
+                    v += 5;
+                    break;
+                case ClassWriter.WIDE_INSN:
+                    opcode = b[v + 1] & 0xFF;
+                    if (opcode == Opcodes.IINC) {
+                        mv.visitIincInsn(readUnsignedShort(v + 2),
+                                readShort(v + 4));
+                        v += 6;
+                    } else {
+                        mv.visitVarInsn(opcode,
+                                readUnsignedShort(v + 2));
+                        v += 4;
                     }
-                    k = readUnsignedShort(varTable);
-                    w = varTable + 2;
-                    for (; k > 0; --k) {
-                        int start = readUnsignedShort(w);
-                        int length = readUnsignedShort(w + 2);
-                        int index = readUnsignedShort(w + 8);
-                        String vsignature = null;
-                        if (typeTable != null) {
-                            for (int a = 0; a < typeTable.length; a += 3) {
-                                if (typeTable[a] == start
-                                        && typeTable[a + 1] == index)
-                                {
-                                    vsignature = readUTF8(typeTable[a + 2], c);
-                                    break;
-                                }
-                            }
-                        }
-                        mv.visitLocalVariable(readUTF8(w + 4, c),
-                                readUTF8(w + 6, c),
-                                vsignature,
-                                labels[start],
-                                labels[start + length],
-                                index);
-                        w += 10;
+                    break;
+                case ClassWriter.TABL_INSN:
+                    // skips 0 to 3 padding bytes
+                    v = v + 4 - (w & 3);
+                    // reads instruction
+                    label = w + readInt(v);
+                    int min = readInt(v + 4);
+                    int max = readInt(v + 8);
+                    v += 12;
+                    Label[] table = new Label[max - min + 1];
+                    for (j = 0; j < table.length; ++j) {
+                        table[j] = labels[w + readInt(v)];
+                        v += 4;
                     }
+                    mv.visitTableSwitchInsn(min,
+                            max,
+                            labels[label],
+                            table);
+                    break;
+                case ClassWriter.LOOK_INSN:
+                    // skips 0 to 3 padding bytes
+                    v = v + 4 - (w & 3);
+                    // reads instruction
+                    label = w + readInt(v);
+                    j = readInt(v + 4);
+                    v += 8;
+                    int[] keys = new int[j];
+                    Label[] values = new Label[j];
+                    for (j = 0; j < keys.length; ++j) {
+                        keys[j] = readInt(v);
+                        values[j] = labels[w + readInt(v + 4)];
+                        v += 8;
+                    }
+                    mv.visitLookupSwitchInsn(labels[label],
+                            keys,
+                            values);
+                    break;
+                case ClassWriter.VAR_INSN:
+                    mv.visitVarInsn(opcode, b[v + 1] & 0xFF);
+                    v += 2;
+                    break;
+                case ClassWriter.SBYTE_INSN:
+                    mv.visitIntInsn(opcode, b[v + 1]);
+                    v += 2;
+                    break;
+                case ClassWriter.SHORT_INSN:
+                    mv.visitIntInsn(opcode, readShort(v + 1));
+                    v += 3;
+                    break;
+                case ClassWriter.LDC_INSN:
+                    mv.visitLdcInsn(readConst(b[v + 1] & 0xFF, c));
+                    v += 2;
+                    break;
+                case ClassWriter.LDCW_INSN:
+                    mv.visitLdcInsn(readConst(readUnsignedShort(v + 1),
+                            c));
+                    v += 3;
+                    break;
+                case ClassWriter.FIELDORMETH_INSN:
+                case ClassWriter.ITFMETH_INSN: {
+                    int cpIndex = items[readUnsignedShort(v + 1)];
+                    String iowner = readClass(cpIndex, c);
+                    cpIndex = items[readUnsignedShort(cpIndex + 2)];
+                    String iname = readUTF8(cpIndex, c);
+                    String idesc = readUTF8(cpIndex + 2, c);
+                    if (opcode < Opcodes.INVOKEVIRTUAL) {
+                        mv.visitFieldInsn(opcode, iowner, iname, idesc);
+                    } else if (opcode != Opcodes.INVOKEINTERFACE
+                            && b[items[readUnsignedShort(v + 1)] - 1] == ClassWriter.IMETH)
+                    {
+                        // INVOKESTATIC or INVOKESPECIAL of an
+                        // interface method (Java 8 and later)
+                        mv.visitMethodInsn(opcode, iowner, iname, idesc, true);
+                    } else {
+                        mv.visitMethodInsn(opcode, iowner, iname, idesc);
+                    }
+                    if (opcode == Opcodes.INVOKEINTERFACE) {
+                        v += 5;
+                    } else {
+                        v += 3;
+                    }
+                    break;
                 }
-                // visits the other attributes
-                while (cattrs != null) {
-                    attr = cattrs.next;
-                    cattrs.next = null;
-                    mv.visitAttribute(cattrs);
-                    cattrs = attr;
+                case ClassWriter.INDYMETH_INSN: {
+                    int cpIndex = items[readUnsignedShort(v + 1)];
+                    if (bsms == null) {
+                        bsms = readBootstrapMethods(c);
+                    }
+                    int bsmIndex = bsms[readUnsignedShort(cpIndex)];
+                    cpIndex = items[readUnsignedShort(cpIndex + 2)];
+                    String iname = readUTF8(cpIndex, c);
+                    String idesc = readUTF8(cpIndex + 2, c);
+
+                    int mhIndex = readUnsignedShort(bsmIndex);
+                    Handle bsm = (Handle) readConst(mhIndex, c);
+                    Object[] bsmArgs = readBootstrapMethodArguments(bsmIndex,
+                            c);
+                    mv.visitInvokeDynamicInsn(iname, idesc, bsm, bsmArgs);
+
+                    v += 5;
+                    break;
                 }
-                // visits the max stack and max locals values
-                mv.visitMaxs(maxStack, maxLocals);
+                case ClassWriter.TYPE_INSN:
+                    mv.visitTypeInsn(opcode, readClass(v + 1, c));
+                    v += 3;
+                    break;
+                case ClassWriter.IINC_INSN:
+                    mv.visitIincInsn(b[v + 1] & 0xFF, b[v + 2]);
+                    v += 3;
+                    break;
+                // case MANA_INSN:
+                default:
+                    mv.visitMultiANewArrayInsn(readClass(v + 1, c),
+                            b[v + 3] & 0xFF);
+                    v += 4;
+                    break;
             }
-
-            if (mv != null) {
-                mv.visitEnd();
+        }
+        l = labels[codeEnd - codeStart];
+        if (l != null) {
+            mv.visitLabel(l);
+        }
+        // visits the local variable tables
+        if (!skipDebug && varTable != 0) {
+            int[] typeTable = null;
+            if (varTypeTable != 0) {
+                k = readUnsignedShort(varTypeTable) * 3;
+                w = varTypeTable + 2;
+                typeTable = new int[k];
+                while (k > 0) {
+                    typeTable[--k] = w + 6; // signature
+                    typeTable[--k] = readUnsignedShort(w + 8); // index
+                    typeTable[--k] = readUnsignedShort(w); // start
+                    w += 10;
+                }
+            }
+            k = readUnsignedShort(varTable);
+            w = varTable + 2;
+            for (; k > 0; --k) {
+                int start = readUnsignedShort(w);
+                int length = readUnsignedShort(w + 2);
+                int index = readUnsignedShort(w + 8);
+                String vsignature = null;
+                if (typeTable != null) {
+                    for (int a = 0; a < typeTable.length; a += 3) {
+                        if (typeTable[a] == start
+                                && typeTable[a + 1] == index)
+                        {
+                            vsignature = readUTF8(typeTable[a + 2], c);
+                            break;
+                        }
+                    }
+                }
+                mv.visitLocalVariable(readUTF8(w + 4, c),
+                        readUTF8(w + 6, c),
+                        vsignature,
+                        labels[start],
+                        labels[start + length],
+                        index);
+                w += 10;
             }
         }
-
-        // visits the end of the class
-        classVisitor.visitEnd();
+        // visits the other attributes
+        while (cattrs != null) {
+            attr = cattrs.next;
+            cattrs.next = null;
+            mv.visitAttribute(cattrs);
+            cattrs = attr;
+        }
+        // visits the max stack and max locals values
+        mv.visitMaxs(maxStack, maxLocals);
     }
 
     /**
@@ -1979,6 +2154,14 @@ public class ClassReader {
                 return attrs[i].read(this, off, len, buf, codeOff, labels);
             }
         }
+        if (ClassNamesAttribute.isClassNamesAttribute(type)) {
+            return new ClassNamesAttribute(type).read(this,
+                    off,
+                    len,
+                    buf,
+                    -1,
+                    null);
+        }
         return new Attribute(type).read(this, off, len, null, -1, null);
     }
 
@@ -2102,8 +2285,48 @@ public class ClassReader {
         if (s != null) {
             return s;
         }
-        index = items[item];
-        return strings[item] = readUTF(index + 2, readUnsignedShort(index), buf);
+        return strings[item] = readUTF8Item(items[item], buf);
+    }
+
+    /**
+     * Reads the UTF8 string constant pool item of the given index. <i>This
+     * method is intended for tools that inspect the whole constant pool, and
+     * is normally not needed by class generators or adapters.</i>
+     *
+     * @param item the index of a constant pool item.
+     * @param buf buffer to be used to read the item. This buffer must be
+     *        sufficiently large. It is not automatically resized.
+     * @return the String corresponding to the specified item, or <tt>null</tt>
+     *         if this item is not a CONSTANT_Utf8 item.
+     */
+    public String readUTF8Const(final int item, final char[] buf) {
+        int index = items[item];
+        if (index == 0 || b[index - 1] != ClassWriter.UTF8) {
+            return null;
+        }
+        String s = strings[item];
+        if (s != null) {
+            return s;
+        }
+        return strings[item] = readUTF8Item(index, buf);
+    }
+
+    /**
+     * Reads the content of a CONSTANT_Utf8 item in {@link #b b}, using the
+     * shared {@link UTF8Cache}, if any.
+     *
+     * @param index the start index of the CONSTANT_Utf8 item in {@link #b b},
+     *        plus one.
+     * @param buf buffer to be used to read the item. This buffer must be
+     *        sufficiently large. It is not automatically resized.
+     * @return the String corresponding to the specified UTF8 item.
+     */
+    private String readUTF8Item(final int index, final char[] buf) {
+        int utfLen = readUnsignedShort(index);
+        if (utf8Cache != null) {
+            return utf8Cache.get(this, index + 2, utfLen, buf);
+        }
+        return readUTF(index + 2, utfLen, buf);
     }
 
     /**
@@ -2115,9 +2338,28 @@ public class ClassReader {
      *        sufficiently large. It is not automatically resized.
      * @return the String corresponding to the specified UTF8 string.
      */
-    private String readUTF(int index, final int utfLen, final char[] buf) {
+    String readUTF(final int index, final int utfLen, final char[] buf) {
+        return readUTF(b, index, utfLen, buf);
+    }
+
+    /**
+     * Reads UTF8 string in the given byte array. This decoder is shared with
+     * {@link ClassHeaderReader}.
+     *
+     * @param b a byte array containing a class.
+     * @param index start offset of the UTF8 string to be read.
+     * @param utfLen length of the UTF8 string to be read.
+     * @param buf buffer to be used to read the string. This buffer must be
+     *        sufficiently large. It is not automatically resized.
+     * @return the String corresponding to the specified UTF8 string.
+     */
+    static String readUTF(
+        final byte[] b,
+        int index,
+        final int utfLen,
+        final char[] buf)
+    {
         int endIndex = index + utfLen;
-        byte[] b = this.b;
         int strLen = 0;
         int c;
         int st = 0;
@@ -2170,6 +2412,27 @@ public class ClassReader {
         return readUTF8(items[readUnsignedShort(index)], buf);
     }
 
+    /**
+     * Reads the arguments of a bootstrap method.
+     *
+     * @param bsmIndex the start offset of a bootstrap method in {@link #b b}.
+     * @param buf buffer to be used to read the arguments. This buffer must be
+     *        sufficiently large. It is not automatically resized.
+     * @return the constant arguments of this bootstrap method.
+     */
+    private Object[] readBootstrapMethodArguments(
+        final int bsmIndex,
+        final char[] buf)
+    {
+        Object[] bsmArgs = new Object[readUnsignedShort(bsmIndex + 2)];
+        int index = bsmIndex + 4;
+        for (int i = 0; i < bsmArgs.length; ++i) {
+            bsmArgs[i] = readConst(readUnsignedShort(index), buf);
+            index += 2;
+        }
+        return bsmArgs;
+    }
+
     /**
      * Reads a numeric or string constant pool item in {@link #b b}. <i>This
      * method is intended for {@link Attribute} sub classes, and is normally not
@@ -2179,8 +2442,9 @@ public class ClassReader {
      * @param buf buffer to be used to read the item. This buffer must be
      *        sufficiently large. It is not automatically resized.
      * @return the {@link Integer}, {@link Float}, {@link Long}, {@link Double},
-     *         {@link String}, {@link Type} or {@link Handle} corresponding to
-     *         the given constant pool item.
+     *         {@link String}, {@link Type}, {@link Handle} or
+     *         {@link ConstantDynamic} corresponding to the given constant pool
+     *         item.
      */
     public Object readConst(final int item, final char[] buf) {
         int index = items[item];
@@ -2199,6 +2463,22 @@ public class ClassReader {
                 return readUTF8(index, buf);
             case ClassWriter.MTYPE:
                 return Type.getMethodType(readUTF8(index, buf));
+            case ClassWriter.CONDY: {
+                int[] bsms = bootstrapMethods;
+                if (bsms == null) {
+                    bsms = bootstrapMethods = readBootstrapMethods(buf);
+                }
+                int bsmIndex = bsms[readUnsignedShort(index)];
+                int nameType = items[readUnsignedShort(index + 2)];
+                String name = readUTF8(nameType, buf);
+                String desc = readUTF8(nameType + 2, buf);
+                Handle bsm = (Handle) readConst(readUnsignedShort(bsmIndex),
+                        buf);
+                return new ConstantDynamic(name,
+                        desc,
+                        bsm,
+                        readBootstrapMethodArguments(bsmIndex, buf));
+            }
 
             //case ClassWriter.HANDLE_BASE + [1..9]:
             default: {
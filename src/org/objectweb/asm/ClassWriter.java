@@ -236,6 +236,21 @@ public class ClassWriter extends ClassVisitor {
      */
     public static final int INDY = 18;
 
+    /**
+     * The type of CONSTANT_Dynamic constant pool items (Java 11).
+     */
+    public static final int CONDY = 17;
+
+    /**
+     * The type of CONSTANT_Module constant pool items (Java 9).
+     */
+    public static final int MODULE = 19;
+
+    /**
+     * The type of CONSTANT_Package constant pool items (Java 9).
+     */
+    public static final int PACKAGE = 20;
+
     /**
      * The base value for all CONSTANT_MethodHandle constant pool items.
      * Internally, ASM store the 9 variations of CONSTANT_MethodHandle into
@@ -1003,8 +1018,8 @@ public class ClassWriter extends ClassVisitor {
      *
      * @param cst the value of the constant to be added to the constant pool.
      *        This parameter must be an {@link Integer}, a {@link Float}, a
-     *        {@link Long}, a {@link Double}, a {@link String} or a
-     *        {@link Type}.
+     *        {@link Long}, a {@link Double}, a {@link String}, a
+     *        {@link Type}, a {@link Handle} or a {@link ConstantDynamic}.
      * @return a new or already existing constant item with the given value.
      */
     Item newConstItem(final Object cst) {
@@ -1047,6 +1062,9 @@ public class ClassWriter extends ClassVisitor {
         } else if (cst instanceof Handle) {
             Handle h = (Handle) cst;
             return newHandleItem(h.tag, h.owner, h.name, h.desc);
+        } else if (cst instanceof ConstantDynamic) {
+            ConstantDynamic c = (ConstantDynamic) cst;
+            return newConstantDynamicItem(c.name, c.desc, c.bsm, c.bsmArgs);
         } else {
             throw new IllegalArgumentException("value " + cst);
         }
@@ -1223,24 +1241,28 @@ public class ClassWriter extends ClassVisitor {
     }
 
     /**
-     * Adds an invokedynamic reference to the constant pool of the class being
-     * build. Does nothing if the constant pool already contains a similar item.
-     * <i>This method is intended for {@link Attribute} sub classes, and is
-     * normally not needed by class generators or adapters.</i>
+     * Adds a bootstrap method to the BootstrapMethods attribute of the class
+     * being build. Does nothing if this attribute already contains a similar
+     * bootstrap method.
      *
-     * @param name name of the invoked method.
-     * @param desc descriptor of the invoke method.
      * @param bsm the bootstrap method.
      * @param bsmArgs the bootstrap method constant arguments.
-     *
-     * @return a new or an already existing invokedynamic type reference item.
+     * @return the index of a new or already existing bootstrap method.
      */
-    Item newInvokeDynamicItem(
-        final String name,
-        final String desc,
-        final Handle bsm,
-        final Object... bsmArgs)
+    private int newBootstrapMethod(final Handle bsm, final Object... bsmArgs)
     {
+        // adds the constants before writing the bootstrap method, since
+        // CONSTANT_Dynamic arguments add their own bootstrap methods
+        int bsmHandle = newHandle(bsm.tag, bsm.owner, bsm.name, bsm.desc);
+        int argsLength = bsmArgs.length;
+        int[] args = new int[argsLength];
+        int hashCode = bsm.hashCode();
+        for (int i = 0; i < argsLength; i++) {
+            Object bsmArg = bsmArgs[i];
+            hashCode ^= bsmArg.hashCode();
+            args[i] = newConst(bsmArg);
+        }
+
         // cache for performance
         ByteVector bootstrapMethods = this.bootstrapMethods;
         if (bootstrapMethods == null) {
@@ -1248,20 +1270,10 @@ public class ClassWriter extends ClassVisitor {
         }
 
         int position = bootstrapMethods.length; // record current position
-
-        int hashCode = bsm.hashCode();
-        bootstrapMethods.putShort(newHandle(bsm.tag,
-                bsm.owner,
-                bsm.name,
-                bsm.desc));
-
-        int argsLength = bsmArgs.length;
+        bootstrapMethods.putShort(bsmHandle);
         bootstrapMethods.putShort(argsLength);
-
         for (int i = 0; i < argsLength; i++) {
-            Object bsmArg = bsmArgs[i];
-            hashCode ^= bsmArg.hashCode();
-            bootstrapMethods.putShort(newConst(bsmArg));
+            bootstrapMethods.putShort(args[i]);
         }
 
         byte[] data = bootstrapMethods.data;
@@ -1286,20 +1298,39 @@ public class ClassWriter extends ClassVisitor {
             break;
         }
 
-        int bootstrapMethodIndex;
         if (result != null) {
-            bootstrapMethodIndex = result.index;
             bootstrapMethods.length = position; // revert to old position
-        } else {
-            bootstrapMethodIndex = bootstrapMethodsCount++;
-            result = new Item(bootstrapMethodIndex);
-            result.set(position, hashCode);
-            put(result);
+            return result.index;
         }
+        int bootstrapMethodIndex = bootstrapMethodsCount++;
+        result = new Item(bootstrapMethodIndex);
+        result.set(position, hashCode);
+        put(result);
+        return bootstrapMethodIndex;
+    }
 
-        // now, create the InvokeDynamic constant
+    /**
+     * Adds an invokedynamic reference to the constant pool of the class being
+     * build. Does nothing if the constant pool already contains a similar item.
+     * <i>This method is intended for {@link Attribute} sub classes, and is
+     * normally not needed by class generators or adapters.</i>
+     *
+     * @param name name of the invoked method.
+     * @param desc descriptor of the invoke method.
+     * @param bsm the bootstrap method.
+     * @param bsmArgs the bootstrap method constant arguments.
+     *
+     * @return a new or an already existing invokedynamic type reference item.
+     */
+    Item newInvokeDynamicItem(
+        final String name,
+        final String desc,
+        final Handle bsm,
+        final Object... bsmArgs)
+    {
+        int bootstrapMethodIndex = newBootstrapMethod(bsm, bsmArgs);
         key3.set(name, desc, bootstrapMethodIndex);
-        result = get(key3);
+        Item result = get(key3);
         if (result == null) {
             put122(INDY, bootstrapMethodIndex, newNameType(name, desc));
             result = new Item(index++, key3);
@@ -1308,6 +1339,33 @@ public class ClassWriter extends ClassVisitor {
         return result;
     }
 
+    /**
+     * Adds a dynamic constant to the constant pool of the class being build.
+     * Does nothing if the constant pool already contains a similar item.
+     *
+     * @param name the name of the constant.
+     * @param desc the field descriptor of the constant.
+     * @param bsm the bootstrap method.
+     * @param bsmArgs the bootstrap method constant arguments.
+     * @return a new or an already existing dynamic constant item.
+     */
+    Item newConstantDynamicItem(
+        final String name,
+        final String desc,
+        final Handle bsm,
+        final Object... bsmArgs)
+    {
+        int bootstrapMethodIndex = newBootstrapMethod(bsm, bsmArgs);
+        key3.set(CONDY, name, desc, bootstrapMethodIndex);
+        Item result = get(key3);
+        if (result == null) {
+            put122(CONDY, bootstrapMethodIndex, newNameType(name, desc));
+            result = new Item(index++, key3);
+            put(result);
+        }
+        return result;
+    }
+
     /**
      * Adds an invokedynamic reference to the constant pool of the class being
      * build. Does nothing if the constant pool already contains a similar item.
@@ -1606,13 +1664,16 @@ public class ClassWriter extends ClassVisitor {
      * Returns the index of the common super type of the two given types. This
      * method calls {@link #getCommonSuperClass} and caches the result in the
      * {@link #items} hash table to speedup future calls with the same
-     * parameters.
+     * parameters, in any order.
      *
-     * @param type1 index of an internal name in {@link #typeTable}.
-     * @param type2 index of an internal name in {@link #typeTable}.
+     * @param t1 index of an internal name in {@link #typeTable}.
+     * @param t2 index of an internal name in {@link #typeTable}.
      * @return the index of the common super type of the two given types.
      */
-    int getMergedType(final int type1, final int type2) {
+    int getMergedType(final int t1, final int t2) {
+        // the common super type does not depend on the order of the types
+        int type1 = t1 < t2 ? t1 : t2;
+        int type2 = t1 < t2 ? t2 : t1;
         key2.type = TYPE_MERGED;
         key2.longVal = type1 | (((long) type2) << 32);
         key2.hashCode = 0x7FFFFFFF & (TYPE_MERGED + type1 + type2);
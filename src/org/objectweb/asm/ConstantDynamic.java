@@ -0,0 +1,171 @@
+/***
+ * ASM: a very small and fast Java bytecode manipulation framework
+ * Copyright (c) 2000-2011 INRIA, France Telecom
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.objectweb.asm;
+
+import java.util.Arrays;
+
+/**
+ * A constant whose value is computed at runtime, with a bootstrap method
+ * (see CONSTANT_Dynamic in the Java 11 class file format).
+ */
+public final class ConstantDynamic {
+
+    /**
+     * The name of this constant.
+     */
+    final String name;
+
+    /**
+     * The field descriptor of this constant.
+     */
+    final String desc;
+
+    /**
+     * The bootstrap method used to compute the value of this constant.
+     */
+    final Handle bsm;
+
+    /**
+     * The bootstrap method constant arguments.
+     */
+    final Object[] bsmArgs;
+
+    /**
+     * Constructs a new dynamic constant.
+     *
+     * @param name the name of this constant.
+     * @param desc the field descriptor of this constant.
+     * @param bsm the bootstrap method used to compute the value of this
+     *        constant.
+     * @param bsmArgs the bootstrap method constant arguments. Each argument
+     *        must be an {@link Integer}, {@link Float}, {@link Long},
+     *        {@link Double}, {@link String}, {@link Type}, {@link Handle} or
+     *        {@link ConstantDynamic} value.
+     */
+    public ConstantDynamic(
+        final String name,
+        final String desc,
+        final Handle bsm,
+        final Object... bsmArgs)
+    {
+        this.name = name;
+        this.desc = desc;
+        this.bsm = bsm;
+        this.bsmArgs = bsmArgs;
+    }
+
+    /**
+     * Returns the name of this constant.
+     *
+     * @return the name of this constant.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the field descriptor of this constant.
+     *
+     * @return the field descriptor of this constant.
+     */
+    public String getDesc() {
+        return desc;
+    }
+
+    /**
+     * Returns the bootstrap method used to compute the value of this constant.
+     *
+     * @return the bootstrap method used to compute the value of this constant.
+     */
+    public Handle getBootstrapMethod() {
+        return bsm;
+    }
+
+    /**
+     * Returns the number of bootstrap method arguments of this constant.
+     *
+     * @return the number of bootstrap method arguments of this constant.
+     */
+    public int getBootstrapMethodArgumentCount() {
+        return bsmArgs.length;
+    }
+
+    /**
+     * Returns an argument passed to the bootstrap method of this constant.
+     *
+     * @param index an argument index, between 0 and
+     *        {@link #getBootstrapMethodArgumentCount()} (exclusive).
+     * @return the argument passed to the bootstrap method, with the given
+     *         index.
+     */
+    public Object getBootstrapMethodArgument(final int index) {
+        return bsmArgs[index];
+    }
+
+    /**
+     * Returns the size of this constant on the operand stack.
+     *
+     * @return 2 for long and double constants, 1 otherwise.
+     */
+    public int getSize() {
+        char c = desc.charAt(0);
+        return c == 'J' || c == 'D' ? 2 : 1;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (!(obj instanceof ConstantDynamic)) {
+            return false;
+        }
+        ConstantDynamic c = (ConstantDynamic) obj;
+        return name.equals(c.name) && desc.equals(c.desc)
+                && bsm.equals(c.bsm) && Arrays.equals(bsmArgs, c.bsmArgs);
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode() ^ Integer.rotateLeft(desc.hashCode(), 8)
+                ^ Integer.rotateLeft(bsm.hashCode(), 16)
+                ^ Integer.rotateLeft(Arrays.hashCode(bsmArgs), 24);
+    }
+
+    /**
+     * Returns the textual representation of this constant. The textual
+     * representation is: <pre>name ' : ' desc ' ' bsm ' ' bsmArgs</pre>.
+     */
+    @Override
+    public String toString() {
+        return name + " : " + desc + ' ' + bsm + ' '
+                + Arrays.toString(bsmArgs);
+    }
+}
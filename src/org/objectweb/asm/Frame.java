@@ -466,6 +466,14 @@ final class Frame {
      */
     Label owner;
 
+    /**
+     * The index of {@link #owner} in the reverse postorder of the basic blocks
+     * of the method, or -1 if it has not been computed yet. This index is
+     * used to order the fix point algorithm that computes the stack map
+     * frames.
+     */
+    int order;
+
     /**
      * The input stack map frame locals.
      */
@@ -905,6 +913,9 @@ final class Frame {
                     case ClassWriter.MTYPE:
                         push(OBJECT | cw.addType("java/lang/invoke/MethodType"));
                         break;
+                    case ClassWriter.CONDY:
+                        push(cw, item.strVal2);
+                        break;
                     // case ClassWriter.HANDLE_BASE + [1..9]:
                     default:
                         push(OBJECT | cw.addType("java/lang/invoke/MethodHandle"));
@@ -205,6 +205,8 @@ final class Item {
             case ClassWriter.STR:
             case ClassWriter.CLASS:
             case ClassWriter.MTYPE:
+            case ClassWriter.MODULE:
+            case ClassWriter.PACKAGE:
             case ClassWriter.TYPE_NORMAL:
                 hashCode = 0x7FFFFFFF & (type + strVal1.hashCode());
                 return;
@@ -230,11 +232,23 @@ final class Item {
      * @param bsmIndex zero based index into the class attribute BootrapMethods.
      */
     void set(String name, String desc, int bsmIndex) {
-        this.type = ClassWriter.INDY;
+        set(ClassWriter.INDY, name, desc, bsmIndex);
+    }
+
+    /**
+     * Sets the item to an InvokeDynamic or to a Dynamic item.
+     *
+     * @param type {@link ClassWriter#INDY} or {@link ClassWriter#CONDY}.
+     * @param name the name of the item.
+     * @param desc the descriptor of the item.
+     * @param bsmIndex zero based index into the class attribute BootrapMethods.
+     */
+    void set(int type, String name, String desc, int bsmIndex) {
+        this.type = type;
         this.longVal = bsmIndex;
         this.strVal1 = name;
         this.strVal2 = desc;
-        this.hashCode = 0x7FFFFFFF & (ClassWriter.INDY + bsmIndex
+        this.hashCode = 0x7FFFFFFF & (type + bsmIndex
                 * strVal1.hashCode() * strVal2.hashCode());
     }
 
@@ -267,6 +281,8 @@ final class Item {
             case ClassWriter.STR:
             case ClassWriter.CLASS:
             case ClassWriter.MTYPE:
+            case ClassWriter.MODULE:
+            case ClassWriter.PACKAGE:
             case ClassWriter.TYPE_NORMAL:
                 return i.strVal1.equals(strVal1);
             case ClassWriter.TYPE_MERGED:
@@ -281,6 +297,7 @@ final class Item {
             case ClassWriter.NAME_TYPE:
                 return i.strVal1.equals(strVal1) && i.strVal2.equals(strVal2);
             case ClassWriter.INDY:
+            case ClassWriter.CONDY:
                 return i.longVal == longVal && i.strVal1.equals(strVal1)
                         && i.strVal2.equals(strVal2);
 
@@ -325,7 +325,9 @@ public abstract class MethodVisitor {
 
     /**
      * Visits a method instruction. A method instruction is an instruction that
-     * invokes a method.
+     * invokes a method. The default implementation calls
+     * {@link #visitMethodInsn(int, String, String, String, boolean)} with
+     * <tt>itf</tt> set if <tt>opcode</tt> is INVOKEINTERFACE.
      *
      * @param opcode the opcode of the type instruction to be visited. This
      *        opcode is either INVOKEVIRTUAL, INVOKESPECIAL, INVOKESTATIC
@@ -336,8 +338,48 @@ public abstract class MethodVisitor {
      * @param desc the method's descriptor (see {@link Type Type}).
      */
     public void visitMethodInsn(int opcode, String owner, String name, String desc) {
+        visitMethodInsn(opcode,
+                owner,
+                name,
+                desc,
+                opcode == Opcodes.INVOKEINTERFACE);
+    }
+
+    /**
+     * Visits a method instruction whose owner is explicitly said to be an
+     * interface or not. Since Java 8, INVOKESTATIC and INVOKESPECIAL can
+     * invoke interface methods: {@link ClassReader} calls this method for
+     * these instructions only, and calls
+     * {@link #visitMethodInsn(int, String, String, String)} for all the
+     * others. Method adapters that override this method see all the method
+     * instructions, while those that only override the other one do not see
+     * the INVOKESTATIC and INVOKESPECIAL instructions on interface methods.
+     * The default implementation forwards the instructions whose
+     * <tt>itf</tt> flag can be deduced from their opcode with the above
+     * method, and the others with this one.
+     *
+     * @param opcode the opcode of the type instruction to be visited. This
+     *        opcode is either INVOKEVIRTUAL, INVOKESPECIAL, INVOKESTATIC
+     *        or INVOKEINTERFACE.
+     * @param owner the internal name of the method's owner class (see {@link
+     *        Type#getInternalName() getInternalName}).
+     * @param name the method's name.
+     * @param desc the method's descriptor (see {@link Type Type}).
+     * @param itf if the method's owner class is an interface.
+     */
+    public void visitMethodInsn(
+        int opcode,
+        String owner,
+        String name,
+        String desc,
+        boolean itf)
+    {
         if (mv != null) {
-            mv.visitMethodInsn(opcode, owner, name, desc);
+            if (itf == (opcode == Opcodes.INVOKEINTERFACE)) {
+                mv.visitMethodInsn(opcode, owner, name, desc);
+            } else {
+                mv.visitMethodInsn(opcode, owner, name, desc, itf);
+            }
         }
     }
 
@@ -422,6 +464,8 @@ public abstract class MethodVisitor {
      *   }
      * } else if (cst instanceof Handle) {
      *   // ...
+     * } else if (cst instanceof ConstantDynamic) {
+     *   // ...
      * } else {
      *   // throw an exception
      * }</pre>
@@ -432,7 +476,8 @@ public abstract class MethodVisitor {
      *        sort for <tt>.class</tt> constants, for classes whose version is
      *        49.0, a {@link Type} of METHOD sort or a {@link Handle} for
      *        MethodType and MethodHandle constants, for classes whose version
-     *        is 51.0.
+     *        is 51.0, or a {@link ConstantDynamic} for dynamic constants, for
+     *        classes whose version is 55.0.
      */
     public void visitLdcInsn(Object cst) {
         if (mv != null) {
@@ -850,7 +850,17 @@ public class MethodWriter extends MethodVisitor {
         final String name,
         final String desc)
     {
-        boolean itf = opcode == Opcodes.INVOKEINTERFACE;
+        visitMethodInsn(opcode, owner, name, desc, opcode == Opcodes.INVOKEINTERFACE);
+    }
+
+    @Override
+    public void visitMethodInsn(
+        final int opcode,
+        final String owner,
+        final String name,
+        final String desc,
+        final boolean itf)
+    {
         Item i = cw.newMethodItem(owner, name, desc, itf);
         int argSize = i.intVal;
         // Label currentBlock = this.currentBlock;
@@ -888,7 +898,7 @@ public class MethodWriter extends MethodVisitor {
             }
         }
         // adds the instruction to the bytecode of the method
-        if (itf) {
+        if (opcode == Opcodes.INVOKEINTERFACE) {
             if (argSize == 0) {
                 argSize = Type.getArgumentsAndReturnSizes(desc);
                 i.intVal = argSize;
@@ -1093,6 +1103,12 @@ public class MethodWriter extends MethodVisitor {
     @Override
     public void visitLdcInsn(final Object cst) {
         Item i = cw.newConstItem(cst);
+        boolean wide = i.type == ClassWriter.LONG
+                || i.type == ClassWriter.DOUBLE;
+        if (i.type == ClassWriter.CONDY) {
+            char c = i.strVal2.charAt(0);
+            wide = c == 'J' || c == 'D';
+        }
         // Label currentBlock = this.currentBlock;
         if (currentBlock != null) {
             if (compute == FRAMES) {
@@ -1100,8 +1116,7 @@ public class MethodWriter extends MethodVisitor {
             } else {
                 int size;
                 // computes the stack size variation
-                if (i.type == ClassWriter.LONG || i.type == ClassWriter.DOUBLE)
-                {
+                if (wide) {
                     size = stackSize + 2;
                 } else {
                     size = stackSize + 1;
@@ -1115,7 +1130,7 @@ public class MethodWriter extends MethodVisitor {
         }
         // adds the instruction to the bytecode of the method
         int index = i.index;
-        if (i.type == ClassWriter.LONG || i.type == ClassWriter.DOUBLE) {
+        if (wide) {
             code.put12(20 /* LDC2_W */, index);
         } else if (index >= 256) {
             code.put12(19 /* LDC_W */, index);
@@ -1346,18 +1361,27 @@ public class MethodWriter extends MethodVisitor {
             visitFrame(f);
 
             /*
-             * fix point algorithm: mark the first basic block as 'changed'
-             * (i.e. put it in the 'changed' list) and, while there are changed
-             * basic blocks, choose one, mark it as unchanged, and update its
-             * successors (which can be changed in the process).
+             * fix point algorithm: mark the first basic block as 'changed' and,
+             * while there are changed basic blocks, choose the first one in
+             * reverse postorder, mark it as unchanged, and update its
+             * successors (which can be changed in the process). Visiting the
+             * blocks in reverse postorder ensures that, except for loops, the
+             * input frame of a block is complete before the block is visited,
+             * so that each block of an acyclic code region is visited once.
              */
+            Label[] order = getReversePostorder();
+            boolean[] changed = new boolean[order.length];
+            changed[0] = true;
             int max = 0;
-            Label changed = labels;
-            while (changed != null) {
-                // removes a basic block from the list of changed basic blocks
-                Label l = changed;
-                changed = changed.next;
-                l.next = null;
+            int next = 0;
+            while (next < order.length) {
+                if (!changed[next]) {
+                    ++next;
+                    continue;
+                }
+                // removes a basic block from the set of changed basic blocks
+                changed[next] = false;
+                Label l = order[next++];
                 f = l.frame;
                 // a reachable jump target must be stored in the stack map
                 if ((l.status & Label.TARGET) != 0) {
@@ -1374,12 +1398,14 @@ public class MethodWriter extends MethodVisitor {
                 Edge e = l.successors;
                 while (e != null) {
                     Label n = e.successor.getFirst();
-                    boolean change = f.merge(cw, n.frame, e.info);
-                    if (change && n.next == null) {
-                        // if n has changed and is not already in the 'changed'
-                        // list, adds it to this list
-                        n.next = changed;
-                        changed = n;
+                    if (f.merge(cw, n.frame, e.info)) {
+                        // if n has changed, marks it as changed, and goes back
+                        // to it if it comes before the next block to visit
+                        int k = n.frame.order;
+                        changed[k] = true;
+                        if (k < next) {
+                            next = k;
+                        }
                     }
                     e = e.next;
                 }
@@ -1548,6 +1574,55 @@ public class MethodWriter extends MethodVisitor {
         }
     }
 
+    /**
+     * Computes the reverse postorder of the basic blocks that are reachable
+     * from the first basic block of the method, and stores the index of each
+     * of these blocks in this order in {@link Frame#order}. Must be called
+     * only in {@link #FRAMES} mode, once the control flow graph is complete.
+     *
+     * @return the reachable basic blocks, in reverse postorder.
+     */
+    private Label[] getReversePostorder() {
+        int n = 0;
+        Label l = labels;
+        while (l != null) {
+            l.frame.order = -1;
+            ++n;
+            l = l.successor;
+        }
+        // iterative depth first search, to avoid stack overflows on big
+        // methods
+        Label[] postorder = new Label[n];
+        Label[] stack = new Label[n];
+        Edge[] edges = new Edge[n];
+        int count = 0;
+        int top = 0;
+        stack[0] = labels;
+        edges[0] = labels.successors;
+        labels.frame.order = 0;
+        while (top >= 0) {
+            Edge e = edges[top];
+            if (e == null) {
+                postorder[count++] = stack[top--];
+                continue;
+            }
+            edges[top] = e.next;
+            Label s = e.successor.getFirst();
+            if (s.frame.order == -1) {
+                s.frame.order = 0;
+                stack[++top] = s;
+                edges[top] = s.successors;
+            }
+        }
+        Label[] order = new Label[count];
+        for (int i = 0; i < count; ++i) {
+            l = postorder[count - 1 - i];
+            l.frame.order = i;
+            order[i] = l;
+        }
+        return order;
+    }
+
     @Override
     public void visitEnd() {
         if (classReaderOffset != 0) {
@@ -1765,6 +1840,9 @@ public class MethodWriter extends MethodVisitor {
         int clocalsSize = frame[1];
         int cstackSize = frame[2];
         if ((cw.version & 0xFFFF) < Opcodes.V1_6) {
+            if (frame[0] > 0xffff && tooLargeDelegate != null) {
+                tooLargeDelegate.noteTooLargeStackMapDelta(stackMap.length, frame[0]);
+            }
             stackMap.putShort(frame[0]).putShort(clocalsSize);
             writeFrameTypes(3, 3 + clocalsSize);
             stackMap.putShort(cstackSize);
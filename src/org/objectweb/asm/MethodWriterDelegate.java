@@ -313,6 +313,8 @@ public abstract class MethodWriterDelegate {
 
     /**
      * Note that a delta that occurs in a stack map is too large to be stored in the stack map.
+     * For class versions before 1.6, whose frames are not compressed, this is the offset of
+     * the frame itself.
      * 
      * @param offset is the offset of the delta within the stack map
      * @param delta is the value of the delta
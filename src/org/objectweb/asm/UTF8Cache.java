@@ -0,0 +1,170 @@
+/***
+ * ASM: a very small and fast Java bytecode manipulation framework
+ * Copyright (c) 2000-2011 INRIA, France Telecom
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.objectweb.asm;
+
+/**
+ * A bounded cache of decoded CONSTANT_Utf8 constant pool items, which can be
+ * shared between several {@link ClassReader ClassReaders}. Names such as
+ * <tt>java/lang/Object</tt>, <tt>()V</tt> or <tt>Code</tt> appear in almost
+ * every class: when whole jars are processed, sharing a cache between the
+ * readers avoids decoding them and allocating a new String for each class.
+ * The cache is keyed by the raw modified UTF8 bytes of the items. It is a
+ * fixed size, direct mapped table: a new item simply replaces the item that
+ * was stored in its slot. This class is thread safe, and does not use locks.
+ */
+public final class UTF8Cache {
+
+    /**
+     * The maximum length, in bytes, of the items that are stored in this
+     * cache. Longer items are unlikely to be shared between classes.
+     */
+    static final int MAX_LENGTH = 256;
+
+    /**
+     * The entries of this cache. Each slot may be overwritten concurrently,
+     * which is safe since entries are immutable.
+     */
+    private final Entry[] entries;
+
+    /**
+     * The mask used to compute the slot of an item from its hash code.
+     */
+    private final int mask;
+
+    /**
+     * Constructs a new {@link UTF8Cache} with 4096 slots.
+     */
+    public UTF8Cache() {
+        this(4096);
+    }
+
+    /**
+     * Constructs a new {@link UTF8Cache}.
+     *
+     * @param capacity the minimum number of slots of this cache. It is
+     *        rounded up to a power of two. Must be strictly positive and at
+     *        most <tt>2<sup>30</sup></tt>.
+     * @throws IllegalArgumentException if the capacity is out of bounds.
+     */
+    public UTF8Cache(final int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid capacity " + capacity);
+        }
+        int n = 1;
+        while (n < capacity) {
+            n <<= 1;
+        }
+        entries = new Entry[n];
+        mask = n - 1;
+    }
+
+    /**
+     * Returns the String corresponding to the given UTF8 string.
+     *
+     * @param cr the class reader that contains the string.
+     * @param index start offset of the UTF8 string in {@link ClassReader#b}.
+     * @param utfLen length of the UTF8 string.
+     * @param buf buffer to be used to decode the string if it is not in this
+     *        cache.
+     * @return the String corresponding to the specified UTF8 string.
+     */
+    String get(
+        final ClassReader cr,
+        final int index,
+        final int utfLen,
+        final char[] buf)
+    {
+        if (utfLen > MAX_LENGTH) {
+            return cr.readUTF(index, utfLen, buf);
+        }
+        byte[] b = cr.b;
+        int hash = utfLen;
+        for (int i = index, end = index + utfLen; i < end; ++i) {
+            hash = 31 * hash + b[i];
+        }
+        Entry[] entries = this.entries;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        Entry e = entries[slot];
+        if (e != null && e.hash == hash && e.matches(b, index, utfLen)) {
+            return e.value;
+        }
+        String s = cr.readUTF(index, utfLen, buf);
+        entries[slot] = new Entry(hash, b, index, utfLen, s);
+        return s;
+    }
+
+    /**
+     * Removes all the entries of this cache.
+     */
+    public void clear() {
+        Entry[] entries = this.entries;
+        for (int i = 0; i < entries.length; ++i) {
+            entries[i] = null;
+        }
+    }
+
+    /**
+     * An immutable entry of a {@link UTF8Cache}.
+     */
+    private static final class Entry {
+
+        final int hash;
+
+        final byte[] bytes;
+
+        final String value;
+
+        Entry(
+            final int hash,
+            final byte[] b,
+            final int index,
+            final int utfLen,
+            final String value)
+        {
+            this.hash = hash;
+            this.bytes = new byte[utfLen];
+            System.arraycopy(b, index, bytes, 0, utfLen);
+            this.value = value;
+        }
+
+        boolean matches(final byte[] b, final int index, final int utfLen) {
+            byte[] bytes = this.bytes;
+            if (bytes.length != utfLen) {
+                return false;
+            }
+            for (int i = 0; i < utfLen; ++i) {
+                if (bytes[i] != b[index + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
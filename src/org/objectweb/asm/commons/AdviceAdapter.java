@@ -35,6 +35,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.objectweb.asm.ConstantDynamic;
 import org.objectweb.asm.Handle;
 import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
@@ -407,7 +408,9 @@ public abstract class AdviceAdapter extends GeneratorAdapter implements Opcodes
         mv.visitLdcInsn(cst);
         if (constructor) {
             pushValue(OTHER);
-            if (cst instanceof Double || cst instanceof Long) {
+            if (cst instanceof Double || cst instanceof Long
+                    || (cst instanceof ConstantDynamic && ((ConstantDynamic) cst).getSize() == 2))
+            {
                 pushValue(OTHER);
             }
         }
@@ -440,7 +443,22 @@ public abstract class AdviceAdapter extends GeneratorAdapter implements Opcodes
         final String name,
         final String desc)
     {
-        mv.visitMethodInsn(opcode, owner, name, desc);
+        visitMethodInsn(opcode,
+                owner,
+                name,
+                desc,
+                opcode == Opcodes.INVOKEINTERFACE);
+    }
+
+    @Override
+    public void visitMethodInsn(
+        final int opcode,
+        final String owner,
+        final String name,
+        final String desc,
+        final boolean itf)
+    {
+        super.visitMethodInsn(opcode, owner, name, desc, itf);
         if (constructor) {
             Type[] types = Type.getArgumentTypes(desc);
             for (int i = 0; i < types.length; i++) {
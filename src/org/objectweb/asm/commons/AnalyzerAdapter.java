@@ -29,11 +29,12 @@
  */
 package org.objectweb.asm.commons;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.objectweb.asm.ConstantDynamic;
 import org.objectweb.asm.Handle;
 import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
@@ -56,6 +57,10 @@ import org.objectweb.asm.Type;
  * compute the stack map frame for each instruction. In this case no exception
  * is thrown but the {@link #locals} and {@link #stack} fields will be null for
  * these instructions.
+ * <p>
+ * The frame is stored in arrays that are reused for the whole method, and
+ * {@link #locals} and {@link #stack} are views of these arrays, so that no
+ * object is allocated for most instructions.
  *
  * @author Eric Bruneton
  */
@@ -71,7 +76,8 @@ public class AnalyzerAdapter extends MethodVisitor {
      * by String objects (representing internal names), and uninitialized types
      * by Label objects (this label designates the NEW instruction that created
      * this uninitialized value). This field is <tt>null</tt> for unreacheable
-     * instructions.
+     * instructions. This list is a view of the current frame, which is updated
+     * after each instruction: it must be copied if it must be kept.
      */
     public List<Object> locals;
 
@@ -85,15 +91,33 @@ public class AnalyzerAdapter extends MethodVisitor {
      * by String objects (representing internal names), and uninitialized types
      * by Label objects (this label designates the NEW instruction that created
      * this uninitialized value). This field is <tt>null</tt> for unreacheable
-     * instructions.
+     * instructions. This list is a view of the current frame, which is updated
+     * after each instruction: it must be copied if it must be kept.
      */
     public List<Object> stack;
 
     /**
-     * The labels that designate the next instruction to be visited. May be
-     * <tt>null</tt>.
+     * The local variable types of the current frame. {@link #locals} is either
+     * <tt>null</tt> or this object.
      */
-    private List<Label> labels;
+    private final FrameTypes localTypes;
+
+    /**
+     * The operand stack types of the current frame. {@link #stack} is either
+     * <tt>null</tt> or this object.
+     */
+    private final FrameTypes stackTypes;
+
+    /**
+     * The labels that designate the next instruction to be visited.
+     */
+    private Label[] labels = new Label[4];
+
+    /**
+     * The number of elements of {@link #labels} that designate the next
+     * instruction to be visited.
+     */
+    private int labelCount;
 
     /**
      * Information about uninitialized types in the current execution frame.
@@ -164,8 +188,10 @@ public class AnalyzerAdapter extends MethodVisitor {
     {
         super(api, mv);
         this.owner = owner;
-        locals = new ArrayList<Object>();
-        stack = new ArrayList<Object>();
+        localTypes = new FrameTypes(8);
+        stackTypes = new FrameTypes(8);
+        locals = localTypes;
+        stack = stackTypes;
         uninitializedTypes = new HashMap<Object, Object>();
 
         if ((access & Opcodes.ACC_STATIC) == 0) {
@@ -223,30 +249,29 @@ public class AnalyzerAdapter extends MethodVisitor {
             mv.visitFrame(type, nLocal, local, nStack, stack);
         }
 
-        if (this.locals != null) {
-            this.locals.clear();
-            this.stack.clear();
-        } else {
-            this.locals = new ArrayList<Object>();
-            this.stack = new ArrayList<Object>();
-        }
-        visitFrameTypes(nLocal, local, this.locals);
-        visitFrameTypes(nStack, stack, this.stack);
-        maxStack = Math.max(maxStack, this.stack.size());
+        this.locals = localTypes;
+        this.stack = stackTypes;
+        visitFrameTypes(nLocal, local, localTypes);
+        visitFrameTypes(nStack, stack, stackTypes);
+        maxStack = Math.max(maxStack, stackTypes.size);
     }
 
     private static void visitFrameTypes(
         final int n,
         final Object[] types,
-        final List<Object> result)
+        final FrameTypes result)
     {
+        int size = 0;
+        result.ensureCapacity(2 * n);
+        Object[] values = result.values;
         for (int i = 0; i < n; ++i) {
             Object type = types[i];
-            result.add(type);
+            values[size++] = type;
             if (type == Opcodes.LONG || type == Opcodes.DOUBLE) {
-                result.add(Opcodes.TOP);
+                values[size++] = Opcodes.TOP;
             }
         }
+        result.size = size;
     }
 
     @Override
@@ -282,16 +307,15 @@ public class AnalyzerAdapter extends MethodVisitor {
     @Override
     public void visitTypeInsn(final int opcode, final String type) {
         if (opcode == Opcodes.NEW) {
-            if (labels == null) {
+            if (labelCount == 0) {
                 Label l = new Label();
-                labels = new ArrayList<Label>(3);
-                labels.add(l);
+                labels[labelCount++] = l;
                 if (mv != null) {
                     mv.visitLabel(l);
                 }
             }
-            for (int i = 0; i < labels.size(); ++i) {
-                uninitializedTypes.put(labels.get(i), type);
+            for (int i = 0; i < labelCount; ++i) {
+                uninitializedTypes.put(labels[i], type);
             }
         }
         if (mv != null) {
@@ -320,11 +344,24 @@ public class AnalyzerAdapter extends MethodVisitor {
         final String name,
         final String desc)
     {
-        if (mv != null) {
-            mv.visitMethodInsn(opcode, owner, name, desc);
-        }
+        visitMethodInsn(opcode,
+                owner,
+                name,
+                desc,
+                opcode == Opcodes.INVOKEINTERFACE);
+    }
+
+    @Override
+    public void visitMethodInsn(
+        final int opcode,
+        final String owner,
+        final String name,
+        final String desc,
+        final boolean itf)
+    {
+        super.visitMethodInsn(opcode, owner, name, desc, itf);
         if (this.locals == null) {
-            labels = null;
+            labelCount = 0;
             return;
         }
         pop(desc);
@@ -337,20 +374,12 @@ public class AnalyzerAdapter extends MethodVisitor {
                 } else {
                     u = uninitializedTypes.get(t);
                 }
-                for (int i = 0; i < locals.size(); ++i) {
-                    if (locals.get(i) == t) {
-                        locals.set(i, u);
-                    }
-                }
-                for (int i = 0; i < stack.size(); ++i) {
-                    if (stack.get(i) == t) {
-                        stack.set(i, u);
-                    }
-                }
+                localTypes.replace(t, u);
+                stackTypes.replace(t, u);
             }
         }
         pushDesc(desc);
-        labels = null;
+        labelCount = 0;
     }
 
     @Override
@@ -364,12 +393,12 @@ public class AnalyzerAdapter extends MethodVisitor {
             mv.visitInvokeDynamicInsn(name, desc, bsm, bsmArgs);
         }
         if (this.locals == null) {
-            labels = null;
+            labelCount = 0;
             return;
         }
         pop(desc);
         pushDesc(desc);
-        labels = null;
+        labelCount = 0;
     }
 
     @Override
@@ -389,10 +418,12 @@ public class AnalyzerAdapter extends MethodVisitor {
         if (mv != null) {
             mv.visitLabel(label);
         }
-        if (labels == null) {
-            labels = new ArrayList<Label>(3);
+        if (labelCount == labels.length) {
+            Label[] newLabels = new Label[2 * labelCount];
+            System.arraycopy(labels, 0, newLabels, 0, labelCount);
+            labels = newLabels;
         }
-        labels.add(label);
+        labels[labelCount++] = label;
     }
 
     @Override
@@ -401,7 +432,7 @@ public class AnalyzerAdapter extends MethodVisitor {
             mv.visitLdcInsn(cst);
         }
         if (this.locals == null) {
-            labels = null;
+            labelCount = 0;
             return;
         }
         if (cst instanceof Integer) {
@@ -427,10 +458,12 @@ public class AnalyzerAdapter extends MethodVisitor {
             }
         } else if (cst instanceof Handle) {
             push("java/lang/invoke/MethodHandle");
+        } else if (cst instanceof ConstantDynamic) {
+            pushDesc(((ConstantDynamic) cst).getDesc());
         } else {
             throw new IllegalArgumentException();
         }
-        labels = null;
+        labelCount = 0;
     }
 
     @Override
@@ -491,20 +524,33 @@ public class AnalyzerAdapter extends MethodVisitor {
 
     private Object get(final int local) {
         maxLocals = Math.max(maxLocals, local);
-        return local < locals.size() ? locals.get(local) : Opcodes.TOP;
+        return local < localTypes.size ? localTypes.values[local] : Opcodes.TOP;
     }
 
     private void set(final int local, final Object type) {
         maxLocals = Math.max(maxLocals, local);
-        while (local >= locals.size()) {
-            locals.add(Opcodes.TOP);
+        FrameTypes types = localTypes;
+        if (local >= types.size) {
+            types.ensureCapacity(local + 1);
+            for (int i = types.size; i < local; ++i) {
+                types.values[i] = Opcodes.TOP;
+            }
+            types.size = local + 1;
         }
-        locals.set(local, type);
+        types.values[local] = type;
     }
 
     private void push(final Object type) {
-        stack.add(type);
-        maxStack = Math.max(maxStack, stack.size());
+        FrameTypes types = stackTypes;
+        int size = types.size;
+        if (size == types.values.length) {
+            types.ensureCapacity(size + 1);
+        }
+        types.values[size++] = type;
+        types.size = size;
+        if (size > maxStack) {
+            maxStack = size;
+        }
     }
 
     private void pushDesc(final String desc) {
@@ -548,26 +594,25 @@ public class AnalyzerAdapter extends MethodVisitor {
     }
 
     private Object pop() {
-        return stack.remove(stack.size() - 1);
+        FrameTypes types = stackTypes;
+        if (types.size == 0) {
+            throw new IndexOutOfBoundsException();
+        }
+        return types.values[--types.size];
     }
 
     private void pop(final int n) {
-        int size = stack.size();
-        int end = size - n;
-        for (int i = size - 1; i >= end; --i) {
-            stack.remove(i);
+        FrameTypes types = stackTypes;
+        if (n > types.size) {
+            throw new IndexOutOfBoundsException();
         }
+        types.size -= n;
     }
 
     private void pop(final String desc) {
         char c = desc.charAt(0);
         if (c == '(') {
-            int n = 0;
-            Type[] types = Type.getArgumentTypes(desc);
-            for (int i = 0; i < types.length; ++i) {
-                n += types[i].getSize();
-            }
-            pop(n);
+            pop((Type.getArgumentsAndReturnSizes(desc) >> 2) - 1);
         } else if (c == 'J' || c == 'D') {
             pop(2);
         } else {
@@ -577,7 +622,7 @@ public class AnalyzerAdapter extends MethodVisitor {
 
     private void execute(final int opcode, final int iarg, final String sarg) {
         if (this.locals == null) {
-            labels = null;
+            labelCount = 0;
             return;
         }
         Object t1, t2, t3, t4;
@@ -895,7 +940,7 @@ public class AnalyzerAdapter extends MethodVisitor {
                 pop();
                 break;
             case Opcodes.NEW:
-                push(labels.get(0));
+                push(labels[0]);
                 break;
             case Opcodes.NEWARRAY:
                 pop();
@@ -929,11 +974,15 @@ public class AnalyzerAdapter extends MethodVisitor {
                 break;
             case Opcodes.ANEWARRAY:
                 pop();
-                pushDesc("[" + Type.getObjectType(sarg));
+                if (sarg.charAt(0) == '[') {
+                    push("[" + sarg);
+                } else {
+                    push("[L" + sarg + ';');
+                }
                 break;
             case Opcodes.CHECKCAST:
                 pop();
-                pushDesc(Type.getObjectType(sarg).getDescriptor());
+                push(sarg);
                 break;
             // case Opcodes.MULTIANEWARRAY:
             default:
@@ -941,6 +990,100 @@ public class AnalyzerAdapter extends MethodVisitor {
                 pushDesc(sarg);
                 break;
         }
-        labels = null;
+        labelCount = 0;
+    }
+
+    /**
+     * A list of frame types stored in an array, used for the local variables
+     * and the operand stack of the current frame. The {@link AnalyzerAdapter}
+     * updates the array directly, while other visitors can read (and modify)
+     * it through the {@link List} interface.
+     */
+    private static final class FrameTypes extends AbstractList<Object> {
+
+        /**
+         * The frame types. Only the first {@link #size} elements are used.
+         */
+        Object[] values;
+
+        /**
+         * The number of frame types in this list.
+         */
+        int size;
+
+        FrameTypes(final int capacity) {
+            values = new Object[capacity];
+        }
+
+        void ensureCapacity(final int capacity) {
+            if (capacity > values.length) {
+                Object[] newValues = new Object[Math.max(capacity,
+                        2 * values.length)];
+                System.arraycopy(values, 0, newValues, 0, size);
+                values = newValues;
+            }
+        }
+
+        /**
+         * Replaces all the occurrences of a type with another one.
+         *
+         * @param type a frame type.
+         * @param newType the type that must replace <tt>type</tt>.
+         */
+        void replace(final Object type, final Object newType) {
+            for (int i = 0; i < size; ++i) {
+                if (values[i] == type) {
+                    values[i] = newType;
+                }
+            }
+        }
+
+        @Override
+        public Object get(final int index) {
+            if (index >= size) {
+                throw new IndexOutOfBoundsException();
+            }
+            return values[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Object set(final int index, final Object type) {
+            Object old = get(index);
+            values[index] = type;
+            return old;
+        }
+
+        @Override
+        public void add(final int index, final Object type) {
+            if (index < 0 || index > size) {
+                throw new IndexOutOfBoundsException();
+            }
+            ensureCapacity(size + 1);
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = type;
+            ++size;
+            ++modCount;
+        }
+
+        @Override
+        public Object remove(final int index) {
+            Object old = get(index);
+            System.arraycopy(values, index + 1, values, index, size - index
+                    - 1);
+            --size;
+            ++modCount;
+            return old;
+        }
+
+        @Override
+        public void clear() {
+            size = 0;
+            ++modCount;
+        }
     }
 }
@@ -0,0 +1,756 @@
+/***
+ * ASM: a very small and fast Java bytecode manipulation framework
+ * Copyright (c) 2000-2011 INRIA, France Telecom
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.objectweb.asm.commons;
+
+import java.util.Arrays;
+
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.IntInsnNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+
+/**
+ * A {@link ClassVisitor} that compacts the initialization of primitive arrays
+ * with constant values in clinit methods. A sequence of the form
+ *
+ * <pre>
+ * NEWARRAY T; DUP; ICONST_0; &lt;value&gt;; TASTORE; DUP; ICONST_1; &lt;value&gt;; TASTORE; ...
+ * </pre>
+ *
+ * which is generated by compilers for array initializers, and which takes at
+ * least 4 bytes of bytecode per element, is replaced with
+ *
+ * <pre>
+ * NEWARRAY T; &lt;offset&gt;; LDC &quot;...&quot;; INVOKESTATIC &lt;prefix&gt;T
+ * </pre>
+ *
+ * where the string constant encodes the values of the array elements (with 1,
+ * 2 or 4 chars per element, depending on the element size), and where
+ * <tt>&lt;prefix&gt;T</tt> is a private static method, added to the class,
+ * that decodes these values in a loop and stores them in the array. This
+ * reduces the size of clinit methods, which therefore no longer need to be
+ * split, and which execute faster (clinit methods are generally executed only
+ * once, and are therefore interpreted).
+ * <p>
+ * The clinit methods of interfaces are not transformed, since interfaces
+ * cannot contain private static methods. Arrays with less than 16 elements,
+ * or more than 65536, are not transformed either.
+ */
+public class ArrayInitializerCompactor extends ClassVisitor {
+
+    /**
+     * The minimum number of elements that an array initializer must set to be
+     * compacted.
+     */
+    private static final int MIN_ELEMENTS = 16;
+
+    /**
+     * The maximum length of the arrays whose initializer can be compacted.
+     */
+    private static final int MAX_LENGTH = 65536;
+
+    /**
+     * The maximum length of the string constants. Each char takes at most 3
+     * bytes in the constant pool, where strings are limited to 65535 bytes.
+     */
+    private static final int MAX_STRING_LENGTH = 65535 / 3;
+
+    /**
+     * The descriptors of the array types, indexed by NEWARRAY operand.
+     */
+    private static final String[] DESCRIPTORS = { null, null, null, null,
+        "[Z", "[C", "[F", "[D", "[B", "[S", "[I", "[J" };
+
+    /**
+     * The array store opcodes, indexed by NEWARRAY operand.
+     */
+    private static final int[] STORE_OPCODES = { 0, 0, 0, 0,
+        Opcodes.BASTORE, Opcodes.CASTORE, Opcodes.FASTORE, Opcodes.DASTORE,
+        Opcodes.BASTORE, Opcodes.SASTORE, Opcodes.IASTORE, Opcodes.LASTORE };
+
+    /**
+     * The number of chars used to encode an array element, indexed by
+     * NEWARRAY operand.
+     */
+    private static final int[] CHARS = { 0, 0, 0, 0, 1, 1, 2, 4, 1, 1, 2, 4 };
+
+    /**
+     * The prefix of the names of the methods that decode the array elements.
+     */
+    private final String prefix;
+
+    /**
+     * The internal name of the visited class.
+     */
+    private String owner;
+
+    /**
+     * The version of the visited class.
+     */
+    private int version;
+
+    /**
+     * <tt>true</tt> if the visited class is an interface.
+     */
+    private boolean isInterface;
+
+    /**
+     * The array types for which a decoding method must be generated, indexed
+     * by NEWARRAY operand.
+     */
+    private final boolean[] decoders = new boolean[DESCRIPTORS.length];
+
+    /**
+     * Constructs a new {@link ArrayInitializerCompactor}.
+     *
+     * @param prefix the prefix of the names of the methods that decode the
+     *        array elements. The full name of these methods is this prefix
+     *        followed by the descriptor of the array element type.
+     * @param cv the class visitor to which this visitor must delegate method
+     *        calls.
+     */
+    public ArrayInitializerCompactor(final String prefix, final ClassVisitor cv)
+    {
+        this(Opcodes.ASM4, prefix, cv);
+    }
+
+    protected ArrayInitializerCompactor(
+        final int api,
+        final String prefix,
+        final ClassVisitor cv)
+    {
+        super(api, cv);
+        this.prefix = prefix;
+    }
+
+    @Override
+    public void visit(
+        final int version,
+        final int access,
+        final String name,
+        final String signature,
+        final String superName,
+        final String[] interfaces)
+    {
+        this.owner = name;
+        this.version = version;
+        this.isInterface = (access & Opcodes.ACC_INTERFACE) != 0;
+        cv.visit(version, access, name, signature, superName, interfaces);
+    }
+
+    @Override
+    public MethodVisitor visitMethod(
+        final int access,
+        final String name,
+        final String desc,
+        final String signature,
+        final String[] exceptions)
+    {
+        MethodVisitor mv = cv.visitMethod(access,
+                name,
+                desc,
+                signature,
+                exceptions);
+        if (mv != null && !isInterface && "<clinit>".equals(name)) {
+            mv = new ArrayInitializerAdapter(mv);
+        }
+        return mv;
+    }
+
+    @Override
+    public void visitEnd() {
+        for (int i = 0; i < decoders.length; ++i) {
+            if (decoders[i]) {
+                generateDecoder(i);
+            }
+        }
+        cv.visitEnd();
+    }
+
+    /**
+     * Returns the descriptor of the method that decodes the elements of the
+     * given array type.
+     *
+     * @param type a NEWARRAY operand.
+     * @return the descriptor of the corresponding decoding method.
+     */
+    private static String getDecoderDescriptor(final int type) {
+        return "(" + DESCRIPTORS[type] + "ILjava/lang/String;)"
+                + DESCRIPTORS[type];
+    }
+
+    /**
+     * Generates the method that decodes the elements of the given array type.
+     * This method is equivalent to the following Java code (for int arrays):
+     *
+     * <pre>
+     * static int[] decode(int[] a, int offset, String s) {
+     *     int n = s.length();
+     *     for (int i = 0; i &lt; n; i += 2) {
+     *         a[offset++] = (s.charAt(i) &lt;&lt; 16) | s.charAt(i + 1);
+     *     }
+     *     return a;
+     * }
+     * </pre>
+     *
+     * @param type a NEWARRAY operand.
+     */
+    private void generateDecoder(final int type) {
+        int chars = CHARS[type];
+        MethodVisitor mv = cv.visitMethod(Opcodes.ACC_PRIVATE
+                + Opcodes.ACC_STATIC,
+                prefix + DESCRIPTORS[type].charAt(1),
+                getDecoderDescriptor(type),
+                null,
+                null);
+        if (mv == null) {
+            return;
+        }
+        boolean frames = (version & 0xFFFF) >= Opcodes.V1_6;
+        Label loop = new Label();
+        Label end = new Label();
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 2);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL,
+                "java/lang/String",
+                "length",
+                "()I");
+        mv.visitVarInsn(Opcodes.ISTORE, 3);
+        mv.visitInsn(Opcodes.ICONST_0);
+        mv.visitVarInsn(Opcodes.ISTORE, 4);
+        mv.visitLabel(loop);
+        if (frames) {
+            mv.visitFrame(Opcodes.F_APPEND, 2, new Object[] {
+                Opcodes.INTEGER,
+                Opcodes.INTEGER }, 0, null);
+        }
+        mv.visitVarInsn(Opcodes.ILOAD, 4);
+        mv.visitVarInsn(Opcodes.ILOAD, 3);
+        mv.visitJumpInsn(Opcodes.IF_ICMPGE, end);
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitVarInsn(Opcodes.ILOAD, 1);
+        for (int i = 0; i < chars; ++i) {
+            mv.visitVarInsn(Opcodes.ALOAD, 2);
+            mv.visitVarInsn(Opcodes.ILOAD, 4);
+            if (i > 0) {
+                mv.visitInsn(Opcodes.ICONST_0 + i);
+                mv.visitInsn(Opcodes.IADD);
+            }
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL,
+                    "java/lang/String",
+                    "charAt",
+                    "(I)C");
+            if (chars == 2) {
+                if (i == 0) {
+                    mv.visitIntInsn(Opcodes.BIPUSH, 16);
+                    mv.visitInsn(Opcodes.ISHL);
+                } else {
+                    mv.visitInsn(Opcodes.IOR);
+                }
+            } else if (chars == 4) {
+                mv.visitInsn(Opcodes.I2L);
+                if (i < 3) {
+                    mv.visitIntInsn(Opcodes.BIPUSH, 16 * (3 - i));
+                    mv.visitInsn(Opcodes.LSHL);
+                }
+                if (i > 0) {
+                    mv.visitInsn(Opcodes.LOR);
+                }
+            }
+        }
+        if (type == Opcodes.T_FLOAT) {
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC,
+                    "java/lang/Float",
+                    "intBitsToFloat",
+                    "(I)F");
+        } else if (type == Opcodes.T_DOUBLE) {
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC,
+                    "java/lang/Double",
+                    "longBitsToDouble",
+                    "(J)D");
+        }
+        mv.visitInsn(STORE_OPCODES[type]);
+        mv.visitIincInsn(1, 1);
+        mv.visitIincInsn(4, chars);
+        mv.visitJumpInsn(Opcodes.GOTO, loop);
+        mv.visitLabel(end);
+        if (frames) {
+            mv.visitFrame(Opcodes.F_SAME, 0, null, 0, null);
+        }
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitInsn(Opcodes.ARETURN);
+        mv.visitMaxs(chars == 4 ? 9 : 6, 5);
+        mv.visitEnd();
+    }
+
+    /**
+     * Returns the value of the given int constant instruction.
+     *
+     * @param insn an instruction.
+     * @return the int value pushed by this instruction, or <tt>null</tt> if
+     *         it does not push an int constant.
+     */
+    static Integer getIntConstant(final AbstractInsnNode insn) {
+        int opcode = insn.getOpcode();
+        if (opcode >= Opcodes.ICONST_M1 && opcode <= Opcodes.ICONST_5) {
+            return new Integer(opcode - Opcodes.ICONST_0);
+        }
+        if (opcode == Opcodes.BIPUSH || opcode == Opcodes.SIPUSH) {
+            return new Integer(((IntInsnNode) insn).operand);
+        }
+        if (opcode == Opcodes.LDC && ((LdcInsnNode) insn).cst instanceof Integer)
+        {
+            return (Integer) ((LdcInsnNode) insn).cst;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the value of the given constant instruction, as the bits of an
+     * element of the given array type.
+     *
+     * @param insn an instruction.
+     * @param type a NEWARRAY operand.
+     * @return the bits of the value pushed by this instruction, or
+     *         <tt>null</tt> if it does not push a constant of the given type.
+     */
+    static Long getConstant(final AbstractInsnNode insn, final int type) {
+        int opcode = insn.getOpcode();
+        Object cst = opcode == Opcodes.LDC ? ((LdcInsnNode) insn).cst : null;
+        switch (type) {
+            case Opcodes.T_LONG:
+                if (opcode == Opcodes.LCONST_0 || opcode == Opcodes.LCONST_1) {
+                    return new Long(opcode - Opcodes.LCONST_0);
+                }
+                return cst instanceof Long ? (Long) cst : null;
+            case Opcodes.T_FLOAT:
+                if (opcode >= Opcodes.FCONST_0 && opcode <= Opcodes.FCONST_2) {
+                    cst = new Float(opcode - Opcodes.FCONST_0);
+                }
+                return cst instanceof Float
+                        ? new Long(Float.floatToRawIntBits(((Float) cst).floatValue()))
+                        : null;
+            case Opcodes.T_DOUBLE:
+                if (opcode == Opcodes.DCONST_0 || opcode == Opcodes.DCONST_1) {
+                    cst = new Double(opcode - Opcodes.DCONST_0);
+                }
+                return cst instanceof Double
+                        ? new Long(Double.doubleToRawLongBits(((Double) cst).doubleValue()))
+                        : null;
+            default:
+                Integer value = getIntConstant(insn);
+                return value == null ? null : new Long(value.intValue());
+        }
+    }
+
+    /**
+     * A {@link MethodVisitor} that compacts array initializers. The
+     * instructions that may be part of an array initializer are stored in
+     * {@link #insns} until the end of the initializer is found.
+     */
+    private class ArrayInitializerAdapter extends MethodVisitor {
+
+        /**
+         * The instructions that have been visited since the last NEWARRAY
+         * instruction, and that have not yet been passed to the next visitor.
+         */
+        private final InsnList insns = new InsnList();
+
+        /**
+         * The last instruction that has been passed to the next visitor, if it
+         * is a constant instruction, or <tt>null</tt>.
+         */
+        private AbstractInsnNode last;
+
+        /**
+         * The NEWARRAY operand of the current array initializer, or 0 if
+         * there is no current array initializer.
+         */
+        private int type;
+
+        /**
+         * The length of the array of the current array initializer.
+         */
+        private int length;
+
+        /**
+         * The values of the array elements set in the current array
+         * initializer, indexed by element index, and encoded as in
+         * {@link ArrayInitializerCompactor#getConstant}. The other elements
+         * are 0.
+         */
+        private long[] values = new long[MIN_ELEMENTS];
+
+        /**
+         * The number of array elements set in the current array initializer.
+         */
+        private int count;
+
+        /**
+         * The minimum index of the elements set in the current array
+         * initializer.
+         */
+        private int minIndex;
+
+        /**
+         * The maximum index of the elements set in the current array
+         * initializer.
+         */
+        private int maxIndex;
+
+        /**
+         * The number of instructions of {@link #insns} that correspond to
+         * complete element initializations.
+         */
+        private int complete;
+
+        /**
+         * The index of the element being initialized.
+         */
+        private int index;
+
+        /**
+         * The value of the element being initialized.
+         */
+        private long value;
+
+        ArrayInitializerAdapter(final MethodVisitor mv) {
+            super(ArrayInitializerCompactor.this.api, mv);
+        }
+
+        @Override
+        public void visitInsn(final int opcode) {
+            if (!add(new InsnNode(opcode))) {
+                super.visitInsn(opcode);
+            }
+        }
+
+        @Override
+        public void visitIntInsn(final int opcode, final int operand) {
+            if (opcode == Opcodes.NEWARRAY) {
+                end();
+                Integer n = last == null ? null : getIntConstant(last);
+                super.visitIntInsn(opcode, operand);
+                if (n != null && n.intValue() >= MIN_ELEMENTS
+                        && n.intValue() <= MAX_LENGTH)
+                {
+                    type = operand;
+                    length = n.intValue();
+                }
+                last = null;
+            } else if (!add(new IntInsnNode(opcode, operand))) {
+                super.visitIntInsn(opcode, operand);
+            }
+        }
+
+        @Override
+        public void visitLdcInsn(final Object cst) {
+            if (!add(new LdcInsnNode(cst))) {
+                super.visitLdcInsn(cst);
+            }
+        }
+
+        @Override
+        public void visitVarInsn(final int opcode, final int var) {
+            flush();
+            super.visitVarInsn(opcode, var);
+        }
+
+        @Override
+        public void visitTypeInsn(final int opcode, final String type) {
+            flush();
+            super.visitTypeInsn(opcode, type);
+        }
+
+        @Override
+        public void visitFieldInsn(
+            final int opcode,
+            final String owner,
+            final String name,
+            final String desc)
+        {
+            flush();
+            super.visitFieldInsn(opcode, owner, name, desc);
+        }
+
+        @Override
+        public void visitMethodInsn(
+            final int opcode,
+            final String owner,
+            final String name,
+            final String desc,
+            final boolean itf)
+        {
+            flush();
+            super.visitMethodInsn(opcode, owner, name, desc, itf);
+        }
+
+        @Override
+        public void visitInvokeDynamicInsn(
+            final String name,
+            final String desc,
+            final Handle bsm,
+            final Object... bsmArgs)
+        {
+            flush();
+            super.visitInvokeDynamicInsn(name, desc, bsm, bsmArgs);
+        }
+
+        @Override
+        public void visitJumpInsn(final int opcode, final Label label) {
+            flush();
+            super.visitJumpInsn(opcode, label);
+        }
+
+        @Override
+        public void visitLabel(final Label label) {
+            flush();
+            super.visitLabel(label);
+        }
+
+        @Override
+        public void visitIincInsn(final int var, final int increment) {
+            flush();
+            super.visitIincInsn(var, increment);
+        }
+
+        @Override
+        public void visitTableSwitchInsn(
+            final int min,
+            final int max,
+            final Label dflt,
+            final Label... labels)
+        {
+            flush();
+            super.visitTableSwitchInsn(min, max, dflt, labels);
+        }
+
+        @Override
+        public void visitLookupSwitchInsn(
+            final Label dflt,
+            final int[] keys,
+            final Label[] labels)
+        {
+            flush();
+            super.visitLookupSwitchInsn(dflt, keys, labels);
+        }
+
+        @Override
+        public void visitMultiANewArrayInsn(final String desc, final int dims)
+        {
+            flush();
+            super.visitMultiANewArrayInsn(desc, dims);
+        }
+
+        @Override
+        public void visitFrame(
+            final int type,
+            final int nLocal,
+            final Object[] local,
+            final int nStack,
+            final Object[] stack)
+        {
+            flush();
+            super.visitFrame(type, nLocal, local, nStack, stack);
+        }
+
+        @Override
+        public void visitLineNumber(final int line, final Label start) {
+            flush();
+            super.visitLineNumber(line, start);
+        }
+
+        @Override
+        public void visitMaxs(final int maxStack, final int maxLocals) {
+            flush();
+            super.visitMaxs(maxStack, maxLocals);
+        }
+
+        /**
+         * Adds the given instruction to the current array initializer, if
+         * possible. Otherwise ends the current array initializer, if any.
+         *
+         * @param insn an instruction that has not yet been passed to the next
+         *        visitor.
+         * @return <tt>true</tt> if the instruction has been added to the
+         *         current array initializer, or <tt>false</tt> if it must be
+         *         passed to the next visitor.
+         */
+        private boolean add(final AbstractInsnNode insn) {
+            if (type != 0) {
+                int opcode = insn.getOpcode();
+                switch (insns.size() - complete) {
+                    case 0:
+                        if (opcode == Opcodes.DUP) {
+                            insns.add(insn);
+                            return true;
+                        }
+                        break;
+                    case 1:
+                        Integer i = getIntConstant(insn);
+                        if (i != null && i.intValue() >= 0
+                                && i.intValue() < length)
+                        {
+                            index = i.intValue();
+                            insns.add(insn);
+                            return true;
+                        }
+                        break;
+                    case 2:
+                        Long v = getConstant(insn, type);
+                        if (v != null) {
+                            value = v.longValue();
+                            insns.add(insn);
+                            return true;
+                        }
+                        break;
+                    default:
+                        if (opcode == STORE_OPCODES[type]) {
+                            setValue();
+                            insns.add(insn);
+                            complete = insns.size();
+                            return true;
+                        }
+                        break;
+                }
+                end();
+            }
+            last = insn;
+            return false;
+        }
+
+        /**
+         * Stores {@link #value} at {@link #index} in {@link #values}.
+         */
+        private void setValue() {
+            if (count == 0) {
+                minIndex = index;
+                maxIndex = index;
+            } else {
+                minIndex = Math.min(minIndex, index);
+                maxIndex = Math.max(maxIndex, index);
+            }
+            if (index >= values.length) {
+                long[] newValues = new long[Math.max(2 * values.length,
+                        index + 1)];
+                System.arraycopy(values, 0, newValues, 0, values.length);
+                values = newValues;
+            }
+            values[index] = value;
+            ++count;
+        }
+
+        /**
+         * Ends the current array initializer, if any, and notes that the last
+         * instruction passed to the next visitor is not a constant.
+         */
+        private void flush() {
+            end();
+            last = null;
+        }
+
+        /**
+         * Ends the current array initializer, if any. Compacts its complete
+         * element initializations if there are enough of them, and passes the
+         * remaining instructions to the next visitor.
+         */
+        private void end() {
+            if (type == 0) {
+                return;
+            }
+            AbstractInsnNode insn = insns.getFirst();
+            if (count >= MIN_ELEMENTS) {
+                compact();
+                last = null;
+                for (int i = 0; i < complete; ++i) {
+                    insn = insn.getNext();
+                }
+            }
+            while (insn != null) {
+                insn.accept(mv);
+                last = insn;
+                insn = insn.getNext();
+            }
+            if (count > 0) {
+                Arrays.fill(values, minIndex, maxIndex + 1, 0L);
+            }
+            insns.clear();
+            type = 0;
+            count = 0;
+            complete = 0;
+        }
+
+        /**
+         * Replaces the complete element initializations of the current array
+         * initializer with calls to the corresponding decoding method.
+         */
+        private void compact() {
+            int chars = CHARS[type];
+            int max = MAX_STRING_LENGTH / chars;
+            for (int start = minIndex; start <= maxIndex; start += max) {
+                int end = Math.min(maxIndex + 1, start + max);
+                char[] s = new char[(end - start) * chars];
+                int k = 0;
+                for (int i = start; i < end; ++i) {
+                    long v = values[i];
+                    if (type == Opcodes.T_BOOLEAN || type == Opcodes.T_BYTE) {
+                        // BASTORE truncates its value, and the UTF8
+                        // encoding of small chars is shorter
+                        v &= 0xFF;
+                    }
+                    for (int j = chars - 1; j >= 0; --j) {
+                        s[k++] = (char) (v >>> (16 * j));
+                    }
+                }
+                if (start <= 5) {
+                    mv.visitInsn(Opcodes.ICONST_0 + start);
+                } else if (start <= Short.MAX_VALUE) {
+                    mv.visitIntInsn(start <= Byte.MAX_VALUE
+                            ? Opcodes.BIPUSH
+                            : Opcodes.SIPUSH, start);
+                } else {
+                    mv.visitLdcInsn(new Integer(start));
+                }
+                mv.visitLdcInsn(new String(s));
+                mv.visitMethodInsn(Opcodes.INVOKESTATIC,
+                        owner,
+                        prefix + DESCRIPTORS[type].charAt(1),
+                        getDecoderDescriptor(type));
+            }
+            decoders[type] = true;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/***
+ * ASM: a very small and fast Java bytecode manipulation framework
+ * Copyright (c) 2000-2011 INRIA, France Telecom
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.objectweb.asm.commons;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link Remapper} that caches the results of another remapper. The type
+ * names, descriptors, method descriptors and signatures mapped by the given
+ * remapper are stored in bounded concurrent tables, so that a remapper used to
+ * transform many classes, for instance to relocate the classes of a jar, maps
+ * each distinct value only once. A table is cleared when it reaches its
+ * maximum size. Field and method names are not cached.
+ * <p>
+ * The given remapper must always return the same result for the same
+ * arguments, and must be thread safe if this remapper is used by several
+ * threads.
+ */
+public class CachingRemapper extends Remapper {
+
+    /**
+     * The value stored in the tables for <tt>null</tt> results.
+     */
+    private static final String NULL = new String();
+
+    /**
+     * The remapper whose results are cached.
+     */
+    private final Remapper remapper;
+
+    /**
+     * The maximum number of entries of each table.
+     */
+    private final int maxSize;
+
+    private final ConcurrentHashMap<String, String> names;
+
+    private final ConcurrentHashMap<String, String> types;
+
+    private final ConcurrentHashMap<String, String> descs;
+
+    private final ConcurrentHashMap<String, String> methodDescs;
+
+    private final ConcurrentHashMap<String, String> signatures;
+
+    private final ConcurrentHashMap<String, String> typeSignatures;
+
+    /**
+     * Constructs a new {@link CachingRemapper} with tables of at most 65536
+     * entries.
+     *
+     * @param remapper the remapper whose results must be cached.
+     */
+    public CachingRemapper(final Remapper remapper) {
+        this(remapper, 65536);
+    }
+
+    /**
+     * Constructs a new {@link CachingRemapper}.
+     *
+     * @param remapper the remapper whose results must be cached.
+     * @param maxSize the maximum number of entries of each table.
+     */
+    public CachingRemapper(final Remapper remapper, final int maxSize) {
+        this.remapper = remapper;
+        this.maxSize = maxSize;
+        this.names = new ConcurrentHashMap<String, String>();
+        this.types = new ConcurrentHashMap<String, String>();
+        this.descs = new ConcurrentHashMap<String, String>();
+        this.methodDescs = new ConcurrentHashMap<String, String>();
+        this.signatures = new ConcurrentHashMap<String, String>();
+        this.typeSignatures = new ConcurrentHashMap<String, String>();
+    }
+
+    @Override
+    public String map(final String typeName) {
+        String s = names.get(typeName);
+        if (s == null) {
+            s = put(names, typeName, remapper.map(typeName));
+        }
+        return s == NULL ? null : s;
+    }
+
+    @Override
+    public String mapType(final String type) {
+        if (type == null) {
+            return null;
+        }
+        String s = types.get(type);
+        if (s == null) {
+            s = put(types, type, remapper.mapType(type));
+        }
+        return s == NULL ? null : s;
+    }
+
+    @Override
+    public String mapDesc(final String desc) {
+        String s = descs.get(desc);
+        if (s == null) {
+            s = put(descs, desc, remapper.mapDesc(desc));
+        }
+        return s == NULL ? null : s;
+    }
+
+    @Override
+    public String mapMethodDesc(final String desc) {
+        String s = methodDescs.get(desc);
+        if (s == null) {
+            s = put(methodDescs, desc, remapper.mapMethodDesc(desc));
+        }
+        return s == NULL ? null : s;
+    }
+
+    @Override
+    public String mapSignature(
+        final String signature,
+        final boolean typeSignature)
+    {
+        if (signature == null) {
+            return null;
+        }
+        ConcurrentHashMap<String, String> cache = typeSignature
+                ? typeSignatures
+                : signatures;
+        String s = cache.get(signature);
+        if (s == null) {
+            s = put(cache, signature, remapper.mapSignature(signature,
+                    typeSignature));
+        }
+        return s == NULL ? null : s;
+    }
+
+    @Override
+    public String mapMethodName(
+        final String owner,
+        final String name,
+        final String desc)
+    {
+        return remapper.mapMethodName(owner, name, desc);
+    }
+
+    @Override
+    public String mapInvokeDynamicMethodName(
+        final String name,
+        final String desc)
+    {
+        return remapper.mapInvokeDynamicMethodName(name, desc);
+    }
+
+    @Override
+    public String mapFieldName(
+        final String owner,
+        final String name,
+        final String desc)
+    {
+        return remapper.mapFieldName(owner, name, desc);
+    }
+
+    /**
+     * Stores a value in the given table, after clearing it if it is full.
+     *
+     * @param cache a table.
+     * @param key a key.
+     * @param value the value associated with key. May be <tt>null</tt>.
+     * @return the value stored in the table, i.e. value or {@link #NULL}.
+     */
+    private String put(
+        final ConcurrentHashMap<String, String> cache,
+        final String key,
+        final String value)
+    {
+        if (cache.size() >= maxSize) {
+            cache.clear();
+        }
+        String s = value == null ? NULL : value;
+        cache.put(key, s);
+        return s;
+    }
+}
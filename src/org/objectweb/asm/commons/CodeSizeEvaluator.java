@@ -29,6 +29,7 @@
  */
 package org.objectweb.asm.commons;
 
+import org.objectweb.asm.ConstantDynamic;
 import org.objectweb.asm.Handle;
 import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
@@ -130,6 +131,21 @@ public class CodeSizeEvaluator extends MethodVisitor implements Opcodes {
         final String owner,
         final String name,
         final String desc)
+    {
+        visitMethodInsn(opcode,
+                owner,
+                name,
+                desc,
+                opcode == INVOKEINTERFACE);
+    }
+
+    @Override
+    public void visitMethodInsn(
+        final int opcode,
+        final String owner,
+        final String name,
+        final String desc,
+        final boolean itf)
     {
         if (opcode == INVOKEINTERFACE) {
             minSize += 5;
@@ -138,9 +154,7 @@ public class CodeSizeEvaluator extends MethodVisitor implements Opcodes {
             minSize += 3;
             maxSize += 3;
         }
-        if (mv != null) {
-            mv.visitMethodInsn(opcode, owner, name, desc);
-        }
+        super.visitMethodInsn(opcode, owner, name, desc, itf);
     }
 
     @Override
@@ -172,7 +186,9 @@ public class CodeSizeEvaluator extends MethodVisitor implements Opcodes {
 
     @Override
     public void visitLdcInsn(final Object cst) {
-        if (cst instanceof Long || cst instanceof Double) {
+        if (cst instanceof Long || cst instanceof Double
+                || (cst instanceof ConstantDynamic && ((ConstantDynamic) cst).getSize() == 2))
+        {
             minSize += 3;
             maxSize += 3;
         } else {
@@ -0,0 +1,646 @@
+/***
+ * ASM: a very small and fast Java bytecode manipulation framework
+ * Copyright (c) 2000-2011 INRIA, France Telecom
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.objectweb.asm.commons;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.objectweb.asm.ByteVector;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+
+/**
+ * Remaps classes by rewriting their constant pool, without parsing nor
+ * writing again their methods. Since a remapping only renames classes and
+ * members, the instructions do not change, and the constant pool items they
+ * reference can keep their index. The CONSTANT_Utf8 items that must be
+ * renamed are therefore rewritten in place, and the Code attributes are copied
+ * as is. The descriptors and signatures of the fields, methods and local
+ * variables, the annotations, and the EnclosingMethod attribute are also
+ * remapped, by changing the index of the CONSTANT_Utf8 or CONSTANT_NameAndType
+ * items they reference. The other attributes are copied as is.
+ * <p>
+ * A CONSTANT_Utf8 or CONSTANT_NameAndType item that must be remapped in
+ * different ways for different uses, for instance a class name that is also
+ * used as a string constant, or a name and type shared by methods of
+ * different classes, is kept for its first use, and new items are appended
+ * at the end of the constant pool for the other ones.
+ * <p>
+ * The result is the same as with a {@link RemappingClassAdapter}, except that
+ * the local variables are not renumbered, that the names of the fields
+ * referenced by method handles are remapped with
+ * {@link Remapper#mapFieldName mapFieldName}, and that the unused constant
+ * pool items are kept. The {@link Remapper#mapValue mapValue} method is only
+ * called for string constants. This class is thread safe if the remapper is
+ * thread safe.
+ */
+public class ConstantPoolRemapper {
+
+    /**
+     * The kinds of structures that contain attributes.
+     */
+    private static final int CLASS = 0;
+
+    private static final int FIELD = 1;
+
+    private static final int METHOD = 2;
+
+    private static final int CODE = 3;
+
+    /**
+     * The remapper used to remap the classes.
+     */
+    private final Remapper remapper;
+
+    /**
+     * Constructs a new {@link ConstantPoolRemapper}.
+     *
+     * @param remapper the remapper used to remap the classes.
+     */
+    public ConstantPoolRemapper(final Remapper remapper) {
+        this.remapper = remapper;
+    }
+
+    /**
+     * Remaps the given class.
+     *
+     * @param cr the class to be remapped.
+     * @return the bytecode of the remapped class. This is {@link ClassReader#b
+     *         cr.b} itself if the class does not change and if this array
+     *         contains only this class.
+     */
+    public byte[] remap(final ClassReader cr) {
+        return new ClassRemapping(cr).remap();
+    }
+
+    /**
+     * The state of the remapping of a class.
+     */
+    private final class ClassRemapping {
+
+        private final ClassReader cr;
+
+        private final byte[] b;
+
+        /**
+         * The number of constant pool items of the original class.
+         */
+        private final int n;
+
+        private final char[] buf;
+
+        /**
+         * The new content of the CONSTANT_Utf8 items that are rewritten in
+         * place, or <tt>null</tt> for the other items.
+         */
+        private final String[] strings;
+
+        /**
+         * Whether the CONSTANT_Utf8 or CONSTANT_NameAndType items are used.
+         * The first use of an item determines its new content.
+         */
+        private final boolean[] used;
+
+        /**
+         * The new CONSTANT_Utf8 item referenced by each CONSTANT_Class,
+         * CONSTANT_String or CONSTANT_MethodType item, or the new
+         * CONSTANT_NameAndType item referenced by each field, method,
+         * invokedynamic or dynamic constant item.
+         */
+        private final int[] refs;
+
+        /**
+         * The new name of the used CONSTANT_NameAndType items.
+         */
+        private final int[] natNames;
+
+        /**
+         * The new descriptor of the used CONSTANT_NameAndType items.
+         */
+        private final int[] natDescs;
+
+        /**
+         * The items appended to the constant pool.
+         */
+        private final ByteVector extra;
+
+        /**
+         * The indexes of the CONSTANT_Utf8 items appended to the constant
+         * pool.
+         */
+        private final Map<String, Integer> extraStrings;
+
+        /**
+         * The indexes of the CONSTANT_NameAndType items appended to the
+         * constant pool, keyed by name and descriptor indexes.
+         */
+        private final Map<Integer, Integer> extraNats;
+
+        /**
+         * A copy of the class after its constant pool, in which the indexes of
+         * the remapped items are changed.
+         */
+        private byte[] body;
+
+        /**
+         * The number of items of the new constant pool.
+         */
+        private int count;
+
+        /**
+         * Whether the class changed.
+         */
+        private boolean changed;
+
+        private String className;
+
+        ClassRemapping(final ClassReader cr) {
+            this.cr = cr;
+            this.b = cr.b;
+            this.n = cr.getItemCount();
+            this.buf = new char[cr.getMaxStringLength()];
+            this.strings = new String[n];
+            this.used = new boolean[n];
+            this.refs = new int[n];
+            this.natNames = new int[n];
+            this.natDescs = new int[n];
+            this.extra = new ByteVector();
+            this.extraStrings = new HashMap<String, Integer>();
+            this.extraNats = new HashMap<Integer, Integer>();
+            this.count = n;
+        }
+
+        byte[] remap() {
+            remapItems();
+            int header = cr.header;
+            body = new byte[b.length - header];
+            System.arraycopy(b, header, body, 0, body.length);
+            className = cr.getClassName();
+            int u = header + 8 + 2 * cr.readUnsignedShort(header + 6);
+            for (int i = 0; i < 2; ++i) {
+                int members = cr.readUnsignedShort(u);
+                u += 2;
+                for (int j = 0; j < members; ++j) {
+                    u = remapMember(u, i == 0);
+                }
+            }
+            u = remapAttributes(u, CLASS);
+            int start = cr.getItem(1) - 11;
+            if (!changed) {
+                if (start == 0 && u == b.length) {
+                    return b;
+                }
+                byte[] result = new byte[u - start];
+                System.arraycopy(b, start, result, 0, result.length);
+                return result;
+            }
+            if (count > 0xFFFF) {
+                throw new RuntimeException("Constant pool too large");
+            }
+            ByteVector out = new ByteVector(u - start + extra.length);
+            out.putByteArray(b, start, 8).putShort(count);
+            writeItems(out);
+            out.putByteArray(extra.data, 0, extra.length);
+            out.putByteArray(body, 0, u - header);
+            return out.data.length == out.length ? out.data : trim(out);
+        }
+
+        /**
+         * Remaps the constant pool items that reference CONSTANT_Utf8 or
+         * CONSTANT_NameAndType items.
+         */
+        private void remapItems() {
+            for (int i = 1; i < n; ++i) {
+                int index = cr.getItem(i);
+                switch (b[index - 1]) {
+                    case ClassWriter.CLASS: {
+                        int name = cr.readUnsignedShort(index);
+                        refs[i] = remapUTF8(name,
+                                remapper.mapType(utf8(name)));
+                        break;
+                    }
+                    case ClassWriter.STR: {
+                        int value = cr.readUnsignedShort(index);
+                        String s = utf8(value);
+                        Object o = remapper.mapValue(s);
+                        refs[i] = remapUTF8(value, o instanceof String
+                                ? (String) o
+                                : s);
+                        break;
+                    }
+                    case ClassWriter.MTYPE: {
+                        int desc = cr.readUnsignedShort(index);
+                        refs[i] = remapUTF8(desc,
+                                remapper.mapMethodDesc(utf8(desc)));
+                        break;
+                    }
+                    case ClassWriter.FIELD:
+                    case ClassWriter.METH:
+                    case ClassWriter.IMETH: {
+                        String owner = cr.readClass(index, buf);
+                        int nat = cr.readUnsignedShort(index + 2);
+                        int natIndex = cr.getItem(nat);
+                        String name = cr.readUTF8(natIndex, buf);
+                        String desc = cr.readUTF8(natIndex + 2, buf);
+                        if (b[index - 1] == ClassWriter.FIELD) {
+                            refs[i] = remapNameType(nat,
+                                    remapper.mapFieldName(owner, name, desc),
+                                    remapper.mapDesc(desc));
+                        } else {
+                            refs[i] = remapNameType(nat,
+                                    remapper.mapMethodName(owner, name, desc),
+                                    remapper.mapMethodDesc(desc));
+                        }
+                        break;
+                    }
+                    case ClassWriter.INDY:
+                    case ClassWriter.CONDY: {
+                        int nat = cr.readUnsignedShort(index + 2);
+                        int natIndex = cr.getItem(nat);
+                        String name = cr.readUTF8(natIndex, buf);
+                        String desc = cr.readUTF8(natIndex + 2, buf);
+                        if (b[index - 1] == ClassWriter.INDY) {
+                            refs[i] = remapNameType(nat,
+                                    remapper.mapInvokeDynamicMethodName(name,
+                                            desc),
+                                    remapper.mapMethodDesc(desc));
+                        } else {
+                            refs[i] = remapNameType(nat,
+                                    name,
+                                    remapper.mapDesc(desc));
+                        }
+                        break;
+                    }
+                    case ClassWriter.LONG:
+                    case ClassWriter.DOUBLE:
+                        ++i;
+                        break;
+                }
+            }
+        }
+
+        /**
+         * Writes the original constant pool items, with their new content.
+         *
+         * @param out where the items must be written.
+         */
+        private void writeItems(final ByteVector out) {
+            for (int i = 1; i < n; ++i) {
+                int index = cr.getItem(i);
+                int tag = b[index - 1];
+                switch (tag) {
+                    case ClassWriter.UTF8:
+                        if (strings[i] != null) {
+                            out.putByte(tag).putUTF8(strings[i]);
+                            continue;
+                        }
+                        break;
+                    case ClassWriter.CLASS:
+                    case ClassWriter.STR:
+                    case ClassWriter.MTYPE:
+                        out.putByte(tag).putShort(refs[i]);
+                        continue;
+                    case ClassWriter.FIELD:
+                    case ClassWriter.METH:
+                    case ClassWriter.IMETH:
+                    case ClassWriter.INDY:
+                    case ClassWriter.CONDY:
+                        out.putByte(tag)
+                                .putShort(cr.readUnsignedShort(index))
+                                .putShort(refs[i]);
+                        continue;
+                    case ClassWriter.NAME_TYPE:
+                        if (used[i]) {
+                            out.putByte(tag)
+                                    .putShort(natNames[i])
+                                    .putShort(natDescs[i]);
+                            continue;
+                        }
+                        break;
+                    case ClassWriter.LONG:
+                    case ClassWriter.DOUBLE:
+                        out.putByteArray(b, index - 1, 9);
+                        ++i;
+                        continue;
+                }
+                // copies the item as is
+                int end = cr.header;
+                for (int j = i + 1; j < n; ++j) {
+                    if (cr.getItem(j) != 0) {
+                        end = cr.getItem(j) - 1;
+                        break;
+                    }
+                }
+                out.putByteArray(b, index - 1, end - index + 1);
+            }
+        }
+
+        /**
+         * Remaps a field or method.
+         *
+         * @param u the start offset of a field_info or method_info structure.
+         * @param field <tt>true</tt> for a field, <tt>false</tt> for a method.
+         * @return the offset of the next structure.
+         */
+        private int remapMember(final int u, final boolean field) {
+            String name = utf8(cr.readUnsignedShort(u + 2));
+            String desc = utf8(cr.readUnsignedShort(u + 4));
+            if (field) {
+                remapUTF8At(u + 2, remapper.mapFieldName(className, name, desc));
+                remapUTF8At(u + 4, remapper.mapDesc(desc));
+            } else {
+                remapUTF8At(u + 2,
+                        remapper.mapMethodName(className, name, desc));
+                remapUTF8At(u + 4, remapper.mapMethodDesc(desc));
+            }
+            return remapAttributes(u + 6, field ? FIELD : METHOD);
+        }
+
+        /**
+         * Remaps attributes.
+         *
+         * @param u the start offset of the attributes count.
+         * @param kind the kind of structure that contains these attributes.
+         * @return the offset of the next structure.
+         */
+        private int remapAttributes(int u, final int kind) {
+            int attributes = cr.readUnsignedShort(u);
+            u += 2;
+            for (int i = 0; i < attributes; ++i) {
+                String attr = utf8(cr.readUnsignedShort(u));
+                keepUTF8At(u);
+                int v = u + 6;
+                u = v + cr.readInt(u + 2);
+                if ("Signature".equals(attr)) {
+                    remapUTF8At(v, remapper.mapSignature(utf8At(v),
+                            kind == FIELD));
+                } else if ("RuntimeVisibleAnnotations".equals(attr)
+                        || "RuntimeInvisibleAnnotations".equals(attr))
+                {
+                    remapAnnotations(v);
+                } else if ("RuntimeVisibleParameterAnnotations".equals(attr)
+                        || "RuntimeInvisibleParameterAnnotations".equals(attr))
+                {
+                    int parameters = b[v] & 0xFF;
+                    v += 1;
+                    for (int j = 0; j < parameters; ++j) {
+                        v = remapAnnotations(v);
+                    }
+                } else if ("AnnotationDefault".equals(attr)) {
+                    remapElementValue(v);
+                } else if ("Code".equals(attr) && kind == METHOD) {
+                    v += 8 + cr.readInt(v + 4);
+                    v += 2 + 8 * cr.readUnsignedShort(v);
+                    remapAttributes(v, CODE);
+                } else if ("LocalVariableTable".equals(attr) && kind == CODE) {
+                    int vars = cr.readUnsignedShort(v);
+                    for (int j = 0, w = v + 2; j < vars; ++j, w += 10) {
+                        keepUTF8At(w + 4);
+                        remapUTF8At(w + 6, remapper.mapDesc(utf8At(w + 6)));
+                    }
+                } else if ("LocalVariableTypeTable".equals(attr)
+                        && kind == CODE)
+                {
+                    int vars = cr.readUnsignedShort(v);
+                    for (int j = 0, w = v + 2; j < vars; ++j, w += 10) {
+                        keepUTF8At(w + 4);
+                        remapUTF8At(w + 6, remapper.mapSignature(utf8At(w + 6),
+                                true));
+                    }
+                } else if ("InnerClasses".equals(attr) && kind == CLASS) {
+                    int classes = cr.readUnsignedShort(v);
+                    for (int j = 0, w = v + 2; j < classes; ++j, w += 8) {
+                        keepUTF8At(w + 4);
+                    }
+                } else if ("EnclosingMethod".equals(attr) && kind == CLASS) {
+                    int nat = cr.readUnsignedShort(v + 2);
+                    if (nat != 0) {
+                        String owner = cr.readClass(v, buf);
+                        int natIndex = cr.getItem(nat);
+                        String name = cr.readUTF8(natIndex, buf);
+                        String desc = cr.readUTF8(natIndex + 2, buf);
+                        setIndex(v + 2, remapNameType(nat,
+                                remapper.mapMethodName(owner, name, desc),
+                                remapper.mapMethodDesc(desc)));
+                    }
+                }
+            }
+            return u;
+        }
+
+        /**
+         * Remaps annotations.
+         *
+         * @param v the start offset of the number of annotations.
+         * @return the offset of the next structure.
+         */
+        private int remapAnnotations(int v) {
+            int annotations = cr.readUnsignedShort(v);
+            v += 2;
+            for (int i = 0; i < annotations; ++i) {
+                v = remapAnnotation(v);
+            }
+            return v;
+        }
+
+        /**
+         * Remaps an annotation.
+         *
+         * @param v the start offset of an annotation structure.
+         * @return the offset of the next structure.
+         */
+        private int remapAnnotation(int v) {
+            remapUTF8At(v, remapper.mapDesc(utf8At(v)));
+            int pairs = cr.readUnsignedShort(v + 2);
+            v += 4;
+            for (int i = 0; i < pairs; ++i) {
+                keepUTF8At(v);
+                v = remapElementValue(v + 2);
+            }
+            return v;
+        }
+
+        /**
+         * Remaps an annotation element value.
+         *
+         * @param v the start offset of an element_value structure.
+         * @return the offset of the next structure.
+         */
+        private int remapElementValue(int v) {
+            switch (b[v]) {
+                case 's': {
+                    String s = utf8At(v + 1);
+                    Object o = remapper.mapValue(s);
+                    remapUTF8At(v + 1, o instanceof String ? (String) o : s);
+                    return v + 3;
+                }
+                case 'e':
+                    remapUTF8At(v + 1, remapper.mapDesc(utf8At(v + 1)));
+                    keepUTF8At(v + 3);
+                    return v + 5;
+                case 'c':
+                    remapUTF8At(v + 1, remapper.mapDesc(utf8At(v + 1)));
+                    return v + 3;
+                case '@':
+                    return remapAnnotation(v + 1);
+                case '[': {
+                    int values = cr.readUnsignedShort(v + 1);
+                    v += 3;
+                    for (int i = 0; i < values; ++i) {
+                        v = remapElementValue(v);
+                    }
+                    return v;
+                }
+                default:
+                    return v + 3;
+            }
+        }
+
+        private String utf8(final int item) {
+            return cr.readUTF8Const(item, buf);
+        }
+
+        private String utf8At(final int v) {
+            return utf8(cr.readUnsignedShort(v));
+        }
+
+        /**
+         * Sets the CONSTANT_Utf8 item referenced from the given offset of the
+         * class to an item whose content is the given value.
+         *
+         * @param v an offset in the class, after its constant pool.
+         * @param value the new content of the referenced item.
+         */
+        private void remapUTF8At(final int v, final String value) {
+            setIndex(v, remapUTF8(cr.readUnsignedShort(v), value));
+        }
+
+        /**
+         * Keeps the content of the CONSTANT_Utf8 item referenced from the
+         * given offset of the class, if any.
+         *
+         * @param v an offset in the class, after its constant pool.
+         */
+        private void keepUTF8At(final int v) {
+            int item = cr.readUnsignedShort(v);
+            if (item != 0) {
+                setIndex(v, remapUTF8(item, utf8(item)));
+            }
+        }
+
+        private void setIndex(final int v, final int item) {
+            int w = v - cr.header;
+            body[w] = (byte) (item >>> 8);
+            body[w + 1] = (byte) item;
+        }
+
+        /**
+         * Returns a CONSTANT_Utf8 item whose content is the given value.
+         *
+         * @param item a CONSTANT_Utf8 item.
+         * @param value the new content of this item.
+         * @return item itself, if this item is not used yet or if its new
+         *         content is already value, or a new item otherwise.
+         */
+        private int remapUTF8(final int item, final String value) {
+            if (!used[item]) {
+                used[item] = true;
+                if (!value.equals(utf8(item))) {
+                    strings[item] = value;
+                    changed = true;
+                }
+                return item;
+            }
+            String s = strings[item];
+            if (value.equals(s == null ? utf8(item) : s)) {
+                return item;
+            }
+            Integer i = extraStrings.get(value);
+            if (i == null) {
+                i = new Integer(count++);
+                extra.putByte(ClassWriter.UTF8).putUTF8(value);
+                extraStrings.put(value, i);
+                changed = true;
+            }
+            return i.intValue();
+        }
+
+        /**
+         * Returns a CONSTANT_NameAndType item whose content is the given
+         * name and descriptor.
+         *
+         * @param item a CONSTANT_NameAndType item.
+         * @param name the new name of this item.
+         * @param desc the new descriptor of this item.
+         * @return item itself, if this item is not used yet or if its new
+         *         content is already name and desc, or a new item otherwise.
+         */
+        private int remapNameType(
+            final int item,
+            final String name,
+            final String desc)
+        {
+            int index = cr.getItem(item);
+            int newName = remapUTF8(cr.readUnsignedShort(index), name);
+            int newDesc = remapUTF8(cr.readUnsignedShort(index + 2), desc);
+            if (!used[item]) {
+                used[item] = true;
+                natNames[item] = newName;
+                natDescs[item] = newDesc;
+                if (newName != cr.readUnsignedShort(index)
+                        || newDesc != cr.readUnsignedShort(index + 2))
+                {
+                    changed = true;
+                }
+                return item;
+            }
+            if (natNames[item] == newName && natDescs[item] == newDesc) {
+                return item;
+            }
+            Integer key = new Integer((newName << 16) | newDesc);
+            Integer i = extraNats.get(key);
+            if (i == null) {
+                i = new Integer(count++);
+                extra.putByte(ClassWriter.NAME_TYPE)
+                        .putShort(newName)
+                        .putShort(newDesc);
+                extraNats.put(key, i);
+                changed = true;
+            }
+            return i.intValue();
+        }
+    }
+
+    private static byte[] trim(final ByteVector out) {
+        byte[] result = new byte[out.length];
+        System.arraycopy(out.data, 0, result, 0, out.length);
+        return result;
+    }
+}
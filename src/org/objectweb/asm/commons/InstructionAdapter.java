@@ -30,6 +30,7 @@
 
 package org.objectweb.asm.commons;
 
+import org.objectweb.asm.ConstantDynamic;
 import org.objectweb.asm.Handle;
 import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
@@ -514,16 +515,39 @@ public class InstructionAdapter extends MethodVisitor {
         final String owner,
         final String name,
         final String desc)
+    {
+        visitMethodInsn(opcode,
+                owner,
+                name,
+                desc,
+                opcode == Opcodes.INVOKEINTERFACE);
+    }
+
+    @Override
+    public void visitMethodInsn(
+        final int opcode,
+        final String owner,
+        final String name,
+        final String desc,
+        final boolean itf)
     {
         switch (opcode) {
             case Opcodes.INVOKESPECIAL:
-                invokespecial(owner, name, desc);
+                if (itf) {
+                    invokespecial(owner, name, desc, true);
+                } else {
+                    invokespecial(owner, name, desc);
+                }
                 break;
             case Opcodes.INVOKEVIRTUAL:
                 invokevirtual(owner, name, desc);
                 break;
             case Opcodes.INVOKESTATIC:
-                invokestatic(owner, name, desc);
+                if (itf) {
+                    invokestatic(owner, name, desc, true);
+                } else {
+                    invokestatic(owner, name, desc);
+                }
                 break;
             case Opcodes.INVOKEINTERFACE:
                 invokeinterface(owner, name, desc);
@@ -642,6 +666,8 @@ public class InstructionAdapter extends MethodVisitor {
             tconst((Type) cst);
         } else if (cst instanceof Handle) {
             hconst((Handle) cst);
+        } else if (cst instanceof ConstantDynamic) {
+            cdconst((ConstantDynamic) cst);
         } else {
             throw new IllegalArgumentException();
         }
@@ -736,6 +762,10 @@ public class InstructionAdapter extends MethodVisitor {
         mv.visitLdcInsn(handle);
     }
 
+    public void cdconst(final ConstantDynamic constantDynamic) {
+        mv.visitLdcInsn(constantDynamic);
+    }
+
     public void load(final int var, final Type type) {
         mv.visitVarInsn(type.getOpcode(Opcodes.ILOAD), var);
     }
@@ -1036,6 +1066,19 @@ public class InstructionAdapter extends MethodVisitor {
         mv.visitMethodInsn(Opcodes.INVOKESPECIAL, owner, name, desc);
     }
 
+    public void invokespecial(
+        final String owner,
+        final String name,
+        final String desc,
+        final boolean itf)
+    {
+        if (itf) {
+            mv.visitMethodInsn(Opcodes.INVOKESPECIAL, owner, name, desc, true);
+        } else {
+            mv.visitMethodInsn(Opcodes.INVOKESPECIAL, owner, name, desc);
+        }
+    }
+
     public void invokestatic(
         final String owner,
         final String name,
@@ -1044,6 +1087,19 @@ public class InstructionAdapter extends MethodVisitor {
         mv.visitMethodInsn(Opcodes.INVOKESTATIC, owner, name, desc);
     }
 
+    public void invokestatic(
+        final String owner,
+        final String name,
+        final String desc,
+        final boolean itf)
+    {
+        if (itf) {
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, owner, name, desc, true);
+        } else {
+            mv.visitMethodInsn(Opcodes.INVOKESTATIC, owner, name, desc);
+        }
+    }
+
     public void invokeinterface(
         final String owner,
         final String name,
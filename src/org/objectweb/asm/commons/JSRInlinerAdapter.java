@@ -34,7 +34,6 @@ import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -67,17 +66,17 @@ public class JSRInlinerAdapter extends MethodNode implements Opcodes {
     private static final boolean LOGGING = false;
 
     /**
-     * For each label that is jumped to by a JSR, we create a BitSet
+     * For each label that is jumped to by a JSR, we create a Subroutine
      * instance.
      */
-    private final Map<LabelNode,BitSet> subroutineHeads = new HashMap<LabelNode,BitSet>();
+    private final Map<LabelNode, Subroutine> subroutineHeads = new HashMap<LabelNode, Subroutine>();
 
     /**
      * This subroutine instance denotes the line of execution that is not
      * contained within any subroutine; i.e., the "subroutine" that is executing
      * when a method first begins.
      */
-    private final BitSet mainSubroutine = new BitSet();
+    private final Subroutine mainSubroutine = new Subroutine();
 
     /**
      * This BitSet contains the index of every instruction that belongs to more
@@ -85,6 +84,24 @@ public class JSRInlinerAdapter extends MethodNode implements Opcodes {
      */
     final BitSet dualCitizens = new BitSet();
 
+    /**
+     * The original instructions of this method, indexed by their position.
+     * Only used during the inlining process.
+     */
+    private AbstractInsnNode[] insns;
+
+    /**
+     * The indexes of the start, end and handler labels of the original
+     * try/catch blocks. Only used during the inlining process.
+     */
+    private int[] tryCatchIndexes;
+
+    /**
+     * The indexes of the start and end labels of the original local
+     * variables. Only used during the inlining process.
+     */
+    private int[] localVariableIndexes;
+
     /**
      * Creates a new JSRInliner. <i>Subclasses must not use this
      * constructor</i>. Instead, they must use the
@@ -153,7 +170,7 @@ public class JSRInlinerAdapter extends MethodNode implements Opcodes {
         super.visitJumpInsn(opcode, lbl);
         LabelNode ln = ((JumpInsnNode) instructions.getLast()).label;
         if (opcode == JSR && !subroutineHeads.containsKey(ln)) {
-            subroutineHeads.put(ln, new BitSet());
+            subroutineHeads.put(ln, new Subroutine());
         }
     }
 
@@ -164,16 +181,20 @@ public class JSRInlinerAdapter extends MethodNode implements Opcodes {
     @Override
     public void visitEnd() {
         if (!subroutineHeads.isEmpty()) {
+            indexInstructions();
             markSubroutines();
             if (LOGGING) {
-                log(mainSubroutine.toString());
-                Iterator<BitSet> it = subroutineHeads.values().iterator();
+                log(mainSubroutine.insns.toString());
+                Iterator<Subroutine> it = subroutineHeads.values().iterator();
                 while (it.hasNext()) {
-                    BitSet sub = it.next();
-                    log(sub.toString());
+                    Subroutine sub = it.next();
+                    log(sub.insns.toString());
                 }
             }
             emitCode();
+            insns = null;
+            tryCatchIndexes = null;
+            localVariableIndexes = null;
         }
 
         // Forward the translate opcodes on if appropriate:
@@ -182,6 +203,30 @@ public class JSRInlinerAdapter extends MethodNode implements Opcodes {
         }
     }
 
+    /**
+     * Computes the index of each instruction, and the indexes of the labels
+     * used by the try/catch blocks and local variables, so that the rest of
+     * the inlining process can work with indexes instead of label lookups.
+     */
+    private void indexInstructions() {
+        insns = instructions.toArray();
+        int n = tryCatchBlocks.size();
+        tryCatchIndexes = new int[3 * n];
+        for (int i = 0; i < n; ++i) {
+            TryCatchBlockNode trycatch = tryCatchBlocks.get(i);
+            tryCatchIndexes[3 * i] = instructions.indexOf(trycatch.start);
+            tryCatchIndexes[3 * i + 1] = instructions.indexOf(trycatch.end);
+            tryCatchIndexes[3 * i + 2] = instructions.indexOf(trycatch.handler);
+        }
+        n = localVariables == null ? 0 : localVariables.size();
+        localVariableIndexes = new int[2 * n];
+        for (int i = 0; i < n; ++i) {
+            LocalVariableNode lvnode = localVariables.get(i);
+            localVariableIndexes[2 * i] = instructions.indexOf(lvnode.start);
+            localVariableIndexes[2 * i + 1] = instructions.indexOf(lvnode.end);
+        }
+    }
+
     /**
      * Walks the method and determines which internal subroutine(s), if any,
      * each instruction is a method of.
@@ -191,17 +236,25 @@ public class JSRInlinerAdapter extends MethodNode implements Opcodes {
 
         // First walk the main subroutine and find all those instructions which
         // can be reached without invoking any JSR at all
-        markSubroutineWalk(mainSubroutine, 0, anyvisited);
+        markSubroutineWalk(mainSubroutine.insns, 0, anyvisited);
 
         // Go through the head of each subroutine and find any nodes reachable
         // to that subroutine without following any JSR links.
-        for (Iterator<Map.Entry<LabelNode,BitSet>> it = subroutineHeads.entrySet().iterator(); it.hasNext();)
+        for (Iterator<Map.Entry<LabelNode, Subroutine>> it = subroutineHeads.entrySet().iterator(); it.hasNext();)
         {
-            Map.Entry<LabelNode,BitSet> entry = it.next();
+            Map.Entry<LabelNode, Subroutine> entry = it.next();
             LabelNode lab = entry.getKey();
-            BitSet sub = entry.getValue();
+            Subroutine sub = entry.getValue();
             int index = instructions.indexOf(lab);
-            markSubroutineWalk(sub, index, anyvisited);
+            markSubroutineWalk(sub.insns, index, anyvisited);
+        }
+
+        // Finally compute the dual citizens of each subroutine, which are the
+        // only instructions whose owner depends on the instantiation stack.
+        mainSubroutine.setDualCitizens(dualCitizens);
+        for (Iterator<Subroutine> it = subroutineHeads.values().iterator(); it.hasNext();)
+        {
+            it.next().setDualCitizens(dualCitizens);
         }
     }
 
@@ -233,25 +286,19 @@ public class JSRInlinerAdapter extends MethodNode implements Opcodes {
         markSubroutineWalkDFS(sub, index, anyvisited);
 
         // Now, make sure we also include any applicable exception handlers
+        int[] indexes = tryCatchIndexes;
         boolean loop = true;
         while (loop) {
             loop = false;
-            for (Iterator<TryCatchBlockNode> it = tryCatchBlocks.iterator(); it.hasNext();) {
-                TryCatchBlockNode trycatch = it.next();
-
-                if (LOGGING) {
-                    // TODO use of default toString().
-                    log("Scanning try/catch " + trycatch);
-                }
-
+            for (int i = 0; i < indexes.length; i += 3) {
                 // If the handler has already been processed, skip it.
-                int handlerindex = instructions.indexOf(trycatch.handler);
+                int handlerindex = indexes[i + 2];
                 if (sub.get(handlerindex)) {
                     continue;
                 }
 
-                int startindex = instructions.indexOf(trycatch.start);
-                int endindex = instructions.indexOf(trycatch.end);
+                int startindex = indexes[i];
+                int endindex = indexes[i + 1];
                 int nextbit = sub.nextSetBit(startindex);
                 if (nextbit != -1 && nextbit < endindex) {
                     if (LOGGING) {
@@ -283,7 +330,7 @@ public class JSRInlinerAdapter extends MethodNode implements Opcodes {
         final BitSet anyvisited)
     {
         while (true) {
-            AbstractInsnNode node = instructions.get(index);
+            AbstractInsnNode node = insns[index];
 
             // don't visit a node twice
             if (sub.get(index)) {
@@ -332,7 +379,7 @@ public class JSRInlinerAdapter extends MethodNode implements Opcodes {
 
             // check to see if this opcode falls through to the next instruction
             // or not; if not, return.
-            switch (instructions.get(index).getOpcode()) {
+            switch (node.getOpcode()) {
                 case GOTO:
                 case RET:
                 case TABLESWITCH:
@@ -362,7 +409,9 @@ public class JSRInlinerAdapter extends MethodNode implements Opcodes {
      * subroutine until the code is fully elaborated.
      */
     private void emitCode() {
-        LinkedList<Instantiation> worklist = new LinkedList<Instantiation>();
+        // The worklist is a FIFO queue; emitted instantiations are cleared so
+        // that the ones that are no longer referenced can be reclaimed.
+        List<Instantiation> worklist = new ArrayList<Instantiation>();
         // Create an instantiation of the "root" subroutine, which is just the
         // main routine
         worklist.add(new Instantiation(null, mainSubroutine));
@@ -372,8 +421,8 @@ public class JSRInlinerAdapter extends MethodNode implements Opcodes {
         InsnList newInstructions = new InsnList();
         List<TryCatchBlockNode> newTryCatchBlocks = new ArrayList<TryCatchBlockNode>();
         List<LocalVariableNode> newLocalVariables = new ArrayList<LocalVariableNode>();
-        while (!worklist.isEmpty()) {
-            Instantiation inst = worklist.removeFirst();
+        for (int i = 0; i < worklist.size(); ++i) {
+            Instantiation inst = worklist.set(i, null);
             emitSubroutine(inst,
                     worklist,
                     newInstructions,
@@ -405,46 +454,24 @@ public class JSRInlinerAdapter extends MethodNode implements Opcodes {
         final List<TryCatchBlockNode> newTryCatchBlocks,
         final List<LocalVariableNode> newLocalVariables)
     {
-        LabelNode duplbl = null;
-
         if (LOGGING) {
             log("--------------------------------------------------------");
-            log("Emitting instantiation of subroutine " + instant.subroutine);
+            log("Emitting instantiation of subroutine " + instant.subroutine.insns);
         }
 
         // Emit the relevant instructions for this instantiation, translating
-        // labels and jump targets as we go:
-        for (int i = 0, c = instructions.size(); i < c; i++) {
-            AbstractInsnNode insn = instructions.get(i);
-            Instantiation owner = instant.findOwner(i);
-
-            // Always remap labels:
-            if (insn.getType() == AbstractInsnNode.LABEL) {
-                // Translate labels into their renamed equivalents.
-                // Avoid adding the same label more than once. Note
-                // that because we own this instruction the gotoTable
-                // and the rangeTable will always agree.
-                LabelNode ilbl = (LabelNode) insn;
-                LabelNode remap = instant.rangeLabel(ilbl);
-                if (LOGGING) {
-                    // TODO use of default toString().
-                    log("Translating lbl #" + i + ':' + ilbl + " to " + remap);
-                }
-                if (remap != duplbl) {
-                    newInstructions.add(remap);
-                    duplbl = remap;
-                }
-                continue;
-            }
-
-            // We don't want to emit instructions that were already
-            // emitted by a subroutine higher on the stack. Note that
-            // it is still possible for a given instruction to be
-            // emitted twice because it may belong to two subroutines
-            // that do not invoke each other.
-            if (owner != instant) {
+        // labels and jump targets as we go. The layout gives, in order, the
+        // instructions owned by this instantiation and the labels that
+        // precede them, one per group of labels pointing at the same spot.
+        Layout layout = instant.layout;
+        int[] sequence = layout.sequence;
+        for (int k = 0; k < sequence.length; ++k) {
+            int i = sequence[k];
+            if (i < 0) {
+                newInstructions.add(instant.labels[~i]);
                 continue;
             }
+            AbstractInsnNode insn = insns[i];
 
             if (LOGGING) {
                 log("Emitting inst #" + i);
@@ -461,7 +488,7 @@ public class JSRInlinerAdapter extends MethodNode implements Opcodes {
                 // safe if the input is verifiable).
                 LabelNode retlabel = null;
                 for (Instantiation p = instant; p != null; p = p.previous) {
-                    if (p.subroutine.get(i)) {
+                    if (p.subroutine.insns.get(i)) {
                         retlabel = p.returnLabel;
                     }
                 }
@@ -475,12 +502,12 @@ public class JSRInlinerAdapter extends MethodNode implements Opcodes {
                 newInstructions.add(new JumpInsnNode(GOTO, retlabel));
             } else if (insn.getOpcode() == JSR) {
                 LabelNode lbl = ((JumpInsnNode) insn).label;
-                BitSet sub = subroutineHeads.get(lbl);
+                Subroutine sub = subroutineHeads.get(lbl);
                 Instantiation newinst = new Instantiation(instant, sub);
                 LabelNode startlbl = newinst.gotoLabel(lbl);
 
                 if (LOGGING) {
-                    log(" Creating instantiation of subr " + sub);
+                    log(" Creating instantiation of subr " + sub.insns);
                 }
 
                 // Rather than JSRing, we will jump to the inline version and
@@ -500,28 +527,15 @@ public class JSRInlinerAdapter extends MethodNode implements Opcodes {
             }
         }
 
-        // Emit try/catch blocks that are relevant to this method.
-        for (Iterator<TryCatchBlockNode> it = tryCatchBlocks.iterator(); it.hasNext();) {
-            TryCatchBlockNode trycatch = it.next();
-
-            if (LOGGING) {
-                // TODO use of default toString().
-                log("try catch block original labels=" + trycatch.start + '-'
-                        + trycatch.end + "->" + trycatch.handler);
-            }
-
-            final LabelNode start = instant.rangeLabel(trycatch.start);
-            final LabelNode end = instant.rangeLabel(trycatch.end);
-
-            // Ignore empty try/catch regions
-            if (start == end) {
-                if (LOGGING) {
-                    log(" try catch block empty in this subroutine");
-                }
-                continue;
-            }
-
-            final LabelNode handler = instant.gotoLabel(trycatch.handler);
+        // Emit try/catch blocks that are relevant to this method, i.e. whose
+        // range is not empty in this instantiation.
+        int[] tryCatchBlocks = layout.tryCatchBlocks;
+        for (int k = 0; k < tryCatchBlocks.length; ++k) {
+            int i = tryCatchBlocks[k];
+            TryCatchBlockNode trycatch = this.tryCatchBlocks.get(i);
+            LabelNode start = instant.rangeLabel(tryCatchIndexes[3 * i]);
+            LabelNode end = instant.rangeLabel(tryCatchIndexes[3 * i + 1]);
+            LabelNode handler = instant.gotoLabel(tryCatchIndexes[3 * i + 2]);
 
             if (LOGGING) {
                 // TODO use of default toString().
@@ -529,34 +543,24 @@ public class JSRInlinerAdapter extends MethodNode implements Opcodes {
                         + handler);
             }
 
-            if (start == null || end == null || handler == null) {
-                throw new RuntimeException("Internal error!");
-            }
-
             newTryCatchBlocks.add(new TryCatchBlockNode(start,
                     end,
                     handler,
                     trycatch.type));
         }
 
-        for (Iterator<LocalVariableNode> it = localVariables.iterator(); it.hasNext();) {
-            LocalVariableNode lvnode = it.next();
+        int[] localVariables = layout.localVariables;
+        for (int k = 0; k < localVariables.length; ++k) {
+            int i = localVariables[k];
+            LocalVariableNode lvnode = this.localVariables.get(i);
             if (LOGGING) {
                 log("local var " + lvnode.name);
             }
-            final LabelNode start = instant.rangeLabel(lvnode.start);
-            final LabelNode end = instant.rangeLabel(lvnode.end);
-            if (start == end) {
-                if (LOGGING) {
-                    log("  local variable empty in this sub");
-                }
-                continue;
-            }
             newLocalVariables.add(new LocalVariableNode(lvnode.name,
                     lvnode.desc,
                     lvnode.signature,
-                    start,
-                    end,
+                    instant.rangeLabel(localVariableIndexes[2 * i]),
+                    instant.rangeLabel(localVariableIndexes[2 * i + 1]),
                     lvnode.index));
         }
     }
@@ -565,6 +569,156 @@ public class JSRInlinerAdapter extends MethodNode implements Opcodes {
         System.err.println(str);
     }
 
+    /**
+     * A subroutine, i.e. the set of instructions that can be reached from a
+     * JSR target without following any JSR or RET instruction, together with
+     * the layouts shared by its instantiations.
+     */
+    private final class Subroutine {
+
+        /**
+         * The indexes of the instructions of this subroutine.
+         */
+        final BitSet insns = new BitSet();
+
+        /**
+         * The indexes of the instructions of this subroutine that also belong
+         * to another subroutine.
+         */
+        BitSet dualCitizens;
+
+        /**
+         * The layouts of the instantiations of this subroutine, indexed by the
+         * dual citizens of this subroutine that these instantiations do not
+         * own. In most cases there is only one layout, shared by all the
+         * instantiations, whose key is the empty set.
+         */
+        final Map<BitSet, Layout> layouts = new HashMap<BitSet, Layout>();
+
+        /**
+         * Computes the dual citizens of this subroutine.
+         *
+         * @param all the indexes of the instructions that belong to more than
+         *        one subroutine.
+         */
+        void setDualCitizens(final BitSet all) {
+            dualCitizens = (BitSet) insns.clone();
+            dualCitizens.and(all);
+        }
+
+        /**
+         * Returns the layout of the instantiations of this subroutine that own
+         * all its instructions except the given ones.
+         *
+         * @param excluded indexes of the dual citizens of this subroutine that
+         *        are owned by another instantiation.
+         * @return the corresponding layout.
+         */
+        Layout getLayout(final BitSet excluded) {
+            Layout layout = layouts.get(excluded);
+            if (layout == null) {
+                layout = new Layout(insns, excluded);
+                layouts.put(excluded, layout);
+            }
+            return layout;
+        }
+    }
+
+    /**
+     * The part of an instantiation that only depends on the instructions it
+     * owns, and which can therefore be shared by all the instantiations of a
+     * subroutine that own the same instructions. Each instantiation remaps the
+     * labels from the original code to refer to its particular copy of its own
+     * instructions. Labels which point at the same instruction of this copy
+     * are collapsed into one "group": this is fairly common as we are often
+     * ignoring large chunks of instructions, so what were previously distinct
+     * labels become duplicates. An instantiation then only needs one new label
+     * per group.
+     */
+    private final class Layout {
+
+        /**
+         * The group of each label of the original code, indexed by instruction
+         * index. The values for the other instructions are unspecified.
+         */
+        final int[] group;
+
+        /**
+         * The number of label groups.
+         */
+        final int groupCount;
+
+        /**
+         * The code of an instantiation, in emission order. Positive or zero
+         * values are the indexes of the owned instructions, and negative
+         * values are the label groups, encoded with the ~ operator.
+         */
+        final int[] sequence;
+
+        /**
+         * The indexes of the try/catch blocks whose range is not empty.
+         */
+        final int[] tryCatchBlocks;
+
+        /**
+         * The indexes of the local variables whose range is not empty.
+         */
+        final int[] localVariables;
+
+        Layout(final BitSet sub, final BitSet excluded) {
+            int n = insns.length;
+            group = new int[n];
+            int[] seq = new int[n];
+            int length = 0;
+            int count = 0;
+            int current = -1;
+            for (int i = 0; i < n; ++i) {
+                if (insns[i].getType() == AbstractInsnNode.LABEL) {
+                    if (current == -1) {
+                        // if we already have a label pointing at this spot,
+                        // don't recreate it.
+                        current = count++;
+                        seq[length++] = ~current;
+                    }
+                    group[i] = current;
+                } else if (sub.get(i) && !excluded.get(i)) {
+                    // We will emit this instruction, so the next label will
+                    // refer to a distinct instruction.
+                    current = -1;
+                    seq[length++] = i;
+                }
+            }
+            groupCount = count;
+            sequence = new int[length];
+            System.arraycopy(seq, 0, sequence, 0, length);
+            tryCatchBlocks = nonEmptyRanges(tryCatchIndexes, 3);
+            localVariables = nonEmptyRanges(localVariableIndexes, 2);
+        }
+
+        /**
+         * Returns the indexes of the ranges whose start and end labels are not
+         * in the same group.
+         *
+         * @param indexes the indexes of the start and end labels of some
+         *        ranges, followed by <tt>stride - 2</tt> other values.
+         * @param stride the number of values per range in <tt>indexes</tt>.
+         * @return the indexes of the non empty ranges, in increasing order.
+         */
+        private int[] nonEmptyRanges(final int[] indexes, final int stride) {
+            int[] ranges = new int[indexes.length / stride];
+            int length = 0;
+            for (int i = 0; i < ranges.length; ++i) {
+                if (group[indexes[stride * i]] != group[indexes[stride * i + 1]])
+                {
+                    ranges[length++] = i;
+                }
+            }
+            int[] result = new int[length];
+            System.arraycopy(ranges, 0, result, 0, length);
+            return result;
+        }
+    }
+
     /**
      * A class that represents an instantiation of a subroutine. Each
      * instantiation has an associate "stack" --- which is a listing of those
@@ -584,12 +738,19 @@ public class JSRInlinerAdapter extends MethodNode implements Opcodes {
         /**
          * The subroutine this is an instantiation of.
          */
-        public final BitSet subroutine;
+        public final Subroutine subroutine;
+
+        /**
+         * The layout of this instantiation, shared with the instantiations of
+         * the same subroutine that own the same instructions.
+         */
+        final Layout layout;
 
         /**
-         * This table maps Labels from the original source to Labels pointing at
-         * code specific to this instantiation, for use in remapping try/catch
-         * blocks,as well as gotos.
+         * The labels of this instantiation, indexed by label group. Together
+         * with {@link Layout#group} this maps Labels from the original source
+         * to Labels pointing at code specific to this instantiation, for use
+         * in remapping try/catch blocks, as well as gotos.
          *
          * Note that in the presence of dual citizens instructions, that is,
          * instructions which belong to more than one subroutine due to the
@@ -600,19 +761,20 @@ public class JSRInlinerAdapter extends MethodNode implements Opcodes {
          *
          * @see #findOwner(int)
          */
-        public final Map<LabelNode, LabelNode> rangeTable = new HashMap<LabelNode, LabelNode>();
+        final LabelNode[] labels;
 
         /**
          * All returns for this instantiation will be mapped to this label
          */
         public final LabelNode returnLabel;
 
-        Instantiation(final Instantiation prev, final BitSet sub) {
+        Instantiation(final Instantiation prev, final Subroutine sub) {
             previous = prev;
             subroutine = sub;
             for (Instantiation p = prev; p != null; p = p.previous) {
                 if (p.subroutine == sub) {
-                    throw new RuntimeException("Recursive invocation of " + sub);
+                    throw new RuntimeException("Recursive invocation of "
+                            + sub.insns);
                 }
             }
 
@@ -624,36 +786,24 @@ public class JSRInlinerAdapter extends MethodNode implements Opcodes {
                 returnLabel = null;
             }
 
-            // Each instantiation will remap the labels from the code above to
-            // refer to its particular copy of its own instructions. Note that
-            // we collapse labels which point at the same instruction into one:
-            // this is fairly common as we are often ignoring large chunks of
-            // instructions, so what were previously distinct labels become
-            // duplicates.
-            LabelNode duplbl = null;
-            for (int i = 0, c = instructions.size(); i < c; i++) {
-                AbstractInsnNode insn = instructions.get(i);
-
-                if (insn.getType() == AbstractInsnNode.LABEL) {
-                    LabelNode ilbl = (LabelNode) insn;
-
-                    if (duplbl == null) {
-                        // if we already have a label pointing at this spot,
-                        // don't recreate it.
-                        duplbl = new LabelNode();
+            // Find the dual citizens owned by an instantiation lower on the
+            // stack (see findOwner), and get the corresponding layout.
+            BitSet excluded = new BitSet();
+            BitSet duals = sub.dualCitizens;
+            for (int i = duals.nextSetBit(0); i >= 0; i = duals.nextSetBit(i + 1))
+            {
+                for (Instantiation p = prev; p != null; p = p.previous) {
+                    if (p.subroutine.insns.get(i)) {
+                        excluded.set(i);
+                        break;
                     }
-
-                    // Add an entry in the rangeTable for every label
-                    // in the original code which points at the next
-                    // instruction of our own to be emitted.
-                    rangeTable.put(ilbl, duplbl);
-                } else if (findOwner(i) == this) {
-                    // We will emit this instruction, so clear the 'duplbl' flag
-                    // since the next Label will refer to a distinct
-                    // instruction.
-                    duplbl = null;
                 }
             }
+            layout = sub.getLayout(excluded);
+            labels = new LabelNode[layout.groupCount];
+            for (int i = 0; i < labels.length; ++i) {
+                labels[i] = new LabelNode();
+            }
         }
 
         /**
@@ -679,7 +829,7 @@ public class JSRInlinerAdapter extends MethodNode implements Opcodes {
          *         instantiation.
          */
         public Instantiation findOwner(final int i) {
-            if (!subroutine.get(i)) {
+            if (!subroutine.insns.get(i)) {
                 return null;
             }
             if (!dualCitizens.get(i)) {
@@ -687,7 +837,7 @@ public class JSRInlinerAdapter extends MethodNode implements Opcodes {
             }
             Instantiation own = this;
             for (Instantiation p = previous; p != null; p = p.previous) {
-                if (p.subroutine.get(i)) {
+                if (p.subroutine.insns.get(i)) {
                     own = p;
                 }
             }
@@ -695,35 +845,44 @@ public class JSRInlinerAdapter extends MethodNode implements Opcodes {
         }
 
         /**
-         * Looks up the label <code>l</code> in the <code>gotoTable</code>,
-         * thus translating it from a Label in the original code, to a Label in
-         * the inlined code that is appropriate for use by an instruction that
-         * branched to the original label.
+         * Translates a Label from the original code to a Label in the inlined
+         * code that is appropriate for use by an instruction that branched to
+         * the original label.
          *
          * @param l The label we will be translating
          * @return a label for use by a branch instruction in the inlined code
          * @see #rangeLabel
          */
         public LabelNode gotoLabel(final LabelNode l) {
+            return gotoLabel(instructions.indexOf(l));
+        }
+
+        /**
+         * Translates a Label from the original code, given by its index, to a
+         * Label in the inlined code that is appropriate for use by an
+         * instruction that branched to the original label.
+         *
+         * @param i the index of the label we will be translating
+         * @return a label for use by a branch instruction in the inlined code
+         */
+        LabelNode gotoLabel(final int i) {
             // owner should never be null, because owner is only null
             // if an instruction cannot be reached from this subroutine
-            Instantiation owner = findOwner(instructions.indexOf(l));
-            return owner.rangeTable.get(l);
+            Instantiation owner = findOwner(i);
+            return owner.rangeLabel(i);
         }
 
         /**
-         * Looks up the label <code>l</code> in the <code>rangeTable</code>,
-         * thus translating it from a Label in the original code, to a Label in
-         * the inlined code that is appropriate for use by an try/catch or
-         * variable use annotation.
+         * Translates a Label from the original code, given by its index, to a
+         * Label in the inlined code that is appropriate for use by an
+         * try/catch or variable use annotation.
          *
-         * @param l The label we will be translating
+         * @param i the index of the label we will be translating
          * @return a label for use by a try/catch or variable annotation in the
          *         original code
-         * @see #rangeTable
          */
-        public LabelNode rangeLabel(final LabelNode l) {
-            return rangeTable.get(l);
+        LabelNode rangeLabel(final int i) {
+            return labels[layout.group[i]];
         }
 
         // AbstractMap implementation
@@ -0,0 +1,592 @@
+/***
+ * ASM: a very small and fast Java bytecode manipulation framework
+ * Copyright (c) 2000-2011 INRIA, France Telecom
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.objectweb.asm.commons;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Method;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.UTF8Cache;
+
+/**
+ * Relocates the classes and resources of a jar with a {@link Remapper}. The
+ * classes are transformed with a {@link ConstantPoolRemapper}, which copies
+ * their code as is, or with a {@link RemappingClassAdapter}, in parallel if an
+ * executor is given, and are renamed accordingly. The paths of the other
+ * resources, and the service provider configuration files in
+ * <tt>META-INF/services</tt>, are renamed with the {@link Remapper#map map}
+ * method, and the class names listed in these configuration files are also
+ * remapped. The other files in <tt>META-INF</tt> are copied unchanged.
+ * <p>
+ * The output jar is deterministic: its entries are written in the same order
+ * and with the same modification times as in the input jar, whatever the
+ * order in which the tasks complete.
+ * <p>
+ * If the remapper only overrides the {@link Remapper#map map} method, the
+ * classes that do not reference any remapped class name are detected with a
+ * scan of their constant pool, and are copied unchanged, without being parsed
+ * nor written again. The remapper results are cached with a
+ * {@link CachingRemapper}. The remapper must therefore always return the same
+ * result for the same arguments, and must be thread safe if an executor is
+ * used.
+ */
+public class JarRelocator {
+
+    /**
+     * The prefix of the service provider configuration files.
+     */
+    private static final String SERVICES = "META-INF/services/";
+
+    /**
+     * The prefix of the versioned entries of multi-release jars.
+     */
+    private static final String VERSIONS = "META-INF/versions/";
+
+    /**
+     * The maximum number of entries that can be processed concurrently.
+     */
+    private static final int MAX_PENDING = 512;
+
+    /**
+     * The remapper used to relocate the classes and resources.
+     */
+    protected final Remapper remapper;
+
+    /**
+     * The executor used to relocate the classes, or <tt>null</tt> to relocate
+     * them in the calling thread.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The remapper used to transform the classes.
+     */
+    private final Remapper cachingRemapper;
+
+    /**
+     * The remapper used to transform the classes, or <tt>null</tt> to
+     * transform them with a {@link RemappingClassAdapter}.
+     */
+    private final ConstantPoolRemapper constantPoolRemapper;
+
+    /**
+     * The cache shared by the class readers.
+     */
+    private final UTF8Cache utf8Cache;
+
+    /**
+     * <tt>true</tt> if {@link #remapper remapper} only overrides the
+     * {@link Remapper#map map} method, which allows the unchanged classes to
+     * be detected from their constant pool.
+     */
+    private final boolean scanConstantPool;
+
+    /**
+     * Constructs a new {@link JarRelocator} that transforms the classes with a
+     * {@link ConstantPoolRemapper}.
+     *
+     * @param remapper the remapper used to relocate the classes and resources.
+     * @param executor the executor used to relocate the classes, or
+     *        <tt>null</tt> to relocate them in the calling thread.
+     */
+    public JarRelocator(final Remapper remapper, final ExecutorService executor)
+    {
+        this(remapper, executor, true);
+    }
+
+    /**
+     * Constructs a new {@link JarRelocator}.
+     *
+     * @param remapper the remapper used to relocate the classes and resources.
+     * @param executor the executor used to relocate the classes, or
+     *        <tt>null</tt> to relocate them in the calling thread.
+     * @param copyCode <tt>true</tt> to transform the classes with a
+     *        {@link ConstantPoolRemapper}, which copies their code as is, or
+     *        <tt>false</tt> to transform them with a
+     *        {@link RemappingClassAdapter}.
+     */
+    public JarRelocator(
+        final Remapper remapper,
+        final ExecutorService executor,
+        final boolean copyCode)
+    {
+        this.remapper = remapper;
+        this.executor = executor;
+        this.cachingRemapper = remapper instanceof CachingRemapper ? remapper
+                : new CachingRemapper(remapper);
+        this.constantPoolRemapper = copyCode
+                ? new ConstantPoolRemapper(cachingRemapper)
+                : null;
+        this.utf8Cache = new UTF8Cache();
+        this.scanConstantPool = overridesMapOnly(remapper.getClass());
+    }
+
+    /**
+     * Relocates the given jar.
+     *
+     * @param in the input stream from which the jar must be read. This stream
+     *        is not closed.
+     * @param out the output stream to which the relocated jar must be written.
+     *        This stream is finished, but not closed.
+     * @throws IOException if a problem occurs while reading or writing the
+     *         jars.
+     */
+    public void relocate(final InputStream in, final OutputStream out)
+            throws IOException
+    {
+        ZipInputStream zis = new ZipInputStream(in);
+        ZipOutputStream zos = new ZipOutputStream(out);
+        LinkedList<Future<Entry>> pending = new LinkedList<Future<Entry>>();
+        Set<String> dirs = new HashSet<String>();
+        ZipEntry ze;
+        while ((ze = zis.getNextEntry()) != null) {
+            Entry e = new Entry(ze.getName(),
+                    ze.isDirectory() ? null : readEntry(zis),
+                    ze.getTime());
+            Future<Entry> result;
+            if (executor != null && e.isClass()) {
+                result = executor.submit(new EntryTask(e));
+            } else {
+                FutureTask<Entry> task = new FutureTask<Entry>(new EntryTask(e));
+                task.run();
+                result = task;
+            }
+            pending.add(result);
+            if (pending.size() >= MAX_PENDING) {
+                writeEntry(zos, get(pending.removeFirst()), dirs);
+            }
+        }
+        while (!pending.isEmpty()) {
+            writeEntry(zos, get(pending.removeFirst()), dirs);
+        }
+        zos.finish();
+    }
+
+    /**
+     * Returns <tt>true</tt> if the given class must be transformed. If the remapper only overrides the
+     * {@link Remapper#map map} method, the default implementation returns
+     * <tt>false</tt> if none of the class names that can be found in the
+     * CONSTANT_Utf8 items of the class is remapped. Otherwise it always
+     * returns <tt>true</tt>.
+     *
+     * @param cr the class to be relocated.
+     * @return <tt>true</tt> if the given class must be transformed, or
+     *         <tt>false</tt> if it can be copied unchanged.
+     */
+    protected boolean needsRemapping(final ClassReader cr) {
+        if (!scanConstantPool) {
+            return true;
+        }
+        char[] buf = new char[cr.getMaxStringLength()];
+        int n = cr.getItemCount();
+        for (int i = 1; i < n; ++i) {
+            String s = cr.readUTF8Const(i, buf);
+            if (s != null && isRemapped(s)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the new name of the given resource. The default implementation
+     * maps the name of the service provider configuration files, as a class
+     * name, and the path of the other resources, without their extension, as
+     * an internal class name. The name of the directories is mapped with its
+     * trailing '/', so that a remapper that relocates all the names starting
+     * with a given package prefix also relocates the directories of this
+     * package. The other entries of <tt>META-INF</tt>, and the
+     * entries at the root of the jar, are not renamed.
+     *
+     * @param name the name of a jar entry that is not a class. The name of a
+     *        directory entry ends with '/'.
+     * @return the new name of this entry.
+     */
+    protected String mapResourceName(final String name) {
+        if (isServices(name)) {
+            String service = name.substring(SERVICES.length());
+            return SERVICES + mapClassName(service);
+        }
+        String prefix = "";
+        String path = name;
+        if (name.startsWith(VERSIONS)) {
+            int slash = name.indexOf('/', VERSIONS.length());
+            if (slash < 0) {
+                return name;
+            }
+            prefix = name.substring(0, slash + 1);
+            path = name.substring(slash + 1);
+        } else if (name.startsWith("META-INF/")) {
+            return name;
+        }
+        int end = path.length();
+        if (!path.endsWith("/")) {
+            int slash = path.lastIndexOf('/');
+            if (slash < 0) {
+                return name;
+            }
+            if (path.lastIndexOf('.') > slash) {
+                end = path.lastIndexOf('.');
+            }
+        }
+        String newPath = remapper.map(path.substring(0, end));
+        if (newPath == null) {
+            return name;
+        }
+        return prefix + newPath + path.substring(end);
+    }
+
+    /**
+     * Relocates the given entry.
+     *
+     * @param e a jar entry.
+     * @return the relocated entry.
+     */
+    Entry relocate(final Entry e) {
+        if (e.data == null) {
+            return new Entry(mapResourceName(e.name), null, e.time);
+        }
+        if (!e.isClass()) {
+            byte[] data = e.data;
+            if (isServices(e.name)) {
+                data = mapServices(data);
+            }
+            return new Entry(mapResourceName(e.name), data, e.time);
+        }
+        ClassReader cr = new ClassReader(e.data, utf8Cache);
+        if (!needsRemapping(cr)) {
+            return e;
+        }
+        byte[] data;
+        if (constantPoolRemapper != null) {
+            data = constantPoolRemapper.remap(cr);
+        } else {
+            ClassWriter cw = new ClassWriter(0);
+            cr.accept(new RemappingClassAdapter(cw, cachingRemapper),
+                    ClassReader.EXPAND_FRAMES);
+            data = cw.toByteArray();
+        }
+        String className = cr.getClassName();
+        String name;
+        if (e.name.endsWith(className + ".class")) {
+            name = e.name.substring(0, e.name.length() - className.length()
+                    - 6)
+                    + cachingRemapper.mapType(className) + ".class";
+        } else {
+            name = mapResourceName(e.name);
+        }
+        return new Entry(name, data, e.time);
+    }
+
+    /**
+     * Returns <tt>true</tt> if the given entry is a service provider
+     * configuration file.
+     *
+     * @param name the name of a jar entry.
+     * @return <tt>true</tt> if this entry is in <tt>META-INF/services</tt>.
+     */
+    private static boolean isServices(final String name) {
+        return name.startsWith(SERVICES) && name.length() > SERVICES.length()
+                && name.indexOf('/', SERVICES.length()) < 0;
+    }
+
+    /**
+     * Remaps the class names listed in a service provider configuration file.
+     *
+     * @param data the content of a service provider configuration file.
+     * @return the remapped content.
+     * @throws RuntimeException if this content is not valid UTF8.
+     */
+    private byte[] mapServices(final byte[] data) {
+        String s;
+        try {
+            s = new String(data, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e.toString());
+        }
+        StringBuffer sb = new StringBuffer(s.length());
+        int start = 0;
+        while (start < s.length()) {
+            int end = start;
+            while (end < s.length() && s.charAt(end) != '\n'
+                    && s.charAt(end) != '\r')
+            {
+                ++end;
+            }
+            String line = s.substring(start, end);
+            int comment = line.indexOf('#');
+            String className = (comment < 0 ? line : line.substring(0,
+                    comment)).trim();
+            if (className.length() > 0) {
+                int i = line.indexOf(className);
+                line = line.substring(0, i) + mapClassName(className)
+                        + line.substring(i + className.length());
+            }
+            sb.append(line);
+            while (end < s.length()
+                    && (s.charAt(end) == '\n' || s.charAt(end) == '\r'))
+            {
+                sb.append(s.charAt(end++));
+            }
+            start = end;
+        }
+        try {
+            return sb.toString().getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e.toString());
+        }
+    }
+
+    /**
+     * Remaps a fully qualified class name.
+     *
+     * @param className a fully qualified class name, using '.' as separator.
+     * @return the remapped fully qualified class name.
+     */
+    private String mapClassName(final String className) {
+        String name = className.replace('.', '/');
+        return cachingRemapper.mapType(name).replace('/', '.');
+    }
+
+    /**
+     * Returns <tt>true</tt> if one of the class names that can be found in
+     * the given string is remapped. This string may be an internal name, a
+     * type or method descriptor, a signature, or any other string. All the
+     * internal names that are passed to {@link Remapper#map map} when a
+     * descriptor or a signature is remapped are tested, including the
+     * <tt>Outer$Inner</tt> names of the inner class types in signatures.
+     *
+     * @param s a CONSTANT_Utf8 item.
+     * @return <tt>true</tt> if a class name found in s is remapped.
+     */
+    private boolean isRemapped(final String s) {
+        if (isRemappedName(s)) {
+            return true;
+        }
+        int len = s.length();
+        int i = s.indexOf('L');
+        while (i >= 0) {
+            int j = nameEnd(s, i + 1);
+            String name = s.substring(i + 1, j);
+            if (isRemappedName(name)) {
+                return true;
+            }
+            while (j < len) {
+                if (s.charAt(j) == '<') {
+                    // skips the type arguments
+                    int depth = 0;
+                    do {
+                        char c = s.charAt(j++);
+                        if (c == '<') {
+                            ++depth;
+                        } else if (c == '>') {
+                            --depth;
+                        }
+                    } while (depth > 0 && j < len);
+                } else if (s.charAt(j) == '.') {
+                    int k = j + 1;
+                    j = nameEnd(s, k);
+                    name = name + '$' + s.substring(k, j);
+                    if (isRemappedName(name)) {
+                        return true;
+                    }
+                } else {
+                    break;
+                }
+            }
+            i = s.indexOf('L', i + 1);
+        }
+        return false;
+    }
+
+    /**
+     * Returns the end of the class name that starts at the given index.
+     *
+     * @param s a string.
+     * @param i the start index of a class name in s.
+     * @return the index of the first ';', '<' or '.' character after i, or
+     *         the length of s.
+     */
+    private static int nameEnd(final String s, int i) {
+        int len = s.length();
+        while (i < len) {
+            char c = s.charAt(i);
+            if (c == ';' || c == '<' || c == '.') {
+                break;
+            }
+            ++i;
+        }
+        return i;
+    }
+
+    private boolean isRemappedName(final String name) {
+        String newName = remapper.map(name);
+        return newName != null && !newName.equals(name);
+    }
+
+    private void writeEntry(
+        final ZipOutputStream zos,
+        final Entry e,
+        final Set<String> dirs) throws IOException
+    {
+        if (e.data == null && !dirs.add(e.name)) {
+            return;
+        }
+        ZipEntry ze = new ZipEntry(e.name);
+        if (e.time != -1) {
+            ze.setTime(e.time);
+        }
+        zos.putNextEntry(ze);
+        if (e.data != null) {
+            zos.write(e.data);
+        }
+        zos.closeEntry();
+    }
+
+    private static byte[] readEntry(final InputStream is) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = is.read(buf)) > 0) {
+            bos.write(buf, 0, n);
+        }
+        return bos.toByteArray();
+    }
+
+    private static Entry get(final Future<Entry> result) throws IOException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e.toString());
+        } catch (ExecutionException e) {
+            Throwable t = e.getCause();
+            if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
+            }
+            if (t instanceof Error) {
+                throw (Error) t;
+            }
+            throw new RuntimeException(t.toString());
+        }
+    }
+
+    /**
+     * Returns <tt>true</tt> if the given {@link Remapper} sub class only
+     * overrides the {@link Remapper#map map} method.
+     *
+     * @param c a sub class of {@link Remapper}.
+     * @return <tt>true</tt> if c does not override any other method of
+     *         {@link Remapper}.
+     */
+    private static boolean overridesMapOnly(Class<?> c) {
+        Method[] methods = Remapper.class.getDeclaredMethods();
+        while (c != Remapper.class) {
+            Method[] declared = c.getDeclaredMethods();
+            for (int i = 0; i < declared.length; ++i) {
+                Method m = declared[i];
+                if (m.getName().equals("map")) {
+                    continue;
+                }
+                for (int j = 0; j < methods.length; ++j) {
+                    if (m.getName().equals(methods[j].getName())) {
+                        return false;
+                    }
+                }
+            }
+            c = c.getSuperclass();
+        }
+        return true;
+    }
+
+    /**
+     * A jar entry.
+     */
+    static final class Entry {
+
+        /**
+         * The name of this entry.
+         */
+        final String name;
+
+        /**
+         * The content of this entry, or <tt>null</tt> for a directory.
+         */
+        final byte[] data;
+
+        /**
+         * The modification time of this entry, or -1 if it is not specified.
+         */
+        final long time;
+
+        Entry(final String name, final byte[] data, final long time) {
+            this.name = name;
+            this.data = data;
+            this.time = time;
+        }
+
+        boolean isClass() {
+            return data != null && name.endsWith(".class")
+                    && !name.endsWith("module-info.class");
+        }
+    }
+
+    /**
+     * A task that relocates a single entry.
+     */
+    private class EntryTask implements Callable<Entry> {
+
+        private final Entry e;
+
+        EntryTask(final Entry e) {
+            this.e = e;
+        }
+
+        public Entry call() {
+            return relocate(e);
+        }
+    }
+}
@@ -58,10 +58,27 @@ public class LocalVariablesSorter extends MethodVisitor {
     private int[] mapping = new int[40];
 
     /**
-     * Array used to store stack map local variable types after remapping.
+     * The stack map local variable types of the local variables created with
+     * {@link #newLocal}.
      */
     private Object[] newLocals = new Object[20];
 
+    /**
+     * Number of elements of {@link #newLocals} that may be non <tt>null</tt>.
+     */
+    private int newLocalsSize;
+
+    /**
+     * Array used to store stack map local variable types after remapping. It
+     * is reused for all the frames of the method.
+     */
+    private Object[] frameLocals;
+
+    /**
+     * Number of elements of {@link #frameLocals} that may be non <tt>null</tt>.
+     */
+    private int frameLocalsSize;
+
     /**
      * Index of the first local variable, after formal parameters.
      */
@@ -171,7 +188,11 @@ public class LocalVariablesSorter extends MethodVisitor {
         final Label end,
         final int index)
     {
-        int newIndex = remap(index, Type.getType(desc));
+        char c = desc.charAt(0);
+        int newIndex = getMapping(index, c == 'J' || c == 'D' ? 2 : 1);
+        if (newIndex < 0) {
+            newIndex = remap(index, Type.getType(desc));
+        }
         mv.visitLocalVariable(name, desc, signature, start, end, newIndex);
     }
 
@@ -192,12 +213,24 @@ public class LocalVariablesSorter extends MethodVisitor {
             return;
         }
 
-        // creates a copy of newLocals
-        Object[] oldLocals = new Object[newLocals.length];
-        System.arraycopy(newLocals, 0, oldLocals, 0, oldLocals.length);
+        // copies the variables added with 'newLocal' to 'frameLocals'
+        // and clears the rest of the previous frame, if any
+
+        Object[] frameLocals = this.frameLocals;
+        if (frameLocals == null || frameLocals.length < newLocals.length) {
+            frameLocals = new Object[newLocals.length];
+            this.frameLocals = frameLocals;
+        } else {
+            for (int i = newLocalsSize; i < frameLocalsSize; ++i) {
+                frameLocals[i] = null;
+            }
+        }
+        if (newLocalsSize > 0) {
+            System.arraycopy(newLocals, 0, frameLocals, 0, newLocalsSize);
+        }
+        frameLocalsSize = newLocalsSize;
 
-        // copies types from 'local' to 'newLocals'
-        // 'newLocals' already contains the variables added with 'newLocal'
+        // copies types from 'local' to 'frameLocals'
 
         int index = 0; // old local variable index
         int number = 0; // old local variable number
@@ -205,45 +238,47 @@ public class LocalVariablesSorter extends MethodVisitor {
             Object t = local[number];
             int size = t == Opcodes.LONG || t == Opcodes.DOUBLE ? 2 : 1;
             if (t != Opcodes.TOP) {
-                Type typ = OBJECT_TYPE;
-                if (t == Opcodes.INTEGER) {
-                    typ = Type.INT_TYPE;
-                } else if (t == Opcodes.FLOAT) {
-                    typ = Type.FLOAT_TYPE;
-                } else if (t == Opcodes.LONG) {
-                    typ = Type.LONG_TYPE;
-                } else if (t == Opcodes.DOUBLE) {
-                    typ = Type.DOUBLE_TYPE;
-                } else if (t instanceof String) {
-                    typ = Type.getObjectType((String) t);
+                int newIndex = getMapping(index, size);
+                if (newIndex < 0) {
+                    Type typ = OBJECT_TYPE;
+                    if (t == Opcodes.INTEGER) {
+                        typ = Type.INT_TYPE;
+                    } else if (t == Opcodes.FLOAT) {
+                        typ = Type.FLOAT_TYPE;
+                    } else if (t == Opcodes.LONG) {
+                        typ = Type.LONG_TYPE;
+                    } else if (t == Opcodes.DOUBLE) {
+                        typ = Type.DOUBLE_TYPE;
+                    } else if (t instanceof String) {
+                        typ = Type.getObjectType((String) t);
+                    }
+                    newIndex = remap(index, typ);
                 }
-                setFrameLocal(remap(index, typ), t);
+                setFrameLocal(newIndex, t);
             }
             index += size;
         }
 
         // removes TOP after long and double types as well as trailing TOPs
 
+        frameLocals = this.frameLocals;
         index = 0;
         number = 0;
-        for (int i = 0; index < newLocals.length; ++i) {
-            Object t = newLocals[index++];
+        for (int i = 0; index < frameLocalsSize; ++i) {
+            Object t = frameLocals[index++];
             if (t != null && t != Opcodes.TOP) {
-                newLocals[i] = t;
+                frameLocals[i] = t;
                 number = i + 1;
                 if (t == Opcodes.LONG || t == Opcodes.DOUBLE) {
                     index += 1;
                 }
             } else {
-                newLocals[i] = Opcodes.TOP;
+                frameLocals[i] = Opcodes.TOP;
             }
         }
 
         // visits remapped frame
-        mv.visitFrame(type, number, newLocals, nStack, stack);
-
-        // restores original value of 'newLocals'
-        newLocals = oldLocals;
+        mv.visitFrame(type, number, frameLocals, nStack, stack);
     }
 
     // -------------
@@ -284,7 +319,7 @@ public class LocalVariablesSorter extends MethodVisitor {
         int local = nextLocal;
         nextLocal += type.getSize();
         setLocalType(local, type);
-        setFrameLocal(local, t);
+        setNewLocal(local, t);
         return local;
     }
 
@@ -299,7 +334,7 @@ public class LocalVariablesSorter extends MethodVisitor {
     protected void setLocalType(final int local, final Type type) {
     }
 
-    private void setFrameLocal(final int local, final Object type) {
+    private void setNewLocal(final int local, final Object type) {
         int l = newLocals.length;
         if (local >= l) {
             Object[] a = new Object[Math.max(2 * l, local + 1)];
@@ -307,6 +342,35 @@ public class LocalVariablesSorter extends MethodVisitor {
             newLocals = a;
         }
         newLocals[local] = type;
+        newLocalsSize = Math.max(newLocalsSize, local + 1);
+    }
+
+    private void setFrameLocal(final int local, final Object type) {
+        int l = frameLocals.length;
+        if (local >= l) {
+            Object[] a = new Object[Math.max(2 * l, local + 1)];
+            System.arraycopy(frameLocals, 0, a, 0, l);
+            frameLocals = a;
+        }
+        frameLocals[local] = type;
+        frameLocalsSize = Math.max(frameLocalsSize, local + 1);
+    }
+
+    /**
+     * Returns the new index of the given local variable, if it is already
+     * known.
+     *
+     * @param var the old index of a local variable.
+     * @param size the size of this local variable.
+     * @return the new index of this local variable, or -1 if it has not been
+     *         remapped yet.
+     */
+    private int getMapping(final int var, final int size) {
+        if (var + size <= firstLocal) {
+            return var;
+        }
+        int key = 2 * var + size - 1;
+        return key < mapping.length ? mapping[key] - 1 : -1;
     }
 
     private int remap(final int var, final Type type) {
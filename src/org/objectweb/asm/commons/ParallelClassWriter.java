@@ -0,0 +1,864 @@
+/***
+ * ASM: a very small and fast Java bytecode manipulation framework
+ * Copyright (c) 2000-2011 INRIA, France Telecom
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.objectweb.asm.commons;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.objectweb.asm.ByteVector;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.ConstantDynamic;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.MethodWriter;
+import org.objectweb.asm.MethodWriterDelegate;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+
+/**
+ * A {@link ClassVisitor} that generates classes in bytecode form, like
+ * {@link ClassWriter}, but that computes the maximum stack size, the stack map
+ * frames and the split methods of each method in parallel. Each method is
+ * first stored in a {@link MethodNode}. At the end of the class, each method is
+ * written with the given flags in its own {@link ClassWriter}, containing only
+ * this method and the methods it has been split into, by a task submitted to
+ * the given executor. The resulting methods are then copied, in the order in
+ * which they were visited, in a {@link ClassWriter} without any flag. The
+ * constant pool of the generated class therefore does not depend on the order
+ * in which the tasks complete.
+ * <p>
+ * The methods are copied without being parsed: their method_info structures
+ * are copied as is, and only the constant pool indexes they contain are
+ * rewritten, to reference the constant pool of the generated class. The
+ * constants loaded with <tt>ldc</tt> are added first to this constant pool, so
+ * that they get the indexes that <tt>ldc</tt> can address. A method that still
+ * loads a constant whose new index does not fit in <tt>ldc</tt>, or that has a
+ * non standard attribute, is parsed and written again instead.
+ * <p>
+ * The {@link #getCommonSuperClass getCommonSuperClass} and
+ * {@link #newTooLargeDelegate newTooLargeDelegate} methods are called from the
+ * executor threads, and must be thread safe. Split methods are added directly
+ * to the per method class writers, and are therefore not visited by the
+ * adapters that precede this class writer.
+ */
+public class ParallelClassWriter extends ClassVisitor {
+
+    /**
+     * The flags of the per method class writers. See {@link ClassWriter}.
+     */
+    private final int flags;
+
+    /**
+     * The executor used to write the methods, or <tt>null</tt> to write them
+     * in the calling thread.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The class writer that contains the generated class.
+     */
+    private final ClassWriter cw;
+
+    /**
+     * The methods visited so far, in visit order.
+     */
+    private final List<MethodNode> methods;
+
+    private int version;
+
+    private int access;
+
+    private String name;
+
+    private String signature;
+
+    private String superName;
+
+    private String[] interfaces;
+
+    /**
+     * Constructs a new {@link ParallelClassWriter} object.
+     *
+     * @param flags option flags that can be used to modify the default behavior
+     *        of the per method class writers. See {@link ClassWriter}.
+     * @param executor the executor used to write the methods, or <tt>null</tt>
+     *        to write them in the calling thread.
+     */
+    public ParallelClassWriter(final int flags, final ExecutorService executor)
+    {
+        this(new ClassWriter(0), flags, executor);
+    }
+
+    private ParallelClassWriter(
+        final ClassWriter cw,
+        final int flags,
+        final ExecutorService executor)
+    {
+        super(Opcodes.ASM4, cw);
+        this.cw = cw;
+        this.flags = flags;
+        this.executor = executor;
+        this.methods = new ArrayList<MethodNode>();
+    }
+
+    @Override
+    public void visit(
+        final int version,
+        final int access,
+        final String name,
+        final String signature,
+        final String superName,
+        final String[] interfaces)
+    {
+        this.version = version;
+        this.access = access;
+        this.name = name;
+        this.signature = signature;
+        this.superName = superName;
+        this.interfaces = interfaces;
+        cw.tooLargeDelegate = newTooLargeDelegate();
+        super.visit(version, access, name, signature, superName, interfaces);
+    }
+
+    @Override
+    public MethodVisitor visitMethod(
+        final int access,
+        final String name,
+        final String desc,
+        final String signature,
+        final String[] exceptions)
+    {
+        MethodNode mn = new MethodNode(access,
+                name,
+                desc,
+                signature,
+                exceptions);
+        methods.add(mn);
+        return mn;
+    }
+
+    @Override
+    public void visitEnd() {
+        int n = methods.size();
+        for (int i = 0; i < n; ++i) {
+            addLdcConstants(methods.get(i));
+        }
+        List<Future<byte[]>> results = new ArrayList<Future<byte[]>>(n);
+        byte[][] classes = new byte[n][];
+        for (int i = 0; i < n; ++i) {
+            Callable<byte[]> task = new MethodTask(methods.get(i));
+            if (executor != null) {
+                results.add(executor.submit(task));
+            } else {
+                classes[i] = call(task);
+            }
+        }
+        for (int i = 0; i < n; ++i) {
+            if (executor != null) {
+                classes[i] = get(results.get(i));
+            }
+            methods.set(i, null);
+            new MethodCopier(cw, classes[i]).copyMethods();
+        }
+        super.visitEnd();
+    }
+
+    /**
+     * Adds the constants loaded by the <tt>ldc</tt> instructions of the given
+     * method to the constant pool of the generated class.
+     *
+     * @param mn a method.
+     */
+    private void addLdcConstants(final MethodNode mn) {
+        AbstractInsnNode insn = mn.instructions.getFirst();
+        while (insn != null) {
+            if (insn.getType() == AbstractInsnNode.LDC_INSN) {
+                Object cst = ((LdcInsnNode) insn).cst;
+                if (!(cst instanceof Long || cst instanceof Double
+                        || (cst instanceof ConstantDynamic && ((ConstantDynamic) cst).getSize() == 2)))
+                {
+                    cw.newConst(cst);
+                }
+            }
+            insn = insn.getNext();
+        }
+    }
+
+    /**
+     * Returns the bytecode of the class that was build with this class writer.
+     *
+     * @return the bytecode of the class that was build with this class writer.
+     */
+    public byte[] toByteArray() {
+        return cw.toByteArray();
+    }
+
+    /**
+     * Returns a new delegate for the methods that are too large, or
+     * <tt>null</tt>. This method is called once per method, and once for the
+     * class writer that contains the generated class. The default
+     * implementation returns <tt>null</tt>.
+     *
+     * @return a new {@link MethodWriterDelegate}, or <tt>null</tt>.
+     */
+    protected MethodWriterDelegate newTooLargeDelegate() {
+        return null;
+    }
+
+    /**
+     * Returns the common super type of the two given types. The default
+     * implementation of this method has the same behavior as
+     * {@link ClassWriter}'s one.
+     *
+     * @param type1 the internal name of a class.
+     * @param type2 the internal name of another class.
+     * @return the internal name of the common super class of the two given
+     *         classes.
+     */
+    protected String getCommonSuperClass(final String type1, final String type2)
+    {
+        Class<?> c, d;
+        ClassLoader classLoader = getClass().getClassLoader();
+        try {
+            c = Class.forName(type1.replace('/', '.'), false, classLoader);
+            d = Class.forName(type2.replace('/', '.'), false, classLoader);
+        } catch (Exception e) {
+            throw new RuntimeException(e.toString());
+        }
+        if (c.isAssignableFrom(d)) {
+            return type1;
+        }
+        if (d.isAssignableFrom(c)) {
+            return type2;
+        }
+        if (c.isInterface() || d.isInterface()) {
+            return "java/lang/Object";
+        } else {
+            do {
+                c = c.getSuperclass();
+            } while (!c.isAssignableFrom(d));
+            return c.getName().replace('.', '/');
+        }
+    }
+
+    private static byte[] call(final Callable<byte[]> task) {
+        try {
+            return task.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e.toString());
+        }
+    }
+
+    private static byte[] get(final Future<byte[]> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e.toString());
+        } catch (ExecutionException e) {
+            Throwable t = e.getCause();
+            if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
+            }
+            if (t instanceof Error) {
+                throw (Error) t;
+            }
+            throw new RuntimeException(t.toString());
+        }
+    }
+
+    /**
+     * Copies the methods of a class in another class, by rewriting the
+     * constant pool indexes of their method_info structures.
+     */
+    private static final class MethodCopier {
+
+        /**
+         * The class writer to which the methods must be added.
+         */
+        private final ClassWriter cw;
+
+        /**
+         * The class that contains the methods to be copied.
+         */
+        private final ClassReader cr;
+
+        private final byte[] b;
+
+        private final char[] buf;
+
+        /**
+         * The index in the constant pool of {@link #cw} of each constant pool
+         * item of {@link #cr}, or 0 if it has not been added yet.
+         */
+        private final int[] newItems;
+
+        /**
+         * The start offsets of the method_info structures of {@link #cr}.
+         */
+        private final int[] methods;
+
+        /**
+         * The start offsets of the bootstrap methods of {@link #cr}, or
+         * <tt>null</tt>.
+         */
+        private int[] bootstrapMethods;
+
+        /**
+         * The copy of the method_info structure being copied.
+         */
+        private byte[] method;
+
+        /**
+         * The start offset in {@link #b} of the method being copied.
+         */
+        private int methodStart;
+
+        MethodCopier(final ClassWriter cw, final byte[] b) {
+            this.cw = cw;
+            this.cr = new ClassReader(b);
+            this.b = b;
+            this.buf = new char[cr.getMaxStringLength()];
+            this.newItems = new int[cr.getItemCount()];
+            int u = cr.header + 8 + 2 * cr.readUnsignedShort(cr.header + 6);
+            int[] methods = null;
+            for (int i = 0; i < 2; ++i) {
+                int n = cr.readUnsignedShort(u);
+                u += 2;
+                if (i == 1) {
+                    methods = new int[n];
+                }
+                for (int j = 0; j < n; ++j) {
+                    if (i == 1) {
+                        methods[j] = u;
+                    }
+                    int k = cr.readUnsignedShort(u + 6);
+                    u += 8;
+                    for (; k > 0; --k) {
+                        u += 6 + cr.readInt(u + 2);
+                    }
+                }
+            }
+            this.methods = methods;
+            for (int i = cr.readUnsignedShort(u); i > 0; --i) {
+                if ("BootstrapMethods".equals(cr.readUTF8(u + 2, buf))) {
+                    bootstrapMethods = new int[cr.readUnsignedShort(u + 8)];
+                    int v = u + 10;
+                    for (int j = 0; j < bootstrapMethods.length; ++j) {
+                        bootstrapMethods[j] = v;
+                        v += 4 + 2 * cr.readUnsignedShort(v + 2);
+                    }
+                }
+                u += 6 + cr.readInt(u + 4);
+            }
+        }
+
+        /**
+         * Copies the methods of {@link #cr} in {@link #cw}, in order. The
+         * methods that cannot be copied as is are parsed and written again.
+         */
+        void copyMethods() {
+            for (int i = 0; i < methods.length; ++i) {
+                int u = methods[i];
+                int end = u + 8;
+                for (int j = cr.readUnsignedShort(u + 6); j > 0; --j) {
+                    end += 6 + cr.readInt(end + 2);
+                }
+                method = Arrays.copyOfRange(b, u, end);
+                methodStart = u;
+                if (copyMethod(u)) {
+                    new MethodWriter(cw,
+                            cr.readUnsignedShort(u),
+                            cr.readUTF8(u + 2, buf),
+                            cr.readUTF8(u + 4, buf),
+                            null,
+                            null,
+                            false,
+                            false,
+                            true,
+                            new CopiedMethod(method));
+                } else {
+                    writeMethod(i);
+                }
+            }
+        }
+
+        /**
+         * Parses the method of {@link #cr} of the given index, and writes it
+         * again in {@link #cw}.
+         *
+         * @param index the index of a method of {@link #cr}.
+         */
+        private void writeMethod(final int index) {
+            cr.accept(new ClassVisitor(Opcodes.ASM4) {
+
+                private int count;
+
+                @Override
+                public MethodVisitor visitMethod(
+                    final int access,
+                    final String name,
+                    final String desc,
+                    final String signature,
+                    final String[] exceptions)
+                {
+                    if (count++ != index) {
+                        return null;
+                    }
+                    return cw.visitMethod(access,
+                            name,
+                            desc,
+                            signature,
+                            exceptions);
+                }
+            }, 0);
+        }
+
+        /**
+         * Rewrites the constant pool indexes of the method_info structure
+         * that starts at the given offset of {@link #b}, in {@link #method}.
+         *
+         * @param u the start offset of a method_info structure.
+         * @return <tt>false</tt> if this method cannot be copied as is.
+         */
+        private boolean copyMethod(int u) {
+            remap(u + 2);
+            remap(u + 4);
+            int n = cr.readUnsignedShort(u + 6);
+            u += 8;
+            for (; n > 0; --n) {
+                String attrName = cr.readUTF8(u, buf);
+                int v = u + 6;
+                if ("Code".equals(attrName)) {
+                    if (!copyCode(v)) {
+                        return false;
+                    }
+                } else if ("Exceptions".equals(attrName)) {
+                    for (int i = cr.readUnsignedShort(v); i > 0; --i) {
+                        v += 2;
+                        remap(v);
+                    }
+                } else if ("Signature".equals(attrName)) {
+                    remap(v);
+                } else if ("AnnotationDefault".equals(attrName)) {
+                    remapElementValue(v);
+                } else if ("RuntimeVisibleAnnotations".equals(attrName)
+                        || "RuntimeInvisibleAnnotations".equals(attrName))
+                {
+                    remapAnnotations(v);
+                } else if ("RuntimeVisibleParameterAnnotations".equals(attrName)
+                        || "RuntimeInvisibleParameterAnnotations".equals(attrName))
+                {
+                    v += 1;
+                    for (int i = b[u + 6] & 0xFF; i > 0; --i) {
+                        v = remapAnnotations(v);
+                    }
+                } else if (!"Deprecated".equals(attrName)
+                        && !"Synthetic".equals(attrName))
+                {
+                    return false;
+                }
+                remap(u);
+                u += 6 + cr.readInt(u + 2);
+            }
+            return true;
+        }
+
+        /**
+         * Rewrites the constant pool indexes of a Code attribute.
+         *
+         * @param v the start offset of the content of a Code attribute.
+         * @return <tt>false</tt> if this code cannot be copied as is.
+         */
+        private boolean copyCode(int v) {
+            int codeStart = v + 8;
+            int codeEnd = codeStart + cr.readInt(v + 4);
+            v = codeStart;
+            while (v < codeEnd) {
+                int opcode = b[v] & 0xFF;
+                switch (ClassWriter.TYPE[opcode]) {
+                    case ClassWriter.NOARG_INSN:
+                    case ClassWriter.IMPLVAR_INSN:
+                        v += 1;
+                        break;
+                    case ClassWriter.LABEL_INSN:
+                        v += 3;
+                        break;
+                    case ClassWriter.LABELW_INSN:
+                        v += 5;
+                        break;
+                    case ClassWriter.WIDE_INSN:
+                        opcode = b[v + 1] & 0xFF;
+                        if (opcode == Opcodes.IINC) {
+                            v += 6;
+                        } else {
+                            v += 4;
+                        }
+                        break;
+                    case ClassWriter.TABL_INSN:
+                        // skips 0 to 3 padding bytes
+                        v = v + 4 - ((v - codeStart) & 3);
+                        v += 12 + 4 * (cr.readInt(v + 8) - cr.readInt(v + 4) + 1);
+                        break;
+                    case ClassWriter.LOOK_INSN:
+                        // skips 0 to 3 padding bytes
+                        v = v + 4 - ((v - codeStart) & 3);
+                        v += 8 + 8 * cr.readInt(v + 4);
+                        break;
+                    case ClassWriter.LDC_INSN: {
+                        int item = getNewItem(b[v + 1] & 0xFF);
+                        if (item > 255) {
+                            return false;
+                        }
+                        method[v + 1 - methodStart] = (byte) item;
+                        v += 2;
+                        break;
+                    }
+                    case ClassWriter.VAR_INSN:
+                    case ClassWriter.SBYTE_INSN:
+                        v += 2;
+                        break;
+                    case ClassWriter.SHORT_INSN:
+                    case ClassWriter.IINC_INSN:
+                        v += 3;
+                        break;
+                    case ClassWriter.LDCW_INSN:
+                    case ClassWriter.FIELDORMETH_INSN:
+                    case ClassWriter.TYPE_INSN:
+                        remap(v + 1);
+                        v += 3;
+                        break;
+                    case ClassWriter.ITFMETH_INSN:
+                    case ClassWriter.INDYMETH_INSN:
+                        remap(v + 1);
+                        v += 5;
+                        break;
+                    // case MANA_INSN:
+                    default:
+                        remap(v + 1);
+                        v += 4;
+                        break;
+                }
+            }
+            // rewrites the catch types of the exception handlers
+            for (int i = cr.readUnsignedShort(v); i > 0; --i) {
+                remap(v + 8);
+                v += 8;
+            }
+            v += 2;
+            for (int i = cr.readUnsignedShort(v); i > 0; --i) {
+                String attrName = cr.readUTF8(v + 2, buf);
+                int w = v + 8;
+                if ("LocalVariableTable".equals(attrName)
+                        || "LocalVariableTypeTable".equals(attrName))
+                {
+                    for (int j = cr.readUnsignedShort(w); j > 0; --j) {
+                        remap(w + 6);
+                        remap(w + 8);
+                        w += 10;
+                    }
+                } else if ("StackMapTable".equals(attrName)) {
+                    remapFrames(w);
+                } else if (!"LineNumberTable".equals(attrName)) {
+                    return false;
+                }
+                remap(v + 2);
+                v += 6 + cr.readInt(v + 4);
+            }
+            return true;
+        }
+
+        /**
+         * Rewrites the constant pool indexes of a StackMapTable attribute.
+         *
+         * @param v the start offset of the content of a StackMapTable
+         *        attribute.
+         */
+        private void remapFrames(int v) {
+            int n = cr.readUnsignedShort(v);
+            v += 2;
+            for (; n > 0; --n) {
+                int tag = b[v++] & 0xFF;
+                if (tag < 64) { // SAME_FRAME
+                } else if (tag < 128) { // SAME_LOCALS_1_STACK_ITEM
+                    v = remapFrameType(v);
+                } else if (tag == 247) { // SAME_LOCALS_1_STACK_ITEM_EXTENDED
+                    v = remapFrameType(v + 2);
+                } else if (tag < 252) { // CHOP or SAME_FRAME_EXTENDED
+                    v += 2;
+                } else if (tag < 255) { // APPEND
+                    v += 2;
+                    for (int i = tag - 251; i > 0; --i) {
+                        v = remapFrameType(v);
+                    }
+                } else { // FULL_FRAME
+                    v += 2;
+                    for (int k = 0; k < 2; ++k) {
+                        int i = cr.readUnsignedShort(v);
+                        v += 2;
+                        for (; i > 0; --i) {
+                            v = remapFrameType(v);
+                        }
+                    }
+                }
+            }
+        }
+
+        private int remapFrameType(final int v) {
+            switch (b[v]) {
+                case 7: // Object
+                    remap(v + 1);
+                    return v + 3;
+                case 8: // Uninitialized
+                    return v + 3;
+                default:
+                    return v + 1;
+            }
+        }
+
+        private int remapAnnotations(int v) {
+            int n = cr.readUnsignedShort(v);
+            v += 2;
+            for (; n > 0; --n) {
+                v = remapAnnotation(v);
+            }
+            return v;
+        }
+
+        private int remapAnnotation(int v) {
+            remap(v);
+            int n = cr.readUnsignedShort(v + 2);
+            v += 4;
+            for (; n > 0; --n) {
+                remap(v);
+                v = remapElementValue(v + 2);
+            }
+            return v;
+        }
+
+        private int remapElementValue(int v) {
+            switch (b[v]) {
+                case 'e':
+                    remap(v + 1);
+                    remap(v + 3);
+                    return v + 5;
+                case '@':
+                    return remapAnnotation(v + 1);
+                case '[':
+                    int n = cr.readUnsignedShort(v + 1);
+                    v += 3;
+                    for (; n > 0; --n) {
+                        v = remapElementValue(v);
+                    }
+                    return v;
+                default:
+                    remap(v + 1);
+                    return v + 3;
+            }
+        }
+
+        /**
+         * Rewrites the constant pool index stored at the given offset of
+         * {@link #b}, in {@link #method}.
+         *
+         * @param v the offset of a constant pool index in {@link #b}.
+         */
+        private void remap(final int v) {
+            int item = cr.readUnsignedShort(v);
+            if (item != 0) {
+                item = getNewItem(item);
+                method[v - methodStart] = (byte) (item >>> 8);
+                method[v + 1 - methodStart] = (byte) item;
+            }
+        }
+
+        /**
+         * Returns the index in {@link #cw} of a constant pool item of
+         * {@link #cr}, and adds this item to {@link #cw} if necessary.
+         *
+         * @param item the index of a constant pool item of {@link #cr}.
+         * @return the index of the equivalent item in {@link #cw}.
+         */
+        private int getNewItem(final int item) {
+            int newItem = newItems[item];
+            if (newItem != 0) {
+                return newItem;
+            }
+            int index = cr.getItem(item);
+            switch (b[index - 1]) {
+                case ClassWriter.UTF8:
+                    newItem = cw.newUTF8(cr.readUTF8Const(item, buf));
+                    break;
+                case ClassWriter.CLASS:
+                    newItem = cw.newClass(cr.readUTF8(index, buf));
+                    break;
+                case ClassWriter.FIELD:
+                case ClassWriter.METH:
+                case ClassWriter.IMETH: {
+                    String owner = cr.readClass(index, buf);
+                    int nameType = cr.getItem(cr.readUnsignedShort(index + 2));
+                    String name = cr.readUTF8(nameType, buf);
+                    String desc = cr.readUTF8(nameType + 2, buf);
+                    if (b[index - 1] == ClassWriter.FIELD) {
+                        newItem = cw.newField(owner, name, desc);
+                    } else {
+                        newItem = cw.newMethod(owner,
+                                name,
+                                desc,
+                                b[index - 1] == ClassWriter.IMETH);
+                    }
+                    break;
+                }
+                case ClassWriter.NAME_TYPE:
+                    newItem = cw.newNameType(cr.readUTF8(index, buf),
+                            cr.readUTF8(index + 2, buf));
+                    break;
+                case ClassWriter.INDY: {
+                    int bsm = bootstrapMethods[cr.readUnsignedShort(index)];
+                    int nameType = cr.getItem(cr.readUnsignedShort(index + 2));
+                    Object[] bsmArgs = new Object[cr.readUnsignedShort(bsm + 2)];
+                    for (int i = 0; i < bsmArgs.length; ++i) {
+                        bsmArgs[i] = cr.readConst(cr.readUnsignedShort(bsm + 4 + 2 * i), buf);
+                    }
+                    newItem = cw.newInvokeDynamic(cr.readUTF8(nameType, buf),
+                            cr.readUTF8(nameType + 2, buf),
+                            (Handle) cr.readConst(cr.readUnsignedShort(bsm), buf),
+                            bsmArgs);
+                    break;
+                }
+                // case INT, FLOAT, LONG, DOUBLE, STR, MTYPE, CONDY
+                // case ClassWriter.HANDLE_BASE + [1..9]:
+                default:
+                    newItem = cw.newConst(cr.readConst(item, buf));
+                    break;
+            }
+            newItems[item] = newItem;
+            return newItem;
+        }
+    }
+
+    /**
+     * A method whose method_info structure is already known. The
+     * {@link MethodWriter} of such a method is never visited, and therefore
+     * always delegates its {@link MethodWriter#getSize getSize} and
+     * {@link MethodWriter#put put} methods to this delegate.
+     */
+    private static final class CopiedMethod extends MethodWriterDelegate {
+
+        private final byte[] method;
+
+        CopiedMethod(final byte[] method) {
+            this.method = method;
+        }
+
+        @Override
+        public void newMethod() {
+        }
+
+        @Override
+        public void visitEnd() {
+        }
+
+        @Override
+        public int getSize() {
+            return method.length;
+        }
+
+        @Override
+        public void put(final ByteVector out) {
+            out.putByteArray(method, 0, method.length);
+        }
+
+        @Override
+        public void noteTooLargeOffset(final Label label, final int reference) {
+        }
+
+        @Override
+        public void noteTooLargeStackMapDelta(final int offset, final int delta)
+        {
+        }
+
+        @Override
+        public void noteLocalVariable(
+            final String name,
+            final String desc,
+            final String signature,
+            final Label start,
+            final Label end,
+            final int index)
+        {
+        }
+
+        @Override
+        public void noteLineNumber(final int line, final Label start) {
+        }
+    }
+
+    /**
+     * A task that writes a single method in its own class.
+     */
+    private class MethodTask implements Callable<byte[]> {
+
+        private final MethodNode mn;
+
+        MethodTask(final MethodNode mn) {
+            this.mn = mn;
+        }
+
+        public byte[] call() {
+            ClassWriter mcw = new ClassWriter(flags, newTooLargeDelegate()) {
+                @Override
+                protected String getCommonSuperClass(
+                    final String type1,
+                    final String type2)
+                {
+                    return ParallelClassWriter.this.getCommonSuperClass(type1,
+                            type2);
+                }
+            };
+            mcw.visit(version, access, name, signature, superName, interfaces);
+            mn.accept(mcw);
+            mcw.visitEnd();
+            return mcw.toByteArray();
+        }
+    }
+}
@@ -30,6 +30,7 @@
 
 package org.objectweb.asm.commons;
 
+import org.objectweb.asm.ConstantDynamic;
 import org.objectweb.asm.Handle;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.signature.SignatureReader;
@@ -50,32 +51,64 @@ import org.objectweb.asm.signature.SignatureWriter;
  */
 public abstract class Remapper {
 
+    /**
+     * The primitive type descriptor characters.
+     */
+    private static final String PRIMITIVES = "ZCBSIFJD";
+
+    /**
+     * The primitive type descriptors, in the order of {@link #PRIMITIVES}.
+     */
+    private static final String[] PRIMITIVE_DESCS = {
+        "Z", "C", "B", "S", "I", "F", "J", "D" };
+
+    /**
+     * Maps a field descriptor. The element type of an array descriptor is
+     * mapped with this method. The other descriptors, and the descriptors
+     * whose internal name is unchanged, are returned as is.
+     *
+     * @param desc a field descriptor.
+     * @return the mapped descriptor.
+     */
     public String mapDesc(String desc) {
-        Type t = Type.getType(desc);
-        switch (t.getSort()) {
-            case Type.ARRAY:
-                String s = mapDesc(t.getElementType().getDescriptor());
-                for (int i = 0; i < t.getDimensions(); ++i) {
-                    s = '[' + s;
-                }
-                return s;
-            case Type.OBJECT:
-                String newType = map(t.getInternalName());
-                if (newType != null) {
-                    return 'L' + newType + ';';
+        switch (desc.charAt(0)) {
+            case '[':
+                return mapArrayDesc(desc);
+            case 'L':
+                String name = desc.substring(1, desc.length() - 1);
+                String newName = map(name);
+                if (newName != null && !newName.equals(name)) {
+                    return 'L' + newName + ';';
                 }
         }
         return desc;
     }
 
+    /**
+     * Maps an array descriptor by mapping its element type with
+     * {@link #mapDesc mapDesc}.
+     *
+     * @param desc an array descriptor.
+     * @return the mapped descriptor, or desc itself if it is unchanged.
+     */
+    private String mapArrayDesc(String desc) {
+        int dims = 1;
+        while (desc.charAt(dims) == '[') {
+            ++dims;
+        }
+        String elementDesc = desc.substring(dims);
+        String newElementDesc = mapDesc(elementDesc);
+        if (newElementDesc.equals(elementDesc)) {
+            return desc;
+        }
+        return desc.substring(0, dims) + newElementDesc;
+    }
+
     private Type mapType(Type t) {
+        String s;
         switch (t.getSort()) {
             case Type.ARRAY:
-                String s = mapDesc(t.getElementType().getDescriptor());
-                for (int i = 0; i < t.getDimensions(); ++i) {
-                    s = '[' + s;
-                }
-                return Type.getType(s);
+                return Type.getType(mapArrayDesc(t.getDescriptor()));
             case Type.OBJECT:
                 s = map(t.getInternalName());
                 return s != null ? Type.getObjectType(s) : t;
@@ -89,7 +122,11 @@ public abstract class Remapper {
         if (type == null) {
             return null;
         }
-        return mapType(Type.getObjectType(type)).getInternalName();
+        if (type.charAt(0) == '[') {
+            return mapArrayDesc(type);
+        }
+        String s = map(type);
+        return s != null ? s : type;
     }
 
     public String[] mapTypes(String[] types) {
@@ -116,23 +153,57 @@ public abstract class Remapper {
            : types;
     }
 
+    /**
+     * Maps a method descriptor. Its argument and return types, except a
+     * <tt>void</tt> return type, are mapped with {@link #mapDesc mapDesc}. A
+     * new descriptor is built only if at least one of them is changed. A field
+     * descriptor, as found in field method handles, is mapped with
+     * {@link #mapDesc mapDesc}.
+     *
+     * @param desc a method descriptor.
+     * @return the mapped descriptor, or desc itself if it is unchanged.
+     */
     public String mapMethodDesc(String desc) {
-        if("()V".equals(desc)) {
+        if (desc.charAt(0) != '(') {
+            return mapDesc(desc);
+        }
+        if ("()V".equals(desc)) {
             return desc;
         }
-
-        Type[] args = Type.getArgumentTypes(desc);
-        StringBuffer s = new StringBuffer("(");
-        for (int i = 0; i < args.length; i++) {
-            s.append(mapDesc(args[i].getDescriptor()));
+        StringBuffer buf = null;
+        int copied = 0;
+        int n = desc.length();
+        int i = 1;
+        while (i < n) {
+            char c = desc.charAt(i);
+            if (c == ')' || c == 'V') {
+                ++i;
+                continue;
+            }
+            int end = i;
+            while (desc.charAt(end) == '[') {
+                ++end;
+            }
+            if (desc.charAt(end++) == 'L') {
+                end = desc.indexOf(';', end) + 1;
+            }
+            String argDesc = end == i + 1
+                    ? PRIMITIVE_DESCS[PRIMITIVES.indexOf(c)]
+                    : desc.substring(i, end);
+            String newArgDesc = mapDesc(argDesc);
+            if (!newArgDesc.equals(argDesc)) {
+                if (buf == null) {
+                    buf = new StringBuffer(n + 16);
+                }
+                buf.append(desc, copied, i).append(newArgDesc);
+                copied = end;
+            }
+            i = end;
         }
-        Type returnType = Type.getReturnType(desc);
-        if(returnType == Type.VOID_TYPE) {
-            s.append(")V");
-            return s.toString();
+        if (buf == null) {
+            return desc;
         }
-        s.append(')').append(mapDesc(returnType.getDescriptor()));
-        return s.toString();
+        return buf.append(desc, copied, n).toString();
     }
 
     public Object mapValue(Object value) {
@@ -146,6 +217,17 @@ public abstract class Remapper {
                     mapMethodName(h.getOwner(), h.getName(), h.getDesc()),
                     mapMethodDesc(h.getDesc()));
         }
+        if (value instanceof ConstantDynamic) {
+            ConstantDynamic c = (ConstantDynamic) value;
+            Object[] bsmArgs = new Object[c.getBootstrapMethodArgumentCount()];
+            for (int i = 0; i < bsmArgs.length; i++) {
+                bsmArgs[i] = mapValue(c.getBootstrapMethodArgument(i));
+            }
+            return new ConstantDynamic(c.getName(),
+                    mapDesc(c.getDesc()),
+                    (Handle) mapValue(c.getBootstrapMethod()),
+                    bsmArgs);
+        }
         return value;
     }
 
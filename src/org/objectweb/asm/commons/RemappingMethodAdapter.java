@@ -138,11 +138,27 @@ public class RemappingMethodAdapter extends LocalVariablesSorter {
         String owner,
         String name,
         String desc)
+    {
+        visitMethodInsn(opcode,
+                owner,
+                name,
+                desc,
+                opcode == Opcodes.INVOKEINTERFACE);
+    }
+
+    @Override
+    public void visitMethodInsn(
+        int opcode,
+        String owner,
+        String name,
+        String desc,
+        boolean itf)
     {
         super.visitMethodInsn(opcode,
                 remapper.mapType(owner),
                 remapper.mapMethodName(owner, name, desc),
-                remapper.mapMethodDesc(desc));
+                remapper.mapMethodDesc(desc),
+                itf);
     }
 
     @Override
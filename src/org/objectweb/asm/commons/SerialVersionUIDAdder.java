@@ -30,14 +30,24 @@
 package org.objectweb.asm.commons;
 
 import java.io.ByteArrayOutputStream;
-import java.io.DataOutput;
-import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
-
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.FieldVisitor;
 import org.objectweb.asm.MethodVisitor;
@@ -108,15 +118,34 @@ import org.objectweb.asm.Opcodes;
  * ((sha[1] &gt;&gt;&gt; 0) &amp; 0xFF) &lt;&lt; 56;
  * </pre>
  *
+ * The stream of bytes is not stored: it is directly fed to the SHA-1 message
+ * digest. The SVUID of a class, or of all the classes of a jar, can also be
+ * computed without transforming them, with the static
+ * {@link #computeSVUID(ClassReader) computeSVUID} and
+ * {@link #computeSVUIDs computeSVUIDs} methods.
+ *
  * @author Rajendra Inamdar, Vishal Vishnoi
  */
 public class SerialVersionUIDAdder extends ClassVisitor {
 
+    /**
+     * The subclasses of this class, associated with <tt>true</tt> if they
+     * override {@link #computeSHAdigest computeSHAdigest}.
+     */
+    private static final Map<Class<?>, Boolean> SHA_DIGEST_OVERRIDES =
+        new WeakHashMap<Class<?>, Boolean>();
+
     /**
      * Flag that indicates if we need to compute SVUID.
      */
     private boolean computeSVUID;
 
+    /**
+     * Set to true to compute the SVUID of any class, even if it is an
+     * interface or if it already has a SVUID.
+     */
+    private boolean forceSVUID;
+
     /**
      * Set to true if the class already has SVUID.
      */
@@ -138,10 +167,14 @@ public class SerialVersionUIDAdder extends ClassVisitor {
     private String[] interfaces;
 
     /**
-     * Collection of fields. (except private static and private transient
-     * fields)
+     * Fields. (except private static and private transient fields)
      */
-    private Collection<Item> svuidFields;
+    private Item[] svuidFields;
+
+    /**
+     * Number of elements in {@link #svuidFields}.
+     */
+    private int svuidFieldCount;
 
     /**
      * Set to true if the class has static initializer.
@@ -149,14 +182,24 @@ public class SerialVersionUIDAdder extends ClassVisitor {
     private boolean hasStaticInitializer;
 
     /**
-     * Collection of non-private constructors.
+     * Non-private constructors.
+     */
+    private Item[] svuidConstructors;
+
+    /**
+     * Number of elements in {@link #svuidConstructors}.
+     */
+    private int svuidConstructorCount;
+
+    /**
+     * Non-private methods.
      */
-    private Collection<Item> svuidConstructors;
+    private Item[] svuidMethods;
 
     /**
-     * Collection of non-private methods.
+     * Number of elements in {@link #svuidMethods}.
      */
-    private Collection<Item> svuidMethods;
+    private int svuidMethodCount;
 
     /**
      * Creates a new {@link SerialVersionUIDAdder}. <i>Subclasses must not use
@@ -180,9 +223,9 @@ public class SerialVersionUIDAdder extends ClassVisitor {
      */
     protected SerialVersionUIDAdder(final int api, final ClassVisitor cv) {
         super(api, cv);
-        svuidFields = new ArrayList<Item>();
-        svuidConstructors = new ArrayList<Item>();
-        svuidMethods = new ArrayList<Item>();
+        svuidFields = new Item[8];
+        svuidConstructors = new Item[4];
+        svuidMethods = new Item[16];
     }
 
     // ------------------------------------------------------------------------
@@ -202,7 +245,7 @@ public class SerialVersionUIDAdder extends ClassVisitor {
         final String superName,
         final String[] interfaces)
     {
-        computeSVUID = (access & Opcodes.ACC_INTERFACE) == 0;
+        computeSVUID = forceSVUID || (access & Opcodes.ACC_INTERFACE) == 0;
 
         if (computeSVUID) {
             this.name = name;
@@ -245,9 +288,13 @@ public class SerialVersionUIDAdder extends ClassVisitor {
             // all non private methods
             if ((access & Opcodes.ACC_PRIVATE) == 0) {
                 if ("<init>".equals(name)) {
-                    svuidConstructors.add(new Item(name, mods, desc));
+                    svuidConstructors = add(svuidConstructors,
+                            svuidConstructorCount++,
+                            new Item(name, mods, desc));
                 } else if (!"<clinit>".equals(name)) {
-                    svuidMethods.add(new Item(name, mods, desc));
+                    svuidMethods = add(svuidMethods,
+                            svuidMethodCount++,
+                            new Item(name, mods, desc));
                 }
             }
         }
@@ -268,7 +315,7 @@ public class SerialVersionUIDAdder extends ClassVisitor {
         final Object value)
     {
         if (computeSVUID) {
-            if ("serialVersionUID".equals(name)) {
+            if ("serialVersionUID".equals(name) && !forceSVUID) {
                 // since the class already has SVUID, we won't be computing it.
                 computeSVUID = false;
                 hasSVUID = true;
@@ -286,7 +333,9 @@ public class SerialVersionUIDAdder extends ClassVisitor {
                 & (Opcodes.ACC_PUBLIC | Opcodes.ACC_PRIVATE
                         | Opcodes.ACC_PROTECTED | Opcodes.ACC_STATIC
                         | Opcodes.ACC_FINAL | Opcodes.ACC_VOLATILE | Opcodes.ACC_TRANSIENT);
-                svuidFields.add(new Item(name, mods, desc));
+                svuidFields = add(svuidFields,
+                        svuidFieldCount++,
+                        new Item(name, mods, desc));
             }
         }
 
@@ -314,7 +363,7 @@ public class SerialVersionUIDAdder extends ClassVisitor {
     @Override
     public void visitEnd() {
         // compute SVUID and add it to the class
-        if (computeSVUID && !hasSVUID) {
+        if (computeSVUID && !hasSVUID && !forceSVUID) {
             try {
                 super.visitField(Opcodes.ACC_FINAL + Opcodes.ACC_STATIC,
                         "serialVersionUID",
@@ -343,148 +392,283 @@ public class SerialVersionUIDAdder extends ClassVisitor {
      * @throws IOException if an I/O error occurs
      */
     protected long computeSVUID() throws IOException {
-        ByteArrayOutputStream bos;
-        DataOutputStream dos = null;
+        boolean computeSHAdigest = isComputeSHAdigestOverridden();
+        SHAOutput dos = new SHAOutput(computeSHAdigest);
+
+        /*
+         * 1. The class name written using UTF encoding.
+         */
+        dos.writeUTF(name, true);
+
+        /*
+         * 2. The class modifiers written as a 32-bit integer.
+         */
+        dos.writeInt(access
+                & (Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL
+                        | Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT));
+
+        /*
+         * 3. The name of each interface sorted by name written using UTF
+         * encoding.
+         */
+        String[] itfs = interfaces == null ? new String[0]
+                : interfaces.clone();
+        Arrays.sort(itfs);
+        for (int i = 0; i < itfs.length; i++) {
+            dos.writeUTF(itfs[i], true);
+        }
+
+        /*
+         * 4. For each field of the class sorted by field name (except private
+         * static and private transient fields):
+         *
+         * 1. The name of the field in UTF encoding. 2. The modifiers of the
+         * field written as a 32-bit integer. 3. The descriptor of the field in
+         * UTF encoding
+         *
+         * Note that field signatures are not dot separated. Method and
+         * constructor signatures are dot separated. Go figure...
+         */
+        writeItems(svuidFields, svuidFieldCount, dos, false);
+
+        /*
+         * 5. If a class initializer exists, write out the following: 1. The
+         * name of the method, <clinit>, in UTF encoding. 2. The modifier of
+         * the method, java.lang.reflect.Modifier.STATIC, written as a 32-bit
+         * integer. 3. The descriptor of the method, ()V, in UTF encoding.
+         */
+        if (hasStaticInitializer) {
+            dos.writeUTF("<clinit>", false);
+            dos.writeInt(Opcodes.ACC_STATIC);
+            dos.writeUTF("()V", false);
+        } // if..
+
+        /*
+         * 6. For each non-private constructor sorted by method name and
+         * signature: 1. The name of the method, <init>, in UTF encoding. 2.
+         * The modifiers of the method written as a 32-bit integer. 3. The
+         * descriptor of the method in UTF encoding.
+         */
+        writeItems(svuidConstructors, svuidConstructorCount, dos, true);
+
+        /*
+         * 7. For each non-private method sorted by method name and signature:
+         * 1. The name of the method in UTF encoding. 2. The modifiers of the
+         * method written as a 32-bit integer. 3. The descriptor of the method
+         * in UTF encoding.
+         */
+        writeItems(svuidMethods, svuidMethodCount, dos, true);
+
+        /*
+         * 8. The SHA-1 algorithm is executed on the stream of bytes produced
+         * by DataOutputStream and produces five 32-bit values sha[0..4].
+         */
+        byte[] hashBytes = computeSHAdigest
+                ? computeSHAdigest(dos.toByteArray())
+                : dos.digest();
+
+        /*
+         * 9. The hash value is assembled from the first and second 32-bit
+         * values of the SHA-1 message digest. If the result of the message
+         * digest, the five 32-bit words H0 H1 H2 H3 H4, is in an array of five
+         * int values named sha, the hash value would be computed as follows:
+         *
+         * long hash = ((sha[0] >>> 24) & 0xFF) | ((sha[0] >>> 16) & 0xFF) <<
+         * 8 | ((sha[0] >>> 8) & 0xFF) << 16 | ((sha[0] >>> 0) & 0xFF) << 24 |
+         * ((sha[1] >>> 24) & 0xFF) << 32 | ((sha[1] >>> 16) & 0xFF) << 40 |
+         * ((sha[1] >>> 8) & 0xFF) << 48 | ((sha[1] >>> 0) & 0xFF) << 56;
+         */
         long svuid = 0;
+        for (int i = Math.min(hashBytes.length, 8) - 1; i >= 0; i--) {
+            svuid = (svuid << 8) | (hashBytes[i] & 0xFF);
+        }
+        return svuid;
+    }
 
+    /**
+     * Returns the SHA-1 message digest of the given value. This method is
+     * called by {@link #computeSVUID()} only if it is overridden. Otherwise
+     * the digest is directly fed with the class definition, without building
+     * this value.
+     *
+     * @param value the value whose SHA message digest must be computed.
+     * @return the SHA-1 message digest of the given value.
+     */
+    protected byte[] computeSHAdigest(final byte[] value) {
         try {
-            bos = new ByteArrayOutputStream();
-            dos = new DataOutputStream(bos);
-
-            /*
-             * 1. The class name written using UTF encoding.
-             */
-            dos.writeUTF(name.replace('/', '.'));
-
-            /*
-             * 2. The class modifiers written as a 32-bit integer.
-             */
-            dos.writeInt(access
-                    & (Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL
-                            | Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT));
+            return MessageDigest.getInstance("SHA").digest(value);
+        } catch (Exception e) {
+            throw new UnsupportedOperationException(e.toString());
+        }
+    }
 
-            /*
-             * 3. The name of each interface sorted by name written using UTF
-             * encoding.
-             */
-            Arrays.sort(interfaces);
-            for (int i = 0; i < interfaces.length; i++) {
-                dos.writeUTF(interfaces[i].replace('/', '.'));
+    /**
+     * Returns <tt>true</tt> if the class of this adapter overrides
+     * {@link #computeSHAdigest computeSHAdigest}. The result is computed once
+     * per class.
+     *
+     * @return <tt>true</tt> if {@link #computeSHAdigest computeSHAdigest} is
+     *         overridden.
+     */
+    private boolean isComputeSHAdigestOverridden() {
+        Class<?> c = getClass();
+        if (c == SerialVersionUIDAdder.class) {
+            return false;
+        }
+        synchronized (SHA_DIGEST_OVERRIDES) {
+            Boolean overridden = SHA_DIGEST_OVERRIDES.get(c);
+            if (overridden == null) {
+                overridden = Boolean.FALSE;
+                try {
+                    while (c != SerialVersionUIDAdder.class) {
+                        try {
+                            c.getDeclaredMethod("computeSHAdigest",
+                                    byte[].class);
+                            overridden = Boolean.TRUE;
+                            break;
+                        } catch (NoSuchMethodException e) {
+                            c = c.getSuperclass();
+                        }
+                    }
+                } catch (SecurityException e) {
+                    overridden = Boolean.TRUE;
+                }
+                SHA_DIGEST_OVERRIDES.put(getClass(), overridden);
             }
+            return overridden.booleanValue();
+        }
+    }
 
-            /*
-             * 4. For each field of the class sorted by field name (except
-             * private static and private transient fields):
-             *
-             * 1. The name of the field in UTF encoding. 2. The modifiers of the
-             * field written as a 32-bit integer. 3. The descriptor of the field
-             * in UTF encoding
-             *
-             * Note that field signatures are not dot separated. Method and
-             * constructor signatures are dot separated. Go figure...
-             */
-            writeItems(svuidFields, dos, false);
-
-            /*
-             * 5. If a class initializer exists, write out the following: 1. The
-             * name of the method, <clinit>, in UTF encoding. 2. The modifier of
-             * the method, java.lang.reflect.Modifier.STATIC, written as a
-             * 32-bit integer. 3. The descriptor of the method, ()V, in UTF
-             * encoding.
-             */
-            if (hasStaticInitializer) {
-                dos.writeUTF("<clinit>");
-                dos.writeInt(Opcodes.ACC_STATIC);
-                dos.writeUTF("()V");
-            } // if..
-
-            /*
-             * 6. For each non-private constructor sorted by method name and
-             * signature: 1. The name of the method, <init>, in UTF encoding. 2.
-             * The modifiers of the method written as a 32-bit integer. 3. The
-             * descriptor of the method in UTF encoding.
-             */
-            writeItems(svuidConstructors, dos, true);
-
-            /*
-             * 7. For each non-private method sorted by method name and
-             * signature: 1. The name of the method in UTF encoding. 2. The
-             * modifiers of the method written as a 32-bit integer. 3. The
-             * descriptor of the method in UTF encoding.
-             */
-            writeItems(svuidMethods, dos, true);
+    /**
+     * Computes the default SVUID of the given class, i.e. the SVUID that
+     * would be added by this adapter if the class had none. Unlike this
+     * adapter, this method also computes the SVUID of interfaces, and of the
+     * classes that already have a SVUID field. The code of the class is not
+     * parsed.
+     *
+     * @param cr the class whose SVUID must be computed.
+     * @return the default SVUID of the given class.
+     */
+    public static long computeSVUID(final ClassReader cr) {
+        SerialVersionUIDAdder sva = new SerialVersionUIDAdder(Opcodes.ASM4,
+                null);
+        sva.forceSVUID = true;
+        cr.accept(sva, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG
+                | ClassReader.SKIP_FRAMES);
+        try {
+            return sva.computeSVUID();
+        } catch (IOException e) {
+            throw new RuntimeException(e.toString());
+        }
+    }
 
-            dos.flush();
+    /**
+     * Computes the default SVUID of all the classes of a jar. See
+     * {@link #computeSVUID(ClassReader)}.
+     *
+     * @param in the input stream from which the jar must be read. This stream
+     *        is not closed.
+     * @param executor the executor used to compute the SVUIDs, or
+     *        <tt>null</tt> to compute them in the calling thread.
+     * @return the default SVUID of each class of the jar, indexed by internal
+     *         class names, in the order of the jar entries.
+     * @throws IOException if a problem occurs while reading the jar.
+     */
+    public static Map<String, Long> computeSVUIDs(
+        final InputStream in,
+        final ExecutorService executor) throws IOException
+    {
+        ZipInputStream zis = new ZipInputStream(in);
+        List<Future<Object[]>> results = new ArrayList<Future<Object[]>>();
+        ZipEntry ze;
+        while ((ze = zis.getNextEntry()) != null) {
+            String name = ze.getName();
+            if (!name.endsWith(".class") || name.endsWith("module-info.class"))
+            {
+                continue;
+            }
+            Callable<Object[]> task = new SVUIDTask(readEntry(zis));
+            if (executor != null) {
+                results.add(executor.submit(task));
+            } else {
+                FutureTask<Object[]> result = new FutureTask<Object[]>(task);
+                result.run();
+                results.add(result);
+            }
+        }
+        Map<String, Long> svuids = new LinkedHashMap<String, Long>();
+        for (int i = 0; i < results.size(); ++i) {
+            Object[] result = get(results.get(i));
+            svuids.put((String) result[0], (Long) result[1]);
+        }
+        return svuids;
+    }
 
-            /*
-             * 8. The SHA-1 algorithm is executed on the stream of bytes
-             * produced by DataOutputStream and produces five 32-bit values
-             * sha[0..4].
-             */
-            byte[] hashBytes = computeSHAdigest(bos.toByteArray());
+    private static byte[] readEntry(final InputStream is) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = is.read(buf)) > 0) {
+            bos.write(buf, 0, n);
+        }
+        return bos.toByteArray();
+    }
 
-            /*
-             * 9. The hash value is assembled from the first and second 32-bit
-             * values of the SHA-1 message digest. If the result of the message
-             * digest, the five 32-bit words H0 H1 H2 H3 H4, is in an array of
-             * five int values named sha, the hash value would be computed as
-             * follows:
-             *
-             * long hash = ((sha[0] >>> 24) & 0xFF) | ((sha[0] >>> 16) & 0xFF) <<
-             * 8 | ((sha[0] >>> 8) & 0xFF) << 16 | ((sha[0] >>> 0) & 0xFF) <<
-             * 24 | ((sha[1] >>> 24) & 0xFF) << 32 | ((sha[1] >>> 16) & 0xFF) <<
-             * 40 | ((sha[1] >>> 8) & 0xFF) << 48 | ((sha[1] >>> 0) & 0xFF) <<
-             * 56;
-             */
-            for (int i = Math.min(hashBytes.length, 8) - 1; i >= 0; i--) {
-                svuid = (svuid << 8) | (hashBytes[i] & 0xFF);
+    private static Object[] get(final Future<Object[]> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e.toString());
+        } catch (ExecutionException e) {
+            Throwable t = e.getCause();
+            if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
             }
-        } finally {
-            // close the stream (if open)
-            if (dos != null) {
-                dos.close();
+            if (t instanceof Error) {
+                throw (Error) t;
             }
+            throw new RuntimeException(t.toString());
         }
-
-        return svuid;
     }
 
     /**
-     * Returns the SHA-1 message digest of the given value.
+     * Adds an item to an array, which is enlarged if necessary.
      *
-     * @param value the value whose SHA message digest must be computed.
-     * @return the SHA-1 message digest of the given value.
+     * @param items an array of items.
+     * @param size the number of elements in this array.
+     * @param item the item to be added at index size.
+     * @return the given array, or a new larger array if it was full.
      */
-    protected byte[] computeSHAdigest(final byte[] value) {
-        try {
-            return MessageDigest.getInstance("SHA").digest(value);
-        } catch (Exception e) {
-            throw new UnsupportedOperationException(e.toString());
+    private static Item[] add(Item[] items, final int size, final Item item) {
+        if (size == items.length) {
+            Item[] newItems = new Item[2 * size];
+            System.arraycopy(items, 0, newItems, 0, size);
+            items = newItems;
         }
+        items[size] = item;
+        return items;
     }
 
     /**
-     * Sorts the items in the collection and writes it to the data output stream
+     * Sorts the items in the array and writes them to the digest output.
      *
-     * @param itemCollection collection of items
-     * @param dos a <code>DataOutputStream</code> value
+     * @param items array of items
+     * @param size the number of items in this array
+     * @param dos a <code>SHAOutput</code> value
      * @param dotted a <code>boolean</code> value
-     * @exception IOException if an error occurs
      */
     private static void writeItems(
-        final Collection<Item> itemCollection,
-        final DataOutput dos,
-        final boolean dotted) throws IOException
+        final Item[] items,
+        final int size,
+        final SHAOutput dos,
+        final boolean dotted)
     {
-        int size = itemCollection.size();
-        Item[] items = itemCollection.toArray(new Item[size]);
-        Arrays.sort(items);
+        Arrays.sort(items, 0, size);
         for (int i = 0; i < size; i++) {
-            dos.writeUTF(items[i].name);
+            dos.writeUTF(items[i].name, false);
             dos.writeInt(items[i].access);
-            dos.writeUTF(dotted
-                    ? items[i].desc.replace('/', '.')
-                    : items[i].desc);
+            dos.writeUTF(items[i].desc, dotted);
         }
     }
 
@@ -527,4 +711,133 @@ public class SerialVersionUIDAdder extends ClassVisitor {
             return (name + desc).hashCode();
         }
     }
+
+    /**
+     * Feeds a SHA-1 message digest with strings and integers encoded as in a
+     * {@link java.io.DataOutputStream}, through a small buffer. In buffered
+     * mode the encoded bytes are instead kept in a growing buffer, returned by
+     * {@link #toByteArray toByteArray}.
+     */
+    private static final class SHAOutput {
+
+        private final MessageDigest digest;
+
+        private byte[] buf;
+
+        private int length;
+
+        SHAOutput(final boolean buffered) {
+            if (buffered) {
+                digest = null;
+            } else {
+                try {
+                    digest = MessageDigest.getInstance("SHA");
+                } catch (Exception e) {
+                    throw new UnsupportedOperationException(e.toString());
+                }
+            }
+            buf = new byte[256];
+        }
+
+        void writeInt(final int v) {
+            if (length + 4 > buf.length) {
+                flush();
+            }
+            byte[] buf = this.buf;
+            int len = length;
+            buf[len++] = (byte) (v >>> 24);
+            buf[len++] = (byte) (v >>> 16);
+            buf[len++] = (byte) (v >>> 8);
+            buf[len++] = (byte) v;
+            length = len;
+        }
+
+        /**
+         * Writes a string in modified UTF8 format, like
+         * {@link java.io.DataOutputStream#writeUTF}.
+         *
+         * @param s the string to be written.
+         * @param dotted <tt>true</tt> to write the '/' characters of s as '.'.
+         */
+        void writeUTF(final String s, final boolean dotted) {
+            int charLength = s.length();
+            int utfLength = 0;
+            for (int i = 0; i < charLength; ++i) {
+                char c = s.charAt(i);
+                if (c >= '\001' && c <= '\177') {
+                    utfLength++;
+                } else if (c > '\u07FF') {
+                    utfLength += 3;
+                } else {
+                    utfLength += 2;
+                }
+            }
+            if (utfLength > 65535) {
+                throw new IllegalArgumentException();
+            }
+            writeByte(utfLength >>> 8);
+            writeByte(utfLength);
+            for (int i = 0; i < charLength; ++i) {
+                char c = s.charAt(i);
+                if (c >= '\001' && c <= '\177') {
+                    writeByte(dotted && c == '/' ? '.' : c);
+                } else if (c > '\u07FF') {
+                    writeByte(0xE0 | c >> 12 & 0xF);
+                    writeByte(0x80 | c >> 6 & 0x3F);
+                    writeByte(0x80 | c & 0x3F);
+                } else {
+                    writeByte(0xC0 | c >> 6 & 0x1F);
+                    writeByte(0x80 | c & 0x3F);
+                }
+            }
+        }
+
+        private void writeByte(final int b) {
+            if (length == buf.length) {
+                flush();
+            }
+            buf[length++] = (byte) b;
+        }
+
+        private void flush() {
+            if (digest == null) {
+                byte[] newBuf = new byte[2 * buf.length];
+                System.arraycopy(buf, 0, newBuf, 0, length);
+                buf = newBuf;
+            } else {
+                digest.update(buf, 0, length);
+                length = 0;
+            }
+        }
+
+        byte[] digest() {
+            flush();
+            return digest.digest();
+        }
+
+        byte[] toByteArray() {
+            byte[] b = new byte[length];
+            System.arraycopy(buf, 0, b, 0, length);
+            return b;
+        }
+    }
+
+    /**
+     * A task that computes the SVUID of a class.
+     */
+    private static final class SVUIDTask implements Callable<Object[]> {
+
+        private final byte[] b;
+
+        SVUIDTask(final byte[] b) {
+            this.b = b;
+        }
+
+        public Object[] call() {
+            ClassReader cr = new ClassReader(b);
+            return new Object[] {
+                cr.getClassName(),
+                new Long(computeSVUID(cr)) };
+        }
+    }
 }
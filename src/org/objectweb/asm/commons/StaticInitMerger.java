@@ -29,12 +29,39 @@
  */
 package org.objectweb.asm.commons;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.FrameNode;
+import org.objectweb.asm.tree.IincInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LineNumberNode;
+import org.objectweb.asm.tree.LocalVariableNode;
+import org.objectweb.asm.tree.LookupSwitchInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TableSwitchInsnNode;
+import org.objectweb.asm.tree.TryCatchBlockNode;
+import org.objectweb.asm.tree.VarInsnNode;
+import org.objectweb.asm.tree.analysis.Analyzer;
+import org.objectweb.asm.tree.analysis.AnalyzerException;
+import org.objectweb.asm.tree.analysis.BasicInterpreter;
+import org.objectweb.asm.tree.analysis.BasicValue;
+import org.objectweb.asm.tree.analysis.Frame;
 
 /**
- * A {@link ClassVisitor} that merges clinit methods into a single one.
+ * A {@link ClassVisitor} that merges clinit methods into a single one. Each
+ * clinit method is renamed, and the merged clinit method invokes the renamed
+ * methods in the order in which they were visited. Optionally, the clinit
+ * methods whose code is larger than a given size are split into several
+ * methods, which are also invoked in sequence by the merged clinit method.
  *
  * @author Eric Bruneton
  */
@@ -46,19 +73,58 @@ public class StaticInitMerger extends ClassVisitor {
 
     private final String prefix;
 
+    /**
+     * The maximum code size of the methods generated from each clinit method.
+     */
+    private final int maxMethodSize;
+
     private int counter;
 
     public StaticInitMerger(final String prefix, final ClassVisitor cv) {
         this(Opcodes.ASM4, prefix, cv);
     }
 
+    /**
+     * Constructs a new {@link StaticInitMerger} which splits the large clinit
+     * methods. A clinit method can only be split at an instruction where the
+     * operand stack is empty, where no local variable is live, and which is
+     * not inside a loop, a try catch block or a conditional block. It must
+     * also not be preceded by a RETURN instruction. Each part of a clinit
+     * method is as large as possible, but not larger than
+     * <tt>maxMethodSize</tt> (except if this is not possible).
+     *
+     * @param prefix the prefix of the names of the methods that contain the
+     *        code of the clinit methods.
+     * @param maxMethodSize the maximum code size, in bytes, of the methods
+     *        that contain the code of the clinit methods.
+     * @param cv the class visitor to which this visitor must delegate method
+     *        calls.
+     */
+    public StaticInitMerger(
+        final String prefix,
+        final int maxMethodSize,
+        final ClassVisitor cv)
+    {
+        this(Opcodes.ASM4, prefix, maxMethodSize, cv);
+    }
+
+    protected StaticInitMerger(
+        final int api,
+        final String prefix,
+        final ClassVisitor cv)
+    {
+        this(api, prefix, Integer.MAX_VALUE, cv);
+    }
+
     protected StaticInitMerger(
         final int api,
         final String prefix,
+        final int maxMethodSize,
         final ClassVisitor cv)
     {
         super(api, cv);
         this.prefix = prefix;
+        this.maxMethodSize = maxMethodSize;
     }
 
     @Override
@@ -84,14 +150,10 @@ public class StaticInitMerger extends ClassVisitor {
     {
         MethodVisitor mv;
         if ("<clinit>".equals(name)) {
-            int a = Opcodes.ACC_PRIVATE + Opcodes.ACC_STATIC;
-            String n = prefix + counter++;
-            mv = cv.visitMethod(a, n, desc, signature, exceptions);
-
-            if (clinit == null) {
-                clinit = cv.visitMethod(a, name, desc, null, null);
+            if (maxMethodSize != Integer.MAX_VALUE) {
+                return new StaticInitNode(access, desc, signature, exceptions);
             }
-            clinit.visitMethodInsn(Opcodes.INVOKESTATIC, this.name, n, desc);
+            mv = visitStaticInitMethod(desc, signature, exceptions);
         } else {
             mv = cv.visitMethod(access, name, desc, signature, exceptions);
         }
@@ -106,4 +168,532 @@ public class StaticInitMerger extends ClassVisitor {
         }
         cv.visitEnd();
     }
+
+    /**
+     * Creates a new method that will contain (a part of) the code of a clinit
+     * method, and invokes it from the merged clinit method.
+     *
+     * @param desc the descriptor of the clinit method.
+     * @param signature the signature of the clinit method.
+     * @param exceptions the exceptions of the clinit method.
+     * @return a visitor to visit the code of the new method.
+     */
+    private MethodVisitor visitStaticInitMethod(
+        final String desc,
+        final String signature,
+        final String[] exceptions)
+    {
+        int a = Opcodes.ACC_PRIVATE + Opcodes.ACC_STATIC;
+        String n = prefix + counter++;
+        MethodVisitor mv = cv.visitMethod(a, n, desc, signature, exceptions);
+
+        if (clinit == null) {
+            clinit = cv.visitMethod(a, "<clinit>", desc, null, null);
+        }
+        clinit.visitMethodInsn(Opcodes.INVOKESTATIC, this.name, n, desc);
+        return mv;
+    }
+
+    /**
+     * A clinit method, which is split into methods smaller than
+     * {@link StaticInitMerger#maxMethodSize} in {@link #visitEnd}.
+     */
+    private class StaticInitNode extends MethodNode {
+
+        /**
+         * The instructions of this method.
+         */
+        private AbstractInsnNode[] insns;
+
+        /**
+         * The stack size before each instruction, or -1 for unreachable
+         * instructions.
+         */
+        private int[] stackSizes;
+
+        /**
+         * The local variables that are live before each instruction.
+         */
+        private BitSet[] liveLocals;
+
+        /**
+         * The indexes of the handlers of the try catch blocks that cover each
+         * instruction, or <tt>null</tt>.
+         */
+        private int[][] handlers;
+
+        StaticInitNode(
+            final int access,
+            final String desc,
+            final String signature,
+            final String[] exceptions)
+        {
+            super(StaticInitMerger.this.api,
+                    access,
+                    "<clinit>",
+                    desc,
+                    signature,
+                    exceptions);
+        }
+
+        @Override
+        public void visitEnd() {
+            String[] exceptions = new String[this.exceptions.size()];
+            this.exceptions.toArray(exceptions);
+            int[] starts = getSplitPoints();
+            if (starts.length == 0) {
+                accept(visitStaticInitMethod(desc, signature, exceptions));
+                return;
+            }
+            int frames = expandFrames();
+            List<TryCatchBlockNode> blocks = tryCatchBlocks;
+            List<LocalVariableNode> vars = localVariables;
+            int n = starts.length + 1;
+            MethodNode[] methods = new MethodNode[n];
+            for (int i = 0; i < n; ++i) {
+                methods[i] = i == 0 ? this : new MethodNode();
+                methods[i].tryCatchBlocks = new ArrayList<TryCatchBlockNode>();
+                methods[i].localVariables = new ArrayList<LocalVariableNode>();
+                methods[i].maxStack = maxStack;
+                methods[i].maxLocals = maxLocals;
+            }
+            for (int i = 0; i < blocks.size(); ++i) {
+                TryCatchBlockNode block = blocks.get(i);
+                int index = instructions.indexOf(block.start);
+                methods[getPart(starts, index)].tryCatchBlocks.add(block);
+            }
+            for (int i = 0; vars != null && i < vars.size(); ++i) {
+                LocalVariableNode var = vars.get(i);
+                int part = getPart(starts, instructions.indexOf(var.start));
+                if (part == getPart(starts, instructions.indexOf(var.end))) {
+                    methods[part].localVariables.add(var);
+                }
+            }
+            int[] lineNumbers = new int[insns.length];
+            for (int i = 0; i < insns.length; ++i) {
+                if (insns[i] instanceof LineNumberNode) {
+                    LabelNode start = ((LineNumberNode) insns[i]).start;
+                    lineNumbers[i] = instructions.indexOf(start);
+                }
+            }
+            InsnList code = instructions;
+            for (int i = 0; i < n; ++i) {
+                int start = i == 0 ? 0 : starts[i - 1];
+                int end = i == n - 1 ? insns.length : starts[i];
+                code.remove(insns[start], insns[end - 1]);
+                InsnList part = new InsnList();
+                if (frames == 2 || (frames == 1 && i > 0)) {
+                    // the first expanded frame must be the implicit one
+                    part.add(new FrameNode(Opcodes.F_NEW,
+                            0,
+                            new Object[0],
+                            0,
+                            new Object[0]));
+                }
+                for (int j = start; j < end; ++j) {
+                    if (insns[j] instanceof FrameNode) {
+                        removeDeadLocals((FrameNode) insns[j], liveLocals[j]);
+                    } else if (insns[j] instanceof LineNumberNode
+                            && getPart(starts, lineNumbers[j]) != i)
+                    {
+                        continue;
+                    }
+                    part.add(insns[j]);
+                }
+                if (i < n - 1) {
+                    part.add(new InsnNode(Opcodes.RETURN));
+                }
+                methods[i].instructions = part;
+            }
+            for (int i = 0; i < n; ++i) {
+                methods[i].accept(visitStaticInitMethod(desc,
+                        signature,
+                        exceptions));
+            }
+        }
+
+        /**
+         * Returns the index of the part of this method that contains the
+         * given instruction.
+         *
+         * @param starts the indexes of the first instruction of each part,
+         *        except the first one.
+         * @param index the index of an instruction of this method.
+         * @return the index of the part that contains this instruction.
+         */
+        private int getPart(final int[] starts, final int index) {
+            int part = 0;
+            while (part < starts.length && index >= starts[part]) {
+                ++part;
+            }
+            return part;
+        }
+
+        /**
+         * Computes the points where this method must be split.
+         *
+         * @return the indexes of the instructions that must begin a new method,
+         *         in increasing order. This array is empty if this method must
+         *         not (or cannot) be split.
+         */
+        private int[] getSplitPoints() {
+            insns = instructions.toArray();
+            int n = insns.length;
+            int[] sizes = new int[n];
+            CodeSizeEvaluator evaluator = new CodeSizeEvaluator(null);
+            for (int i = 0; i < n; ++i) {
+                int size = evaluator.getMaxSize();
+                insns[i].accept(evaluator);
+                sizes[i] = evaluator.getMaxSize() - size;
+                int opcode = insns[i].getOpcode();
+                if (opcode == Opcodes.JSR || opcode == Opcodes.RET) {
+                    return new int[0];
+                }
+            }
+            if (evaluator.getMaxSize() <= maxMethodSize) {
+                return new int[0];
+            }
+
+            // computes the instructions that are not crossed by a jump or by
+            // a try catch block, and that are not preceded by a RETURN
+            int[] crossings = new int[n + 1];
+            for (int i = 0; i < n; ++i) {
+                AbstractInsnNode insn = insns[i];
+                if (insn instanceof JumpInsnNode) {
+                    addCrossing(crossings, i, ((JumpInsnNode) insn).label);
+                } else if (insn instanceof TableSwitchInsnNode) {
+                    TableSwitchInsnNode tsi = (TableSwitchInsnNode) insn;
+                    addCrossing(crossings, i, tsi.dflt);
+                    for (int j = 0; j < tsi.labels.size(); ++j) {
+                        addCrossing(crossings, i, tsi.labels.get(j));
+                    }
+                } else if (insn instanceof LookupSwitchInsnNode) {
+                    LookupSwitchInsnNode lsi = (LookupSwitchInsnNode) insn;
+                    addCrossing(crossings, i, lsi.dflt);
+                    for (int j = 0; j < lsi.labels.size(); ++j) {
+                        addCrossing(crossings, i, lsi.labels.get(j));
+                    }
+                } else if (insn.getOpcode() == Opcodes.RETURN) {
+                    ++crossings[i + 1];
+                }
+            }
+            handlers = new int[n][];
+            for (int i = 0; i < tryCatchBlocks.size(); ++i) {
+                TryCatchBlockNode block = tryCatchBlocks.get(i);
+                int start = instructions.indexOf(block.start);
+                int end = instructions.indexOf(block.end);
+                int handler = instructions.indexOf(block.handler);
+                int min = Math.min(start, handler);
+                int max = Math.max(end - 1, handler);
+                if (min < max) {
+                    ++crossings[min + 1];
+                    --crossings[max + 1];
+                }
+                for (int j = start; j < end; ++j) {
+                    int[] h = handlers[j];
+                    if (h == null) {
+                        h = new int[1];
+                    } else {
+                        int[] newH = new int[h.length + 1];
+                        System.arraycopy(h, 0, newH, 0, h.length);
+                        h = newH;
+                    }
+                    h[h.length - 1] = handler;
+                    handlers[j] = h;
+                }
+            }
+            if (!computeStackSizes()) {
+                return new int[0];
+            }
+            computeLiveLocals();
+
+            // splits this method greedily, at the last possible point before
+            // each part becomes too large (one byte is reserved for the
+            // RETURN instruction added at the end of each part)
+            int[] starts = new int[n];
+            int count = 0;
+            int partStart = 0;
+            int partSize = 0;
+            int lastSplit = 0;
+            int lastSplitSize = 0;
+            int crossing = 0;
+            for (int i = 0; i < n; ++i) {
+                crossing += crossings[i];
+                if (i > partStart && crossing == 0 && stackSizes[i] == 0
+                        && insns[i - 1].getOpcode() >= 0
+                        && liveLocals[i].isEmpty())
+                {
+                    lastSplit = i;
+                    lastSplitSize = partSize;
+                }
+                if (partSize + sizes[i] >= maxMethodSize
+                        && lastSplit > partStart)
+                {
+                    starts[count++] = lastSplit;
+                    partStart = lastSplit;
+                    partSize -= lastSplitSize;
+                }
+                partSize += sizes[i];
+            }
+            int[] result = new int[count];
+            System.arraycopy(starts, 0, result, 0, count);
+            return result;
+        }
+
+        /**
+         * Marks the instructions that are crossed by a jump.
+         *
+         * @param crossings the number of jumps that begin minus the number of
+         *        jumps that end before each instruction.
+         * @param index the index of a jump instruction.
+         * @param label the target of this jump.
+         */
+        private void addCrossing(
+            final int[] crossings,
+            final int index,
+            final LabelNode label)
+        {
+            int target = instructions.indexOf(label);
+            int min = Math.min(index, target);
+            int max = Math.max(index, target);
+            ++crossings[min + 1];
+            --crossings[max + 1];
+        }
+
+        /**
+         * Computes the stack size before each instruction, with an
+         * {@link Analyzer}. If the maximum sizes of this method are not known
+         * (e.g. if they are computed by a downstream
+         * {@link org.objectweb.asm.ClassWriter}), the maximum number of local
+         * variables is computed from the instructions, and the maximum stack
+         * size is doubled until the analysis succeeds.
+         *
+         * @return <tt>true</tt> if the stack sizes have been computed, or
+         *         <tt>false</tt> if this method cannot be analyzed.
+         */
+        private boolean computeStackSizes() {
+            int oldMaxStack = maxStack;
+            int oldMaxLocals = maxLocals;
+            for (int i = 0; i < insns.length; ++i) {
+                AbstractInsnNode insn = insns[i];
+                if (insn instanceof VarInsnNode) {
+                    int opcode = insn.getOpcode();
+                    int size = opcode == Opcodes.LLOAD
+                            || opcode == Opcodes.DLOAD
+                            || opcode == Opcodes.LSTORE
+                            || opcode == Opcodes.DSTORE ? 2 : 1;
+                    maxLocals = Math.max(maxLocals, ((VarInsnNode) insn).var
+                            + size);
+                } else if (insn instanceof IincInsnNode) {
+                    maxLocals = Math.max(maxLocals,
+                            ((IincInsnNode) insn).var + 1);
+                }
+            }
+            maxStack = Math.max(maxStack, 1);
+            Frame<BasicValue>[] frames = null;
+            try {
+                while (frames == null) {
+                    try {
+                        Analyzer<BasicValue> a = new Analyzer<BasicValue>(
+                                new BasicInterpreter());
+                        frames = a.analyze(StaticInitMerger.this.name, this);
+                    } catch (AnalyzerException e) {
+                        // the local variables are large enough, so an out of
+                        // bounds error can only come from the stack
+                        if (!(e.getCause() instanceof IndexOutOfBoundsException)
+                                || maxStack > 0xFFFF)
+                        {
+                            return false;
+                        }
+                        maxStack *= 2;
+                    }
+                }
+            } finally {
+                maxStack = oldMaxStack;
+                maxLocals = oldMaxLocals;
+            }
+            stackSizes = new int[insns.length];
+            for (int i = 0; i < insns.length; ++i) {
+                stackSizes[i] = frames[i] == null
+                        ? -1
+                        : frames[i].getStackSize();
+            }
+            return true;
+        }
+
+        /**
+         * Computes the local variables that are live before each instruction.
+         */
+        private void computeLiveLocals() {
+            int n = insns.length;
+            liveLocals = new BitSet[n];
+            for (int i = 0; i < n; ++i) {
+                liveLocals[i] = new BitSet();
+            }
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (int i = n - 1; i >= 0; --i) {
+                    BitSet live = new BitSet();
+                    int[] successors = getSuccessors(i);
+                    for (int j = 0; j < successors.length; ++j) {
+                        live.or(liveLocals[successors[j]]);
+                    }
+                    AbstractInsnNode insn = insns[i];
+                    if (insn instanceof VarInsnNode) {
+                        int opcode = insn.getOpcode();
+                        int var = ((VarInsnNode) insn).var;
+                        int size = opcode == Opcodes.LLOAD
+                                || opcode == Opcodes.DLOAD
+                                || opcode == Opcodes.LSTORE
+                                || opcode == Opcodes.DSTORE ? 2 : 1;
+                        if (opcode >= Opcodes.ISTORE) {
+                            live.clear(var, var + size);
+                        } else {
+                            live.set(var, var + size);
+                        }
+                    } else if (insn instanceof IincInsnNode) {
+                        live.set(((IincInsnNode) insn).var);
+                    }
+                    int[] h = handlers[i];
+                    for (int j = 0; h != null && j < h.length; ++j) {
+                        live.or(liveLocals[h[j]]);
+                    }
+                    if (!live.equals(liveLocals[i])) {
+                        liveLocals[i] = live;
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Returns the indexes of the instructions that can be executed just
+         * after the given one (excluding exception handlers).
+         *
+         * @param index the index of an instruction.
+         * @return the indexes of its successors.
+         */
+        private int[] getSuccessors(final int index) {
+            AbstractInsnNode insn = insns[index];
+            int opcode = insn.getOpcode();
+            if (insn instanceof JumpInsnNode) {
+                int target = instructions.indexOf(((JumpInsnNode) insn).label);
+                if (opcode == Opcodes.GOTO) {
+                    return new int[] { target };
+                }
+                return new int[] { index + 1, target };
+            }
+            if (insn instanceof TableSwitchInsnNode) {
+                TableSwitchInsnNode tsi = (TableSwitchInsnNode) insn;
+                return getSuccessors(tsi.dflt, tsi.labels);
+            }
+            if (insn instanceof LookupSwitchInsnNode) {
+                LookupSwitchInsnNode lsi = (LookupSwitchInsnNode) insn;
+                return getSuccessors(lsi.dflt, lsi.labels);
+            }
+            if ((opcode >= Opcodes.IRETURN && opcode <= Opcodes.RETURN)
+                    || opcode == Opcodes.ATHROW || index == insns.length - 1)
+            {
+                return new int[0];
+            }
+            return new int[] { index + 1 };
+        }
+
+        private int[] getSuccessors(
+            final LabelNode dflt,
+            final List<LabelNode> labels)
+        {
+            int[] successors = new int[labels.size() + 1];
+            successors[0] = instructions.indexOf(dflt);
+            for (int i = 0; i < labels.size(); ++i) {
+                successors[i + 1] = instructions.indexOf(labels.get(i));
+            }
+            return successors;
+        }
+
+        /**
+         * Converts the frames of this method to expanded frames (which can be
+         * written in any method, unlike compressed frames).
+         *
+         * @return 0 if this method has no frames, 1 if its frames were already
+         *         expanded (the first one being the implicit first frame), or
+         *         2 if they were compressed.
+         */
+        private int expandFrames() {
+            int frames = 0;
+            List<Object> locals = new ArrayList<Object>();
+            for (int i = 0; i < insns.length; ++i) {
+                if (!(insns[i] instanceof FrameNode)) {
+                    continue;
+                }
+                FrameNode frame = (FrameNode) insns[i];
+                if (frames == 0) {
+                    frames = frame.type == Opcodes.F_NEW ? 1 : 2;
+                }
+                List<Object> stack = new ArrayList<Object>();
+                switch (frame.type) {
+                    case Opcodes.F_NEW:
+                    case Opcodes.F_FULL:
+                        locals = new ArrayList<Object>(frame.local);
+                        stack.addAll(frame.stack);
+                        break;
+                    case Opcodes.F_APPEND:
+                        locals.addAll(frame.local);
+                        break;
+                    case Opcodes.F_CHOP:
+                        for (int j = 0; j < frame.local.size(); ++j) {
+                            locals.remove(locals.size() - 1);
+                        }
+                        break;
+                    case Opcodes.F_SAME1:
+                        stack.addAll(frame.stack);
+                        break;
+                    // case Opcodes.F_SAME:
+                    default:
+                        break;
+                }
+                frame.type = Opcodes.F_NEW;
+                frame.local = new ArrayList<Object>(locals);
+                frame.stack = stack;
+            }
+            return frames;
+        }
+
+        /**
+         * Replaces the types of the dead local variables of the given frame
+         * with TOP, and removes the trailing TOP types.
+         *
+         * @param frame an expanded frame.
+         * @param live the local variables that are live at this frame.
+         */
+        private void removeDeadLocals(final FrameNode frame, final BitSet live)
+        {
+            List<Object> locals = new ArrayList<Object>();
+            int var = 0;
+            int size = 0;
+            for (int i = 0; i < frame.local.size(); ++i) {
+                Object type = frame.local.get(i);
+                if (type == Opcodes.LONG || type == Opcodes.DOUBLE) {
+                    if (live.get(var) || live.get(var + 1)) {
+                        locals.add(type);
+                        size = locals.size();
+                    } else {
+                        locals.add(Opcodes.TOP);
+                        locals.add(Opcodes.TOP);
+                    }
+                    var += 2;
+                } else {
+                    if (live.get(var)) {
+                        locals.add(type);
+                        size = locals.size();
+                    } else {
+                        locals.add(Opcodes.TOP);
+                    }
+                    var += 1;
+                }
+            }
+            frame.local = locals.subList(0, size);
+        }
+    }
 }
@@ -197,7 +197,15 @@ class BasicBlock implements Comparable<BasicBlock> {
         other.predecessors.add(this);
     }
 
+    /**
+     * Parse the frames of a method.  The frames are in the compressed
+     * StackMapTable format if <code>zip</code> is true, and in the
+     * uncompressed StackMap format used by ASM for class versions before
+     * 1.6 otherwise.  In the latter case, <code>largeDeltas</code> holds
+     * the frame offsets that do not fit in the stack map.
+     */
     public static void parseStackMap(ByteVector stackMap,
+                                     boolean zip,
                                      HashMap<Integer, Integer> largeDeltas,
                                      ConstantPool constantPool,
                                      int frameCount,
@@ -220,6 +228,28 @@ class BasicBlock implements Comparable<BasicBlock> {
         byte[] b = (stackMap != null) ? stackMap.data : new byte[0];
         int count = 0;
         while (count < frameCount) {
+            if (!zip) {
+                Integer largeOffset = largeDeltas.get(v);
+                if (largeOffset != null) {
+                    frameOffset = largeOffset;
+                } else {
+                    frameOffset = ByteArray.readUnsignedShort(b, v);
+                }
+                v += 2;
+                int n = frameLocalCount = ByteArray.readUnsignedShort(b, v);
+                v += 2;
+                for (int j = 0; n > 0; n--) {
+                    v = readFrameType(stackMap, constantPool, labelsByOffset, frameLocal, j++, v);
+                }
+                n = frameStackCount = ByteArray.readUnsignedShort(b, v);
+                v += 2;
+                for (int j = 0; n > 0; n--) {
+                    v = readFrameType(stackMap, constantPool, labelsByOffset, frameStack, j++, v);
+                }
+                frameDataByOffset[frameOffset] = new FrameData(frameLocalCount, frameLocal, frameStackCount, frameStack);
+                ++count;
+                continue;
+            }
             int tag = b[v++] & 0xFF;
             int delta;
             if (tag < MethodWriter.SAME_LOCALS_1_STACK_ITEM_FRAME) {
@@ -1269,6 +1299,8 @@ class BasicBlock implements Comparable<BasicBlock> {
                         }
                     } else if (cst instanceof Handle) {
                         frameStack[frameStackCount++] = "java/lang/invoke/MethodHandle";
+                    } else if (cst instanceof ConstantDynamic) {
+                        frameStackCount = pushDesc(frameStack, frameStackCount, ((ConstantDynamic) cst).getDesc());
                     } else {
                         throw new IllegalArgumentException();
                     }
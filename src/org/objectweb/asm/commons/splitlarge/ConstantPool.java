@@ -37,6 +37,11 @@ import org.objectweb.asm.*;
 final public class ConstantPool {
     ByteVector pool;
 
+    /**
+     * The content of the BootstrapMethods attribute, or <tt>null</tt>.
+     */
+    ByteVector bootstrapMethodsData;
+
     int[] bootstrapMethods;
     int bootstrapMethodCount;
 
@@ -78,6 +83,7 @@ final public class ConstantPool {
             case ClassWriter.FLOAT:
             case ClassWriter.NAME_TYPE:
             case ClassWriter.INDY:
+            case ClassWriter.CONDY:
                 size = 5;
                 break;
             case ClassWriter.LONG:
@@ -97,6 +103,8 @@ final public class ConstantPool {
                 // case ClassWriter.CLASS:
                 // case ClassWriter.STR:
                 // case ClassWriter.MTYPE
+                // case ClassWriter.MODULE
+                // case ClassWriter.PACKAGE
             default:
                 size = 3;
                 break;
@@ -107,6 +115,7 @@ final public class ConstantPool {
         utfDecodeBuffer = new char[maxStringLength];
         
         // parse bootstrap methods
+        this.bootstrapMethodsData = bootstrapMethods;
         this.bootstrapMethodCount = bootstrapMethodCount;
         if (bootstrapMethods != null) {
             this.bootstrapMethods = new int[bootstrapMethodCount];
@@ -161,8 +170,9 @@ final public class ConstantPool {
      *
      * @param item the index of a constant pool item.
      * @return the {@link Integer}, {@link Float}, {@link Long}, {@link Double},
-     *         {@link String}, {@link Type} or {@link Handle} corresponding to
-     *         the given constant pool item.
+     *         {@link String}, {@link Type}, {@link Handle} or
+     *         {@link ConstantDynamic} corresponding to the given constant pool
+     *         item.
      */
     public Object readConst(final int item) {
         int index = items[item];
@@ -182,13 +192,20 @@ final public class ConstantPool {
                 return readUTF8Item(ByteArray.readUnsignedShort(b, index));
             case ClassWriter.MTYPE:
                 return Type.getMethodType(readUTF8Item(ByteArray.readUnsignedShort(b, index)));
+            case ClassWriter.CONDY: {
+                DynamicSymRef sr = parseDynamicSymRef(item);
+                return new ConstantDynamic(sr.name,
+                        sr.desc,
+                        readBootstrapMethodHandle(sr.bsmIndex),
+                        readBootstrapMethodArguments(sr.bsmIndex));
+            }
 
             //case ClassWriter.HANDLE_BASE + [1..9]:
             default: {
                 int tag = ByteArray.readByte(b, index);
                 int[] items = this.items;
                 int cpIndex = items[ByteArray.readUnsignedShort(b, index + 1)];
-                String owner = readClass(cpIndex);
+                String owner = readClass(ByteArray.readUnsignedShort(b, cpIndex));
                 cpIndex = items[ByteArray.readUnsignedShort(b, cpIndex + 2)];
                 String name = readUTF8Item(ByteArray.readUnsignedShort(b, cpIndex));
                 String desc = readUTF8Item(ByteArray.readUnsignedShort(b, cpIndex + 2));
@@ -204,10 +221,16 @@ final public class ConstantPool {
         final String owner;
         final String name;
         final String desc;
-        public MemberSymRef(String owner, String name, String desc) {
+        /**
+         * Whether the owner is an interface, i.e. whether the item is a
+         * CONSTANT_InterfaceMethodref.
+         */
+        final boolean itf;
+        public MemberSymRef(String owner, String name, String desc, boolean itf) {
             this.owner = owner;
             this.name = name;
             this.desc = desc;
+            this.itf = itf;
         }
     }
 
@@ -219,11 +242,12 @@ final public class ConstantPool {
      */
     public MemberSymRef parseMemberSymRef(int item) {
         int cpIndex = items[item];
+        boolean itf = pool.data[cpIndex - 1] == ClassWriter.IMETH;
         String iowner = readClass(ByteArray.readUnsignedShort(pool.data, cpIndex));
         cpIndex = items[ByteArray.readUnsignedShort(pool.data, cpIndex + 2)];
         String iname = readUTF8Item(ByteArray.readUnsignedShort(pool.data, cpIndex));
         String idesc = readUTF8Item(ByteArray.readUnsignedShort(pool.data, cpIndex + 2));
-        return new MemberSymRef(iowner, iname, idesc);
+        return new MemberSymRef(iowner, iname, idesc, itf);
     }
 
     /**
@@ -240,6 +264,36 @@ final public class ConstantPool {
         }
     }
 
+    /**
+     * Reads the handle of a bootstrap method.
+     *
+     * @param bsmIndex the offset of a bootstrap method in the BootstrapMethods
+     *        attribute.
+     * @return the handle of this bootstrap method.
+     */
+    public Handle readBootstrapMethodHandle(int bsmIndex) {
+        byte[] bm = bootstrapMethodsData.data;
+        return (Handle) readConst(ByteArray.readUnsignedShort(bm, bsmIndex));
+    }
+
+    /**
+     * Reads the arguments of a bootstrap method.
+     *
+     * @param bsmIndex the offset of a bootstrap method in the BootstrapMethods
+     *        attribute.
+     * @return the constant arguments of this bootstrap method.
+     */
+    public Object[] readBootstrapMethodArguments(int bsmIndex) {
+        byte[] bm = bootstrapMethodsData.data;
+        Object[] bsmArgs = new Object[ByteArray.readUnsignedShort(bm, bsmIndex + 2)];
+        bsmIndex += 4;
+        for (int a = 0; a < bsmArgs.length; a++) {
+            bsmArgs[a] = readConst(ByteArray.readUnsignedShort(bm, bsmIndex));
+            bsmIndex += 2;
+        }
+        return bsmArgs;
+    }
+
     /**
      * Parse a symbolic reference to a dynamic method.
      *
@@ -262,7 +262,7 @@ public final class FrameData {
             }
             appendFrameReferenceTypeDescriptor(b, name, 0);
             b.append(";");
-        } else if (d == Opcodes.TOP) {
+        } else if ((d == Opcodes.TOP) || (d == Opcodes.NULL)) {
             b.append("Ljava/lang/Object;"); /* loadValue pushes a NULL */
         } else {
             // #### UNINITIALIZED_THIS is missing
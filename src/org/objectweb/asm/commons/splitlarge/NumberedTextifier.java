@@ -135,12 +135,30 @@ public class NumberedTextifier extends Textifier {
         String owner,
         String name,
         String desc)
+    {
+        visitMethodInsn(opcode,
+                owner,
+                name,
+                desc,
+                opcode == Opcodes.INVOKEINTERFACE);
+    }
+
+    @Override
+    public void visitMethodInsn(
+        int opcode,
+        String owner,
+        String name,
+        String desc,
+        boolean itf)
     {
         this.newIns();
         buf.append(OPCODES[opcode]).append(' ');
         appendDescriptor(INTERNAL_NAME, owner);
         buf.append('.').append(name).append(' ');
         appendDescriptor(METHOD_DESCRIPTOR, desc);
+        if (itf && opcode != Opcodes.INVOKEINTERFACE) {
+            buf.append(" (itf)");
+        }
         buf.append('\n');
         text.add(buf.toString());
     }
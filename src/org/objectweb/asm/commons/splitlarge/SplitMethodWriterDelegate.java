@@ -30,6 +30,10 @@ package org.objectweb.asm.commons.splitlarge;
 
 import org.objectweb.asm.*;
 
+import org.objectweb.asm.commons.JSRInlinerAdapter;
+
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Map;
 import java.util.Collection;
 import java.util.HashSet;
@@ -181,20 +185,21 @@ final public class SplitMethodWriterDelegate extends MethodWriterDelegate {
 
     @Override
     public void visitEnd() {
-        if ((version & 0xFFFF) < Opcodes.V1_6) {
-            throw new RuntimeException("JVM version < 1.6 not supported");
-        }
         boolean isStatic = (access & Opcodes.ACC_STATIC) == 0;
         constantPool = new ConstantPool(pool, poolSize, cw.bootstrapMethods, cw.bootstrapMethodsCount);
         thisName = constantPool.readUTF8Item(name);
         cv = cw.getFirstVisitor();
+        this.largeBranchTargets = computeLargeBranchTargets(largeBranches);
+        if (readCode(new MethodVisitor(Opcodes.ASM4) {}, null, null)) {
+            inlineSubroutines();
+            return;
+        }
 
         Object[] frameLocal = new Object[maxLocals];
         int frameLocalCount = computeMethodDescriptorFrame(cw.thisName, thisName, isStatic, this.descriptor, frameLocal);
         FrameData[] frameDataByOffset = new FrameData[code.length + 1];
         this.labelsByOffset = new Label[code.length];
-        BasicBlock.parseStackMap(stackMap, largeStackDeltas, constantPool, frameCount, maxLocals, frameLocalCount, frameLocal, maxStack, labelsByOffset, frameDataByOffset);
-        this.largeBranchTargets = computeLargeBranchTargets(largeBranches);
+        BasicBlock.parseStackMap(stackMap, (version & 0xFFFF) >= Opcodes.V1_6, largeStackDeltas, constantPool, frameCount, maxLocals, frameLocalCount, frameLocal, maxStack, labelsByOffset, frameDataByOffset);
         this.blocksByOffset = new BasicBlock[code.length + 2];
         TreeSet<BasicBlock> blocks = new TreeSet<BasicBlock>();
         HashMap<Label, String> labelTypes = new HashMap<Label, String>();
@@ -415,22 +420,6 @@ final public class SplitMethodWriterDelegate extends MethodWriterDelegate {
 
             int opcode = b[v] & 0xFF;
             switch (ClassWriter.TYPE[opcode]) {
-            case ClassWriter.NOARG_INSN:
-                mv.visitInsn(opcode);
-                v += 1;
-                break;
-            case ClassWriter.IMPLVAR_INSN:
-                if (opcode > Opcodes.ISTORE) {
-                    opcode -= 59; // ISTORE_0
-                    mv.visitVarInsn(Opcodes.ISTORE + (opcode >> 2),
-                                    opcode & 0x3);
-                } else {
-                    opcode -= 26; // ILOAD_0
-                    mv.visitVarInsn(Opcodes.ILOAD + (opcode >> 2),
-                                    opcode & 0x3);
-                }
-                v += 1;
-                break;
             case ClassWriter.LABEL_INSN: {
                 int label;
                 /*
@@ -455,16 +444,6 @@ final public class SplitMethodWriterDelegate extends MethodWriterDelegate {
                 handleJump(mv, opcode - 33, currentBlock, blocksByOffset[v + ByteArray.readInt(b, v + 1)]);
                 v += 5;
                 break;
-            case ClassWriter.WIDE_INSN:
-                opcode = b[v + 1] & 0xFF;
-                if (opcode == Opcodes.IINC) {
-                    mv.visitIincInsn(ByteArray.readUnsignedShort(b, v + 2), ByteArray.readShort(b, v + 4));
-                    v += 6;
-                } else {
-                    mv.visitVarInsn(opcode, ByteArray.readUnsignedShort(b, v + 2));
-                    v += 4;
-                }
-                break;
             case ClassWriter.TABL_INSN: {
                 int start = v;
                 v = v + 4 - (v & 3);
@@ -511,74 +490,12 @@ final public class SplitMethodWriterDelegate extends MethodWriterDelegate {
                                        defaultBlock, defaultLabel, targetBlocks, targetLabels);
                 break;
             }
-            case ClassWriter.VAR_INSN:
-                mv.visitVarInsn(opcode, b[v + 1] & 0xFF);
-                v += 2;
-                break;
-            case ClassWriter.SBYTE_INSN:
-                mv.visitIntInsn(opcode, b[v + 1]);
-                v += 2;
-                break;
-            case ClassWriter.SHORT_INSN:
-                mv.visitIntInsn(opcode, ByteArray.readShort(b, v + 1));
-                v += 3;
-                break;
-            case ClassWriter.LDC_INSN:
-                mv.visitLdcInsn(constantPool.readConst(b[v + 1] & 0xFF));
-                v += 2;
-                break;
-            case ClassWriter.LDCW_INSN:
-                mv.visitLdcInsn(constantPool.readConst(ByteArray.readUnsignedShort(b, v + 1)));
-                v += 3;
-                break;
-            case ClassWriter.FIELDORMETH_INSN:
-            case ClassWriter.ITFMETH_INSN: {
-                ConstantPool.MemberSymRef sr = constantPool.parseMemberSymRef(ByteArray.readUnsignedShort(b, v + 1));
-                if (opcode < Opcodes.INVOKEVIRTUAL) {
-                    mv.visitFieldInsn(opcode, sr.owner, sr.name, sr.desc);
-                } else {
-                    mv.visitMethodInsn(opcode, sr.owner, sr.name, sr.desc);
-                }
-                if (opcode == Opcodes.INVOKEINTERFACE) {
-                    v += 5;
-                } else {
-                    v += 3;
-                }
-                break;
-            }
-            case ClassWriter.INDYMETH_INSN: {
-                ConstantPool.DynamicSymRef sr = constantPool.parseDynamicSymRef(ByteArray.readUnsignedShort(b, v + 1));
-
-                byte[] bm = cw.bootstrapMethods.data;
-                
-                int bsmIndex = sr.bsmIndex;
-                int mhIndex = ByteArray.readUnsignedShort(bm, bsmIndex);
-                Handle bsm = (Handle) constantPool.readConst(mhIndex);
-                int bsmArgCount = ByteArray.readUnsignedShort(bm, bsmIndex + 2);
-                Object[] bsmArgs = new Object[bsmArgCount];
-                bsmIndex += 4;
-                for(int a = 0; a < bsmArgCount; a++) {
-                    int argIndex = ByteArray.readUnsignedShort(bm, bsmIndex);
-                    bsmArgs[a] = constantPool.readConst(argIndex);
-                    bsmIndex += 2;
-                }
-                mv.visitInvokeDynamicInsn(sr.name, sr.desc, bsm, bsmArgs);
-                
-                v += 5;
-                break;
-            }
-            case ClassWriter.TYPE_INSN:
-                mv.visitTypeInsn(opcode, constantPool.readClass(ByteArray.readUnsignedShort(b, v + 1)));
-                v += 3;
-                break;
-            case ClassWriter.IINC_INSN:
-                mv.visitIincInsn(b[v + 1] & 0xFF, b[v + 2]);
-                v += 3;
+            case ClassWriter.WIDE_INSN:
+                opcode = b[v + 1] & 0xFF;
+                v = visitSimpleInsn(mv, b, v);
                 break;
-                // case MANA_INSN:
             default:
-                mv.visitMultiANewArrayInsn(constantPool.readClass(ByteArray.readUnsignedShort(b, v + 1)), b[v + 3] & 0xFF);
-                v += 4;
+                v = visitSimpleInsn(mv, b, v);
                 break;
             }
 
@@ -612,6 +529,92 @@ final public class SplitMethodWriterDelegate extends MethodWriterDelegate {
         }
     }
 
+    /**
+     * Visits the instruction at the given offset, which must not be a jump or
+     * a switch instruction.
+     *
+     * @return the offset of the next instruction.
+     */
+    private int visitSimpleInsn(MethodVisitor mv, byte[] b, int v) {
+        int opcode = b[v] & 0xFF;
+        switch (ClassWriter.TYPE[opcode]) {
+        case ClassWriter.NOARG_INSN:
+            mv.visitInsn(opcode);
+            return v + 1;
+        case ClassWriter.IMPLVAR_INSN:
+            if (opcode > Opcodes.ISTORE) {
+                opcode -= 59; // ISTORE_0
+                mv.visitVarInsn(Opcodes.ISTORE + (opcode >> 2),
+                                opcode & 0x3);
+            } else {
+                opcode -= 26; // ILOAD_0
+                mv.visitVarInsn(Opcodes.ILOAD + (opcode >> 2),
+                                opcode & 0x3);
+            }
+            return v + 1;
+        case ClassWriter.WIDE_INSN:
+            opcode = b[v + 1] & 0xFF;
+            if (opcode == Opcodes.IINC) {
+                mv.visitIincInsn(ByteArray.readUnsignedShort(b, v + 2), ByteArray.readShort(b, v + 4));
+                v += 6;
+            } else {
+                mv.visitVarInsn(opcode, ByteArray.readUnsignedShort(b, v + 2));
+                v += 4;
+            }
+            return v;
+        case ClassWriter.VAR_INSN:
+            mv.visitVarInsn(opcode, b[v + 1] & 0xFF);
+            return v + 2;
+        case ClassWriter.SBYTE_INSN:
+            mv.visitIntInsn(opcode, b[v + 1]);
+            return v + 2;
+        case ClassWriter.SHORT_INSN:
+            mv.visitIntInsn(opcode, ByteArray.readShort(b, v + 1));
+            return v + 3;
+        case ClassWriter.LDC_INSN:
+            mv.visitLdcInsn(constantPool.readConst(b[v + 1] & 0xFF));
+            return v + 2;
+        case ClassWriter.LDCW_INSN:
+            mv.visitLdcInsn(constantPool.readConst(ByteArray.readUnsignedShort(b, v + 1)));
+            return v + 3;
+        case ClassWriter.FIELDORMETH_INSN:
+        case ClassWriter.ITFMETH_INSN: {
+            ConstantPool.MemberSymRef sr = constantPool.parseMemberSymRef(ByteArray.readUnsignedShort(b, v + 1));
+            if (opcode < Opcodes.INVOKEVIRTUAL) {
+                mv.visitFieldInsn(opcode, sr.owner, sr.name, sr.desc);
+            } else if (sr.itf && opcode != Opcodes.INVOKEINTERFACE) {
+                mv.visitMethodInsn(opcode, sr.owner, sr.name, sr.desc, true);
+            } else {
+                mv.visitMethodInsn(opcode, sr.owner, sr.name, sr.desc);
+            }
+            if (opcode == Opcodes.INVOKEINTERFACE) {
+                v += 5;
+            } else {
+                v += 3;
+            }
+            return v;
+        }
+        case ClassWriter.INDYMETH_INSN: {
+            ConstantPool.DynamicSymRef sr = constantPool.parseDynamicSymRef(ByteArray.readUnsignedShort(b, v + 1));
+            Handle bsm = constantPool.readBootstrapMethodHandle(sr.bsmIndex);
+            Object[] bsmArgs = constantPool.readBootstrapMethodArguments(sr.bsmIndex);
+            mv.visitInvokeDynamicInsn(sr.name, sr.desc, bsm, bsmArgs);
+            
+            return v + 5;
+        }
+        case ClassWriter.TYPE_INSN:
+            mv.visitTypeInsn(opcode, constantPool.readClass(ByteArray.readUnsignedShort(b, v + 1)));
+            return v + 3;
+        case ClassWriter.IINC_INSN:
+            mv.visitIincInsn(b[v + 1] & 0xFF, b[v + 2]);
+            return v + 3;
+            // case MANA_INSN:
+        default:
+            mv.visitMultiANewArrayInsn(constantPool.readClass(ByteArray.readUnsignedShort(b, v + 1)), b[v + 3] & 0xFF);
+            return v + 4;
+        }
+    }
+
     private void handleJump(MethodVisitor mv, int opcode, BasicBlock currentBlock, BasicBlock target) {
         SplitMethod m = target.strongComponent.splitMethod;
         if (m != currentBlock.strongComponent.splitMethod) {
@@ -777,15 +780,7 @@ final public class SplitMethodWriterDelegate extends MethodWriterDelegate {
      * Create all method writers.
      */
     private void  makeMethodWriters(HashMap<Label, String> labelTypes) {
-        String[] exceptionNames = null;
-        if (exceptions != null) {
-            exceptionNames = new String[exceptions.length];
-            int i = 0;
-            while (i < exceptions.length) {
-                exceptionNames[i] = constantPool.readUTF8Item(name);
-                ++i;
-            }
-        }
+        String[] exceptionNames = getExceptionNames();
         for (SplitMethod m : splitMethods) {
             m.setSplitMethodWriter(cw, cv,
                                    descriptor,
@@ -812,6 +807,190 @@ final public class SplitMethodWriterDelegate extends MethodWriterDelegate {
         cw.registerMethodWriter = true;
     }
 
+    private String[] getExceptionNames() {
+        String[] exceptionNames = null;
+        if (exceptions != null) {
+            exceptionNames = new String[exceptionCount];
+            int i = 0;
+            while (i < exceptionCount) {
+                exceptionNames[i] = constantPool.readClass(exceptions[i]);
+                ++i;
+            }
+        }
+        return exceptionNames;
+    }
+
+    /**
+     * Inlines the subroutines of a method containing JSR instructions,
+     * which cannot be split directly. The code is visited with a
+     * {@link JSRInlinerAdapter}, which sends the inlined code to a new
+     * method writer that computes the frames, and that splits the method
+     * with a new delegate if it is still too large.
+     */
+    private void inlineSubroutines() {
+        Label[] labels = new Label[code.length + 1];
+        readCode(new MethodVisitor(Opcodes.ASM4) {}, labels, null);
+        for (Handler h = firstHandler; h != null; h = h.next) {
+            getLabelAt(labels, h.start.position);
+            getLabelAt(labels, h.end.position);
+            getLabelAt(labels, h.handler.position);
+        }
+        LineNumber[] lines = lineNumbers.toArray(new LineNumber[lineNumbers.size()]);
+        Arrays.sort(lines, new Comparator<LineNumber>() {
+            public int compare(LineNumber ln1, LineNumber ln2) {
+                return ln1.start.position - ln2.start.position;
+            }
+        });
+        for (LineNumber ln : lines) {
+            getLabelAt(labels, ln.start.position);
+        }
+        for (LocalVariable lv : localVariables) {
+            getLabelAt(labels, lv.start.position);
+            getLabelAt(labels, lv.end.position);
+        }
+
+        String[] exceptionNames = getExceptionNames();
+        boolean computeMaxs = cw.computeMaxs;
+        boolean computeFrames = cw.computeFrames;
+        MethodWriterDelegate tooLargeDelegate = cw.tooLargeDelegate;
+        cw.computeMaxs = true;
+        cw.computeFrames = true;
+        cw.tooLargeDelegate = new SplitMethodWriterDelegate(nameGenerator, debugOut);
+        cw.registerMethodWriter = false;
+        MethodVisitor mv =
+            cv.visitMethod(access,
+                           thisName,
+                           descriptor,
+                           signature,
+                           exceptionNames);
+        mainMethodWriter = (MethodWriter) mv.getFirstVisitor();
+        cw.computeMaxs = computeMaxs;
+        cw.computeFrames = computeFrames;
+        cw.tooLargeDelegate = tooLargeDelegate;
+        cw.registerMethodWriter = true;
+        transferAnnotations();
+        transferNonstandardAttributes();
+
+        MethodVisitor inliner =
+            new JSRInlinerAdapter(mv,
+                                  access,
+                                  thisName,
+                                  descriptor,
+                                  signature,
+                                  exceptionNames);
+        inliner.visitCode();
+        for (Handler h = firstHandler; h != null; h = h.next) {
+            inliner.visitTryCatchBlock(labels[h.start.position],
+                                       labels[h.end.position],
+                                       labels[h.handler.position],
+                                       h.desc);
+        }
+        readCode(inliner, labels, lines);
+        for (LocalVariable lv : localVariables) {
+            inliner.visitLocalVariable(lv.name, lv.desc, lv.signature,
+                                       labels[lv.start.position],
+                                       labels[lv.end.position],
+                                       lv.index);
+        }
+        inliner.visitMaxs(maxStack, maxLocals);
+        inliner.visitEnd();
+    }
+
+    /**
+     * Visits the instructions of this method, without frames.
+     *
+     * @param mv the visitor to which the instructions must be sent.
+     * @param labels the labels of the method, indexed by offset, or
+     *        <tt>null</tt> to visit the jump instructions with
+     *        <tt>null</tt> labels. The labels of the jump targets are
+     *        created if necessary.
+     * @param lines the line numbers of the method, sorted by offset, or
+     *        <tt>null</tt> to not visit them.
+     * @return <tt>true</tt> if the method contains JSR instructions.
+     */
+    private boolean readCode(MethodVisitor mv, Label[] labels, LineNumber[] lines) {
+        byte[] b = code.data; // bytecode of the method
+        boolean hasSubroutines = false;
+        int line = 0;
+        int v = 0;
+        while (v < code.length) {
+            if (labels != null && labels[v] != null) {
+                mv.visitLabel(labels[v]);
+                while (lines != null && line < lines.length
+                       && lines[line].start.position <= v) {
+                    mv.visitLineNumber(lines[line].line, labels[lines[line].start.position]);
+                    ++line;
+                }
+            }
+            int opcode = b[v] & 0xFF;
+            switch (ClassWriter.TYPE[opcode]) {
+            case ClassWriter.LABEL_INSN: {
+                int label;
+                if (opcode > 201) {
+                    opcode = opcode < 218 ? opcode - 49 : opcode - 20;
+                    Label l = largeBranchTargets[v + 1];
+                    if (l != null) {
+                        label = l.position;
+                    } else {
+                        label = v + ByteArray.readUnsignedShort(b, v + 1);
+                    }
+                } else {
+                    label = v + ByteArray.readShort(b, v + 1);
+                }
+                hasSubroutines |= opcode == Opcodes.JSR;
+                mv.visitJumpInsn(opcode, getTargetLabel(labels, label));
+                v += 3;
+                break;
+            }
+            case ClassWriter.LABELW_INSN:
+                opcode -= 33;
+                hasSubroutines |= opcode == Opcodes.JSR;
+                mv.visitJumpInsn(opcode, getTargetLabel(labels, v + ByteArray.readInt(b, v + 1)));
+                v += 5;
+                break;
+            case ClassWriter.TABL_INSN: {
+                int start = v;
+                v = v + 4 - (v & 3);
+                Label defaultLabel = getTargetLabel(labels, start + ByteArray.readInt(b, v));
+                int min = ByteArray.readInt(b, v + 4);
+                int max = ByteArray.readInt(b, v + 8);
+                v += 12;
+                int size = max - min + 1;
+                Label[] targetLabels = new Label[size];
+                for (int j = 0; j < size; ++j) {
+                    targetLabels[j] = getTargetLabel(labels, start + ByteArray.readInt(b, v));
+                    v += 4;
+                }
+                mv.visitTableSwitchInsn(min, max, defaultLabel, targetLabels);
+                break;
+            }
+            case ClassWriter.LOOK_INSN: {
+                int start = v;
+                v = v + 4 - (v & 3);
+                Label defaultLabel = getTargetLabel(labels, start + ByteArray.readInt(b, v));
+                int size = ByteArray.readInt(b, v + 4);
+                v += 8;
+                int[] keys = new int[size];
+                Label[] targetLabels = new Label[size];
+                for (int j = 0; j < size; ++j) {
+                    keys[j] = ByteArray.readInt(b, v);
+                    targetLabels[j] = getTargetLabel(labels, start + ByteArray.readInt(b, v + 4));
+                    v += 8;
+                }
+                mv.visitLookupSwitchInsn(defaultLabel, keys, targetLabels);
+                break;
+            }
+            default:
+                v = visitSimpleInsn(mv, b, v);
+                break;
+            }
+        }
+        if (labels != null && labels[v] != null) {
+            mv.visitLabel(labels[v]);
+        }
+        return hasSubroutines;
+    }
+
     private void visitLineNumberLabels() {
         for (LineNumber ln : lineNumbers) {
             Label l = getLabelAt(ln.start.position);
@@ -932,6 +1111,13 @@ final public class SplitMethodWriterDelegate extends MethodWriterDelegate {
         return l;
     }
 
+    private static Label getTargetLabel(Label[] labelsByOffset, int offset) {
+        if (labelsByOffset == null) {
+            return null;
+        }
+        return getLabelAt(labelsByOffset, offset);
+    }
+
     private Label getLabelAt(int offset) {
         return getLabelAt(labelsByOffset, offset);
     }
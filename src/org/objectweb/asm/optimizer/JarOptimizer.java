@@ -239,7 +239,8 @@ public class JarOptimizer {
                     final int opcode,
                     final String owner,
                     final String name,
-                    final String desc)
+                    final String desc,
+                    final boolean itf)
                 {
                     check(owner, name + desc);
                 }
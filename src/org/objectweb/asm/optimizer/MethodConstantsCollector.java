@@ -116,9 +116,23 @@ public class MethodConstantsCollector extends MethodVisitor {
         final String name,
         final String desc)
     {
-        boolean itf = opcode == Opcodes.INVOKEINTERFACE;
+        visitMethodInsn(opcode,
+                owner,
+                name,
+                desc,
+                opcode == Opcodes.INVOKEINTERFACE);
+    }
+
+    @Override
+    public void visitMethodInsn(
+        final int opcode,
+        final String owner,
+        final String name,
+        final String desc,
+        final boolean itf)
+    {
         cp.newMethod(owner, name, desc, itf);
-        mv.visitMethodInsn(opcode, owner, name, desc);
+        super.visitMethodInsn(opcode, owner, name, desc, itf);
     }
 
     @Override
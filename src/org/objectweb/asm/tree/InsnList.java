@@ -29,6 +29,7 @@
  */
 package org.objectweb.asm.tree;
 
+import java.util.Arrays;
 import java.util.ListIterator;
 import java.util.NoSuchElementException;
 
@@ -57,10 +58,34 @@ public class InsnList {
 
     /**
      * A cache of the instructions of this list. This cache is used to improve
-     * the performance of the {@link #get} method.
+     * the performance of the {@link #get} and {@link #indexOf} methods. It is a
+     * gap buffer: the instructions are stored in cache[0..gapStart[ and in
+     * cache[gapEnd..cache.length[, and the {@link AbstractInsnNode#index index}
+     * of each instruction is its position in this array. The methods that
+     * modify the list update this cache by moving the gap to the modified
+     * position, which is cheap when successive modifications are close to each
+     * other.
      */
     AbstractInsnNode[] cache;
 
+    /**
+     * The start of the gap in {@link #cache}.
+     */
+    private int gapStart;
+
+    /**
+     * The end of the gap in {@link #cache}.
+     */
+    private int gapEnd;
+
+    /**
+     * The number of instructions moved in {@link #cache} since the last call
+     * to {@link #get} or {@link #indexOf}. The cache is invalidated when this
+     * number exceeds the size of the list, i.e. when updating the cache costs
+     * more than rebuilding it.
+     */
+    private int moves;
+
     /**
      * Returns the number of instructions in this list.
      *
@@ -94,7 +119,8 @@ public class InsnList {
      * Returns the instruction whose index is given. This method builds a cache
      * of the instructions in this list to avoid scanning the whole list each
      * time it is called. Once the cache is built, this method run in constant
-     * time. This cache is invalidated by all the methods that modify the list.
+     * time. This cache is updated by the methods that modify the list, or
+     * invalidated if these modifications are too far from each other.
      *
      * @param index the index of the instruction that must be returned.
      * @return the instruction whose index is given.
@@ -105,9 +131,10 @@ public class InsnList {
             throw new IndexOutOfBoundsException();
         }
         if (cache == null) {
-            cache = toArray();
+            buildCache();
         }
-        return cache[index];
+        moves = 0;
+        return cache[index < gapStart ? index : index + gapEnd - gapStart];
     }
 
     /**
@@ -130,8 +157,8 @@ public class InsnList {
      * Returns the index of the given instruction in this list. This method
      * builds a cache of the instruction indexes to avoid scanning the whole
      * list each time it is called. Once the cache is built, this method run in
-     * constant time. The cache is invalidated by all the methods that modify
-     * the list.
+     * constant time. This cache is updated by the methods that modify the list,
+     * or invalidated if these modifications are too far from each other.
      *
      * @param insn an instruction <i>of this list</i>.
      * @return the index of the given instruction in this list. <i>The result of
@@ -141,9 +168,10 @@ public class InsnList {
      */
     public int indexOf(final AbstractInsnNode insn) {
         if (cache == null) {
-            cache = toArray();
+            buildCache();
         }
-        return insn.index;
+        moves = 0;
+        return index(insn);
     }
 
     /**
@@ -184,12 +212,16 @@ public class InsnList {
      * @return an array containing all of the instructions in this list.
      */
     public AbstractInsnNode[] toArray() {
+        AbstractInsnNode[] insns = new AbstractInsnNode[size];
+        if (cache != null) {
+            System.arraycopy(cache, 0, insns, 0, gapStart);
+            System.arraycopy(cache, gapEnd, insns, gapStart, size - gapStart);
+            return insns;
+        }
         int i = 0;
         AbstractInsnNode elem = first;
-        AbstractInsnNode[] insns = new AbstractInsnNode[size];
         while (elem != null) {
-            insns[i] = elem;
-            elem.index = i++;
+            insns[i++] = elem;
             elem = elem.next;
         }
         return insns;
@@ -245,8 +277,8 @@ public class InsnList {
             insn.prev = last;
         }
         last = insn;
-        cache = null;
         insn.index = 0; // insn now belongs to an InsnList
+        insertCache(size - 1, insn, 1);
     }
 
     /**
@@ -256,9 +288,10 @@ public class InsnList {
      *        This list must be different from 'this'.
      */
     public void add(final InsnList insns) {
-        if (insns.size == 0) {
+        if (insns.size() == 0) {
             return;
         }
+        int index = size;
         size += insns.size;
         if (last == null) {
             first = insns.first;
@@ -269,7 +302,7 @@ public class InsnList {
             elem.prev = last;
             last = insns.last;
         }
-        cache = null;
+        insertCache(index, insns.first, insns.size);
         insns.removeAll(false);
     }
 
@@ -289,8 +322,8 @@ public class InsnList {
             insn.next = first;
         }
         first = insn;
-        cache = null;
         insn.index = 0; // insn now belongs to an InsnList
+        insertCache(0, insn, 1);
     }
 
     /**
@@ -300,7 +333,7 @@ public class InsnList {
      *        This list must be different from 'this'.
      */
     public void insert(final InsnList insns) {
-        if (insns.size == 0) {
+        if (insns.size() == 0) {
             return;
         }
         size += insns.size;
@@ -313,7 +346,7 @@ public class InsnList {
             elem.next = first;
             first = insns.first;
         }
-        cache = null;
+        insertCache(0, insns.first, insns.size);
         insns.removeAll(false);
     }
 
@@ -336,8 +369,10 @@ public class InsnList {
         location.next = insn;
         insn.next = next;
         insn.prev = location;
-        cache = null;
         insn.index = 0; // insn now belongs to an InsnList
+        if (cache != null) {
+            insertCache(index(location) + 1, insn, 1);
+        }
     }
 
     /**
@@ -349,7 +384,7 @@ public class InsnList {
      *        the process. This list must be different from 'this'.
      */
     public void insert(final AbstractInsnNode location, final InsnList insns) {
-        if (insns.size == 0) {
+        if (insns.size() == 0) {
             return;
         }
         size += insns.size;
@@ -364,7 +399,9 @@ public class InsnList {
         location.next = ifirst;
         ilast.next = next;
         ifirst.prev = location;
-        cache = null;
+        if (cache != null) {
+            insertCache(index(location) + 1, ifirst, insns.size);
+        }
         insns.removeAll(false);
     }
 
@@ -387,8 +424,10 @@ public class InsnList {
         location.prev = insn;
         insn.next = location;
         insn.prev = prev;
-        cache = null;
         insn.index = 0; // insn now belongs to an InsnList
+        if (cache != null) {
+            insertCache(index(location), insn, 1);
+        }
     }
 
     /**
@@ -400,7 +439,7 @@ public class InsnList {
      *        the process. This list must be different from 'this'.
      */
     public void insertBefore(final AbstractInsnNode location, final InsnList insns) {
-        if (insns.size == 0) {
+        if (insns.size() == 0) {
             return;
         }
         size += insns.size;
@@ -415,18 +454,21 @@ public class InsnList {
         location .prev = ilast;
         ilast.next = location ;
         ifirst.prev = prev;
-        cache = null;
+        if (cache != null) {
+            insertCache(index(location), ifirst, insns.size);
+        }
         insns.removeAll(false);
     }
 
-
-
     /**
      * Removes the given instruction from this list.
      *
      * @param insn the instruction <i>of this list</i> that must be removed.
      */
     public void remove(final AbstractInsnNode insn) {
+        if (cache != null) {
+            removeCache(index(insn), 1);
+        }
         --size;
         AbstractInsnNode next = insn.next;
         AbstractInsnNode prev = insn.prev;
@@ -447,12 +489,73 @@ public class InsnList {
                 next.prev = prev;
             }
         }
-        cache = null;
         insn.index = -1; // insn no longer belongs to an InsnList
         insn.prev = null;
         insn.next = null;
     }
 
+    /**
+     * Removes the given range of instructions from this list.
+     *
+     * @param from the first instruction <i>of this list</i> that must be
+     *        removed.
+     * @param to the last instruction <i>of this list</i> that must be removed.
+     *        This instruction must be after, or equal to, <tt>from</tt>.
+     */
+    public void remove(final AbstractInsnNode from, final AbstractInsnNode to) {
+        AbstractInsnNode prev = from.prev;
+        AbstractInsnNode next = to.next;
+        int n = 0;
+        AbstractInsnNode insn = from;
+        while (insn != next) {
+            insn = insn.next;
+            ++n;
+        }
+        if (cache != null) {
+            removeCache(index(from), n);
+        }
+        insn = from;
+        while (insn != next) {
+            AbstractInsnNode elem = insn.next;
+            insn.index = -1; // insn no longer belongs to an InsnList
+            insn.prev = null;
+            insn.next = null;
+            insn = elem;
+        }
+        if (prev == null) {
+            first = next;
+        } else {
+            prev.next = next;
+        }
+        if (next == null) {
+            last = prev;
+        } else {
+            next.prev = prev;
+        }
+        size -= n;
+    }
+
+    /**
+     * Replaces a range of instructions of this list with other instructions.
+     *
+     * @param from the first instruction <i>of this list</i> that must be
+     *        replaced.
+     * @param to the last instruction <i>of this list</i> that must be
+     *        replaced. This instruction must be after, or equal to,
+     *        <tt>from</tt>.
+     * @param insns the instruction list to be inserted instead of the replaced
+     *        instructions, which is cleared during the process. This list must
+     *        be different from 'this'.
+     */
+    public void set(
+        final AbstractInsnNode from,
+        final AbstractInsnNode to,
+        final InsnList insns)
+    {
+        insertBefore(from, insns);
+        remove(from, to);
+    }
+
     /**
      * Removes all of the instructions of this list.
      *
@@ -476,6 +579,124 @@ public class InsnList {
         cache = null;
     }
 
+    /**
+     * Builds the cache of the instructions of this list.
+     */
+    private void buildCache() {
+        int i = 0;
+        AbstractInsnNode elem = first;
+        AbstractInsnNode[] insns = new AbstractInsnNode[size];
+        while (elem != null) {
+            insns[i] = elem;
+            elem.index = i++;
+            elem = elem.next;
+        }
+        cache = insns;
+        gapStart = size;
+        gapEnd = size;
+        moves = 0;
+    }
+
+    /**
+     * Returns the index of the given instruction. The cache must not be null.
+     *
+     * @param insn an instruction <i>of this list</i>.
+     * @return the index of the given instruction in this list.
+     */
+    private int index(final AbstractInsnNode insn) {
+        int i = insn.index;
+        return i < gapStart ? i : i - (gapEnd - gapStart);
+    }
+
+    /**
+     * Moves the gap of the cache to the given index, and makes sure that it
+     * can contain the given number of instructions. The cache must not be
+     * null. The cache is invalidated instead if too many instructions were
+     * moved since the last lookup.
+     *
+     * @param index where the gap must be moved.
+     * @param n the minimum size of the gap.
+     * @return <tt>true</tt> if the gap was moved, or <tt>false</tt> if the
+     *         cache was invalidated.
+     */
+    private boolean moveGap(final int index, final int n) {
+        AbstractInsnNode[] c = cache;
+        int start = gapStart;
+        int end = gapEnd;
+        moves += index < start ? start - index : index - start;
+        if (moves > size) {
+            cache = null;
+            return false;
+        }
+        if (index < start) {
+            int len = start - index;
+            end -= len;
+            System.arraycopy(c, index, c, end, len);
+            for (int i = end; i < end + len; ++i) {
+                c[i].index = i;
+            }
+            Arrays.fill(c, index, Math.min(start, end), null);
+        } else if (index > start) {
+            int len = index - start;
+            System.arraycopy(c, end, c, start, len);
+            for (int i = start; i < index; ++i) {
+                c[i].index = i;
+            }
+            Arrays.fill(c, Math.max(index, end), end + len, null);
+            end += len;
+        }
+        if (end - index < n) {
+            int tail = c.length - end;
+            int length = Math.max(2 * c.length, index + tail + n);
+            AbstractInsnNode[] d = new AbstractInsnNode[length];
+            System.arraycopy(c, 0, d, 0, index);
+            System.arraycopy(c, end, d, length - tail, tail);
+            end = length - tail;
+            for (int i = end; i < length; ++i) {
+                d[i].index = i;
+            }
+            cache = d;
+        }
+        gapStart = index;
+        gapEnd = end;
+        return true;
+    }
+
+    /**
+     * Updates the cache after an insertion.
+     *
+     * @param index the index of the first inserted instruction.
+     * @param insn the first inserted instruction.
+     * @param n the number of inserted instructions.
+     */
+    private void insertCache(final int index, final AbstractInsnNode insn, final int n)
+    {
+        if (cache != null && moveGap(index, n)) {
+            AbstractInsnNode[] c = cache;
+            AbstractInsnNode elem = insn;
+            int start = gapStart;
+            for (int i = 0; i < n; ++i) {
+                c[start] = elem;
+                elem.index = start++;
+                elem = elem.next;
+            }
+            gapStart = start;
+        }
+    }
+
+    /**
+     * Updates the cache before a removal.
+     *
+     * @param index the index of the first removed instruction.
+     * @param n the number of removed instructions.
+     */
+    private void removeCache(final int index, final int n) {
+        if (moveGap(index, 0)) {
+            Arrays.fill(cache, gapEnd, gapEnd + n, null);
+            gapEnd += n;
+        }
+    }
+
     /**
      * Removes all of the instructions of this list.
      */
@@ -549,20 +770,14 @@ public class InsnList {
             if (next == null) {
                 return size();
             }
-            if (cache == null) {
-                cache = toArray();
-            }
-            return next.index;
+            return indexOf(next);
         }
 
         public int previousIndex() {
             if (prev == null) {
                 return -1;
             }
-            if (cache == null) {
-                cache = toArray();
-            }
-            return prev.index;
+            return indexOf(prev);
         }
 
         public void add(Object o) {
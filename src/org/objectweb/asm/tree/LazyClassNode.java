@@ -0,0 +1,159 @@
+/***
+ * ASM: a very small and fast Java bytecode manipulation framework
+ * Copyright (c) 2000-2011 INRIA, France Telecom
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.objectweb.asm.tree;
+
+import java.util.List;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * A {@link ClassNode} whose method bodies are decoded lazily. The method
+ * bodies are kept in encoded form, in the {@link ClassReader} from which this
+ * node is built, and each body is decoded the first time the
+ * {@link MethodNode#instructions instructions}, the
+ * {@link MethodNode#tryCatchBlocks tryCatchBlocks} or the
+ * {@link MethodNode#localVariables localVariables} of its method are used. The
+ * {@link MethodNode#maxStack maxStack} and {@link MethodNode#maxLocals
+ * maxLocals} fields are set without decoding the bodies. This saves a lot of
+ * time and memory when many classes are kept in memory but only a few method
+ * bodies are used. <i>The lazy decoding is not thread safe</i>.
+ */
+public class LazyClassNode extends ClassNode {
+
+    /**
+     * The class reader from which the method bodies are decoded.
+     */
+    final ClassReader cr;
+
+    /**
+     * The option flags used to decode the method bodies. See
+     * {@link ClassReader#accept(org.objectweb.asm.ClassVisitor, int) accept}.
+     */
+    final int flags;
+
+    /**
+     * The number of methods visited so far.
+     */
+    private int methodCount;
+
+    /**
+     * Constructs a new {@link LazyClassNode} and reads the given class in it.
+     * <i>Subclasses must not use this constructor</i>. Instead, they must use
+     * the {@link #LazyClassNode(int, ClassReader, int)} version.
+     *
+     * @param cr the class reader from which the class must be read.
+     * @param flags option flags that can be used to modify the default behavior
+     *        of the class reader. See {@link ClassReader#SKIP_DEBUG},
+     *        {@link ClassReader#EXPAND_FRAMES}, {@link ClassReader#SKIP_FRAMES}.
+     */
+    public LazyClassNode(final ClassReader cr, final int flags) {
+        this(Opcodes.ASM4, cr, flags);
+    }
+
+    /**
+     * Constructs a new {@link LazyClassNode} and reads the given class in it.
+     * The visit methods of this node are called from this constructor.
+     *
+     * @param api the ASM API version implemented by this visitor. Must be one
+     *        of {@link Opcodes#ASM4}.
+     * @param cr the class reader from which the class must be read.
+     * @param flags option flags that can be used to modify the default behavior
+     *        of the class reader. See {@link ClassReader#SKIP_DEBUG},
+     *        {@link ClassReader#EXPAND_FRAMES}, {@link ClassReader#SKIP_FRAMES}.
+     */
+    public LazyClassNode(final int api, final ClassReader cr, final int flags) {
+        super(api);
+        this.cr = cr;
+        this.flags = flags & ~ClassReader.SKIP_CODE;
+        cr.accept(this, flags | ClassReader.SKIP_CODE);
+        readCodeAttributes();
+    }
+
+    @Override
+    public MethodVisitor visitMethod(
+        final int access,
+        final String name,
+        final String desc,
+        final String signature,
+        final String[] exceptions)
+    {
+        MethodNode mn = new LazyMethodNode(api,
+                this,
+                methodCount++,
+                access,
+                name,
+                desc,
+                signature,
+                exceptions);
+        methods.add(mn);
+        return mn;
+    }
+
+    /**
+     * Finds the method_info structure and the Code attribute of each method,
+     * and passes them to the corresponding {@link LazyMethodNode}.
+     */
+    private void readCodeAttributes() {
+        ClassReader cr = this.cr;
+        char[] c = new char[cr.getMaxStringLength()];
+        int u = cr.header + 8 + 2 * cr.readUnsignedShort(cr.header + 6);
+        int n = cr.readUnsignedShort(u);
+        u += 2;
+        for (int i = n; i > 0; --i) {
+            u += 8;
+            for (int j = cr.readUnsignedShort(u - 2); j > 0; --j) {
+                u += 6 + cr.readInt(u + 2);
+            }
+        }
+        int[] method = new int[cr.readUnsignedShort(u)];
+        int[] code = new int[method.length];
+        u += 2;
+        for (int i = 0; i < code.length; ++i) {
+            method[i] = u;
+            u += 8;
+            for (int j = cr.readUnsignedShort(u - 2); j > 0; --j) {
+                if ("Code".equals(cr.readUTF8(u, c))) {
+                    code[i] = u + 6;
+                }
+                u += 6 + cr.readInt(u + 2);
+            }
+        }
+        List<MethodNode> methods = this.methods;
+        for (int i = 0; i < methods.size(); ++i) {
+            MethodNode mn = methods.get(i);
+            if (mn instanceof LazyMethodNode) {
+                LazyMethodNode lmn = (LazyMethodNode) mn;
+                lmn.setCode(method[lmn.index], code[lmn.index]);
+            }
+        }
+    }
+}
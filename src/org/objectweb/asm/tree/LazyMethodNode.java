@@ -0,0 +1,350 @@
+/***
+ * ASM: a very small and fast Java bytecode manipulation framework
+ * Copyright (c) 2000-2011 INRIA, France Telecom
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.objectweb.asm.tree;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ListIterator;
+
+import org.objectweb.asm.Attribute;
+import org.objectweb.asm.MethodVisitor;
+
+/**
+ * A {@link MethodNode} whose body is decoded lazily, from the class reader of
+ * a {@link LazyClassNode}. The instructions, try catch blocks and local
+ * variables lists of this node decode the method body the first time one of
+ * their methods is called.
+ */
+class LazyMethodNode extends MethodNode {
+
+    /**
+     * The class node to which this method belongs.
+     */
+    private final LazyClassNode cn;
+
+    /**
+     * The index of this method in the methods of its class.
+     */
+    final int index;
+
+    /**
+     * The start of the method_info structure of this method in the class
+     * reader.
+     */
+    private int method;
+
+    /**
+     * If the body of this method has been decoded.
+     */
+    boolean decoded;
+
+    /**
+     * The lazy instruction list of this method.
+     */
+    private final InsnList lazyInstructions;
+
+    /**
+     * The lazy try catch blocks list of this method.
+     */
+    private final List<TryCatchBlockNode> lazyTryCatchBlocks;
+
+    /**
+     * The lazy local variables list of this method, or <tt>null</tt>.
+     */
+    private final List<LocalVariableNode> lazyLocalVariables;
+
+    LazyMethodNode(
+        final int api,
+        final LazyClassNode cn,
+        final int index,
+        final int access,
+        final String name,
+        final String desc,
+        final String signature,
+        final String[] exceptions)
+    {
+        super(api, access, name, desc, signature, exceptions);
+        this.cn = cn;
+        this.index = index;
+        this.lazyInstructions = new LazyInsnList();
+        this.lazyTryCatchBlocks = new LazyList<TryCatchBlockNode>();
+        this.lazyLocalVariables = localVariables == null
+                ? null
+                : new LazyList<LocalVariableNode>();
+        this.instructions = lazyInstructions;
+        this.tryCatchBlocks = lazyTryCatchBlocks;
+        this.localVariables = lazyLocalVariables;
+    }
+
+    /**
+     * Sets the location of this method in the class reader, and reads its
+     * maxStack and maxLocals values.
+     *
+     * @param method the start of the method_info structure of this method in
+     *        the class reader.
+     * @param code the start of the content of the Code attribute of this
+     *        method in the class reader, or 0 if this method does not have
+     *        code.
+     */
+    void setCode(final int method, final int code) {
+        this.method = method;
+        if (code == 0) {
+            decoded = true;
+        } else {
+            maxStack = cn.cr.readUnsignedShort(code);
+            maxLocals = cn.cr.readUnsignedShort(code + 2);
+        }
+    }
+
+    /**
+     * Decodes the body of this method, if this is not already done. The
+     * method body is added to the lazy lists of this node, even if the
+     * instructions, tryCatchBlocks or localVariables fields have been changed
+     * in the meantime. The maxStack and maxLocals fields are not changed.
+     */
+    void decode() {
+        if (decoded) {
+            return;
+        }
+        decoded = true;
+        InsnList instructions = this.instructions;
+        List<TryCatchBlockNode> tryCatchBlocks = this.tryCatchBlocks;
+        List<LocalVariableNode> localVariables = this.localVariables;
+        int maxStack = this.maxStack;
+        int maxLocals = this.maxLocals;
+        this.instructions = lazyInstructions;
+        this.tryCatchBlocks = lazyTryCatchBlocks;
+        this.localVariables = lazyLocalVariables;
+        try {
+            cn.cr.acceptCode(this, method, new Attribute[0], cn.flags);
+        } finally {
+            this.instructions = instructions;
+            this.tryCatchBlocks = tryCatchBlocks;
+            this.localVariables = localVariables;
+            this.maxStack = maxStack;
+            this.maxLocals = maxLocals;
+        }
+    }
+
+    /**
+     * A list that decodes the method body before its first use. The list
+     * containing the elements is only created at this time.
+     */
+    private class LazyList<E> extends AbstractList<E> {
+
+        private List<E> list;
+
+        private List<E> list() {
+            decode();
+            if (list == null) {
+                list = new ArrayList<E>();
+            }
+            return list;
+        }
+
+        @Override
+        public E get(final int index) {
+            return list().get(index);
+        }
+
+        @Override
+        public int size() {
+            return list().size();
+        }
+
+        @Override
+        public E set(final int index, final E element) {
+            return list().set(index, element);
+        }
+
+        @Override
+        public void add(final int index, final E element) {
+            ++modCount;
+            list().add(index, element);
+        }
+
+        @Override
+        public E remove(final int index) {
+            ++modCount;
+            return list().remove(index);
+        }
+    }
+
+    /**
+     * An instruction list that decodes the method body before its first use.
+     */
+    private class LazyInsnList extends InsnList {
+
+        @Override
+        public int size() {
+            decode();
+            return super.size();
+        }
+
+        @Override
+        public AbstractInsnNode getFirst() {
+            decode();
+            return super.getFirst();
+        }
+
+        @Override
+        public AbstractInsnNode getLast() {
+            decode();
+            return super.getLast();
+        }
+
+        @Override
+        public AbstractInsnNode get(final int index) {
+            decode();
+            return super.get(index);
+        }
+
+        @Override
+        public boolean contains(final AbstractInsnNode insn) {
+            decode();
+            return super.contains(insn);
+        }
+
+        @Override
+        public int indexOf(final AbstractInsnNode insn) {
+            decode();
+            return super.indexOf(insn);
+        }
+
+        @Override
+        public void accept(final MethodVisitor mv) {
+            decode();
+            super.accept(mv);
+        }
+
+        @Override
+        public ListIterator<AbstractInsnNode> iterator(final int index) {
+            decode();
+            return super.iterator(index);
+        }
+
+        @Override
+        public AbstractInsnNode[] toArray() {
+            decode();
+            return super.toArray();
+        }
+
+        @Override
+        public void set(final AbstractInsnNode location, final AbstractInsnNode insn)
+        {
+            decode();
+            super.set(location, insn);
+        }
+
+        @Override
+        public void add(final AbstractInsnNode insn) {
+            decode();
+            super.add(insn);
+        }
+
+        @Override
+        public void add(final InsnList insns) {
+            decode();
+            super.add(insns);
+        }
+
+        @Override
+        public void insert(final AbstractInsnNode insn) {
+            decode();
+            super.insert(insn);
+        }
+
+        @Override
+        public void insert(final InsnList insns) {
+            decode();
+            super.insert(insns);
+        }
+
+        @Override
+        public void insert(
+            final AbstractInsnNode location,
+            final AbstractInsnNode insn)
+        {
+            decode();
+            super.insert(location, insn);
+        }
+
+        @Override
+        public void insert(final AbstractInsnNode location, final InsnList insns)
+        {
+            decode();
+            super.insert(location, insns);
+        }
+
+        @Override
+        public void insertBefore(
+            final AbstractInsnNode location,
+            final AbstractInsnNode insn)
+        {
+            decode();
+            super.insertBefore(location, insn);
+        }
+
+        @Override
+        public void insertBefore(
+            final AbstractInsnNode location,
+            final InsnList insns)
+        {
+            decode();
+            super.insertBefore(location, insns);
+        }
+
+        @Override
+        public void remove(final AbstractInsnNode insn) {
+            decode();
+            super.remove(insn);
+        }
+
+        @Override
+        public void remove(final AbstractInsnNode from, final AbstractInsnNode to)
+        {
+            decode();
+            super.remove(from, to);
+        }
+
+        @Override
+        void removeAll(final boolean mark) {
+            decode();
+            super.removeAll(mark);
+        }
+
+        @Override
+        public void resetLabels() {
+            decode();
+            super.resetLabels();
+        }
+    }
+}
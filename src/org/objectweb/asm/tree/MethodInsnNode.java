@@ -32,6 +32,7 @@ package org.objectweb.asm.tree;
 import java.util.Map;
 
 import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
 
 /**
  * A node that represents a method instruction. A method instruction is an
@@ -57,6 +58,11 @@ public class MethodInsnNode extends AbstractInsnNode {
      */
     public String desc;
 
+    /**
+     * If the method's owner class is an interface.
+     */
+    public boolean itf;
+
     /**
      * Constructs a new {@link MethodInsnNode}.
      *
@@ -73,11 +79,34 @@ public class MethodInsnNode extends AbstractInsnNode {
         final String owner,
         final String name,
         final String desc)
+    {
+        this(opcode, owner, name, desc, opcode == Opcodes.INVOKEINTERFACE);
+    }
+
+    /**
+     * Constructs a new {@link MethodInsnNode}.
+     *
+     * @param opcode the opcode of the type instruction to be constructed. This
+     *        opcode must be INVOKEVIRTUAL, INVOKESPECIAL, INVOKESTATIC or
+     *        INVOKEINTERFACE.
+     * @param owner the internal name of the method's owner class (see
+     *        {@link org.objectweb.asm.Type#getInternalName() getInternalName}).
+     * @param name the method's name.
+     * @param desc the method's descriptor (see {@link org.objectweb.asm.Type}).
+     * @param itf if the method's owner class is an interface.
+     */
+    public MethodInsnNode(
+        final int opcode,
+        final String owner,
+        final String name,
+        final String desc,
+        final boolean itf)
     {
         super(opcode);
         this.owner = owner;
         this.name = name;
         this.desc = desc;
+        this.itf = itf;
     }
 
     /**
@@ -97,11 +126,15 @@ public class MethodInsnNode extends AbstractInsnNode {
 
     @Override
     public void accept(final MethodVisitor mv) {
-        mv.visitMethodInsn(opcode, owner, name, desc);
+        if (itf && opcode != Opcodes.INVOKEINTERFACE) {
+            mv.visitMethodInsn(opcode, owner, name, desc, true);
+        } else {
+            mv.visitMethodInsn(opcode, owner, name, desc);
+        }
     }
 
     @Override
     public AbstractInsnNode clone(final Map<LabelNode, LabelNode> labels) {
-        return new MethodInsnNode(opcode, owner, name, desc);
+        return new MethodInsnNode(opcode, owner, name, desc, itf);
     }
 }
\ No newline at end of file
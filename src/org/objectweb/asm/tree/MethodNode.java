@@ -390,6 +390,17 @@ public class MethodNode extends MethodVisitor {
         instructions.add(new MethodInsnNode(opcode, owner, name, desc));
     }
 
+    @Override
+    public void visitMethodInsn(
+        final int opcode,
+        final String owner,
+        final String name,
+        final String desc,
+        final boolean itf)
+    {
+        instructions.add(new MethodInsnNode(opcode, owner, name, desc, itf));
+    }
+
     @Override
     public void visitInvokeDynamicInsn(
         String name,
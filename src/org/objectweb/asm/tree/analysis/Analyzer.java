@@ -31,6 +31,7 @@
 package org.objectweb.asm.tree.analysis;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -51,6 +52,13 @@ import org.objectweb.asm.tree.VarInsnNode;
 /**
  * A semantic bytecode analyzer. <i>This class does not fully check that JSR and
  * RET instructions are valid.</i>
+ * <p>
+ * By default the frame of each instruction is stored. An analyzer constructed
+ * in sparse mode only stores the frames at the beginning of basic blocks, and
+ * at the instructions for which {@link #isFrameKept isFrameKept} returns
+ * <tt>true</tt>. The other frames are recomputed on demand by
+ * {@link #getFrame getFrame}. This mode is not used for methods containing JSR
+ * instructions.
  *
  * @param <V> type of the Value used for the analysis.
  *
@@ -60,6 +68,15 @@ public class Analyzer<V extends Value> implements Opcodes {
 
     private final Interpreter<V> interpreter;
 
+    private final boolean sparse;
+
+    /**
+     * <tt>true</tt> if the control flow graph of the analyzed methods must be
+     * saved, so that they can be analyzed again incrementally with
+     * {@link #reanalyze reanalyze}.
+     */
+    private boolean incremental;
+
     private int n;
 
     private InsnList insns;
@@ -70,11 +87,76 @@ public class Analyzer<V extends Value> implements Opcodes {
 
     private Subroutine[] subroutines;
 
-    private boolean[] queued;
+    /**
+     * The instructions to be processed, in reverse postorder if the analyzed
+     * method does not contain JSR instructions, or in LIFO order otherwise.
+     */
+    private InsnQueue queue;
+
+    /**
+     * The instructions whose frame is stored in {@link #frames}, or
+     * <tt>null</tt> if all the frames are stored.
+     */
+    private boolean[] blockStarts;
+
+    /**
+     * The frame of the instruction that follows the current one, if this
+     * instruction does not start a basic block (sparse mode only).
+     */
+    private Frame<V> fallthrough;
+
+    /**
+     * The index of the instruction that follows the current one, if this
+     * instruction does not start a basic block, or -1 (sparse mode only).
+     */
+    private int next;
+
+    /**
+     * The index of the last frame computed by {@link #getFrame getFrame}.
+     */
+    private int cachedInsn;
+
+    /**
+     * The last frame computed by {@link #getFrame getFrame}.
+     */
+    private Frame<V> cachedFrame;
+
+    /**
+     * The last analyzed method, if it can be analyzed again incrementally with
+     * {@link #reanalyze reanalyze}, or <tt>null</tt>.
+     */
+    private MethodNode analyzed;
+
+    /**
+     * The instructions of {@link #analyzed} at the end of its last analysis.
+     */
+    private AbstractInsnNode[] analyzedInsns;
+
+    /**
+     * The exception handlers of {@link #analyzed} at the end of its last
+     * analysis, with their start, end, handler and type fields.
+     */
+    private Object[] analyzedTryCatchBlocks;
+
+    /**
+     * The maximum number of local variables and the maximum stack size of
+     * {@link #analyzed} at the end of its last analysis.
+     */
+    private int analyzedMaxLocals, analyzedMaxStack;
 
-    private int[] queue;
+    /**
+     * The successors of the instructions of {@link #analyzedInsns} in the
+     * control flow graph. The successors of instruction <tt>i</tt> are stored
+     * from <tt>successors[successorIndex[i]]</tt> inclusive to
+     * <tt>successors[successorIndex[i + 1]]</tt> exclusive.
+     */
+    private int[] successors;
 
-    private int top;
+    /**
+     * The start index in {@link #successors} of the successors of each
+     * instruction of {@link #analyzedInsns}.
+     */
+    private int[] successorIndex;
 
     /**
      * Constructs a new {@link Analyzer}.
@@ -83,7 +165,42 @@ public class Analyzer<V extends Value> implements Opcodes {
      *        the bytecode instructions.
      */
     public Analyzer(final Interpreter<V> interpreter) {
+        this(interpreter, false);
+    }
+
+    /**
+     * Constructs a new {@link Analyzer}.
+     *
+     * @param interpreter the interpreter to be used to symbolically interpret
+     *        the bytecode instructions.
+     * @param sparse <tt>true</tt> to store the frames only at the beginning of
+     *        basic blocks, and at the instructions for which
+     *        {@link #isFrameKept isFrameKept} returns <tt>true</tt>.
+     */
+    public Analyzer(final Interpreter<V> interpreter, final boolean sparse) {
         this.interpreter = interpreter;
+        this.sparse = sparse;
+    }
+
+    /**
+     * Enables or disables incremental analysis. When it is enabled, the
+     * instructions, the control flow graph and the exception handlers of each
+     * method analyzed in dense mode are saved at the end of its analysis, so
+     * that {@link #reanalyze reanalyze} can recompute only the frames of the
+     * modified instructions. This saved state is not computed by default.
+     *
+     * @param incremental <tt>true</tt> to save the control flow graph of the
+     *        analyzed methods for {@link #reanalyze reanalyze}.
+     */
+    public void setIncremental(final boolean incremental) {
+        this.incremental = incremental;
+        if (!incremental) {
+            analyzed = null;
+            analyzedInsns = null;
+            analyzedTryCatchBlocks = null;
+            successors = null;
+            successorIndex = null;
+        }
     }
 
     /**
@@ -95,39 +212,22 @@ public class Analyzer<V extends Value> implements Opcodes {
      *         instruction of the method. The size of the returned array is
      *         equal to the number of instructions (and labels) of the method. A
      *         given frame is <tt>null</tt> if and only if the corresponding
-     *         instruction cannot be reached (dead code).
+     *         instruction cannot be reached (dead code). In sparse mode, only
+     *         the stored frames are returned: the other ones are <tt>null</tt>
+     *         and must be obtained with {@link #getFrame getFrame}.
      * @throws AnalyzerException if a problem occurs during the analysis.
      */
     public Frame<V>[] analyze(final String owner, final MethodNode m)
             throws AnalyzerException
     {
+        blockStarts = null;
+        cachedFrame = null;
+        analyzed = null;
         if ((m.access & (ACC_ABSTRACT | ACC_NATIVE)) != 0) {
             frames = (Frame<V>[])new Frame<?>[0];
             return frames;
         }
-        n = m.instructions.size();
-        insns = m.instructions;
-        handlers = (List<TryCatchBlockNode>[])new List<?>[n];
-        frames = (Frame<V>[])new Frame<?>[n];
-        subroutines = new Subroutine[n];
-        queued = new boolean[n];
-        queue = new int[n];
-        top = 0;
-
-        // computes exception handlers for each instruction
-        for (int i = 0; i < m.tryCatchBlocks.size(); ++i) {
-            TryCatchBlockNode tcb = m.tryCatchBlocks.get(i);
-            int begin = insns.indexOf(tcb.start);
-            int end = insns.indexOf(tcb.end);
-            for (int j = begin; j < end; ++j) {
-                List<TryCatchBlockNode> insnHandlers = handlers[j];
-                if (insnHandlers == null) {
-                    insnHandlers = new ArrayList<TryCatchBlockNode>();
-                    handlers[j] = insnHandlers;
-                }
-                insnHandlers.add(tcb);
-            }
-        }
+        init(m);
 
         // computes the subroutine for each instruction:
         Subroutine main = new Subroutine(null, m.maxLocals, null);
@@ -150,10 +250,227 @@ public class Analyzer<V extends Value> implements Opcodes {
                 subroutines[i] = null;
             }
         }
+        if (subroutineHeads.isEmpty()) {
+            if (sparse) {
+                findBlockStarts(m);
+            }
+            queue.findReversePostorder();
+        }
 
         // initializes the data structures for the control flow analysis
+        Frame<V> current = newInitialFrame(owner, m);
+        merge(0, current, null);
+
+        init(owner, m);
+
+        analyze(m, current);
+        if (incremental && subroutineHeads.isEmpty() && !sparse) {
+            saveControlFlowGraph(m);
+        }
+        return frames;
+    }
+
+    /**
+     * Analyzes the given method again, after some of its instructions have
+     * been modified. This method recomputes only the frames of the
+     * instructions which can be reached from the modified ones in the
+     * control flow graph, starting from the frames of their unmodified
+     * predecessors. The instructions that have been inserted or removed since
+     * the last analysis are detected automatically. The other modified
+     * instructions (for instance a jump instruction whose target has
+     * changed) must be given explicitly. If the given method is not the last
+     * analyzed one, if the last analysis failed, if the method contains JSR
+     * instructions, if its exception handlers, its maximum stack size or its
+     * maximum number of local variables have changed, or if this analyzer is
+     * in sparse mode or not in incremental mode (see {@link #setIncremental
+     * setIncremental}), the method is fully analyzed with {@link #analyze
+     * analyze}.
+     *
+     * @param owner the internal name of the class to which the method belongs.
+     * @param m the method to be analyzed, which must be the last method
+     *        analyzed by this analyzer.
+     * @param modified the instructions of the method that have been modified
+     *        in place since the last analysis. This collection may also
+     *        contain the inserted and removed instructions.
+     * @return the symbolic state of the execution stack frame at each bytecode
+     *         instruction of the method, as returned by {@link #analyze
+     *         analyze}.
+     * @throws AnalyzerException if a problem occurs during the analysis.
+     */
+    public Frame<V>[] reanalyze(
+        final String owner,
+        final MethodNode m,
+        final Collection<? extends AbstractInsnNode> modified)
+            throws AnalyzerException
+    {
+        if (m != analyzed || m.maxLocals != analyzedMaxLocals
+                || m.maxStack != analyzedMaxStack
+                || !isSameTryCatchBlocks(m))
+        {
+            return analyze(owner, m);
+        }
+        AbstractInsnNode[] oldInsns = analyzedInsns;
+        Frame<V>[] oldFrames = frames;
+        analyzed = null;
+        cachedFrame = null;
+        AbstractInsnNode[] newInsns = m.instructions.toArray();
+        for (int i = 0; i < newInsns.length; ++i) {
+            if (newInsns[i].getOpcode() == JSR) {
+                return analyze(owner, m);
+            }
+        }
+        init(m);
+        queue.findReversePostorder();
+
+        // maps the old instructions to the new ones (the index of a removed
+        // instruction is invalid)
+        int[] oldToNew = new int[oldInsns.length];
+        int[] newToOld = new int[n];
+        for (int i = 0; i < n; ++i) {
+            newToOld[i] = -1;
+        }
+        for (int i = 0; i < oldInsns.length; ++i) {
+            int j = insns.indexOf(oldInsns[i]);
+            if (j >= 0 && j < n && newInsns[j] == oldInsns[i]) {
+                oldToNew[i] = j;
+                newToOld[j] = i;
+            } else {
+                oldToNew[i] = -1;
+            }
+        }
+
+        // finds the instructions whose predecessors may have changed: the
+        // inserted or modified instructions, the instructions whose previous
+        // instruction has changed, the old successors of the removed or
+        // modified instructions, and the newly reachable instructions
+        boolean[] dirty = new boolean[n];
+        int[] stack = new int[n];
+        int size = 0;
+        for (AbstractInsnNode insn : modified) {
+            int i = insns.indexOf(insn);
+            if (i >= 0 && i < n && newInsns[i] == insn) {
+                if (!dirty[i]) {
+                    dirty[i] = true;
+                    stack[size++] = i;
+                }
+                if (newToOld[i] != -1) {
+                    oldToNew[newToOld[i]] = -2;
+                }
+            }
+        }
+        for (int i = 0; i < oldInsns.length; ++i) {
+            if (oldToNew[i] < 0) {
+                for (int j = successorIndex[i]; j < successorIndex[i + 1]; ++j) {
+                    int k = oldToNew[successors[j]];
+                    if (k >= 0 && !dirty[k]) {
+                        dirty[k] = true;
+                        stack[size++] = k;
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < n; ++i) {
+            int j = newToOld[i];
+            if (!dirty[i]
+                    && (j == -1 || (i == 0 ? j != 0 : newToOld[i - 1] != j - 1)
+                    || (queue.isReachable(i) && oldFrames[j] == null)))
+            {
+                dirty[i] = true;
+                stack[size++] = i;
+            }
+        }
+
+        // marks all the instructions reachable from them as dirty
+        while (size > 0) {
+            int insn = stack[--size];
+            for (int k = 0;; ++k) {
+                int successor = getSuccessor(insn, k);
+                if (successor == -2) {
+                    break;
+                }
+                if (successor >= 0 && !dirty[successor]) {
+                    dirty[successor] = true;
+                    stack[size++] = successor;
+                }
+            }
+        }
+
+        // reuses the frames of the other reachable instructions, and
+        // processes again those which have a dirty successor
+        for (int i = 0; i < n; ++i) {
+            if (!dirty[i] && queue.isReachable(i)) {
+                frames[i] = oldFrames[newToOld[i]];
+            }
+        }
+        Frame<V> current = newInitialFrame(owner, m);
+        if (dirty[0]) {
+            merge(0, current, null);
+        }
+        for (int i = 0; i < n; ++i) {
+            if (frames[i] != null && !dirty[i] && !queue.contains(i)) {
+                for (int k = 0;; ++k) {
+                    int successor = getSuccessor(i, k);
+                    if (successor == -2) {
+                        break;
+                    }
+                    if (successor >= 0 && dirty[successor]) {
+                        queue.add(i);
+                        break;
+                    }
+                }
+            }
+        }
+
+        init(owner, m);
+
+        analyze(m, current);
+        saveControlFlowGraph(m);
+        return frames;
+    }
+
+    /**
+     * Initializes the data structures for the analysis of the given method.
+     *
+     * @param m the method to be analyzed.
+     */
+    private void init(final MethodNode m) {
+        n = m.instructions.size();
+        insns = m.instructions;
+        handlers = (List<TryCatchBlockNode>[])new List<?>[n];
+        frames = (Frame<V>[])new Frame<?>[n];
+        subroutines = new Subroutine[n];
+        queue = new InsnQueue(n) {
+            @Override
+            int getSuccessor(final int insn, final int k) {
+                return Analyzer.this.getSuccessor(insn, k);
+            }
+        };
+
+        // computes exception handlers for each instruction
+        for (int i = 0; i < m.tryCatchBlocks.size(); ++i) {
+            TryCatchBlockNode tcb = m.tryCatchBlocks.get(i);
+            int begin = insns.indexOf(tcb.start);
+            int end = insns.indexOf(tcb.end);
+            for (int j = begin; j < end; ++j) {
+                List<TryCatchBlockNode> insnHandlers = handlers[j];
+                if (insnHandlers == null) {
+                    insnHandlers = new ArrayList<TryCatchBlockNode>();
+                    handlers[j] = insnHandlers;
+                }
+                insnHandlers.add(tcb);
+            }
+        }
+    }
+
+    /**
+     * Returns the frame at the beginning of the given method.
+     *
+     * @param owner the internal name of the class to which the method belongs.
+     * @param m the method to be analyzed.
+     * @return the frame at the beginning of the given method.
+     */
+    private Frame<V> newInitialFrame(final String owner, final MethodNode m) {
         Frame<V> current = newFrame(m.maxLocals, m.maxStack);
-        Frame<V> handler = newFrame(m.maxLocals, m.maxStack);
         current.setReturn(interpreter.newValue(Type.getReturnType(m.desc)));
         Type[] args = Type.getArgumentTypes(m.desc);
         int local = 0;
@@ -170,16 +487,45 @@ public class Analyzer<V extends Value> implements Opcodes {
         while (local < m.maxLocals) {
             current.setLocal(local++, interpreter.newValue(null));
         }
-        merge(0, current, null);
-
-        init(owner, m);
+        return current;
+    }
 
-        // control flow analysis
-        while (top > 0) {
-            int insn = queue[--top];
-            Frame<V> f = frames[insn];
-            Subroutine subroutine = subroutines[insn];
-            queued[insn] = false;
+    /**
+     * Runs the control flow analysis loop until there are no more queued
+     * instructions.
+     *
+     * @param m the method to be analyzed.
+     * @param current a frame of the size of the method frames.
+     * @throws AnalyzerException if a problem occurs during the analysis.
+     */
+    private void analyze(final MethodNode m, final Frame<V> current)
+            throws AnalyzerException
+    {
+        Frame<V> handler = newFrame(m.maxLocals, m.maxStack);
+        Frame<V> walk1 = null;
+        Frame<V> walk2 = null;
+        if (blockStarts != null) {
+            walk1 = newFrame(m.maxLocals, m.maxStack);
+            walk2 = newFrame(m.maxLocals, m.maxStack);
+        }
+        next = -1;
+        int insn = 0;
+        Frame<V> f = null;
+        Subroutine subroutine = null;
+        while (next != -1 || !queue.isEmpty()) {
+            if (next != -1) {
+                // continues the basic block (sparse mode only)
+                insn = next;
+                f = fallthrough;
+                next = -1;
+            } else {
+                insn = queue.remove();
+                f = frames[insn];
+                subroutine = subroutines[insn];
+            }
+            if (blockStarts != null) {
+                fallthrough = f == walk1 ? walk2 : walk1;
+            }
 
             AbstractInsnNode insnNode = null;
             try {
@@ -300,8 +646,150 @@ public class Analyzer<V extends Value> implements Opcodes {
                         + ": " + e.getMessage(), e);
             }
         }
+    }
 
-        return frames;
+    /**
+     * Saves the instructions, the control flow graph and the exception
+     * handlers of the given method, which has just been analyzed, so that it
+     * can be analyzed again incrementally with {@link #reanalyze reanalyze}.
+     *
+     * @param m the analyzed method.
+     */
+    private void saveControlFlowGraph(final MethodNode m) {
+        analyzedInsns = insns.toArray();
+        successorIndex = new int[n + 1];
+        successors = new int[n + n / 4 + 4];
+        int size = 0;
+        for (int i = 0; i < n; ++i) {
+            successorIndex[i] = size;
+            for (int k = 0;; ++k) {
+                int successor = getSuccessor(i, k);
+                if (successor == -2) {
+                    break;
+                }
+                if (successor >= 0) {
+                    if (size == successors.length) {
+                        int[] newSuccessors = new int[2 * size];
+                        System.arraycopy(successors, 0, newSuccessors, 0, size);
+                        successors = newSuccessors;
+                    }
+                    successors[size++] = successor;
+                }
+            }
+        }
+        successorIndex[n] = size;
+        List<TryCatchBlockNode> tryCatchBlocks = m.tryCatchBlocks;
+        analyzedTryCatchBlocks = new Object[5 * tryCatchBlocks.size()];
+        for (int i = 0; i < tryCatchBlocks.size(); ++i) {
+            TryCatchBlockNode tcb = tryCatchBlocks.get(i);
+            analyzedTryCatchBlocks[5 * i] = tcb;
+            analyzedTryCatchBlocks[5 * i + 1] = tcb.start;
+            analyzedTryCatchBlocks[5 * i + 2] = tcb.end;
+            analyzedTryCatchBlocks[5 * i + 3] = tcb.handler;
+            analyzedTryCatchBlocks[5 * i + 4] = tcb.type;
+        }
+        analyzedMaxLocals = m.maxLocals;
+        analyzedMaxStack = m.maxStack;
+        analyzed = m;
+    }
+
+    /**
+     * Returns <tt>true</tt> if the exception handlers of the given method are
+     * the same as at the end of its last analysis.
+     *
+     * @param m the last analyzed method.
+     * @return <tt>true</tt> if the exception handlers of the given method have
+     *         not changed since its last analysis.
+     */
+    private boolean isSameTryCatchBlocks(final MethodNode m) {
+        List<TryCatchBlockNode> tryCatchBlocks = m.tryCatchBlocks;
+        if (5 * tryCatchBlocks.size() != analyzedTryCatchBlocks.length) {
+            return false;
+        }
+        for (int i = 0; i < tryCatchBlocks.size(); ++i) {
+            TryCatchBlockNode tcb = tryCatchBlocks.get(i);
+            if (analyzedTryCatchBlocks[5 * i] != tcb
+                    || analyzedTryCatchBlocks[5 * i + 1] != tcb.start
+                    || analyzedTryCatchBlocks[5 * i + 2] != tcb.end
+                    || analyzedTryCatchBlocks[5 * i + 3] != tcb.handler
+                    || analyzedTryCatchBlocks[5 * i + 4] != tcb.type)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Computes the instructions whose frame must be stored in sparse mode,
+     * i.e. the first instruction, the targets of jump and switch instructions,
+     * the instructions that follow them or that follow instructions which do
+     * not fall through, the exception handlers and the instructions for which
+     * {@link #isFrameKept isFrameKept} returns <tt>true</tt>.
+     *
+     * @param m the method to be analyzed.
+     */
+    private void findBlockStarts(final MethodNode m) {
+        blockStarts = new boolean[n];
+        blockStarts[0] = true;
+        for (int i = 0; i < m.tryCatchBlocks.size(); ++i) {
+            TryCatchBlockNode tcb = m.tryCatchBlocks.get(i);
+            blockStarts[insns.indexOf(tcb.handler)] = true;
+        }
+        for (int i = 0; i < n; ++i) {
+            AbstractInsnNode node = insns.get(i);
+            boolean end = true;
+            if (node instanceof JumpInsnNode) {
+                blockStarts[insns.indexOf(((JumpInsnNode) node).label)] = true;
+            } else if (node instanceof TableSwitchInsnNode) {
+                TableSwitchInsnNode tsnode = (TableSwitchInsnNode) node;
+                blockStarts[insns.indexOf(tsnode.dflt)] = true;
+                for (int j = 0; j < tsnode.labels.size(); ++j) {
+                    blockStarts[insns.indexOf(tsnode.labels.get(j))] = true;
+                }
+            } else if (node instanceof LookupSwitchInsnNode) {
+                LookupSwitchInsnNode lsnode = (LookupSwitchInsnNode) node;
+                blockStarts[insns.indexOf(lsnode.dflt)] = true;
+                for (int j = 0; j < lsnode.labels.size(); ++j) {
+                    blockStarts[insns.indexOf(lsnode.labels.get(j))] = true;
+                }
+            } else {
+                int opcode = node.getOpcode();
+                end = opcode == ATHROW || opcode == RET
+                        || (opcode >= IRETURN && opcode <= RETURN);
+            }
+            if (end && i + 1 < n) {
+                blockStarts[i + 1] = true;
+            }
+            if (isFrameKept(i)) {
+                blockStarts[i] = true;
+            }
+        }
+    }
+
+    /**
+     * Returns a successor of the given instruction in the control flow graph.
+     *
+     * @param insn an instruction index.
+     * @param k the index of the successor to be returned.
+     * @return the index of the k-th successor of the given instruction, -1 if
+     *         this successor does not exist but the next ones may exist, or -2
+     *         if there are no more successors.
+     */
+    private int getSuccessor(final int insn, final int k) {
+        int successor = InsnQueue.getNormalSuccessor(insns.get(insn),
+                insns,
+                insn,
+                k);
+        if (successor >= -1) {
+            return successor;
+        }
+        int i = -2 - successor;
+        List<TryCatchBlockNode> insnHandlers = handlers[insn];
+        if (insnHandlers != null && i < insnHandlers.size()) {
+            return insns.indexOf(insnHandlers.get(i).handler);
+        }
+        return -2;
     }
 
     private void findSubroutine(int insn, final Subroutine sub, final List<AbstractInsnNode> calls)
@@ -379,12 +867,67 @@ public class Analyzer<V extends Value> implements Opcodes {
      *         equal to the number of instructions (and labels) of the method. A
      *         given frame is <tt>null</tt> if the corresponding instruction
      *         cannot be reached, or if an error occured during the analysis of
-     *         the method.
+     *         the method. In sparse mode, only the stored frames are returned.
      */
     public Frame<V>[] getFrames() {
         return frames;
     }
 
+    /**
+     * Returns the symbolic stack frame of the given instruction of the last
+     * recently analyzed method. In sparse mode, frames that are not stored are
+     * recomputed from the frame at the beginning of their basic block, which
+     * is fast if the instructions of a block are requested in order. The
+     * interpreter is called again for these instructions.
+     *
+     * @param insn the index of an instruction of the last recently analyzed
+     *        method.
+     * @return the symbolic state of the execution stack frame before the given
+     *         instruction, or <tt>null</tt> if this instruction cannot be
+     *         reached. In sparse mode, the returned frame must not be modified.
+     * @throws AnalyzerException if a problem occurs while recomputing the
+     *         frame.
+     */
+    public Frame<V> getFrame(final int insn) throws AnalyzerException {
+        if (blockStarts == null || blockStarts[insn]) {
+            return frames[insn];
+        }
+        int start = insn;
+        while (!blockStarts[start]) {
+            --start;
+        }
+        if (frames[start] == null) {
+            return null;
+        }
+        int i;
+        Frame<V> f;
+        if (cachedFrame != null && cachedInsn > start && cachedInsn <= insn) {
+            i = cachedInsn;
+            f = newFrame(cachedFrame);
+        } else {
+            i = start;
+            f = newFrame(frames[start]);
+        }
+        for (; i < insn; ++i) {
+            AbstractInsnNode insnNode = insns.get(i);
+            int insnType = insnNode.getType();
+            if (insnType != AbstractInsnNode.LABEL
+                    && insnType != AbstractInsnNode.LINE
+                    && insnType != AbstractInsnNode.FRAME)
+            {
+                try {
+                    f.execute(insnNode, interpreter);
+                } catch (AnalyzerException e) {
+                    throw new AnalyzerException(e.node, "Error at instruction "
+                            + i + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        cachedInsn = insn;
+        cachedFrame = f;
+        return f;
+    }
+
     /**
      * Returns the exception handlers for the given instruction.
      *
@@ -485,6 +1028,19 @@ public class Analyzer<V extends Value> implements Opcodes {
         return newControlFlowExceptionEdge(insn, insns.indexOf(tcb.handler));
     }
 
+    /**
+     * Returns <tt>true</tt> if the frame of the given instruction must be
+     * stored in sparse mode, even if this instruction does not start a basic
+     * block. The default implementation of this method returns <tt>false</tt>.
+     *
+     * @param insn an instruction index.
+     * @return <tt>true</tt> if the frame of the given instruction must be
+     *         stored.
+     */
+    protected boolean isFrameKept(final int insn) {
+        return false;
+    }
+
     // -------------------------------------------------------------------------
 
     private void merge(
@@ -492,6 +1048,12 @@ public class Analyzer<V extends Value> implements Opcodes {
         final Frame<V> frame,
         final Subroutine subroutine) throws AnalyzerException
     {
+        if (blockStarts != null && !blockStarts[insn]) {
+            // falls through inside a basic block: no need to store the frame
+            fallthrough.init(frame);
+            next = insn;
+            return;
+        }
         Frame<V> oldFrame = frames[insn];
         Subroutine oldSubroutine = subroutines[insn];
         boolean changes;
@@ -513,9 +1075,8 @@ public class Analyzer<V extends Value> implements Opcodes {
                 changes |= oldSubroutine.merge(subroutine);
             }
         }
-        if (changes && !queued[insn]) {
-            queued[insn] = true;
-            queue[top++] = insn;
+        if (changes) {
+            queue.add(insn);
         }
     }
 
@@ -542,9 +1103,8 @@ public class Analyzer<V extends Value> implements Opcodes {
         if (oldSubroutine != null && subroutineBeforeJSR != null) {
             changes |= oldSubroutine.merge(subroutineBeforeJSR);
         }
-        if (changes && !queued[insn]) {
-            queued[insn] = true;
-            queue[top++] = insn;
+        if (changes) {
+            queue.add(insn);
         }
     }
 }
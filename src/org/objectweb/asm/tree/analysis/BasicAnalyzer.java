@@ -0,0 +1,1199 @@
+/***
+ * ASM: a very small and fast Java bytecode manipulation framework
+ * Copyright (c) 2000-2011 INRIA, France Telecom
+ * Copyright (c) 2011 Google
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.objectweb.asm.tree.analysis;
+
+import java.util.List;
+
+import org.objectweb.asm.ConstantDynamic;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.FieldInsnNode;
+import org.objectweb.asm.tree.IincInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.IntInsnNode;
+import org.objectweb.asm.tree.InvokeDynamicInsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.LookupSwitchInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.MultiANewArrayInsnNode;
+import org.objectweb.asm.tree.TableSwitchInsnNode;
+import org.objectweb.asm.tree.TryCatchBlockNode;
+import org.objectweb.asm.tree.VarInsnNode;
+
+/**
+ * A semantic bytecode analyzer that computes the same frames as an
+ * {@link Analyzer} using a {@link BasicVerifier}, and that detects the same
+ * errors, but without allocating any {@link Frame} or {@link Value} object.
+ * The local variables and operand stack of each frame are stored in an
+ * <tt>int</tt> array, each slot containing one of the {@link #UNINITIALIZED},
+ * {@link #INT}, {@link #FLOAT}, {@link #LONG}, {@link #DOUBLE},
+ * {@link #REFERENCE} or {@link #RETURNADDRESS} type codes, which correspond to
+ * the {@link BasicValue} constants. Methods containing JSR instructions are
+ * analyzed with an {@link Analyzer} and a {@link BasicVerifier}, and the
+ * resulting frames are then converted to this form.
+ */
+public class BasicAnalyzer implements Opcodes {
+
+    /**
+     * The type code of {@link BasicValue#UNINITIALIZED_VALUE}.
+     */
+    public static final int UNINITIALIZED = 0;
+
+    /**
+     * The type code of {@link BasicValue#INT_VALUE}.
+     */
+    public static final int INT = 1;
+
+    /**
+     * The type code of {@link BasicValue#FLOAT_VALUE}.
+     */
+    public static final int FLOAT = 2;
+
+    /**
+     * The type code of {@link BasicValue#LONG_VALUE}.
+     */
+    public static final int LONG = 3;
+
+    /**
+     * The type code of {@link BasicValue#DOUBLE_VALUE}.
+     */
+    public static final int DOUBLE = 4;
+
+    /**
+     * The type code of {@link BasicValue#REFERENCE_VALUE}.
+     */
+    public static final int REFERENCE = 5;
+
+    /**
+     * The type code of {@link BasicValue#RETURNADDRESS_VALUE}.
+     */
+    public static final int RETURNADDRESS = 6;
+
+    /**
+     * The pseudo type code of the void type, which is never stored in a frame.
+     */
+    private static final int VOID = -1;
+
+    /**
+     * The {@link BasicValue} corresponding to each type code.
+     */
+    private static final BasicValue[] VALUES = {
+        BasicValue.UNINITIALIZED_VALUE,
+        BasicValue.INT_VALUE,
+        BasicValue.FLOAT_VALUE,
+        BasicValue.LONG_VALUE,
+        BasicValue.DOUBLE_VALUE,
+        BasicValue.REFERENCE_VALUE,
+        BasicValue.RETURNADDRESS_VALUE };
+
+    private InsnList insns;
+
+    /**
+     * The frame of each instruction, or <tt>null</tt> for the unreachable
+     * instructions. Each frame contains the local variables followed by the
+     * operand stack, and its length is therefore the number of local variables
+     * plus the stack size.
+     */
+    private int[][] frames;
+
+    /**
+     * The number of local variables of the analyzed method.
+     */
+    private int locals;
+
+    /**
+     * The maximum stack size of the analyzed method.
+     */
+    private int maxStack;
+
+    /**
+     * The type code of the return type of the analyzed method.
+     */
+    private int returnType;
+
+    /**
+     * The start, end and handler instruction indexes of each exception
+     * handler, or <tt>null</tt> if there is no exception handler.
+     */
+    private int[] handlers;
+
+    /**
+     * The local variables and operand stack of the instruction being
+     * executed.
+     */
+    private int[] values;
+
+    /**
+     * The stack size of the instruction being executed.
+     */
+    private int top;
+
+    /**
+     * The instructions to be processed.
+     */
+    private InsnQueue queue;
+
+    /**
+     * Analyzes the given method.
+     *
+     * @param owner the internal name of the class to which the method belongs.
+     * @param m the method to be analyzed.
+     * @return the type codes of the local variables followed by the operand
+     *         stack slots at each bytecode instruction of the method. The size
+     *         of the returned array is equal to the number of instructions
+     *         (and labels) of the method. A given frame is <tt>null</tt> if and
+     *         only if the corresponding instruction cannot be reached (dead
+     *         code).
+     * @throws AnalyzerException if a problem occurs during the analysis.
+     */
+    public int[][] analyze(final String owner, final MethodNode m)
+            throws AnalyzerException
+    {
+        locals = m.maxLocals;
+        maxStack = m.maxStack;
+        if ((m.access & (ACC_ABSTRACT | ACC_NATIVE)) != 0) {
+            frames = new int[0][];
+            return frames;
+        }
+        int n = m.instructions.size();
+        insns = m.instructions;
+        frames = new int[n][];
+        AbstractInsnNode[] nodes = insns.toArray();
+        for (int i = 0; i < n; ++i) {
+            if (nodes[i].getOpcode() == JSR) {
+                analyzeWithSubroutines(owner, m);
+                return frames;
+            }
+        }
+
+        List<TryCatchBlockNode> tryCatchBlocks = m.tryCatchBlocks;
+        handlers = null;
+        if (tryCatchBlocks.size() > 0) {
+            handlers = new int[3 * tryCatchBlocks.size()];
+            for (int i = 0; i < tryCatchBlocks.size(); ++i) {
+                TryCatchBlockNode tcb = tryCatchBlocks.get(i);
+                handlers[3 * i] = insns.indexOf(tcb.start);
+                handlers[3 * i + 1] = insns.indexOf(tcb.end);
+                handlers[3 * i + 2] = insns.indexOf(tcb.handler);
+            }
+        }
+        queue = InsnQueue.newInstance(nodes, insns, handlers);
+
+        // initializes the frame of the first instruction
+        values = new int[locals + maxStack];
+        top = 0;
+        returnType = getTypeCode(m.desc, m.desc.indexOf(')') + 1);
+        int local = 0;
+        if ((m.access & ACC_STATIC) == 0) {
+            setLocal(local++, REFERENCE);
+        }
+        for (int i = 1; m.desc.charAt(i) != ')'; i = getNextType(m.desc, i)) {
+            int type = getTypeCode(m.desc, i);
+            setLocal(local++, type);
+            if (type == LONG || type == DOUBLE) {
+                setLocal(local++, UNINITIALIZED);
+            }
+        }
+        while (local < locals) {
+            setLocal(local++, UNINITIALIZED);
+        }
+        merge(0);
+
+        // control flow analysis
+        while (!queue.isEmpty()) {
+            int insn = queue.remove();
+            int[] f = frames[insn];
+            System.arraycopy(f, 0, values, 0, f.length);
+            top = f.length - locals;
+
+            AbstractInsnNode insnNode = null;
+            try {
+                insnNode = nodes[insn];
+                int insnOpcode = insnNode.getOpcode();
+                int insnType = insnNode.getType();
+
+                if (insnType == AbstractInsnNode.LABEL
+                        || insnType == AbstractInsnNode.LINE
+                        || insnType == AbstractInsnNode.FRAME)
+                {
+                    merge(insn + 1);
+                } else {
+                    execute(insnNode);
+
+                    if (insnNode instanceof JumpInsnNode) {
+                        if (insnOpcode != GOTO) {
+                            merge(insn + 1);
+                        }
+                        merge(insns.indexOf(((JumpInsnNode) insnNode).label));
+                    } else if (insnNode instanceof LookupSwitchInsnNode) {
+                        LookupSwitchInsnNode lsi = (LookupSwitchInsnNode) insnNode;
+                        merge(insns.indexOf(lsi.dflt));
+                        for (int j = 0; j < lsi.labels.size(); ++j) {
+                            merge(insns.indexOf(lsi.labels.get(j)));
+                        }
+                    } else if (insnNode instanceof TableSwitchInsnNode) {
+                        TableSwitchInsnNode tsi = (TableSwitchInsnNode) insnNode;
+                        merge(insns.indexOf(tsi.dflt));
+                        for (int j = 0; j < tsi.labels.size(); ++j) {
+                            merge(insns.indexOf(tsi.labels.get(j)));
+                        }
+                    } else if (insnOpcode == RET) {
+                        throw new AnalyzerException(insnNode, "RET instruction outside of a sub routine");
+                    } else if (insnOpcode != ATHROW
+                            && (insnOpcode < IRETURN || insnOpcode > RETURN))
+                    {
+                        merge(insn + 1);
+                    }
+                }
+
+                if (handlers != null) {
+                    for (int i = 0; i < handlers.length; i += 3) {
+                        if (insn >= handlers[i] && insn < handlers[i + 1]) {
+                            mergeHandler(handlers[i + 2], f);
+                        }
+                    }
+                }
+            } catch (AnalyzerException e) {
+                throw new AnalyzerException(e.node, "Error at instruction " + insn
+                        + ": " + e.getMessage(), e);
+            } catch (Exception e) {
+                throw new AnalyzerException(insnNode, "Error at instruction " + insn
+                        + ": " + e.getMessage(), e);
+            }
+        }
+        values = null;
+        queue = null;
+        return frames;
+    }
+
+    /**
+     * Returns the frames computed by the last call to {@link #analyze
+     * analyze}.
+     *
+     * @return the type codes of the local variables followed by the operand
+     *         stack slots at each bytecode instruction of the method. A given
+     *         frame is <tt>null</tt> if the corresponding instruction cannot
+     *         be reached.
+     */
+    public int[][] getFrames() {
+        return frames;
+    }
+
+    /**
+     * Returns the number of local variables of the frames computed by the
+     * last call to {@link #analyze analyze}. The stack size of a frame is its
+     * length minus this number.
+     *
+     * @return the number of local variables of the analyzed method.
+     */
+    public int getLocals() {
+        return locals;
+    }
+
+    /**
+     * Returns the frame of the given instruction, in the form computed by an
+     * {@link Analyzer} using a {@link BasicVerifier}.
+     *
+     * @param insn the index of an instruction of the last analyzed method.
+     * @return the frame of this instruction, or <tt>null</tt> if this
+     *         instruction cannot be reached.
+     */
+    public Frame<BasicValue> getFrame(final int insn) {
+        int[] f = frames[insn];
+        if (f == null) {
+            return null;
+        }
+        Frame<BasicValue> frame = new Frame<BasicValue>(locals, maxStack);
+        frame.setReturn(getValue(returnType));
+        for (int i = 0; i < locals; ++i) {
+            frame.setLocal(i, VALUES[f[i]]);
+        }
+        for (int i = locals; i < f.length; ++i) {
+            frame.push(VALUES[f[i]]);
+        }
+        return frame;
+    }
+
+    /**
+     * Returns the {@link BasicValue} corresponding to the given type code.
+     *
+     * @param type a type code.
+     * @return the {@link BasicValue} corresponding to the given type code, or
+     *         <tt>null</tt> if it does not correspond to a value.
+     */
+    public static BasicValue getValue(final int type) {
+        return type < 0 || type >= VALUES.length ? null : VALUES[type];
+    }
+
+    /**
+     * Analyzes a method containing JSR instructions with an {@link Analyzer},
+     * and converts the computed frames to type codes.
+     */
+    private void analyzeWithSubroutines(final String owner, final MethodNode m)
+            throws AnalyzerException
+    {
+        returnType = getTypeCode(m.desc, m.desc.indexOf(')') + 1);
+        Frame<BasicValue>[] f = new Analyzer<BasicValue>(new BasicVerifier()).analyze(owner,
+                m);
+        for (int i = 0; i < f.length; ++i) {
+            if (f[i] != null) {
+                int[] frame = new int[locals + f[i].getStackSize()];
+                for (int j = 0; j < frame.length; ++j) {
+                    BasicValue v = j < locals
+                            ? f[i].getLocal(j)
+                            : f[i].getStack(j - locals);
+                    for (int k = 0; k < VALUES.length; ++k) {
+                        if (VALUES[k].equals(v)) {
+                            frame[j] = k;
+                            break;
+                        }
+                    }
+                }
+                frames[i] = frame;
+            }
+        }
+    }
+
+    /**
+     * Merges the current frame into the frame of the given instruction, and
+     * adds this instruction to the queue if its frame has changed.
+     */
+    private void merge(final int insn) throws AnalyzerException {
+        int[] oldFrame = frames[insn];
+        boolean changes;
+        if (oldFrame == null) {
+            oldFrame = new int[locals + top];
+            System.arraycopy(values, 0, oldFrame, 0, oldFrame.length);
+            frames[insn] = oldFrame;
+            changes = true;
+        } else {
+            if (oldFrame.length != locals + top) {
+                throw new AnalyzerException(null, "Incompatible stack heights");
+            }
+            changes = false;
+            for (int i = 0; i < oldFrame.length; ++i) {
+                if (oldFrame[i] != values[i] && oldFrame[i] != UNINITIALIZED) {
+                    oldFrame[i] = UNINITIALIZED;
+                    changes = true;
+                }
+            }
+        }
+        if (changes) {
+            queue.add(insn);
+        }
+    }
+
+    /**
+     * Merges the given frame, with its stack replaced with an exception
+     * reference, into the frame of the given exception handler.
+     */
+    private void mergeHandler(final int insn, final int[] f)
+            throws AnalyzerException
+    {
+        int[] oldFrame = frames[insn];
+        boolean changes;
+        if (oldFrame == null) {
+            if (maxStack < 1) {
+                throw new IndexOutOfBoundsException("Insufficient maximum stack size.");
+            }
+            oldFrame = new int[locals + 1];
+            System.arraycopy(f, 0, oldFrame, 0, locals);
+            oldFrame[locals] = REFERENCE;
+            frames[insn] = oldFrame;
+            changes = true;
+        } else {
+            if (oldFrame.length != locals + 1) {
+                throw new AnalyzerException(null, "Incompatible stack heights");
+            }
+            changes = false;
+            for (int i = 0; i < locals; ++i) {
+                if (oldFrame[i] != f[i] && oldFrame[i] != UNINITIALIZED) {
+                    oldFrame[i] = UNINITIALIZED;
+                    changes = true;
+                }
+            }
+            if (oldFrame[locals] != REFERENCE
+                    && oldFrame[locals] != UNINITIALIZED)
+            {
+                oldFrame[locals] = UNINITIALIZED;
+                changes = true;
+            }
+        }
+        if (changes) {
+            queue.add(insn);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Symbolic execution
+    // ------------------------------------------------------------------------
+
+    /**
+     * Simulates the execution of the given instruction on the current frame,
+     * with the same checks as {@link Frame#execute Frame.execute} and
+     * {@link BasicVerifier}.
+     */
+    private void execute(final AbstractInsnNode insn) throws AnalyzerException
+    {
+        int value1, value2, value3, value4;
+        int var;
+
+        switch (insn.getOpcode()) {
+            case NOP:
+                break;
+            case ACONST_NULL:
+                push(REFERENCE);
+                break;
+            case ICONST_M1:
+            case ICONST_0:
+            case ICONST_1:
+            case ICONST_2:
+            case ICONST_3:
+            case ICONST_4:
+            case ICONST_5:
+            case BIPUSH:
+            case SIPUSH:
+                push(INT);
+                break;
+            case LCONST_0:
+            case LCONST_1:
+                push(LONG);
+                break;
+            case FCONST_0:
+            case FCONST_1:
+            case FCONST_2:
+                push(FLOAT);
+                break;
+            case DCONST_0:
+            case DCONST_1:
+                push(DOUBLE);
+                break;
+            case LDC:
+                push(getConstantType(((LdcInsnNode) insn).cst));
+                break;
+            case ILOAD:
+                push(check(insn, null, INT, getLocal(((VarInsnNode) insn).var)));
+                break;
+            case LLOAD:
+                push(check(insn, null, LONG, getLocal(((VarInsnNode) insn).var)));
+                break;
+            case FLOAD:
+                push(check(insn, null, FLOAT, getLocal(((VarInsnNode) insn).var)));
+                break;
+            case DLOAD:
+                push(check(insn, null, DOUBLE, getLocal(((VarInsnNode) insn).var)));
+                break;
+            case ALOAD:
+                value1 = getLocal(((VarInsnNode) insn).var);
+                if (value1 != REFERENCE) {
+                    throw new AnalyzerException(insn,
+                            null,
+                            "an object reference",
+                            VALUES[value1]);
+                }
+                push(value1);
+                break;
+            case IALOAD:
+            case BALOAD:
+            case CALOAD:
+            case SALOAD:
+                binary(insn, REFERENCE, INT, INT);
+                break;
+            case LALOAD:
+                binary(insn, REFERENCE, INT, LONG);
+                break;
+            case FALOAD:
+                binary(insn, REFERENCE, INT, FLOAT);
+                break;
+            case DALOAD:
+                binary(insn, REFERENCE, INT, DOUBLE);
+                break;
+            case AALOAD:
+                binary(insn, REFERENCE, INT, REFERENCE);
+                break;
+            case ISTORE:
+                store(insn, check(insn, null, INT, pop()));
+                break;
+            case LSTORE:
+                store(insn, check(insn, null, LONG, pop()));
+                break;
+            case FSTORE:
+                store(insn, check(insn, null, FLOAT, pop()));
+                break;
+            case DSTORE:
+                store(insn, check(insn, null, DOUBLE, pop()));
+                break;
+            case ASTORE:
+                value1 = pop();
+                if (value1 != REFERENCE && value1 != RETURNADDRESS) {
+                    throw new AnalyzerException(insn,
+                            null,
+                            "an object reference or a return address",
+                            VALUES[value1]);
+                }
+                store(insn, value1);
+                break;
+            case IASTORE:
+            case BASTORE:
+            case CASTORE:
+            case SASTORE:
+                ternary(insn, INT);
+                break;
+            case LASTORE:
+                ternary(insn, LONG);
+                break;
+            case FASTORE:
+                ternary(insn, FLOAT);
+                break;
+            case DASTORE:
+                ternary(insn, DOUBLE);
+                break;
+            case AASTORE:
+                ternary(insn, REFERENCE);
+                break;
+            case POP:
+                if (getSize(pop()) == 2) {
+                    throw new AnalyzerException(insn, "Illegal use of POP");
+                }
+                break;
+            case POP2:
+                if (getSize(pop()) == 1) {
+                    if (getSize(pop()) != 1) {
+                        throw new AnalyzerException(insn, "Illegal use of POP2");
+                    }
+                }
+                break;
+            case DUP:
+                value1 = pop();
+                if (getSize(value1) != 1) {
+                    throw new AnalyzerException(insn, "Illegal use of DUP");
+                }
+                push(value1);
+                push(value1);
+                break;
+            case DUP_X1:
+                value1 = pop();
+                value2 = pop();
+                if (getSize(value1) != 1 || getSize(value2) != 1) {
+                    throw new AnalyzerException(insn, "Illegal use of DUP_X1");
+                }
+                push(value1);
+                push(value2);
+                push(value1);
+                break;
+            case DUP_X2:
+                value1 = pop();
+                if (getSize(value1) == 1) {
+                    value2 = pop();
+                    if (getSize(value2) == 1) {
+                        value3 = pop();
+                        if (getSize(value3) == 1) {
+                            push(value1);
+                            push(value3);
+                            push(value2);
+                            push(value1);
+                            break;
+                        }
+                    } else {
+                        push(value1);
+                        push(value2);
+                        push(value1);
+                        break;
+                    }
+                }
+                throw new AnalyzerException(insn, "Illegal use of DUP_X2");
+            case DUP2:
+                value1 = pop();
+                if (getSize(value1) == 1) {
+                    value2 = pop();
+                    if (getSize(value2) == 1) {
+                        push(value2);
+                        push(value1);
+                        push(value2);
+                        push(value1);
+                        break;
+                    }
+                } else {
+                    push(value1);
+                    push(value1);
+                    break;
+                }
+                throw new AnalyzerException(insn, "Illegal use of DUP2");
+            case DUP2_X1:
+                value1 = pop();
+                if (getSize(value1) == 1) {
+                    value2 = pop();
+                    if (getSize(value2) == 1) {
+                        value3 = pop();
+                        if (getSize(value3) == 1) {
+                            push(value2);
+                            push(value1);
+                            push(value3);
+                            push(value2);
+                            push(value1);
+                            break;
+                        }
+                    }
+                } else {
+                    value2 = pop();
+                    if (getSize(value2) == 1) {
+                        push(value1);
+                        push(value2);
+                        push(value1);
+                        break;
+                    }
+                }
+                throw new AnalyzerException(insn, "Illegal use of DUP2_X1");
+            case DUP2_X2:
+                value1 = pop();
+                if (getSize(value1) == 1) {
+                    value2 = pop();
+                    if (getSize(value2) == 1) {
+                        value3 = pop();
+                        if (getSize(value3) == 1) {
+                            value4 = pop();
+                            if (getSize(value4) == 1) {
+                                push(value2);
+                                push(value1);
+                                push(value4);
+                                push(value3);
+                                push(value2);
+                                push(value1);
+                                break;
+                            }
+                        } else {
+                            push(value2);
+                            push(value1);
+                            push(value3);
+                            push(value2);
+                            push(value1);
+                            break;
+                        }
+                    }
+                } else {
+                    value2 = pop();
+                    if (getSize(value2) == 1) {
+                        value3 = pop();
+                        if (getSize(value3) == 1) {
+                            push(value1);
+                            push(value3);
+                            push(value2);
+                            push(value1);
+                            break;
+                        }
+                    } else {
+                        push(value1);
+                        push(value2);
+                        push(value1);
+                        break;
+                    }
+                }
+                throw new AnalyzerException(insn, "Illegal use of DUP2_X2");
+            case SWAP:
+                value2 = pop();
+                value1 = pop();
+                if (getSize(value1) != 1 || getSize(value2) != 1) {
+                    throw new AnalyzerException(insn, "Illegal use of SWAP");
+                }
+                push(value2);
+                push(value1);
+                break;
+            case IADD:
+            case ISUB:
+            case IMUL:
+            case IDIV:
+            case IREM:
+            case ISHL:
+            case ISHR:
+            case IUSHR:
+            case IAND:
+            case IOR:
+            case IXOR:
+                binary(insn, INT, INT, INT);
+                break;
+            case LADD:
+            case LSUB:
+            case LMUL:
+            case LDIV:
+            case LREM:
+            case LAND:
+            case LOR:
+            case LXOR:
+                binary(insn, LONG, LONG, LONG);
+                break;
+            case LSHL:
+            case LSHR:
+            case LUSHR:
+                binary(insn, LONG, INT, LONG);
+                break;
+            case FADD:
+            case FSUB:
+            case FMUL:
+            case FDIV:
+            case FREM:
+                binary(insn, FLOAT, FLOAT, FLOAT);
+                break;
+            case DADD:
+            case DSUB:
+            case DMUL:
+            case DDIV:
+            case DREM:
+                binary(insn, DOUBLE, DOUBLE, DOUBLE);
+                break;
+            case INEG:
+            case I2B:
+            case I2C:
+            case I2S:
+                push(check(insn, null, INT, pop()));
+                break;
+            case LNEG:
+                push(check(insn, null, LONG, pop()));
+                break;
+            case FNEG:
+                push(check(insn, null, FLOAT, pop()));
+                break;
+            case DNEG:
+                push(check(insn, null, DOUBLE, pop()));
+                break;
+            case IINC:
+                var = ((IincInsnNode) insn).var;
+                setLocal(var, check(insn, null, INT, getLocal(var)));
+                break;
+            case I2L:
+                unary(insn, INT, LONG);
+                break;
+            case I2F:
+                unary(insn, INT, FLOAT);
+                break;
+            case I2D:
+                unary(insn, INT, DOUBLE);
+                break;
+            case L2I:
+                unary(insn, LONG, INT);
+                break;
+            case L2F:
+                unary(insn, LONG, FLOAT);
+                break;
+            case L2D:
+                unary(insn, LONG, DOUBLE);
+                break;
+            case F2I:
+                unary(insn, FLOAT, INT);
+                break;
+            case F2L:
+                unary(insn, FLOAT, LONG);
+                break;
+            case F2D:
+                unary(insn, FLOAT, DOUBLE);
+                break;
+            case D2I:
+                unary(insn, DOUBLE, INT);
+                break;
+            case D2L:
+                unary(insn, DOUBLE, LONG);
+                break;
+            case D2F:
+                unary(insn, DOUBLE, FLOAT);
+                break;
+            case LCMP:
+                binary(insn, LONG, LONG, INT);
+                break;
+            case FCMPL:
+            case FCMPG:
+                binary(insn, FLOAT, FLOAT, INT);
+                break;
+            case DCMPL:
+            case DCMPG:
+                binary(insn, DOUBLE, DOUBLE, INT);
+                break;
+            case IFEQ:
+            case IFNE:
+            case IFLT:
+            case IFGE:
+            case IFGT:
+            case IFLE:
+            case TABLESWITCH:
+            case LOOKUPSWITCH:
+                check(insn, null, INT, pop());
+                break;
+            case IF_ICMPEQ:
+            case IF_ICMPNE:
+            case IF_ICMPLT:
+            case IF_ICMPGE:
+            case IF_ICMPGT:
+            case IF_ICMPLE:
+                binary(insn, INT, INT, VOID);
+                break;
+            case IF_ACMPEQ:
+            case IF_ACMPNE:
+                binary(insn, REFERENCE, REFERENCE, VOID);
+                break;
+            case GOTO:
+                break;
+            case JSR:
+                push(RETURNADDRESS);
+                break;
+            case RET:
+                break;
+            case IRETURN:
+                returnValue(insn, check(insn, null, INT, pop()));
+                break;
+            case LRETURN:
+                returnValue(insn, check(insn, null, LONG, pop()));
+                break;
+            case FRETURN:
+                returnValue(insn, check(insn, null, FLOAT, pop()));
+                break;
+            case DRETURN:
+                returnValue(insn, check(insn, null, DOUBLE, pop()));
+                break;
+            case ARETURN:
+                returnValue(insn, checkReference(insn, pop()));
+                break;
+            case RETURN:
+                if (returnType != VOID) {
+                    throw new AnalyzerException(insn, "Incompatible return type");
+                }
+                break;
+            case GETSTATIC:
+                push(getTypeCode(((FieldInsnNode) insn).desc, 0));
+                break;
+            case PUTSTATIC:
+                check(insn, null, getTypeCode(((FieldInsnNode) insn).desc, 0), pop());
+                break;
+            case GETFIELD:
+                check(insn, null, REFERENCE, pop());
+                push(getTypeCode(((FieldInsnNode) insn).desc, 0));
+                break;
+            case PUTFIELD:
+                binary(insn,
+                        REFERENCE,
+                        getTypeCode(((FieldInsnNode) insn).desc, 0),
+                        VOID);
+                break;
+            case INVOKEVIRTUAL:
+            case INVOKESPECIAL:
+            case INVOKESTATIC:
+            case INVOKEINTERFACE:
+                invoke(insn,
+                        ((MethodInsnNode) insn).desc,
+                        insn.getOpcode() != INVOKESTATIC);
+                break;
+            case INVOKEDYNAMIC:
+                invoke(insn, ((InvokeDynamicInsnNode) insn).desc, false);
+                break;
+            case NEW:
+                push(REFERENCE);
+                break;
+            case NEWARRAY:
+                check(insn, null, INT, pop());
+                int operand = ((IntInsnNode) insn).operand;
+                if (operand < T_BOOLEAN || operand > T_LONG) {
+                    throw new AnalyzerException(insn, "Invalid array type");
+                }
+                push(REFERENCE);
+                break;
+            case ANEWARRAY:
+                unary(insn, INT, REFERENCE);
+                break;
+            case ARRAYLENGTH:
+                value1 = pop();
+                if (value1 != REFERENCE) {
+                    throw new AnalyzerException(insn,
+                            null,
+                            "an array reference",
+                            VALUES[value1]);
+                }
+                push(INT);
+                break;
+            case ATHROW:
+            case MONITORENTER:
+            case MONITOREXIT:
+            case IFNULL:
+            case IFNONNULL:
+                checkReference(insn, pop());
+                break;
+            case CHECKCAST:
+                push(checkReference(insn, pop()));
+                break;
+            case INSTANCEOF:
+                checkReference(insn, pop());
+                push(INT);
+                break;
+            case MULTIANEWARRAY:
+                var = ((MultiANewArrayInsnNode) insn).dims;
+                popValues(var);
+                for (int i = 0; i < var; ++i) {
+                    check(insn, null, INT, values[locals + top + i]);
+                }
+                push(REFERENCE);
+                break;
+            default:
+                throw new RuntimeException("Illegal opcode " + insn.getOpcode());
+        }
+    }
+
+    private void unary(
+        final AbstractInsnNode insn,
+        final int expected,
+        final int result) throws AnalyzerException
+    {
+        check(insn, null, expected, pop());
+        push(result);
+    }
+
+    private void binary(
+        final AbstractInsnNode insn,
+        final int expected1,
+        final int expected2,
+        final int result) throws AnalyzerException
+    {
+        int value2 = pop();
+        int value1 = pop();
+        check(insn, "First argument", expected1, value1);
+        check(insn, "Second argument", expected2, value2);
+        if (result != VOID) {
+            push(result);
+        }
+    }
+
+    private void ternary(final AbstractInsnNode insn, final int expected3)
+            throws AnalyzerException
+    {
+        int value3 = pop();
+        int value2 = pop();
+        int value1 = pop();
+        if (insn.getOpcode() != AASTORE && value1 != REFERENCE) {
+            throw new AnalyzerException(insn, "First argument", "a "
+                    + BasicValue.REFERENCE_VALUE + " array reference",
+                    VALUES[value1]);
+        }
+        check(insn, "Second argument", INT, value2);
+        check(insn, "Third argument", expected3, value3);
+    }
+
+    private void invoke(
+        final AbstractInsnNode insn,
+        final String desc,
+        final boolean hasOwner) throws AnalyzerException
+    {
+        int n = hasOwner ? 1 : 0;
+        int i = 1;
+        while (desc.charAt(i) != ')') {
+            i = getNextType(desc, i);
+            ++n;
+        }
+        popValues(n);
+        int v = locals + top;
+        if (hasOwner && values[v] != REFERENCE) {
+            throw new AnalyzerException(insn, "Method owner",
+                    BasicValue.REFERENCE_VALUE,
+                    VALUES[values[v]]);
+        }
+        int j = 0;
+        for (i = 1, v += hasOwner ? 1 : 0; desc.charAt(i) != ')'; i = getNextType(desc,
+                i), ++v)
+        {
+            ++j;
+            check(insn, "Argument " + j, getTypeCode(desc, i), values[v]);
+        }
+        int result = getTypeCode(desc, i + 1);
+        if (result != VOID) {
+            push(result);
+        }
+    }
+
+    private void store(final AbstractInsnNode insn, final int value) {
+        int var = ((VarInsnNode) insn).var;
+        setLocal(var, value);
+        if (getSize(value) == 2) {
+            setLocal(var + 1, UNINITIALIZED);
+        }
+        if (var > 0) {
+            int local = getLocal(var - 1);
+            if (getSize(local) == 2) {
+                setLocal(var - 1, UNINITIALIZED);
+            }
+        }
+    }
+
+    private void returnValue(final AbstractInsnNode insn, final int value)
+            throws AnalyzerException
+    {
+        if (value != returnType) {
+            throw new AnalyzerException(insn,
+                    "Incompatible return type",
+                    getValue(returnType),
+                    VALUES[value]);
+        }
+    }
+
+    private static int check(
+        final AbstractInsnNode insn,
+        final String msg,
+        final int expected,
+        final int value) throws AnalyzerException
+    {
+        if (value != expected) {
+            throw new AnalyzerException(insn, msg, VALUES[expected], VALUES[value]);
+        }
+        return value;
+    }
+
+    private static int checkReference(final AbstractInsnNode insn, final int value)
+            throws AnalyzerException
+    {
+        if (value != REFERENCE) {
+            throw new AnalyzerException(insn,
+                    null,
+                    "an object reference",
+                    VALUES[value]);
+        }
+        return value;
+    }
+
+    private int getLocal(final int i) {
+        if (i >= locals) {
+            throw new IndexOutOfBoundsException("Trying to access an inexistant local variable");
+        }
+        return values[i];
+    }
+
+    private void setLocal(final int i, final int value) {
+        if (i >= locals) {
+            throw new IndexOutOfBoundsException("Trying to access an inexistant local variable "+i);
+        }
+        values[i] = value;
+    }
+
+    private int pop() {
+        if (top == 0) {
+            throw new IndexOutOfBoundsException("Cannot pop operand off an empty stack.");
+        }
+        return values[--top + locals];
+    }
+
+    /**
+     * Pops the given number of values. The popped values remain available
+     * in {@link #values}, from the new stack top.
+     */
+    private void popValues(final int n) {
+        if (top < n) {
+            throw new IndexOutOfBoundsException("Cannot pop operand off an empty stack.");
+        }
+        top -= n;
+    }
+
+    private void push(final int value) {
+        if (top + locals >= values.length) {
+            throw new IndexOutOfBoundsException("Insufficient maximum stack size.");
+        }
+        values[top++ + locals] = value;
+    }
+
+    private static int getSize(final int value) {
+        return value == LONG || value == DOUBLE ? 2 : 1;
+    }
+
+    // ------------------------------------------------------------------------
+    // Type descriptors
+    // ------------------------------------------------------------------------
+
+    /**
+     * Returns the type code of the given LDC constant.
+     */
+    private static int getConstantType(final Object cst) {
+        if (cst instanceof Integer) {
+            return INT;
+        } else if (cst instanceof Float) {
+            return FLOAT;
+        } else if (cst instanceof Long) {
+            return LONG;
+        } else if (cst instanceof Double) {
+            return DOUBLE;
+        } else if (cst instanceof String || cst instanceof Handle) {
+            return REFERENCE;
+        } else if (cst instanceof Type) {
+            int sort = ((Type) cst).getSort();
+            if (sort == Type.OBJECT || sort == Type.ARRAY
+                    || sort == Type.METHOD)
+            {
+                return REFERENCE;
+            }
+        } else if (cst instanceof ConstantDynamic) {
+            return getTypeCode(((ConstantDynamic) cst).getDesc(), 0);
+        }
+        throw new IllegalArgumentException("Illegal LDC constant " + cst);
+    }
+
+    /**
+     * Returns the type code of the type descriptor starting at the given
+     * offset of the given string.
+     */
+    private static int getTypeCode(final String desc, final int off) {
+        switch (desc.charAt(off)) {
+            case 'V':
+                return VOID;
+            case 'Z':
+            case 'C':
+            case 'B':
+            case 'S':
+            case 'I':
+                return INT;
+            case 'F':
+                return FLOAT;
+            case 'J':
+                return LONG;
+            case 'D':
+                return DOUBLE;
+            default:
+                return REFERENCE;
+        }
+    }
+
+    /**
+     * Returns the offset of the type descriptor that follows the one starting
+     * at the given offset of the given string.
+     */
+    private static int getNextType(final String desc, int off) {
+        while (desc.charAt(off) == '[') {
+            ++off;
+        }
+        if (desc.charAt(off) == 'L') {
+            off = desc.indexOf(';', off);
+        }
+        return off + 1;
+    }
+}
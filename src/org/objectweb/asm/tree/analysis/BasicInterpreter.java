@@ -31,6 +31,7 @@ package org.objectweb.asm.tree.analysis;
 
 import java.util.List;
 
+import org.objectweb.asm.ConstantDynamic;
 import org.objectweb.asm.Handle;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
@@ -140,6 +141,8 @@ public class BasicInterpreter extends Interpreter<BasicValue> implements
                     }
                 } else if (cst instanceof Handle) {
                     return newValue(Type.getObjectType("java/lang/invoke/MethodHandle"));
+                } else if (cst instanceof ConstantDynamic) {
+                    return newValue(Type.getType(((ConstantDynamic) cst).getDesc()));
                 } else {
                     throw new IllegalArgumentException("Illegal LDC constant " + cst);
                 }
@@ -0,0 +1,311 @@
+/***
+ * ASM: a very small and fast Java bytecode manipulation framework
+ * Copyright (c) 2000-2011 INRIA, France Telecom
+ * Copyright (c) 2011 Google
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.objectweb.asm.tree.analysis;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.objectweb.asm.ClassHeaderReader;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * A class hierarchy built from class files instead of loaded classes. The
+ * super class, the interfaces and the interface flag of each class are read
+ * from the class file headers with a {@link ClassHeaderReader}. Classes can be added
+ * explicitly, from byte arrays, jars or directories. Other classes are read on
+ * demand, as resources of a class loader, without being loaded. The hierarchy
+ * is memoized, and can be shared by several {@link SimpleVerifier}, in several
+ * threads.
+ */
+public class ClassHierarchy {
+
+    private static final Type OBJECT_TYPE = Type.getObjectType("java/lang/Object");
+
+    /**
+     * The classes of this hierarchy, indexed by internal name.
+     */
+    private final ConcurrentMap<String, ClassInfo> classes;
+
+    /**
+     * The loader used to find the class files of the classes that have not
+     * been added explicitly, or <tt>null</tt>.
+     */
+    private final ClassLoader loader;
+
+    /**
+     * Constructs a new {@link ClassHierarchy} that reads the class files of
+     * the classes that have not been added explicitly with the class loader of
+     * this class.
+     */
+    public ClassHierarchy() {
+        this(ClassHierarchy.class.getClassLoader());
+    }
+
+    /**
+     * Constructs a new {@link ClassHierarchy}.
+     *
+     * @param loader the loader used to find the class files of the classes
+     *        that have not been added explicitly, or <tt>null</tt> to use only
+     *        the classes added explicitly.
+     */
+    public ClassHierarchy(final ClassLoader loader) {
+        this.classes = new ConcurrentHashMap<String, ClassInfo>();
+        this.loader = loader;
+    }
+
+    /**
+     * Adds a class to this hierarchy.
+     *
+     * @param b the bytecode of the class to be added.
+     */
+    public void add(final byte[] b) {
+        add(new ClassHeaderReader(b));
+    }
+
+    /**
+     * Adds the classes contained in a jar file, or in a directory and its sub
+     * directories, to this hierarchy.
+     *
+     * @param file a jar or zip file, or a directory.
+     * @throws IOException if a problem occurs while reading the classes.
+     */
+    public void add(final File file) throws IOException {
+        if (file.isDirectory()) {
+            File[] files = file.listFiles();
+            for (int i = 0; i < files.length; ++i) {
+                if (files[i].isDirectory()
+                        || files[i].getName().endsWith(".class"))
+                {
+                    add(files[i]);
+                }
+            }
+        } else if (file.getName().endsWith(".class")) {
+            InputStream is = new FileInputStream(file);
+            try {
+                add(new ClassHeaderReader(is));
+            } finally {
+                is.close();
+            }
+        } else {
+            ZipFile zip = new ZipFile(file);
+            try {
+                Enumeration<? extends ZipEntry> entries = zip.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry e = entries.nextElement();
+                    if (e.getName().endsWith(".class")) {
+                        InputStream is = zip.getInputStream(e);
+                        try {
+                            add(new ClassHeaderReader(is));
+                        } finally {
+                            is.close();
+                        }
+                    }
+                }
+            } finally {
+                zip.close();
+            }
+        }
+    }
+
+    private ClassInfo add(final ClassHeaderReader cr) {
+        ClassInfo info = new ClassInfo(cr.getSuperName(),
+                cr.getInterfaces(),
+                (cr.getAccess() & Opcodes.ACC_INTERFACE) != 0);
+        ClassInfo old = classes.putIfAbsent(cr.getClassName(), info);
+        return old == null ? info : old;
+    }
+
+    /**
+     * Returns <tt>true</tt> if the given type is an interface.
+     *
+     * @param t an object or array type.
+     * @return <tt>true</tt> if the given type is an interface.
+     */
+    public boolean isInterface(final Type t) {
+        if (t.getSort() == Type.ARRAY) {
+            return false;
+        }
+        return getClassInfo(t.getInternalName()).isInterface;
+    }
+
+    /**
+     * Returns the super class of the given type.
+     *
+     * @param t an object or array type.
+     * @return the super class of the given type, or <tt>null</tt> if it is
+     *         java.lang.Object or an interface.
+     */
+    public Type getSuperClass(final Type t) {
+        if (t.getSort() == Type.ARRAY) {
+            return OBJECT_TYPE;
+        }
+        ClassInfo info = getClassInfo(t.getInternalName());
+        if (info.isInterface || info.superName == null) {
+            return null;
+        }
+        return Type.getObjectType(info.superName);
+    }
+
+    /**
+     * Returns <tt>true</tt> if a value of type <tt>u</tt> can be assigned to a
+     * variable of type <tt>t</tt>. As in {@link SimpleVerifier}, an interface
+     * type <tt>t</tt> is considered as java.lang.Object. This does not apply
+     * to the element types of array types, which are compared with the Java
+     * language rules (e.g. a <tt>String[]</tt> value cannot be assigned to a
+     * <tt>Runnable[]</tt> variable).
+     *
+     * @param t an object or array type.
+     * @param u another object or array type.
+     * @return <tt>true</tt> if a value of type <tt>u</tt> can be assigned to a
+     *         variable of type <tt>t</tt>.
+     */
+    public boolean isAssignableFrom(final Type t, final Type u) {
+        if (t.getSort() != Type.ARRAY && isInterface(t)) {
+            return true;
+        }
+        return isSubtype(t, u);
+    }
+
+    /**
+     * Returns <tt>true</tt> if the type <tt>u</tt> is a sub type of the type
+     * <tt>t</tt>, i.e. if <tt>t</tt> is a super class, an implemented
+     * interface or a super type of the same kind of array as <tt>u</tt>.
+     *
+     * @param t an object or array type.
+     * @param u another object or array type.
+     * @return <tt>true</tt> if <tt>u</tt> is a sub type of <tt>t</tt>.
+     */
+    private boolean isSubtype(final Type t, final Type u) {
+        if (t.equals(u) || t.equals(OBJECT_TYPE)) {
+            return true;
+        }
+        if (u.getSort() == Type.ARRAY) {
+            if (t.getSort() == Type.ARRAY) {
+                Type te = Type.getType(t.getDescriptor().substring(1));
+                Type ue = Type.getType(u.getDescriptor().substring(1));
+                if (te.getSort() < Type.ARRAY || ue.getSort() < Type.ARRAY) {
+                    return false;
+                }
+                return isSubtype(te, ue);
+            }
+            String name = t.getInternalName();
+            return name.equals("java/lang/Cloneable")
+                    || name.equals("java/io/Serializable");
+        }
+        if (t.getSort() == Type.ARRAY) {
+            return false;
+        }
+        if (isInterface(t)) {
+            return isImplemented(t.getInternalName(), u.getInternalName());
+        }
+        Type s = u;
+        while (s != null) {
+            if (s.equals(t)) {
+                return true;
+            }
+            s = getSuperClass(s);
+        }
+        return false;
+    }
+
+    /**
+     * Returns <tt>true</tt> if the given class or interface implements or
+     * extends, directly or not, the given interface.
+     *
+     * @param itf the internal name of an interface.
+     * @param name the internal name of a class or interface.
+     * @return <tt>true</tt> if <tt>name</tt> is a sub type of <tt>itf</tt>.
+     */
+    private boolean isImplemented(final String itf, final String name) {
+        ClassInfo info = getClassInfo(name);
+        for (int i = 0; i < info.interfaces.length; ++i) {
+            if (info.interfaces[i].equals(itf)
+                    || isImplemented(itf, info.interfaces[i]))
+            {
+                return true;
+            }
+        }
+        return info.superName != null && isImplemented(itf, info.superName);
+    }
+
+    private ClassInfo getClassInfo(final String name) {
+        ClassInfo info = classes.get(name);
+        if (info == null) {
+            InputStream is = loader == null
+                    ? null
+                    : loader.getResourceAsStream(name + ".class");
+            if (is == null) {
+                throw new RuntimeException("java.lang.ClassNotFoundException: "
+                        + name.replace('/', '.'));
+            }
+            try {
+                try {
+                    info = add(new ClassHeaderReader(is));
+                } finally {
+                    is.close();
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e.toString());
+            }
+        }
+        return info;
+    }
+
+    /**
+     * The super class, interfaces and interface flag of a class.
+     */
+    private static final class ClassInfo {
+
+        final String superName;
+
+        final String[] interfaces;
+
+        final boolean isInterface;
+
+        ClassInfo(
+            final String superName,
+            final String[] interfaces,
+            final boolean isInterface)
+        {
+            this.superName = superName;
+            this.interfaces = interfaces;
+            this.isInterface = isInterface;
+        }
+    }
+}
@@ -0,0 +1,335 @@
+/***
+ * ASM: a very small and fast Java bytecode manipulation framework
+ * Copyright (c) 2000-2011 INRIA, France Telecom
+ * Copyright (c) 2011 Google
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.objectweb.asm.tree.analysis;
+
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LookupSwitchInsnNode;
+import org.objectweb.asm.tree.TableSwitchInsnNode;
+
+/**
+ * The set of instructions to be processed by the control flow analysis loop
+ * of {@link Analyzer}, {@link BasicAnalyzer} and {@link SourceAnalyzer}. By
+ * default the instructions are removed from this set in LIFO order. After a
+ * call to {@link #findReversePostorder findReversePostorder}, they are removed
+ * in a reverse postorder of the reachable instructions.
+ */
+abstract class InsnQueue implements Opcodes {
+
+    /**
+     * Whether each instruction is in this set or not.
+     */
+    private final boolean[] queued;
+
+    /**
+     * The queued instructions, in LIFO order mode.
+     */
+    private final int[] stack;
+
+    /**
+     * The reachable instructions in reverse postorder, or <tt>null</tt> if the
+     * instructions are removed from this set in LIFO order.
+     */
+    private int[] order;
+
+    /**
+     * The index in {@link #order} of each instruction, or -1.
+     */
+    private int[] rank;
+
+    /**
+     * A lower bound of the index in {@link #order} of the queued instructions.
+     */
+    private int first;
+
+    /**
+     * The number of queued instructions.
+     */
+    private int size;
+
+    /**
+     * Constructs a new, empty {@link InsnQueue}, in LIFO order mode.
+     *
+     * @param n the number of instructions of the method to be analyzed.
+     */
+    InsnQueue(final int n) {
+        queued = new boolean[n];
+        stack = new int[n];
+    }
+
+    /**
+     * Returns a successor of the given instruction in the control flow graph.
+     *
+     * @param insn an instruction index.
+     * @param k the index of the successor to be returned.
+     * @return the index of the k-th successor of the given instruction, -1 if
+     *         this successor does not exist but the next ones may exist, or -2
+     *         if there are no more successors.
+     */
+    abstract int getSuccessor(int insn, int k);
+
+    /**
+     * Computes a reverse postorder of the reachable instructions, and uses it
+     * as the order in which the instructions are removed from this set. With
+     * this order, the frame of an instruction is generally computed after the
+     * frames of all its predecessors, except for loops, which reduces the
+     * number of times each instruction is processed. This method must be
+     * called while this set is empty, and must not be used for methods
+     * containing JSR instructions.
+     */
+    void findReversePostorder() {
+        int n = queued.length;
+        int[] postorder = new int[n];
+        int[] edges = new int[n];
+        int count = 0;
+        int top = 0;
+        rank = new int[n];
+        if (n > 0) {
+            stack[top++] = 0;
+            rank[0] = 1;
+        }
+        while (top > 0) {
+            int insn = stack[top - 1];
+            int successor = getSuccessor(insn, edges[insn]++);
+            if (successor == -2) {
+                postorder[count++] = insn;
+                --top;
+            } else if (successor >= 0 && rank[successor] == 0) {
+                rank[successor] = 1;
+                stack[top++] = successor;
+            }
+        }
+        order = new int[count];
+        for (int i = 0; i < n; ++i) {
+            rank[i] = -1;
+        }
+        for (int i = 0; i < count; ++i) {
+            int insn = postorder[count - 1 - i];
+            order[i] = insn;
+            rank[insn] = i;
+        }
+        first = 0;
+    }
+
+    /**
+     * Returns <tt>true</tt> if the given instruction is reachable from the
+     * first one. This method can only be used after a call to
+     * {@link #findReversePostorder findReversePostorder}.
+     *
+     * @param insn an instruction index.
+     * @return <tt>true</tt> if the given instruction is reachable.
+     */
+    boolean isReachable(final int insn) {
+        return rank[insn] != -1;
+    }
+
+    /**
+     * Returns <tt>true</tt> if there is no instruction to be processed.
+     *
+     * @return <tt>true</tt> if there is no instruction to be processed.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns <tt>true</tt> if the given instruction is to be processed.
+     *
+     * @param insn an instruction index.
+     * @return <tt>true</tt> if the given instruction is in this set.
+     */
+    boolean contains(final int insn) {
+        return queued[insn];
+    }
+
+    /**
+     * Adds an instruction to the set of instructions to be processed, if it
+     * is not already in this set.
+     *
+     * @param insn the index of a reachable instruction.
+     */
+    void add(final int insn) {
+        if (!queued[insn]) {
+            queued[insn] = true;
+            if (order == null) {
+                stack[size] = insn;
+            } else if (rank[insn] < first) {
+                first = rank[insn];
+            }
+            ++size;
+        }
+    }
+
+    /**
+     * Removes an instruction from the set of instructions to be processed. In
+     * reverse postorder mode, the returned instruction is the first queued
+     * one in this order.
+     *
+     * @return an instruction index.
+     */
+    int remove() {
+        int insn;
+        if (order == null) {
+            insn = stack[size - 1];
+        } else {
+            while (!queued[order[first]]) {
+                ++first;
+            }
+            insn = order[first];
+        }
+        queued[insn] = false;
+        --size;
+        return insn;
+    }
+
+    /**
+     * Returns a new, empty {@link InsnQueue} in reverse postorder mode, whose
+     * control flow graph is defined by the given instructions and exception
+     * handlers.
+     *
+     * @param nodes the instructions of the method to be analyzed.
+     * @param insns the instructions of the method to be analyzed.
+     * @param handlers the start, end and handler instruction indexes of each
+     *        exception handler, or <tt>null</tt>.
+     * @return a new, empty {@link InsnQueue} in reverse postorder mode.
+     */
+    static InsnQueue newInstance(
+        final AbstractInsnNode[] nodes,
+        final InsnList insns,
+        final int[] handlers)
+    {
+        InsnQueue queue = new InsnQueue(nodes.length) {
+            @Override
+            int getSuccessor(final int insn, final int k) {
+                return InsnQueue.getSuccessor(nodes, insns, handlers, insn, k);
+            }
+        };
+        queue.findReversePostorder();
+        return queue;
+    }
+
+    /**
+     * Returns a successor of the given instruction in the control flow graph.
+     *
+     * @param nodes the instructions of the method to be analyzed.
+     * @param insns the instructions of the method to be analyzed.
+     * @param handlers the start, end and handler instruction indexes of each
+     *        exception handler, or <tt>null</tt>.
+     * @param insn an instruction index.
+     * @param k the index of the successor to be returned.
+     * @return the index of the k-th successor of the given instruction, -1 if
+     *         this successor does not exist but the next ones may exist, or -2
+     *         if there are no more successors.
+     */
+    static int getSuccessor(
+        final AbstractInsnNode[] nodes,
+        final InsnList insns,
+        final int[] handlers,
+        final int insn,
+        final int k)
+    {
+        int successor = getNormalSuccessor(nodes[insn], insns, insn, k);
+        if (successor >= -1) {
+            return successor;
+        }
+        int i = 3 * (-2 - successor);
+        if (handlers != null && i < handlers.length) {
+            if (insn >= handlers[i] && insn < handlers[i + 1]) {
+                return handlers[i + 2];
+            }
+            return -1;
+        }
+        return -2;
+    }
+
+    /**
+     * Returns a successor of the given instruction in the control flow graph,
+     * ignoring the exception handlers. The successors of an instruction are
+     * the next instruction (which is the 0-th successor, or -1 if execution
+     * cannot continue to this next instruction), then the targets of the
+     * jump or switch instruction, then the exception handlers.
+     *
+     * @param node the instruction whose successor must be returned.
+     * @param insns the instructions of the method to be analyzed.
+     * @param insn the index of <tt>node</tt> in <tt>insns</tt>.
+     * @param k the index of the successor to be returned.
+     * @return the index of the k-th successor of the given instruction, -1 if
+     *         this successor does not exist but the next ones may exist, or
+     *         -2-j if the k-th successor is the j-th exception handler
+     *         successor.
+     */
+    static int getNormalSuccessor(
+        final AbstractInsnNode node,
+        final InsnList insns,
+        final int insn,
+        int k)
+    {
+        if (k == 0) {
+            int opcode = node.getOpcode();
+            if (insn + 1 < insns.size() && opcode != GOTO && opcode != ATHROW
+                    && (opcode < IRETURN || opcode > RETURN)
+                    && !(node instanceof TableSwitchInsnNode)
+                    && !(node instanceof LookupSwitchInsnNode))
+            {
+                return insn + 1;
+            }
+            return -1;
+        }
+        --k;
+        if (node instanceof JumpInsnNode) {
+            if (k == 0) {
+                return insns.indexOf(((JumpInsnNode) node).label);
+            }
+            --k;
+        } else if (node instanceof TableSwitchInsnNode) {
+            TableSwitchInsnNode tsnode = (TableSwitchInsnNode) node;
+            if (k == 0) {
+                return insns.indexOf(tsnode.dflt);
+            }
+            if (k <= tsnode.labels.size()) {
+                return insns.indexOf(tsnode.labels.get(k - 1));
+            }
+            k -= 1 + tsnode.labels.size();
+        } else if (node instanceof LookupSwitchInsnNode) {
+            LookupSwitchInsnNode lsnode = (LookupSwitchInsnNode) node;
+            if (k == 0) {
+                return insns.indexOf(lsnode.dflt);
+            }
+            if (k <= lsnode.labels.size()) {
+                return insns.indexOf(lsnode.labels.get(k - 1));
+            }
+            k -= 1 + lsnode.labels.size();
+        }
+        return -2 - k;
+    }
+}
@@ -0,0 +1,267 @@
+/***
+ * ASM: a very small and fast Java bytecode manipulation framework
+ * Copyright (c) 2000-2011 INRIA, France Telecom
+ * Copyright (c) 2011 Google
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.objectweb.asm.tree.analysis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+/**
+ * A driver that analyzes all the methods of one or more classes in parallel.
+ * Each method is analyzed by its own {@link Analyzer}, created with
+ * {@link #newAnalyzer newAnalyzer}, in a task submitted to an executor. The
+ * results are returned in the order of the classes and of their methods,
+ * whatever the order in which the tasks complete.
+ * <p>
+ * The analyzers created by the default implementation of
+ * {@link #newAnalyzer newAnalyzer} share the same interpreter, which must
+ * therefore be thread safe. This is the case of the interpreters of this
+ * package. Since a {@link SimpleVerifier} is specific to a class, it cannot
+ * be shared in this way: {@link #newVerifier newVerifier} returns a driver
+ * that verifies each method with a {@link SimpleVerifier} for its class, all
+ * of them sharing the same {@link ClassHierarchy}.
+ *
+ * @param <V> type of the Value used for the analysis.
+ */
+public class ParallelAnalyzer<V extends Value> {
+
+    /**
+     * The interpreter shared by the analyzers created by
+     * {@link #newAnalyzer newAnalyzer}.
+     */
+    private final Interpreter<V> interpreter;
+
+    /**
+     * The executor used to analyze the methods, or <tt>null</tt> to analyze
+     * them in the calling thread.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Constructs a new {@link ParallelAnalyzer}.
+     *
+     * @param interpreter the interpreter to be used to symbolically interpret
+     *        the bytecode instructions. This interpreter is shared by all the
+     *        analyzers, and must be thread safe. May be <tt>null</tt> if
+     *        {@link #newAnalyzer newAnalyzer} is overridden.
+     * @param executor the executor used to analyze the methods, or
+     *        <tt>null</tt> to analyze them in the calling thread.
+     */
+    public ParallelAnalyzer(
+        final Interpreter<V> interpreter,
+        final ExecutorService executor)
+    {
+        this.interpreter = interpreter;
+        this.executor = executor;
+    }
+
+    /**
+     * Constructs a new {@link ParallelAnalyzer} that verifies the methods like
+     * {@link org.objectweb.asm.util.CheckClassAdapter#verify
+     * CheckClassAdapter.verify}. Each method is analyzed with a new
+     * {@link SimpleVerifier} for its class, which uses the given class
+     * hierarchy instead of loading the referenced classes.
+     *
+     * @param hierarchy the class hierarchy used by the verifiers. It is shared
+     *        by all the verifiers, in all the executor threads.
+     * @param executor the executor used to analyze the methods, or
+     *        <tt>null</tt> to analyze them in the calling thread.
+     * @return a new {@link ParallelAnalyzer} using {@link SimpleVerifier}
+     *         interpreters.
+     */
+    public static ParallelAnalyzer<BasicValue> newVerifier(
+        final ClassHierarchy hierarchy,
+        final ExecutorService executor)
+    {
+        return new ParallelAnalyzer<BasicValue>(null, executor) {
+            @Override
+            protected Analyzer<BasicValue> newAnalyzer(
+                final ClassNode cn,
+                final MethodNode mn)
+            {
+                Type superType = cn.superName == null
+                        ? null
+                        : Type.getObjectType(cn.superName);
+                List<Type> interfaces = new ArrayList<Type>(cn.interfaces.size());
+                for (int i = 0; i < cn.interfaces.size(); ++i) {
+                    interfaces.add(Type.getObjectType(cn.interfaces.get(i)));
+                }
+                SimpleVerifier verifier = new SimpleVerifier(Type.getObjectType(cn.name),
+                        superType,
+                        interfaces,
+                        (cn.access & Opcodes.ACC_INTERFACE) != 0);
+                verifier.setClassHierarchy(hierarchy);
+                return new Analyzer<BasicValue>(verifier);
+            }
+        };
+    }
+
+    /**
+     * Analyzes all the methods of the given class.
+     *
+     * @param cn the class to be analyzed.
+     * @return the frames computed by {@link Analyzer#analyze analyze} for each
+     *         method of the given class, in the order of {@link
+     *         ClassNode#methods}.
+     * @throws AnalyzerException if a problem occurs during the analysis of a
+     *         method. If several methods cannot be analyzed, the exception
+     *         corresponds to the first one.
+     */
+    public Frame<V>[][] analyze(final ClassNode cn) throws AnalyzerException {
+        return analyze(Collections.singletonList(cn)).get(0);
+    }
+
+    /**
+     * Analyzes all the methods of the given classes.
+     *
+     * @param classes the classes to be analyzed.
+     * @return the frames computed by {@link Analyzer#analyze analyze} for each
+     *         method of each class, in the order of the given list and of
+     *         {@link ClassNode#methods}.
+     * @throws AnalyzerException if a problem occurs during the analysis of a
+     *         method. If several methods cannot be analyzed, the exception
+     *         corresponds to the first one, in the above order.
+     */
+    public List<Frame<V>[][]> analyze(final List<ClassNode> classes)
+            throws AnalyzerException
+    {
+        List<Future<Frame<V>[]>> results = new ArrayList<Future<Frame<V>[]>>();
+        List<Frame<V>[]> frames = new ArrayList<Frame<V>[]>();
+        AnalyzerException error = null;
+        for (int i = 0; i < classes.size(); ++i) {
+            ClassNode cn = classes.get(i);
+            for (int j = 0; j < cn.methods.size(); ++j) {
+                MethodTask task = new MethodTask(cn,
+                        cn.methods.get(j));
+                if (executor != null) {
+                    results.add(executor.submit(task));
+                } else if (error == null) {
+                    try {
+                        frames.add(task.call());
+                    } catch (AnalyzerException e) {
+                        error = e;
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < results.size(); ++i) {
+            try {
+                frames.add(get(results.get(i)));
+            } catch (AnalyzerException e) {
+                if (error == null) {
+                    error = e;
+                }
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+        List<Frame<V>[][]> classFrames = new ArrayList<Frame<V>[][]>(classes.size());
+        int k = 0;
+        for (int i = 0; i < classes.size(); ++i) {
+            int n = classes.get(i).methods.size();
+            Frame<V>[][] f = (Frame<V>[][]) new Frame<?>[n][];
+            for (int j = 0; j < n; ++j) {
+                f[j] = frames.get(k++);
+            }
+            classFrames.add(f);
+        }
+        return classFrames;
+    }
+
+    /**
+     * Constructs a new analyzer for the given method. This method is called
+     * from the executor threads. The default implementation returns a new
+     * {@link Analyzer} using the interpreter given to the constructor.
+     *
+     * @param cn the class that contains the method to be analyzed.
+     * @param mn the method to be analyzed.
+     * @return a new {@link Analyzer}.
+     */
+    protected Analyzer<V> newAnalyzer(final ClassNode cn, final MethodNode mn)
+    {
+        return new Analyzer<V>(interpreter);
+    }
+
+    private static <T> T get(final Future<T> result) throws AnalyzerException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e.toString());
+        } catch (ExecutionException e) {
+            Throwable t = e.getCause();
+            if (t instanceof AnalyzerException) {
+                throw (AnalyzerException) t;
+            }
+            if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
+            }
+            if (t instanceof Error) {
+                throw (Error) t;
+            }
+            throw new RuntimeException(t.toString());
+        }
+    }
+
+    /**
+     * A task that analyzes a single method.
+     */
+    private class MethodTask implements Callable<Frame<V>[]> {
+
+        private final ClassNode cn;
+
+        private final MethodNode mn;
+
+        MethodTask(final ClassNode cn, final MethodNode mn) {
+            this.cn = cn;
+            this.mn = mn;
+        }
+
+        public Frame<V>[] call() throws AnalyzerException {
+            try {
+                return newAnalyzer(cn, mn).analyze(cn.name, mn);
+            } catch (AnalyzerException e) {
+                throw new AnalyzerException(e.node, cn.name + '.' + mn.name
+                        + mn.desc + ": " + e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -68,6 +68,12 @@ public class SimpleVerifier extends BasicVerifier {
      */
     private ClassLoader loader = getClass().getClassLoader();
 
+    /**
+     * The class hierarchy to use for referenced classes, or <tt>null</tt> to
+     * load them with {@link #loader}.
+     */
+    private ClassHierarchy hierarchy;
+
     /**
      * Constructs a new {@link SimpleVerifier}.
      */
@@ -139,6 +145,20 @@ public class SimpleVerifier extends BasicVerifier {
         this.loader = loader;
     }
 
+    /**
+     * Set the {@link ClassHierarchy} which will be used to get the super class
+     * of referenced classes, and to know if they are interfaces. If a class
+     * hierarchy is set, referenced classes are not loaded, and the class
+     * loader set with {@link #setClassLoader setClassLoader} is not used.
+     * The same class hierarchy can be shared by several verifiers.
+     *
+     * @param hierarchy a class hierarchy, or <tt>null</tt> to load the
+     *        referenced classes.
+     */
+    public void setClassHierarchy(final ClassHierarchy hierarchy) {
+        this.hierarchy = hierarchy;
+    }
+
     @Override
     public BasicValue newValue(final Type type) {
         if (type == null) {
@@ -268,6 +288,9 @@ public class SimpleVerifier extends BasicVerifier {
         if (currentClass != null && t.equals(currentClass)) {
             return isInterface;
         }
+        if (hierarchy != null) {
+            return hierarchy.isInterface(t);
+        }
         return getClass(t).isInterface();
     }
 
@@ -275,6 +298,9 @@ public class SimpleVerifier extends BasicVerifier {
         if (currentClass != null && t.equals(currentClass)) {
             return currentSuperClass;
         }
+        if (hierarchy != null) {
+            return hierarchy.getSuperClass(t);
+        }
         Class<?> c = getClass(t).getSuperclass();
         return c == null ? null : Type.getType(c);
     }
@@ -307,6 +333,9 @@ public class SimpleVerifier extends BasicVerifier {
             }
             return false;
         }
+        if (hierarchy != null) {
+            return hierarchy.isAssignableFrom(t, u);
+        }
         Class<?> tc = getClass(t);
         if (tc.isInterface()) {
             tc = Object.class;
@@ -0,0 +1,1108 @@
+/***
+ * ASM: a very small and fast Java bytecode manipulation framework
+ * Copyright (c) 2000-2011 INRIA, France Telecom
+ * Copyright (c) 2011 Google
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.objectweb.asm.tree.analysis;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.objectweb.asm.ConstantDynamic;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.FieldInsnNode;
+import org.objectweb.asm.tree.IincInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.InvokeDynamicInsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.LookupSwitchInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.MultiANewArrayInsnNode;
+import org.objectweb.asm.tree.TableSwitchInsnNode;
+import org.objectweb.asm.tree.TryCatchBlockNode;
+import org.objectweb.asm.tree.VarInsnNode;
+
+/**
+ * A semantic bytecode analyzer that computes the same frames as an
+ * {@link Analyzer} using a {@link SourceInterpreter}, but with instruction
+ * indexes instead of {@link SourceValue} objects. Each value is encoded in an
+ * <tt>int</tt>, containing its size and the identifier of the set of
+ * instructions that can produce it. These sets are stored as sorted arrays of
+ * instruction indexes, which are interned: two values with the same source
+ * instructions use the same set identifier, and the union of two sets is
+ * computed at most once. The sets of a method are therefore shared by all its
+ * frames, and merging two frames does not allocate anything, unless new sets
+ * of sources are found. Methods containing JSR instructions are analyzed with
+ * an {@link Analyzer} and a {@link SourceInterpreter}, and the resulting
+ * frames are then converted to this form.
+ */
+public class SourceAnalyzer implements Opcodes {
+
+    /**
+     * The empty set of instructions.
+     */
+    private static final int[] EMPTY_SET = new int[0];
+
+    private InsnList insns;
+
+    /**
+     * The frame of each instruction, or <tt>null</tt> for the unreachable
+     * instructions. Each frame contains the values of the local variables
+     * followed by the values of the operand stack.
+     */
+    private int[][] frames;
+
+    /**
+     * The number of local variables of the analyzed method.
+     */
+    private int locals;
+
+    /**
+     * The maximum stack size of the analyzed method.
+     */
+    private int maxStack;
+
+    /**
+     * <tt>true</tt> if the analyzed method does not return void.
+     */
+    private boolean hasReturnValue;
+
+    /**
+     * The start, end and handler instruction indexes of each exception
+     * handler, or <tt>null</tt> if there is no exception handler.
+     */
+    private int[] handlers;
+
+    /**
+     * The interned sets of instructions, indexed by their identifier. The set
+     * with identifier 0 is the empty set.
+     */
+    private int[][] sets;
+
+    /**
+     * The number of elements of {@link #sets}.
+     */
+    private int setCount;
+
+    /**
+     * A hash table containing the identifiers of the interned sets, plus one,
+     * used to find the identifier of a set from its content.
+     */
+    private int[] setTable;
+
+    /**
+     * The identifier of the singleton set of each instruction, or 0 if this
+     * set has not been interned yet.
+     */
+    private int[] singletons;
+
+    /**
+     * A hash table containing pairs of set identifiers whose union has
+     * already been computed.
+     */
+    private long[] unionKeys;
+
+    /**
+     * The identifiers of the unions of the set pairs in {@link #unionKeys}.
+     */
+    private int[] unionValues;
+
+    /**
+     * The number of pairs in {@link #unionKeys}.
+     */
+    private int unionCount;
+
+    /**
+     * The local variables and operand stack of the instruction being
+     * executed.
+     */
+    private int[] values;
+
+    /**
+     * The stack size of the instruction being executed.
+     */
+    private int top;
+
+    /**
+     * The instructions to be processed.
+     */
+    private InsnQueue queue;
+
+    /**
+     * Analyzes the given method.
+     *
+     * @param owner the internal name of the class to which the method belongs.
+     * @param m the method to be analyzed.
+     * @return the encoded values of the local variables followed by the
+     *         operand stack slots at each bytecode instruction of the method.
+     *         The size of the returned array is equal to the number of
+     *         instructions (and labels) of the method. A given frame is
+     *         <tt>null</tt> if and only if the corresponding instruction
+     *         cannot be reached (dead code). The size and the source
+     *         instructions of each value are given by {@link #getSize getSize}
+     *         and {@link #getSources getSources}.
+     * @throws AnalyzerException if a problem occurs during the analysis.
+     */
+    public int[][] analyze(final String owner, final MethodNode m)
+            throws AnalyzerException
+    {
+        locals = m.maxLocals;
+        maxStack = m.maxStack;
+        sets = new int[16][];
+        sets[0] = EMPTY_SET;
+        setCount = 1;
+        setTable = new int[32];
+        unionKeys = new long[32];
+        unionValues = new int[32];
+        unionCount = 0;
+        if ((m.access & (ACC_ABSTRACT | ACC_NATIVE)) != 0) {
+            frames = new int[0][];
+            return frames;
+        }
+        int n = m.instructions.size();
+        insns = m.instructions;
+        frames = new int[n][];
+        singletons = new int[n];
+        AbstractInsnNode[] nodes = insns.toArray();
+        for (int i = 0; i < n; ++i) {
+            if (nodes[i].getOpcode() == JSR) {
+                analyzeWithSubroutines(owner, m);
+                return frames;
+            }
+        }
+
+        List<TryCatchBlockNode> tryCatchBlocks = m.tryCatchBlocks;
+        handlers = null;
+        if (tryCatchBlocks.size() > 0) {
+            handlers = new int[3 * tryCatchBlocks.size()];
+            for (int i = 0; i < tryCatchBlocks.size(); ++i) {
+                TryCatchBlockNode tcb = tryCatchBlocks.get(i);
+                handlers[3 * i] = insns.indexOf(tcb.start);
+                handlers[3 * i + 1] = insns.indexOf(tcb.end);
+                handlers[3 * i + 2] = insns.indexOf(tcb.handler);
+            }
+        }
+        queue = InsnQueue.newInstance(nodes, insns, handlers);
+
+        // initializes the frame of the first instruction
+        values = new int[locals + maxStack];
+        top = 0;
+        Type returnType = Type.getReturnType(m.desc);
+        hasReturnValue = returnType != Type.VOID_TYPE;
+        int local = 0;
+        if ((m.access & ACC_STATIC) == 0) {
+            setLocal(local++, 0);
+        }
+        Type[] args = Type.getArgumentTypes(m.desc);
+        for (int i = 0; i < args.length; ++i) {
+            setLocal(local++, args[i].getSize() - 1);
+            if (args[i].getSize() == 2) {
+                setLocal(local++, 0);
+            }
+        }
+        while (local < locals) {
+            setLocal(local++, 0);
+        }
+        merge(0);
+
+        // control flow analysis
+        while (!queue.isEmpty()) {
+            int insn = queue.remove();
+            int[] f = frames[insn];
+            System.arraycopy(f, 0, values, 0, f.length);
+            top = f.length - locals;
+
+            AbstractInsnNode insnNode = null;
+            try {
+                insnNode = nodes[insn];
+                int insnOpcode = insnNode.getOpcode();
+                int insnType = insnNode.getType();
+
+                if (insnType == AbstractInsnNode.LABEL
+                        || insnType == AbstractInsnNode.LINE
+                        || insnType == AbstractInsnNode.FRAME)
+                {
+                    merge(insn + 1);
+                } else {
+                    execute(insnNode, insn);
+
+                    if (insnNode instanceof JumpInsnNode) {
+                        if (insnOpcode != GOTO) {
+                            merge(insn + 1);
+                        }
+                        merge(insns.indexOf(((JumpInsnNode) insnNode).label));
+                    } else if (insnNode instanceof LookupSwitchInsnNode) {
+                        LookupSwitchInsnNode lsi = (LookupSwitchInsnNode) insnNode;
+                        merge(insns.indexOf(lsi.dflt));
+                        for (int j = 0; j < lsi.labels.size(); ++j) {
+                            merge(insns.indexOf(lsi.labels.get(j)));
+                        }
+                    } else if (insnNode instanceof TableSwitchInsnNode) {
+                        TableSwitchInsnNode tsi = (TableSwitchInsnNode) insnNode;
+                        merge(insns.indexOf(tsi.dflt));
+                        for (int j = 0; j < tsi.labels.size(); ++j) {
+                            merge(insns.indexOf(tsi.labels.get(j)));
+                        }
+                    } else if (insnOpcode == RET) {
+                        throw new AnalyzerException(insnNode, "RET instruction outside of a sub routine");
+                    } else if (insnOpcode != ATHROW
+                            && (insnOpcode < IRETURN || insnOpcode > RETURN))
+                    {
+                        merge(insn + 1);
+                    }
+                }
+
+                if (handlers != null) {
+                    for (int i = 0; i < handlers.length; i += 3) {
+                        if (insn >= handlers[i] && insn < handlers[i + 1]) {
+                            mergeHandler(handlers[i + 2], f);
+                        }
+                    }
+                }
+            } catch (AnalyzerException e) {
+                throw new AnalyzerException(e.node, "Error at instruction " + insn
+                        + ": " + e.getMessage(), e);
+            } catch (Exception e) {
+                throw new AnalyzerException(insnNode, "Error at instruction " + insn
+                        + ": " + e.getMessage(), e);
+            }
+        }
+        values = null;
+        queue = null;
+        return frames;
+    }
+
+    /**
+     * Returns the frames computed by the last call to {@link #analyze
+     * analyze}.
+     *
+     * @return the encoded values of the local variables followed by the
+     *         operand stack slots at each bytecode instruction of the method.
+     *         A given frame is <tt>null</tt> if the corresponding instruction
+     *         cannot be reached.
+     */
+    public int[][] getFrames() {
+        return frames;
+    }
+
+    /**
+     * Returns the number of local variables of the frames computed by the
+     * last call to {@link #analyze analyze}. The stack size of a frame is its
+     * length minus this number.
+     *
+     * @return the number of local variables of the analyzed method.
+     */
+    public int getLocals() {
+        return locals;
+    }
+
+    /**
+     * Returns the size of the given value.
+     *
+     * @param value a value computed by the last call to {@link #analyze
+     *        analyze}.
+     * @return the size of this value, i.e. 1 or 2.
+     */
+    public static int getSize(final int value) {
+        return (value & 1) + 1;
+    }
+
+    /**
+     * Returns the instructions that can produce the given value.
+     *
+     * @param value a value computed by the last call to {@link #analyze
+     *        analyze}.
+     * @return the sorted indexes of the instructions that can produce this
+     *         value. This array is shared between all the values with the
+     *         same sources, and must not be modified.
+     */
+    public int[] getSources(final int value) {
+        return sets[value >>> 1];
+    }
+
+    /**
+     * Returns the frame of the given instruction, in the form computed by an
+     * {@link Analyzer} using a {@link SourceInterpreter}.
+     *
+     * @param insn the index of an instruction of the last analyzed method.
+     * @return the frame of this instruction, or <tt>null</tt> if this
+     *         instruction cannot be reached.
+     */
+    public Frame<SourceValue> getFrame(final int insn) {
+        int[] f = frames[insn];
+        if (f == null) {
+            return null;
+        }
+        Frame<SourceValue> frame = new Frame<SourceValue>(locals, maxStack);
+        if (hasReturnValue) {
+            frame.setReturn(new SourceValue(1));
+        }
+        for (int i = 0; i < locals; ++i) {
+            frame.setLocal(i, getValue(f[i]));
+        }
+        for (int i = locals; i < f.length; ++i) {
+            frame.push(getValue(f[i]));
+        }
+        return frame;
+    }
+
+    /**
+     * Returns the {@link SourceValue} corresponding to the given value.
+     */
+    private SourceValue getValue(final int value) {
+        int[] set = getSources(value);
+        switch (set.length) {
+            case 0:
+                return new SourceValue(getSize(value));
+            case 1:
+                return new SourceValue(getSize(value), insns.get(set[0]));
+            case 2:
+                return new SourceValue(getSize(value),
+                        new SmallSet<AbstractInsnNode>(insns.get(set[0]),
+                                insns.get(set[1])));
+            default:
+                Set<AbstractInsnNode> s = new HashSet<AbstractInsnNode>();
+                for (int i = 0; i < set.length; ++i) {
+                    s.add(insns.get(set[i]));
+                }
+                return new SourceValue(getSize(value), s);
+        }
+    }
+
+    /**
+     * Analyzes a method containing JSR instructions with an {@link Analyzer},
+     * and converts the computed frames to encoded values.
+     */
+    private void analyzeWithSubroutines(final String owner, final MethodNode m)
+            throws AnalyzerException
+    {
+        hasReturnValue = Type.getReturnType(m.desc) != Type.VOID_TYPE;
+        Frame<SourceValue>[] f = new Analyzer<SourceValue>(new SourceInterpreter()).analyze(owner,
+                m);
+        for (int i = 0; i < f.length; ++i) {
+            if (f[i] != null) {
+                int[] frame = new int[locals + f[i].getStackSize()];
+                for (int j = 0; j < frame.length; ++j) {
+                    SourceValue v = j < locals
+                            ? f[i].getLocal(j)
+                            : f[i].getStack(j - locals);
+                    int[] set = new int[v.insns.size()];
+                    int k = 0;
+                    for (AbstractInsnNode insn : v.insns) {
+                        set[k++] = insns.indexOf(insn);
+                    }
+                    Arrays.sort(set);
+                    frame[j] = (intern(set) << 1) | (v.getSize() - 1);
+                }
+                frames[i] = frame;
+            }
+        }
+    }
+
+    /**
+     * Merges the current frame into the frame of the given instruction, and
+     * adds this instruction to the queue if its frame has changed.
+     */
+    private void merge(final int insn) throws AnalyzerException {
+        int[] oldFrame = frames[insn];
+        boolean changes;
+        if (oldFrame == null) {
+            oldFrame = new int[locals + top];
+            System.arraycopy(values, 0, oldFrame, 0, oldFrame.length);
+            frames[insn] = oldFrame;
+            changes = true;
+        } else {
+            if (oldFrame.length != locals + top) {
+                throw new AnalyzerException(null, "Incompatible stack heights");
+            }
+            changes = false;
+            for (int i = 0; i < oldFrame.length; ++i) {
+                int v = merge(oldFrame[i], values[i]);
+                if (v != oldFrame[i]) {
+                    oldFrame[i] = v;
+                    changes = true;
+                }
+            }
+        }
+        if (changes) {
+            queue.add(insn);
+        }
+    }
+
+    /**
+     * Merges the given frame, with its stack replaced with an exception value
+     * without sources, into the frame of the given exception handler.
+     */
+    private void mergeHandler(final int insn, final int[] f)
+            throws AnalyzerException
+    {
+        int[] oldFrame = frames[insn];
+        boolean changes;
+        if (oldFrame == null) {
+            if (maxStack < 1) {
+                throw new IndexOutOfBoundsException("Insufficient maximum stack size.");
+            }
+            oldFrame = new int[locals + 1];
+            System.arraycopy(f, 0, oldFrame, 0, locals);
+            frames[insn] = oldFrame;
+            changes = true;
+        } else {
+            if (oldFrame.length != locals + 1) {
+                throw new AnalyzerException(null, "Incompatible stack heights");
+            }
+            changes = false;
+            for (int i = 0; i < locals; ++i) {
+                int v = merge(oldFrame[i], f[i]);
+                if (v != oldFrame[i]) {
+                    oldFrame[i] = v;
+                    changes = true;
+                }
+            }
+            int v = merge(oldFrame[locals], 0);
+            if (v != oldFrame[locals]) {
+                oldFrame[locals] = v;
+                changes = true;
+            }
+        }
+        if (changes) {
+            queue.add(insn);
+        }
+    }
+
+    /**
+     * Merges two values. The size of the result is the minimum size of the
+     * two values, and its sources are the union of their sources.
+     */
+    private int merge(final int v, final int w) {
+        if (v == w) {
+            return v;
+        }
+        int s = v >>> 1;
+        int t = w >>> 1;
+        int u;
+        if (s == t || t == 0) {
+            u = s;
+        } else if (s == 0) {
+            u = t;
+        } else {
+            u = union(s, t);
+        }
+        return (u << 1) | (v & w & 1);
+    }
+
+    // ------------------------------------------------------------------------
+    // Interned sets of instructions
+    // ------------------------------------------------------------------------
+
+    /**
+     * Returns the identifier of the union of the two given non empty sets.
+     */
+    private int union(final int s, final int t) {
+        long key = s < t ? ((long) s << 32) | t : ((long) t << 32) | s;
+        int mask = unionKeys.length - 1;
+        int h = hash(key) & mask;
+        while (unionKeys[h] != 0) {
+            if (unionKeys[h] == key) {
+                return unionValues[h];
+            }
+            h = (h + 1) & mask;
+        }
+
+        int[] a = sets[s];
+        int[] b = sets[t];
+        int[] c = new int[a.length + b.length];
+        int i = 0, j = 0, k = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                c[k++] = a[i++];
+            } else if (a[i] > b[j]) {
+                c[k++] = b[j++];
+            } else {
+                c[k++] = a[i++];
+                ++j;
+            }
+        }
+        while (i < a.length) {
+            c[k++] = a[i++];
+        }
+        while (j < b.length) {
+            c[k++] = b[j++];
+        }
+        int u;
+        if (k == a.length) {
+            u = s;
+        } else if (k == b.length) {
+            u = t;
+        } else {
+            if (k < c.length) {
+                int[] d = new int[k];
+                System.arraycopy(c, 0, d, 0, k);
+                c = d;
+            }
+            u = intern(c);
+        }
+
+        unionKeys[h] = key;
+        unionValues[h] = u;
+        if (2 * ++unionCount > unionKeys.length) {
+            long[] oldKeys = unionKeys;
+            int[] oldValues = unionValues;
+            unionKeys = new long[2 * oldKeys.length];
+            unionValues = new int[2 * oldKeys.length];
+            mask = unionKeys.length - 1;
+            for (int l = 0; l < oldKeys.length; ++l) {
+                if (oldKeys[l] != 0) {
+                    h = hash(oldKeys[l]) & mask;
+                    while (unionKeys[h] != 0) {
+                        h = (h + 1) & mask;
+                    }
+                    unionKeys[h] = oldKeys[l];
+                    unionValues[h] = oldValues[l];
+                }
+            }
+        }
+        return u;
+    }
+
+    /**
+     * Returns the identifier of the singleton set of the given instruction.
+     */
+    private int singleton(final int insn) {
+        int s = singletons[insn];
+        if (s == 0) {
+            s = intern(new int[] { insn });
+            singletons[insn] = s;
+        }
+        return s;
+    }
+
+    /**
+     * Returns the identifier of the given sorted set of instructions, adding
+     * it to the interned sets if necessary.
+     */
+    private int intern(final int[] set) {
+        if (set.length == 0) {
+            return 0;
+        }
+        int mask = setTable.length - 1;
+        int h = Arrays.hashCode(set) & mask;
+        while (setTable[h] != 0) {
+            if (Arrays.equals(sets[setTable[h] - 1], set)) {
+                return setTable[h] - 1;
+            }
+            h = (h + 1) & mask;
+        }
+        if (setCount == sets.length) {
+            int[][] newSets = new int[2 * setCount][];
+            System.arraycopy(sets, 0, newSets, 0, setCount);
+            sets = newSets;
+        }
+        int id = setCount++;
+        sets[id] = set;
+        setTable[h] = id + 1;
+        if (2 * setCount > setTable.length) {
+            setTable = new int[2 * setTable.length];
+            mask = setTable.length - 1;
+            for (int i = 1; i < setCount; ++i) {
+                h = Arrays.hashCode(sets[i]) & mask;
+                while (setTable[h] != 0) {
+                    h = (h + 1) & mask;
+                }
+                setTable[h] = i + 1;
+            }
+        }
+        return id;
+    }
+
+    private static int hash(final long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    // ------------------------------------------------------------------------
+    // Symbolic execution
+    // ------------------------------------------------------------------------
+
+    /**
+     * Simulates the execution of the given instruction on the current frame,
+     * like {@link Frame#execute Frame.execute} does with a
+     * {@link SourceInterpreter}.
+     */
+    private void execute(final AbstractInsnNode insn, final int index)
+            throws AnalyzerException
+    {
+        int value1, value2, value3, value4;
+        int var;
+        String desc;
+
+        switch (insn.getOpcode()) {
+            case NOP:
+            case GOTO:
+            case RET:
+                break;
+            case ACONST_NULL:
+            case ICONST_M1:
+            case ICONST_0:
+            case ICONST_1:
+            case ICONST_2:
+            case ICONST_3:
+            case ICONST_4:
+            case ICONST_5:
+            case FCONST_0:
+            case FCONST_1:
+            case FCONST_2:
+            case BIPUSH:
+            case SIPUSH:
+            case JSR:
+            case NEW:
+                push(1, index);
+                break;
+            case LCONST_0:
+            case LCONST_1:
+            case DCONST_0:
+            case DCONST_1:
+                push(2, index);
+                break;
+            case LDC:
+                Object cst = ((LdcInsnNode) insn).cst;
+                push(cst instanceof Long || cst instanceof Double ? 2
+                        : cst instanceof ConstantDynamic
+                                ? ((ConstantDynamic) cst).getSize()
+                                : 1, index);
+                break;
+            case ILOAD:
+            case LLOAD:
+            case FLOAD:
+            case DLOAD:
+            case ALOAD:
+                push(getSize(getLocal(((VarInsnNode) insn).var)), index);
+                break;
+            case ISTORE:
+            case LSTORE:
+            case FSTORE:
+            case DSTORE:
+            case ASTORE:
+                value1 = copy(pop(), index);
+                var = ((VarInsnNode) insn).var;
+                setLocal(var, value1);
+                if (getSize(value1) == 2) {
+                    setLocal(var + 1, 0);
+                }
+                if (var > 0 && getSize(getLocal(var - 1)) == 2) {
+                    setLocal(var - 1, 0);
+                }
+                break;
+            case IASTORE:
+            case LASTORE:
+            case FASTORE:
+            case DASTORE:
+            case AASTORE:
+            case BASTORE:
+            case CASTORE:
+            case SASTORE:
+                popValues(3);
+                break;
+            case POP:
+                if (getSize(pop()) == 2) {
+                    throw new AnalyzerException(insn, "Illegal use of POP");
+                }
+                break;
+            case POP2:
+                if (getSize(pop()) == 1) {
+                    if (getSize(pop()) != 1) {
+                        throw new AnalyzerException(insn, "Illegal use of POP2");
+                    }
+                }
+                break;
+            case DUP:
+                value1 = pop();
+                if (getSize(value1) != 1) {
+                    throw new AnalyzerException(insn, "Illegal use of DUP");
+                }
+                push(value1);
+                push(copy(value1, index));
+                break;
+            case DUP_X1:
+                value1 = pop();
+                value2 = pop();
+                if (getSize(value1) != 1 || getSize(value2) != 1) {
+                    throw new AnalyzerException(insn, "Illegal use of DUP_X1");
+                }
+                push(copy(value1, index));
+                push(value2);
+                push(value1);
+                break;
+            case DUP_X2:
+                value1 = pop();
+                if (getSize(value1) == 1) {
+                    value2 = pop();
+                    if (getSize(value2) == 1) {
+                        value3 = pop();
+                        if (getSize(value3) == 1) {
+                            push(copy(value1, index));
+                            push(value3);
+                            push(value2);
+                            push(value1);
+                            break;
+                        }
+                    } else {
+                        push(copy(value1, index));
+                        push(value2);
+                        push(value1);
+                        break;
+                    }
+                }
+                throw new AnalyzerException(insn, "Illegal use of DUP_X2");
+            case DUP2:
+                value1 = pop();
+                if (getSize(value1) == 1) {
+                    value2 = pop();
+                    if (getSize(value2) == 1) {
+                        push(value2);
+                        push(value1);
+                        push(copy(value2, index));
+                        push(copy(value1, index));
+                        break;
+                    }
+                } else {
+                    push(value1);
+                    push(copy(value1, index));
+                    break;
+                }
+                throw new AnalyzerException(insn, "Illegal use of DUP2");
+            case DUP2_X1:
+                value1 = pop();
+                if (getSize(value1) == 1) {
+                    value2 = pop();
+                    if (getSize(value2) == 1) {
+                        value3 = pop();
+                        if (getSize(value3) == 1) {
+                            push(copy(value2, index));
+                            push(copy(value1, index));
+                            push(value3);
+                            push(value2);
+                            push(value1);
+                            break;
+                        }
+                    }
+                } else {
+                    value2 = pop();
+                    if (getSize(value2) == 1) {
+                        push(copy(value1, index));
+                        push(value2);
+                        push(value1);
+                        break;
+                    }
+                }
+                throw new AnalyzerException(insn, "Illegal use of DUP2_X1");
+            case DUP2_X2:
+                value1 = pop();
+                if (getSize(value1) == 1) {
+                    value2 = pop();
+                    if (getSize(value2) == 1) {
+                        value3 = pop();
+                        if (getSize(value3) == 1) {
+                            value4 = pop();
+                            if (getSize(value4) == 1) {
+                                push(copy(value2, index));
+                                push(copy(value1, index));
+                                push(value4);
+                                push(value3);
+                                push(value2);
+                                push(value1);
+                                break;
+                            }
+                        } else {
+                            push(copy(value2, index));
+                            push(copy(value1, index));
+                            push(value3);
+                            push(value2);
+                            push(value1);
+                            break;
+                        }
+                    }
+                } else {
+                    value2 = pop();
+                    if (getSize(value2) == 1) {
+                        value3 = pop();
+                        if (getSize(value3) == 1) {
+                            push(copy(value1, index));
+                            push(value3);
+                            push(value2);
+                            push(value1);
+                            break;
+                        }
+                    } else {
+                        push(copy(value1, index));
+                        push(value2);
+                        push(value1);
+                        break;
+                    }
+                }
+                throw new AnalyzerException(insn, "Illegal use of DUP2_X2");
+            case SWAP:
+                value2 = pop();
+                value1 = pop();
+                if (getSize(value1) != 1 || getSize(value2) != 1) {
+                    throw new AnalyzerException(insn, "Illegal use of SWAP");
+                }
+                push(copy(value2, index));
+                push(copy(value1, index));
+                break;
+            case IALOAD:
+            case FALOAD:
+            case AALOAD:
+            case BALOAD:
+            case CALOAD:
+            case SALOAD:
+            case IADD:
+            case FADD:
+            case ISUB:
+            case FSUB:
+            case IMUL:
+            case FMUL:
+            case IDIV:
+            case FDIV:
+            case IREM:
+            case FREM:
+            case ISHL:
+            case ISHR:
+            case IUSHR:
+            case IAND:
+            case IOR:
+            case IXOR:
+            case LCMP:
+            case FCMPL:
+            case FCMPG:
+            case DCMPL:
+            case DCMPG:
+                popValues(2);
+                push(1, index);
+                break;
+            case LALOAD:
+            case DALOAD:
+            case LADD:
+            case DADD:
+            case LSUB:
+            case DSUB:
+            case LMUL:
+            case DMUL:
+            case LDIV:
+            case DDIV:
+            case LREM:
+            case DREM:
+            case LSHL:
+            case LSHR:
+            case LUSHR:
+            case LAND:
+            case LOR:
+            case LXOR:
+                popValues(2);
+                push(2, index);
+                break;
+            case INEG:
+            case FNEG:
+            case L2I:
+            case L2F:
+            case I2F:
+            case F2I:
+            case D2I:
+            case D2F:
+            case I2B:
+            case I2C:
+            case I2S:
+            case NEWARRAY:
+            case ANEWARRAY:
+            case ARRAYLENGTH:
+            case CHECKCAST:
+            case INSTANCEOF:
+                pop();
+                push(1, index);
+                break;
+            case LNEG:
+            case DNEG:
+            case I2L:
+            case I2D:
+            case L2D:
+            case F2L:
+            case F2D:
+            case D2L:
+                pop();
+                push(2, index);
+                break;
+            case IINC:
+                var = ((IincInsnNode) insn).var;
+                getLocal(var);
+                setLocal(var, singleton(index) << 1);
+                break;
+            case IFEQ:
+            case IFNE:
+            case IFLT:
+            case IFGE:
+            case IFGT:
+            case IFLE:
+            case IFNULL:
+            case IFNONNULL:
+            case TABLESWITCH:
+            case LOOKUPSWITCH:
+            case IRETURN:
+            case LRETURN:
+            case FRETURN:
+            case DRETURN:
+            case ARETURN:
+            case PUTSTATIC:
+            case ATHROW:
+            case MONITORENTER:
+            case MONITOREXIT:
+                pop();
+                break;
+            case IF_ICMPEQ:
+            case IF_ICMPNE:
+            case IF_ICMPLT:
+            case IF_ICMPGE:
+            case IF_ICMPGT:
+            case IF_ICMPLE:
+            case IF_ACMPEQ:
+            case IF_ACMPNE:
+            case PUTFIELD:
+                popValues(2);
+                break;
+            case RETURN:
+                if (hasReturnValue) {
+                    throw new AnalyzerException(insn, "Incompatible return type");
+                }
+                break;
+            case GETSTATIC:
+                push(getDescSize(((FieldInsnNode) insn).desc, 0), index);
+                break;
+            case GETFIELD:
+                pop();
+                push(getDescSize(((FieldInsnNode) insn).desc, 0), index);
+                break;
+            case INVOKEVIRTUAL:
+            case INVOKESPECIAL:
+            case INVOKESTATIC:
+            case INVOKEINTERFACE:
+            case INVOKEDYNAMIC:
+                if (insn.getOpcode() == INVOKEDYNAMIC) {
+                    desc = ((InvokeDynamicInsnNode) insn).desc;
+                    var = 0;
+                } else {
+                    desc = ((MethodInsnNode) insn).desc;
+                    var = insn.getOpcode() == INVOKESTATIC ? 0 : 1;
+                }
+                int i = 1;
+                while (desc.charAt(i) != ')') {
+                    while (desc.charAt(i) == '[') {
+                        ++i;
+                    }
+                    if (desc.charAt(i) == 'L') {
+                        i = desc.indexOf(';', i);
+                    }
+                    ++i;
+                    ++var;
+                }
+                popValues(var);
+                if (desc.charAt(i + 1) != 'V') {
+                    push(getDescSize(desc, i + 1), index);
+                }
+                break;
+            case MULTIANEWARRAY:
+                popValues(((MultiANewArrayInsnNode) insn).dims);
+                push(1, index);
+                break;
+            default:
+                throw new RuntimeException("Illegal opcode " + insn.getOpcode());
+        }
+    }
+
+    /**
+     * Returns a value with the same size as the given one, produced by the
+     * given instruction.
+     */
+    private int copy(final int value, final int index) {
+        return (singleton(index) << 1) | (value & 1);
+    }
+
+    private int getLocal(final int i) {
+        if (i >= locals) {
+            throw new IndexOutOfBoundsException("Trying to access an inexistant local variable");
+        }
+        return values[i];
+    }
+
+    private void setLocal(final int i, final int value) {
+        if (i >= locals) {
+            throw new IndexOutOfBoundsException("Trying to access an inexistant local variable "+i);
+        }
+        values[i] = value;
+    }
+
+    private int pop() {
+        if (top == 0) {
+            throw new IndexOutOfBoundsException("Cannot pop operand off an empty stack.");
+        }
+        return values[--top + locals];
+    }
+
+    private void popValues(final int n) {
+        if (top < n) {
+            throw new IndexOutOfBoundsException("Cannot pop operand off an empty stack.");
+        }
+        top -= n;
+    }
+
+    private void push(final int value) {
+        if (top + locals >= values.length) {
+            throw new IndexOutOfBoundsException("Insufficient maximum stack size.");
+        }
+        values[top++ + locals] = value;
+    }
+
+    /**
+     * Pushes a value of the given size produced by the given instruction.
+     */
+    private void push(final int size, final int index) {
+        push((singleton(index) << 1) | (size - 1));
+    }
+
+    /**
+     * Returns the size of the type descriptor starting at the given offset of
+     * the given string.
+     */
+    private static int getDescSize(final String desc, final int off) {
+        char c = desc.charAt(off);
+        return c == 'J' || c == 'D' ? 2 : 1;
+    }
+}
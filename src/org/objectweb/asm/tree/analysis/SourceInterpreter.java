@@ -33,6 +33,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import org.objectweb.asm.ConstantDynamic;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.AbstractInsnNode;
@@ -78,7 +79,10 @@ public class SourceInterpreter extends Interpreter<SourceValue> implements
                 break;
             case LDC:
                 Object cst = ((LdcInsnNode) insn).cst;
-                size = cst instanceof Long || cst instanceof Double ? 2 : 1;
+                size = cst instanceof Long || cst instanceof Double ? 2
+                        : cst instanceof ConstantDynamic
+                                ? ((ConstantDynamic) cst).getSize()
+                                : 1;
                 break;
             case GETSTATIC:
                 size = Type.getType(((FieldInsnNode) insn).desc).getSize();
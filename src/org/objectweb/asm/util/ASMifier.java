@@ -37,6 +37,7 @@ import java.util.Map;
 
 import org.objectweb.asm.Attribute;
 import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ConstantDynamic;
 import org.objectweb.asm.Handle;
 import org.objectweb.asm.Label;
 import org.objectweb.asm.Opcodes;
@@ -204,6 +205,18 @@ public class ASMifier extends Printer {
             case Opcodes.V1_7:
                 buf.append("V1_7");
                 break;
+            case Opcodes.V1_8:
+                buf.append("V1_8");
+                break;
+            case Opcodes.V9:
+                buf.append("V9");
+                break;
+            case Opcodes.V10:
+                buf.append("V10");
+                break;
+            case Opcodes.V11:
+                buf.append("V11");
+                break;
             default:
                 buf.append(version);
                 break;
@@ -637,6 +650,21 @@ public class ASMifier extends Printer {
         final String owner,
         final String name,
         final String desc)
+    {
+        visitMethodInsn(opcode,
+                owner,
+                name,
+                desc,
+                opcode == Opcodes.INVOKEINTERFACE);
+    }
+
+    @Override
+    public void visitMethodInsn(
+        final int opcode,
+        final String owner,
+        final String name,
+        final String desc,
+        final boolean itf)
     {
         buf.setLength(0);
         buf.append(this.name).append(".visitMethodInsn(").append(OPCODES[opcode]).append(", ");
@@ -645,6 +673,9 @@ public class ASMifier extends Printer {
         appendConstant(name);
         buf.append(", ");
         appendConstant(desc);
+        if (itf && opcode != Opcodes.INVOKEINTERFACE) {
+            buf.append(", true");
+        }
         buf.append(");\n");
         text.add(buf.toString());
     }
@@ -1084,6 +1115,19 @@ public class ASMifier extends Printer {
             buf.append(h.getOwner()).append("\", \"");
             buf.append(h.getName()).append("\", \"");
             buf.append(h.getDesc()).append("\")");
+        } else if (cst instanceof ConstantDynamic) {
+            buf.append("new ConstantDynamic(");
+            ConstantDynamic c = (ConstantDynamic) cst;
+            appendString(buf, c.getName());
+            buf.append(", ");
+            appendString(buf, c.getDesc());
+            buf.append(", ");
+            appendConstant(buf, c.getBootstrapMethod());
+            for (int i = 0; i < c.getBootstrapMethodArgumentCount(); ++i) {
+                buf.append(", ");
+                appendConstant(buf, c.getBootstrapMethodArgument(i));
+            }
+            buf.append(')');
         } else if (cst instanceof Byte) {
             buf.append("new Byte((byte)").append(cst).append(')');
         } else if (cst instanceof Boolean) {
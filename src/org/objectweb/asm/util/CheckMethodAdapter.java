@@ -41,6 +41,7 @@ import java.util.Set;
 
 import org.objectweb.asm.AnnotationVisitor;
 import org.objectweb.asm.Attribute;
+import org.objectweb.asm.ConstantDynamic;
 import org.objectweb.asm.Handle;
 import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
@@ -626,6 +627,21 @@ public class CheckMethodAdapter extends MethodVisitor {
         final String owner,
         final String name,
         final String desc)
+    {
+        visitMethodInsn(opcode,
+                owner,
+                name,
+                desc,
+                opcode == Opcodes.INVOKEINTERFACE);
+    }
+
+    @Override
+    public void visitMethodInsn(
+        final int opcode,
+        final String owner,
+        final String name,
+        final String desc,
+        final boolean itf)
     {
         checkStartCode();
         checkEndCode();
@@ -633,7 +649,13 @@ public class CheckMethodAdapter extends MethodVisitor {
         checkMethodIdentifier(version, name, "name");
         checkInternalName(owner, "owner");
         checkMethodDesc(desc);
-        super.visitMethodInsn(opcode, owner, name, desc);
+        if (opcode == Opcodes.INVOKEVIRTUAL && itf) {
+            throw new IllegalArgumentException("INVOKEVIRTUAL can't be used with interfaces");
+        }
+        if (opcode == Opcodes.INVOKEINTERFACE && !itf) {
+            throw new IllegalArgumentException("INVOKEINTERFACE can't be used with classes");
+        }
+        super.visitMethodInsn(opcode, owner, name, desc, itf);
         ++insnCount;
     }
 
@@ -1013,6 +1035,23 @@ public class CheckMethodAdapter extends MethodVisitor {
                 throw new IllegalArgumentException("invalid handle tag "
                         + tag);
             }
+        } else if (cst instanceof ConstantDynamic) {
+            if ((version & 0xFFFF) < Opcodes.V11) {
+                throw new IllegalArgumentException("ldc of a dynamic constant requires at least version 11");
+            }
+            ConstantDynamic c = (ConstantDynamic) cst;
+            checkUnqualifiedName(version, c.getName(), "constant name");
+            checkDesc(c.getDesc(), false);
+            int tag = c.getBootstrapMethod().getTag();
+            if (tag != Opcodes.H_INVOKESTATIC
+                    && tag != Opcodes.H_NEWINVOKESPECIAL)
+            {
+                throw new IllegalArgumentException("invalid handle tag "
+                        + tag);
+            }
+            for (int i = 0; i < c.getBootstrapMethodArgumentCount(); i++) {
+                checkLDCConstant(c.getBootstrapMethodArgument(i));
+            }
         } else {
             checkConstant(cst);
         }
@@ -384,6 +384,21 @@ public abstract class Printer {
         final String name,
         final String desc);
 
+    /**
+     * Method instruction. See
+     * {@link org.objectweb.asm.MethodVisitor#visitMethodInsn(int, String, String, String, boolean)}.
+     * The default implementation ignores <tt>itf</tt>.
+     */
+    public void visitMethodInsn(
+        final int opcode,
+        final String owner,
+        final String name,
+        final String desc,
+        final boolean itf)
+    {
+        visitMethodInsn(opcode, owner, name, desc);
+    }
+
     /**
      * Method instruction.
      * See {@link org.objectweb.asm.MethodVisitor#visitInvokeDynamicInsn}.
@@ -777,12 +777,30 @@ public class Textifier extends Printer {
         final String owner,
         final String name,
         final String desc)
+    {
+        visitMethodInsn(opcode,
+                owner,
+                name,
+                desc,
+                opcode == Opcodes.INVOKEINTERFACE);
+    }
+
+    @Override
+    public void visitMethodInsn(
+        final int opcode,
+        final String owner,
+        final String name,
+        final String desc,
+        final boolean itf)
     {
         buf.setLength(0);
         buf.append(tab2).append(OPCODES[opcode]).append(' ');
         appendDescriptor(INTERNAL_NAME, owner);
         buf.append('.').append(name).append(' ');
         appendDescriptor(METHOD_DESCRIPTOR, desc);
+        if (itf && opcode != Opcodes.INVOKEINTERFACE) {
+            buf.append(" (itf)");
+        }
         buf.append('\n');
         text.add(buf.toString());
     }
@@ -155,8 +155,27 @@ public final class TraceMethodVisitor extends MethodVisitor {
         final String name,
         final String desc)
     {
-        p.visitMethodInsn(opcode, owner, name, desc);
-        super.visitMethodInsn(opcode, owner, name, desc);
+        visitMethodInsn(opcode,
+                owner,
+                name,
+                desc,
+                opcode == Opcodes.INVOKEINTERFACE);
+    }
+
+    @Override
+    public void visitMethodInsn(
+        final int opcode,
+        final String owner,
+        final String name,
+        final String desc,
+        final boolean itf)
+    {
+        if (itf == (opcode == Opcodes.INVOKEINTERFACE)) {
+            p.visitMethodInsn(opcode, owner, name, desc);
+        } else {
+            p.visitMethodInsn(opcode, owner, name, desc, itf);
+        }
+        super.visitMethodInsn(opcode, owner, name, desc, itf);
     }
 
     @Override
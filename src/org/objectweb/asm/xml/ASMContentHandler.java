@@ -1133,10 +1133,18 @@ public class ASMContentHandler extends DefaultHandler implements Opcodes {
                     break;
 
                 case OpcodeGroup.INSN_METHOD:
-                    getCodeVisitor().visitMethodInsn(o.opcode,
-                            attrs.getValue("owner"),
-                            attrs.getValue("name"),
-                            attrs.getValue("desc"));
+                    if ("true".equals(attrs.getValue("itf"))) {
+                        getCodeVisitor().visitMethodInsn(o.opcode,
+                                attrs.getValue("owner"),
+                                attrs.getValue("name"),
+                                attrs.getValue("desc"),
+                                true);
+                    } else {
+                        getCodeVisitor().visitMethodInsn(o.opcode,
+                                attrs.getValue("owner"),
+                                attrs.getValue("name"),
+                                attrs.getValue("desc"));
+                    }
                     break;
 
                 case OpcodeGroup.INSN_TYPE:
@@ -207,11 +207,29 @@ public final class SAXCodeAdapter extends MethodVisitor {
         final String owner,
         final String name,
         final String desc)
+    {
+        visitMethodInsn(opcode,
+                owner,
+                name,
+                desc,
+                opcode == Opcodes.INVOKEINTERFACE);
+    }
+
+    @Override
+    public final void visitMethodInsn(
+        final int opcode,
+        final String owner,
+        final String name,
+        final String desc,
+        final boolean itf)
     {
         AttributesImpl attrs = new AttributesImpl();
         attrs.addAttribute("", "owner", "owner", "", owner);
         attrs.addAttribute("", "name", "name", "", name);
         attrs.addAttribute("", "desc", "desc", "", desc);
+        if (itf && opcode != Opcodes.INVOKEINTERFACE) {
+            attrs.addAttribute("", "itf", "itf", "", "true");
+        }
         sa.addElement(Printer.OPCODES[opcode], attrs);
     }
 
@@ -0,0 +1,104 @@
+/***
+ * ASM tests
+ * Copyright (c) 2000-2011 INRIA, France Telecom
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.objectweb.asm;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import junit.framework.TestCase;
+
+/**
+ * ClassHeaderReader unit tests.
+ */
+public class ClassHeaderReaderUnitTest extends TestCase implements Opcodes {
+
+    private static ClassHeaderReader getReader(final Class<?> c)
+            throws IOException
+    {
+        String name = c.getName().replace('.', '/') + ".class";
+        InputStream is = ClassLoader.getSystemResourceAsStream(name);
+        try {
+            return new ClassHeaderReader(is);
+        } finally {
+            is.close();
+        }
+    }
+
+    public void testIllegalConstructorArgument() {
+        try {
+            new ClassHeaderReader((InputStream) null);
+            fail();
+        } catch (IOException e) {
+        }
+    }
+
+    public void testHeader() throws IOException {
+        ClassReader cr = new ClassReader(getClass().getName());
+        assertEquals(cr.header, new ClassHeaderReader(cr.b).header);
+    }
+
+    public void testOffset() throws IOException {
+        byte[] b = new ClassReader(getClass().getName()).b;
+        byte[] c = new byte[b.length + 10];
+        System.arraycopy(b, 0, c, 10, b.length);
+        ClassHeaderReader chr = new ClassHeaderReader(c, 10, b.length);
+        assertEquals(getClass().getName().replace('.', '/'),
+                chr.getClassName());
+        assertEquals(new ClassReader(b).readInt(4), chr.getVersion());
+    }
+
+    public void testGetAccess() throws Exception {
+        assertEquals(Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER,
+                getReader(getClass()).getAccess());
+    }
+
+    public void testGetClassName() throws Exception {
+        String name = getClass().getName();
+        assertEquals(name.replace('.', '/'),
+                getReader(getClass()).getClassName());
+    }
+
+    public void testGetSuperName() throws Exception {
+        assertEquals(TestCase.class.getName().replace('.', '/'),
+                getReader(getClass()).getSuperName());
+        assertEquals(null, getReader(Object.class).getSuperName());
+    }
+
+    public void testGetInterfaces() throws Exception {
+        String[] interfaces = getReader(getClass()).getInterfaces();
+        assertNotNull(interfaces);
+        assertEquals(1, interfaces.length);
+        assertEquals(Opcodes.class.getName().replace('.', '/'), interfaces[0]);
+
+        interfaces = getReader(Opcodes.class).getInterfaces();
+        assertNotNull(interfaces);
+        assertEquals(0, interfaces.length);
+    }
+}
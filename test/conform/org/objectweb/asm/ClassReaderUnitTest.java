@@ -31,9 +31,22 @@ package org.objectweb.asm;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 
 import junit.framework.TestCase;
 
+import org.objectweb.asm.commons.AnalyzerAdapter;
+import org.objectweb.asm.commons.CodeSizeEvaluator;
+import org.objectweb.asm.commons.LocalVariablesSorter;
+import org.objectweb.asm.commons.RemappingClassAdapter;
+import org.objectweb.asm.commons.SimpleRemapper;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.util.CheckClassAdapter;
+import org.objectweb.asm.util.TraceClassVisitor;
+
 /**
  * ClassReader unit tests.
  *
@@ -86,4 +99,292 @@ public class ClassReaderUnitTest extends TestCase implements Opcodes {
         interfaces = new ClassReader(Opcodes.class.getName()).getInterfaces();
         assertNotNull(interfaces);
     }
+
+    public void testUnknownConstantPoolItem() {
+        byte[] b = new byte[] {
+            (byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE,
+            0, 0, 0, 52, 0, 2, 99, 0, 0 };
+        try {
+            new ClassReader(b);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    public void testInterfaceMethodInsn() {
+        assertEquals("Itrue Kfalse ", getMethodOwners(generateInterfaceCalls()));
+    }
+
+    public void testInterfaceMethodInsnAdapters() {
+        byte[] b = generateInterfaceCalls();
+        ClassWriter cw = new ClassWriter(0);
+        ClassVisitor cv = new ClassVisitor(ASM4, cw) {
+            public MethodVisitor visitMethod(
+                final int access,
+                final String name,
+                final String desc,
+                final String signature,
+                final String[] exceptions)
+            {
+                MethodVisitor mv = super.visitMethod(access,
+                        name,
+                        desc,
+                        signature,
+                        exceptions);
+                mv = new MethodVisitor(ASM4, mv) {
+                };
+                mv = new LocalVariablesSorter(access, desc, mv);
+                mv = new CodeSizeEvaluator(mv);
+                return new AnalyzerAdapter("C", access, name, desc, mv);
+            }
+        };
+        cv = new RemappingClassAdapter(cv, new SimpleRemapper("X", "Y"));
+        cv = new TraceClassVisitor(cv, new PrintWriter(new StringWriter()));
+        cv = new CheckClassAdapter(cv);
+        new ClassReader(b).accept(cv, 0);
+        assertEquals("Itrue Kfalse ", getMethodOwners(cw.toByteArray()));
+
+        ClassNode cn = new ClassNode();
+        new ClassReader(b).accept(cn, 0);
+        cw = new ClassWriter(0);
+        cn.accept(cw);
+        assertEquals("Itrue Kfalse ", getMethodOwners(cw.toByteArray()));
+    }
+
+    private static byte[] generateInterfaceCalls() {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(V1_8, ACC_PUBLIC, "C", null, "java/lang/Object", null);
+        MethodVisitor mv = cw.visitMethod(ACC_STATIC, "m", "()V", null, null);
+        mv.visitCode();
+        mv.visitMethodInsn(INVOKESTATIC, "I", "n", "()V", true);
+        mv.visitMethodInsn(INVOKESTATIC, "K", "n", "()V", false);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /**
+     * Returns the owner and interface flag of the method instructions of the
+     * given class.
+     */
+    private static String getMethodOwners(final byte[] b) {
+        final StringBuffer sb = new StringBuffer();
+        new ClassReader(b).accept(new ClassVisitor(ASM4) {
+            public MethodVisitor visitMethod(
+                final int access,
+                final String name,
+                final String desc,
+                final String signature,
+                final String[] exceptions)
+            {
+                return new MethodVisitor(ASM4) {
+                    public void visitMethodInsn(
+                        final int opcode,
+                        final String owner,
+                        final String name,
+                        final String desc,
+                        final boolean itf)
+                    {
+                        sb.append(owner).append(itf).append(' ');
+                    }
+                };
+            }
+        }, 0);
+        return sb.toString();
+    }
+
+    public void testAcceptCode() {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(V1_7, ACC_PUBLIC | ACC_ABSTRACT, "C", null, "java/lang/Object", null);
+        cw.visitField(ACC_PUBLIC, "f", "I", null, null).visitEnd();
+        cw.visitMethod(ACC_ABSTRACT, "a", "()V", null, null).visitEnd();
+        MethodVisitor mv = cw.visitMethod(ACC_STATIC, "m", "(I)I", null, null);
+        mv.visitCode();
+        Label l = new Label();
+        mv.visitVarInsn(ILOAD, 0);
+        mv.visitJumpInsn(IFEQ, l);
+        mv.visitInvokeDynamicInsn("n", "()I", new Handle(H_INVOKESTATIC,
+                "B",
+                "b",
+                "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;"
+                        + "Ljava/lang/invoke/MethodType;)Ljava/lang/invoke/CallSite;"));
+        mv.visitInsn(IRETURN);
+        mv.visitLabel(l);
+        mv.visitLineNumber(1, l);
+        mv.visitInsn(ICONST_0);
+        mv.visitInsn(IRETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        cw.visitEnd();
+        final ClassReader cr = new ClassReader(cw.toByteArray());
+
+        final StringBuffer expected = new StringBuffer();
+        cr.accept(new ClassVisitor(ASM4) {
+            public MethodVisitor visitMethod(
+                final int access,
+                final String name,
+                final String desc,
+                final String signature,
+                final String[] exceptions)
+            {
+                return new CodeTracer(expected);
+            }
+        }, 0);
+
+        // finds the method_info structures (the class has one field
+        // without attributes)
+        int u = cr.header + 8 + 2 * cr.readUnsignedShort(cr.header + 6);
+        u += 2 + 8;
+        assertEquals(2, cr.readUnsignedShort(u));
+        u += 2;
+        StringBuffer actual = new StringBuffer();
+        assertFalse(cr.acceptCode(new CodeTracer(actual),
+                u,
+                new Attribute[0],
+                0));
+        u += 8;
+        assertTrue(cr.acceptCode(new CodeTracer(actual),
+                u,
+                new Attribute[0],
+                0));
+        assertEquals(expected.toString(), actual.toString());
+        assertTrue(actual.indexOf("n()I B.b") > 0);
+    }
+
+    /**
+     * A method visitor that records the code events of a method.
+     */
+    static class CodeTracer extends MethodVisitor {
+
+        private final StringBuffer sb;
+
+        CodeTracer(final StringBuffer sb) {
+            super(ASM4);
+            this.sb = sb;
+        }
+
+        public void visitCode() {
+            sb.append("code ");
+        }
+
+        public void visitInsn(final int opcode) {
+            sb.append(opcode).append(' ');
+        }
+
+        public void visitVarInsn(final int opcode, final int var) {
+            sb.append(opcode).append(var).append(' ');
+        }
+
+        public void visitJumpInsn(final int opcode, final Label label) {
+            sb.append(opcode).append(' ');
+        }
+
+        public void visitLabel(final Label label) {
+            sb.append("label ");
+        }
+
+        public void visitLineNumber(final int line, final Label start) {
+            sb.append("line ");
+        }
+
+        public void visitInvokeDynamicInsn(
+            final String name,
+            final String desc,
+            final Handle bsm,
+            final Object... bsmArgs)
+        {
+            sb.append(name).append(desc).append(' ');
+            sb.append(bsm.getOwner()).append('.').append(bsm.getName());
+            sb.append(' ');
+        }
+
+        public void visitMaxs(final int maxStack, final int maxLocals) {
+            sb.append(maxStack).append(maxLocals).append(' ');
+        }
+    }
+
+    public void testNestAttributes() {
+        ClassWriter cw = new ClassWriter(0);
+        cw.visit(V11, ACC_PUBLIC, "C", null, "java/lang/Object", null);
+        cw.visitAttribute(new ClassNamesAttribute("NestMembers",
+                new String[] { "C$A", "C$B" }));
+        cw.visitEnd();
+
+        // copies the class without its constant pool, then reads it back
+        ClassWriter cw2 = new ClassWriter(0);
+        cw2.visit(V11, ACC_PUBLIC, "D", null, "java/lang/Object", null);
+        new ClassReader(cw.toByteArray()).accept(new ClassVisitor(ASM4, cw2) {
+            public void visit(
+                final int version,
+                final int access,
+                final String name,
+                final String signature,
+                final String superName,
+                final String[] interfaces)
+            {
+            }
+        }, 0);
+
+        final Attribute[] attr = new Attribute[1];
+        new ClassReader(cw2.toByteArray()).accept(new ClassVisitor(ASM4) {
+            public void visitAttribute(final Attribute a) {
+                attr[0] = a;
+            }
+        }, 0);
+        assertTrue(attr[0] instanceof ClassNamesAttribute);
+        String[] names = ((ClassNamesAttribute) attr[0]).classNames;
+        assertEquals(2, names.length);
+        assertEquals("C$A", names[0]);
+        assertEquals("C$B", names[1]);
+    }
+
+    public void testConstantDynamic() throws Exception {
+        String lookup = "Ljava/lang/invoke/MethodHandles$Lookup;";
+        Handle invoke = new Handle(H_INVOKESTATIC,
+                "java/lang/invoke/ConstantBootstraps",
+                "invoke",
+                "(" + lookup + "Ljava/lang/String;Ljava/lang/Class;"
+                        + "Ljava/lang/invoke/MethodHandle;[Ljava/lang/Object;)"
+                        + "Ljava/lang/Object;");
+        ConstantDynamic c1 = new ConstantDynamic("c1", "J", invoke,
+                new Handle(H_INVOKESTATIC, "java/lang/Long", "parseLong",
+                        "(Ljava/lang/String;)J"), "42");
+        ConstantDynamic c2 = new ConstantDynamic("c2", "J", invoke,
+                new Handle(H_INVOKESTATIC, "java/lang/Long", "sum", "(JJ)J"),
+                c1, new Long(1));
+
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+        ClassVisitor cv = new CheckClassAdapter(cw, false);
+        cv.visit(V11, ACC_PUBLIC, "C", null, "java/lang/Object", null);
+        MethodVisitor mv = cv.visitMethod(ACC_PUBLIC | ACC_STATIC, "m", "()J",
+                null, null);
+        mv.visitCode();
+        mv.visitLdcInsn(c2);
+        mv.visitInsn(LRETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        cv.visitEnd();
+        byte[] b = cw.toByteArray();
+
+        ClassNode cn = new ClassNode();
+        new ClassReader(b).accept(cn, 0);
+        MethodNode mn = (MethodNode) cn.methods.get(0);
+        assertEquals(2, mn.maxStack);
+        assertEquals(c2, ((LdcInsnNode) mn.instructions.getFirst()).cst);
+
+        // copies the class without its constant pool, and computes its frames
+        cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+        cn.accept(new CheckClassAdapter(cw, false));
+        b = cw.toByteArray();
+        StringWriter sw = new StringWriter();
+        CheckClassAdapter.verify(new ClassReader(b), false, new PrintWriter(sw));
+        assertEquals("", sw.toString());
+        assertEquals(new Long(43), new ClassLoader() {
+            Class<?> define(final byte[] b) {
+                return defineClass("C", b, 0, b.length);
+            }
+        }.define(b).getMethod("m").invoke(null));
+    }
 }
@@ -0,0 +1,113 @@
+/***
+ * ASM tests
+ * Copyright (c) 2000-2011 INRIA, France Telecom
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.objectweb.asm;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+/**
+ * UTF8Cache unit tests.
+ */
+public class UTF8CacheUnitTest extends TestCase implements Opcodes {
+
+    private static byte[] generate(final String name, final String itf) {
+        ClassWriter cw = new ClassWriter(0);
+        cw.visit(V1_5, ACC_PUBLIC, name, null, "java/lang/Object",
+                new String[] { itf });
+        cw.visitField(ACC_PUBLIC, "\u00e9t\u00e9\u20ac", "I", null, null)
+                .visitEnd();
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null,
+                null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V");
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(1, 1);
+        mv.visitEnd();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    public void testSharedStrings() {
+        UTF8Cache cache = new UTF8Cache();
+        ClassReader cr1 = new ClassReader(generate("A", "I"), cache);
+        ClassReader cr2 = new ClassReader(generate("B", "I"), cache);
+        assertEquals("A", cr1.getClassName());
+        assertEquals("B", cr2.getClassName());
+        assertSame(cr1.getSuperName(), cr2.getSuperName());
+        assertSame(cr1.getInterfaces()[0], cr2.getInterfaces()[0]);
+    }
+
+    public void testCollisions() {
+        UTF8Cache cache = new UTF8Cache(1);
+        for (int i = 0; i < 10; ++i) {
+            ClassReader cr = new ClassReader(generate("C" + i, "J" + i), cache);
+            assertEquals("C" + i, cr.getClassName());
+            assertEquals("J" + i, cr.getInterfaces()[0]);
+            assertEquals("java/lang/Object", cr.getSuperName());
+        }
+    }
+
+    public void testSameResult() {
+        UTF8Cache cache = new UTF8Cache();
+        byte[] b = generate("A", "I");
+        new ClassReader(generate("B", "I"), cache).accept(new ClassWriter(0),
+                0);
+        ClassWriter cw1 = new ClassWriter(0);
+        new ClassReader(b).accept(cw1, 0);
+        ClassWriter cw2 = new ClassWriter(0);
+        new ClassReader(b, cache).accept(cw2, 0);
+        assertTrue(Arrays.equals(cw1.toByteArray(), cw2.toByteArray()));
+    }
+
+    public void testClear() {
+        UTF8Cache cache = new UTF8Cache();
+        String s = new ClassReader(generate("A", "I"), cache).getSuperName();
+        cache.clear();
+        String t = new ClassReader(generate("B", "I"), cache).getSuperName();
+        assertEquals(s, t);
+        assertNotSame(s, t);
+    }
+
+    public void testInvalidCapacity() {
+        int[] capacities = { 0, -1, (1 << 30) + 1, Integer.MAX_VALUE };
+        for (int i = 0; i < capacities.length; ++i) {
+            try {
+                new UTF8Cache(capacities[i]);
+                fail();
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+        new UTF8Cache(1);
+        new UTF8Cache(3);
+    }
+}
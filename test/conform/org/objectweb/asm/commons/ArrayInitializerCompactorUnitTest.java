@@ -0,0 +1,267 @@
+/***
+ * ASM tests
+ * Copyright (c) 2000-2011 INRIA, France Telecom
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.objectweb.asm.commons;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.util.CheckClassAdapter;
+
+/**
+ * ArrayInitializerCompactor unit tests.
+ */
+public class ArrayInitializerCompactorUnitTest extends TestCase implements
+        Opcodes
+{
+
+    private static final String[] FIELDS = { "z", "c", "f", "d", "b", "s",
+        "i", "j" };
+
+    public void testCompact() throws Exception {
+        testCompact(V1_1);
+        testCompact(V1_7);
+    }
+
+    private void testCompact(final int version) throws Exception {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        generate(cw, version, ACC_PUBLIC, 100);
+        byte[] b1 = cw.toByteArray();
+        cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        generate(new ArrayInitializerCompactor("$array$", cw),
+                version,
+                ACC_PUBLIC,
+                100);
+        byte[] b2 = cw.toByteArray();
+        assertTrue(b2.length < b1.length);
+
+        ClassNode cn = new ClassNode();
+        new ClassReader(b2).accept(new CheckClassAdapter(cn, true), 0);
+        assertEquals(1 + 8, cn.methods.size());
+
+        Class<?> c1 = new TestClassLoader().defineClass("A", b1);
+        Class<?> c2 = new TestClassLoader().defineClass("A", b2);
+        for (int i = 0; i < FIELDS.length; ++i) {
+            Field f1 = c1.getField(FIELDS[i]);
+            Field f2 = c2.getField(FIELDS[i]);
+            Object a1 = f1.get(null);
+            Object a2 = f2.get(null);
+            assertTrue(FIELDS[i], Arrays.deepEquals(new Object[] { a1 },
+                    new Object[] { a2 }));
+        }
+        assertEquals(-20000000 + 1000003 * 99, ((int[]) c2.getField("i")
+                .get(null))[99]);
+        assertTrue(Float.isNaN(((float[]) c2.getField("f").get(null))[2]));
+    }
+
+    public void testUnchanged() throws Exception {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        generate(cw, V1_7, ACC_PUBLIC, 15);
+        byte[] b1 = cw.toByteArray();
+        cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        generate(new ArrayInitializerCompactor("$array$", cw),
+                V1_7,
+                ACC_PUBLIC,
+                15);
+        assertTrue(Arrays.equals(b1, cw.toByteArray()));
+
+        int access = ACC_PUBLIC + ACC_INTERFACE + ACC_ABSTRACT;
+        cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        generate(cw, V1_7, access, 40);
+        b1 = cw.toByteArray();
+        cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        generate(new ArrayInitializerCompactor("$array$", cw),
+                V1_7,
+                access,
+                40);
+        assertTrue(Arrays.equals(b1, cw.toByteArray()));
+    }
+
+    /**
+     * Generates a class with a static array field for each primitive type,
+     * initialized with n elements in the clinit method.
+     */
+    private void generate(
+        final ClassVisitor cv,
+        final int version,
+        final int access,
+        final int n)
+    {
+        cv.visit(version, access, "A", null, "java/lang/Object", null);
+        String[] types = { "Z", "C", "F", "D", "B", "S", "I", "J" };
+        for (int i = 0; i < FIELDS.length; ++i) {
+            cv.visitField(ACC_PUBLIC + ACC_STATIC + ACC_FINAL,
+                    FIELDS[i],
+                    "[" + types[i],
+                    null,
+                    null);
+        }
+        MethodVisitor mv = cv.visitMethod(ACC_STATIC,
+                "<clinit>",
+                "()V",
+                null,
+                null);
+        mv.visitCode();
+
+        // int elements, in reverse order
+        newArray(mv, T_INT, n);
+        for (int k = n - 1; k >= 0; --k) {
+            mv.visitInsn(DUP);
+            push(mv, k);
+            push(mv, -20000000 + 1000003 * k);
+            mv.visitInsn(IASTORE);
+        }
+        mv.visitFieldInsn(PUTSTATIC, "A", "i", "[I");
+
+        // byte elements, with holes and an element set twice
+        newArray(mv, T_BYTE, n + 10);
+        for (int k = 0; k < n; ++k) {
+            mv.visitInsn(DUP);
+            push(mv, k % 5 == 0 ? k + 3 : k + 1);
+            push(mv, (byte) (7 * k - 100));
+            mv.visitInsn(BASTORE);
+        }
+        mv.visitFieldInsn(PUTSTATIC, "A", "b", "[B");
+
+        newArray(mv, T_CHAR, n);
+        for (int k = 0; k < n; ++k) {
+            mv.visitInsn(DUP);
+            push(mv, k);
+            push(mv, 1500 * k);
+            mv.visitInsn(CASTORE);
+        }
+        mv.visitFieldInsn(PUTSTATIC, "A", "c", "[C");
+
+        // short elements, with a non constant element in the middle
+        newArray(mv, T_SHORT, n);
+        for (int k = 0; k < n; ++k) {
+            mv.visitInsn(DUP);
+            push(mv, k);
+            if (k == n / 2) {
+                mv.visitFieldInsn(GETSTATIC, "A", "i", "[I");
+                mv.visitInsn(ICONST_0);
+                mv.visitInsn(IALOAD);
+                mv.visitInsn(I2S);
+            } else {
+                push(mv, (short) (997 * k - 20000));
+            }
+            mv.visitInsn(SASTORE);
+        }
+        mv.visitFieldInsn(PUTSTATIC, "A", "s", "[S");
+
+        newArray(mv, T_BOOLEAN, n);
+        for (int k = 0; k < n; ++k) {
+            mv.visitInsn(DUP);
+            push(mv, k);
+            mv.visitInsn(k % 3 == 0 ? ICONST_1 : ICONST_0);
+            mv.visitInsn(BASTORE);
+        }
+        mv.visitFieldInsn(PUTSTATIC, "A", "z", "[Z");
+
+        newArray(mv, T_LONG, n);
+        for (int k = 0; k < n; ++k) {
+            mv.visitInsn(DUP);
+            push(mv, k);
+            if (k < 2) {
+                mv.visitInsn(LCONST_0 + k);
+            } else {
+                mv.visitLdcInsn(new Long(0x123456789L * k - (1L << 40)));
+            }
+            mv.visitInsn(LASTORE);
+        }
+        mv.visitFieldInsn(PUTSTATIC, "A", "j", "[J");
+
+        newArray(mv, T_FLOAT, n);
+        for (int k = 0; k < n; ++k) {
+            mv.visitInsn(DUP);
+            push(mv, k);
+            if (k < 2) {
+                mv.visitInsn(FCONST_0 + k);
+            } else {
+                mv.visitLdcInsn(new Float(k == 2 ? Float.NaN : 1.5f * k - 7));
+            }
+            mv.visitInsn(FASTORE);
+        }
+        mv.visitFieldInsn(PUTSTATIC, "A", "f", "[F");
+
+        newArray(mv, T_DOUBLE, n);
+        for (int k = 0; k < n; ++k) {
+            mv.visitInsn(DUP);
+            push(mv, k);
+            if (k < 2) {
+                mv.visitInsn(DCONST_0 + k);
+            } else {
+                mv.visitLdcInsn(new Double(k == 3 ? -0.0 : k / 3.0));
+            }
+            mv.visitInsn(DASTORE);
+        }
+        mv.visitFieldInsn(PUTSTATIC, "A", "d", "[D");
+
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        cv.visitEnd();
+    }
+
+    private static void newArray(
+        final MethodVisitor mv,
+        final int type,
+        final int length)
+    {
+        push(mv, length);
+        mv.visitIntInsn(NEWARRAY, type);
+    }
+
+    private static void push(final MethodVisitor mv, final int value) {
+        if (value >= -1 && value <= 5) {
+            mv.visitInsn(ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(BIPUSH, value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            mv.visitIntInsn(SIPUSH, value);
+        } else {
+            mv.visitLdcInsn(new Integer(value));
+        }
+    }
+
+    static class TestClassLoader extends ClassLoader {
+
+        public Class<?> defineClass(final String name, final byte[] b) {
+            return defineClass(name, b, 0, b.length);
+        }
+    }
+}
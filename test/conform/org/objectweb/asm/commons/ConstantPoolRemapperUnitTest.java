@@ -0,0 +1,186 @@
+/***
+ * ASM tests
+ * Copyright (c) 2000-2011 INRIA, France Telecom
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.objectweb.asm.commons;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AnnotationNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.LocalVariableNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TypeInsnNode;
+
+/**
+ * ConstantPoolRemapper unit tests.
+ */
+public class ConstantPoolRemapperUnitTest extends TestCase implements Opcodes {
+
+    private static byte[] newClass() {
+        ClassWriter cw = new ClassWriter(0);
+        cw.visit(V1_5, ACC_PUBLIC, "p/A", null, "java/lang/Object", null);
+        cw.visitOuterClass("p/B", "m", "()V");
+        cw.visitField(ACC_PUBLIC,
+                "f",
+                "Lp/B;",
+                "Ljava/util/List<Lp/B;>;",
+                null).visitEnd();
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC,
+                "m",
+                "(Lp/B;)V",
+                null,
+                null);
+        AnnotationVisitor av = mv.visitAnnotation("Lp/Ann;", true);
+        av.visit("c", Type.getType("Lp/B;"));
+        av.visitEnum("e", "Lp/E;", "V");
+        av.visit("s", "p/B");
+        av.visitEnd();
+        mv.visitCode();
+        Label start = new Label();
+        Label end = new Label();
+        mv.visitLabel(start);
+        mv.visitLdcInsn("p/B");
+        mv.visitInsn(POP);
+        mv.visitTypeInsn(NEW, "p/B");
+        mv.visitInsn(POP);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitMethodInsn(INVOKEVIRTUAL, "p/B", "m", "()V");
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitMethodInsn(INVOKEVIRTUAL, "q/C", "m", "()V");
+        mv.visitInsn(RETURN);
+        mv.visitLabel(end);
+        mv.visitLocalVariable("b", "Lp/B;", null, start, end, 1);
+        mv.visitMaxs(1, 2);
+        mv.visitEnd();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private static Remapper newRemapper() {
+        Map<String, String> mapping = new HashMap<String, String>();
+        mapping.put("p/A", "r/A");
+        mapping.put("p/B", "r/B");
+        mapping.put("p/Ann", "r/Ann");
+        mapping.put("p/E", "r/E");
+        mapping.put("p/B.m()V", "n");
+        return new SimpleRemapper(mapping);
+    }
+
+    public void testRemap() {
+        byte[] b = newClass();
+        byte[] result = new ConstantPoolRemapper(newRemapper()).remap(new ClassReader(b));
+        ClassNode cn = new ClassNode();
+        new ClassReader(result).accept(cn, 0);
+        assertEquals("r/A", cn.name);
+        assertEquals("r/B", cn.outerClass);
+        assertEquals("n", cn.outerMethod);
+        assertEquals("()V", cn.outerMethodDesc);
+
+        FieldNode fn = (FieldNode) cn.fields.get(0);
+        assertEquals("Lr/B;", fn.desc);
+        assertEquals("Ljava/util/List<Lr/B;>;", fn.signature);
+
+        MethodNode mn = (MethodNode) cn.methods.get(0);
+        assertEquals("m", mn.name);
+        assertEquals("(Lr/B;)V", mn.desc);
+        AnnotationNode an = (AnnotationNode) mn.visibleAnnotations.get(0);
+        assertEquals("Lr/Ann;", an.desc);
+        assertEquals(Type.getType("Lr/B;"), an.values.get(1));
+        assertEquals("Lr/E;", ((String[]) an.values.get(3))[0]);
+        assertEquals("p/B", an.values.get(5));
+        assertEquals("p/B", ((LdcInsnNode) mn.instructions.get(1)).cst);
+        assertEquals("r/B", ((TypeInsnNode) mn.instructions.get(3)).desc);
+        MethodInsnNode min = (MethodInsnNode) mn.instructions.get(6);
+        assertEquals("r/B", min.owner);
+        assertEquals("n", min.name);
+        min = (MethodInsnNode) mn.instructions.get(8);
+        assertEquals("q/C", min.owner);
+        assertEquals("m", min.name);
+        assertEquals("Lr/B;",
+                ((LocalVariableNode) mn.localVariables.get(0)).desc);
+    }
+
+    public void testRemapCopiesCode() {
+        byte[] b = newClass();
+        byte[] result = new ConstantPoolRemapper(newRemapper()).remap(new ClassReader(b));
+        assertTrue(Arrays.equals(getCode(b), getCode(result)));
+    }
+
+    public void testRemapUnchanged() {
+        byte[] b = newClass();
+        Remapper remapper = new SimpleRemapper("x/X", "y/Y");
+        assertSame(b,
+                new ConstantPoolRemapper(remapper).remap(new ClassReader(b)));
+    }
+
+    /**
+     * Returns the bytecode of the first method of the given class.
+     */
+    private static byte[] getCode(final byte[] b) {
+        ClassReader cr = new ClassReader(b);
+        int u = cr.header + 8 + 2 * cr.readUnsignedShort(cr.header + 6);
+        // skips the fields
+        int fields = cr.readUnsignedShort(u);
+        u += 2;
+        for (int i = 0; i < fields; ++i) {
+            int attributes = cr.readUnsignedShort(u + 6);
+            u += 8;
+            for (int j = 0; j < attributes; ++j) {
+                u += 6 + cr.readInt(u + 2);
+            }
+        }
+        // finds the Code attribute of the first method
+        int attributes = cr.readUnsignedShort(u + 8);
+        u += 10;
+        char[] buf = new char[cr.getMaxStringLength()];
+        for (int i = 0; i < attributes; ++i) {
+            if ("Code".equals(cr.readUTF8(u, buf))) {
+                byte[] code = new byte[cr.readInt(u + 10)];
+                System.arraycopy(b, u + 14, code, 0, code.length);
+                return code;
+            }
+            u += 6 + cr.readInt(u + 2);
+        }
+        return null;
+    }
+}
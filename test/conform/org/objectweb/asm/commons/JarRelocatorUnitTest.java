@@ -0,0 +1,258 @@
+/***
+ * ASM tests
+ * Copyright (c) 2000-2011 INRIA, France Telecom
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.objectweb.asm.commons;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.TestCase;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldNode;
+
+/**
+ * JarRelocator unit tests.
+ */
+public class JarRelocatorUnitTest extends TestCase implements Opcodes {
+
+    private static final Remapper SHADER = new Remapper() {
+        @Override
+        public String map(final String typeName) {
+            return typeName.startsWith("p/") ? "shaded/" + typeName : null;
+        }
+    };
+
+    private byte[] a;
+
+    private byte[] b;
+
+    private byte[] c;
+
+    private byte[] jar;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        ClassWriter cw = new ClassWriter(0);
+        cw.visit(V1_5, ACC_PUBLIC, "p/A", null, "java/lang/Object", null);
+        cw.visitField(ACC_PUBLIC,
+                "b",
+                "Lp/B;",
+                "Ljava/util/List<Lp/B;>;",
+                null).visitEnd();
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "m", "()V", null, null);
+        mv.visitCode();
+        mv.visitTypeInsn(NEW, "p/B");
+        mv.visitInsn(DUP);
+        mv.visitMethodInsn(INVOKESPECIAL, "p/B", "<init>", "()V");
+        mv.visitInsn(POP);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(2, 1);
+        mv.visitEnd();
+        cw.visitEnd();
+        a = cw.toByteArray();
+        b = newClass("p/B", "java/lang/Object", "p/Spi");
+        c = newClass("q/C", "java/lang/Object", "java/lang/Runnable");
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ZipOutputStream zos = new ZipOutputStream(bos);
+        putEntry(zos, "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\n");
+        putEntry(zos, "META-INF/services/p.Spi", "# comment\np.B # impl\nq.C\n");
+        putEntry(zos, "p/", null);
+        putEntry(zos, "p/A.class", a);
+        putEntry(zos, "p/B.class", b);
+        putEntry(zos, "p/res.properties", "k=v\n");
+        putEntry(zos, "q/C.class", c);
+        putEntry(zos, "root.txt", "p/A\n");
+        zos.close();
+        jar = bos.toByteArray();
+    }
+
+    private static byte[] newClass(
+        final String name,
+        final String superName,
+        final String itf)
+    {
+        ClassWriter cw = new ClassWriter(0);
+        cw.visit(V1_5, ACC_PUBLIC, name, null, superName, new String[] { itf });
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private static void putEntry(
+        final ZipOutputStream zos,
+        final String name,
+        final Object data) throws IOException
+    {
+        ZipEntry ze = new ZipEntry(name);
+        ze.setTime(1000000000000L);
+        zos.putNextEntry(ze);
+        if (data instanceof String) {
+            zos.write(((String) data).getBytes("UTF-8"));
+        } else if (data != null) {
+            zos.write((byte[]) data);
+        }
+        zos.closeEntry();
+    }
+
+    private static byte[] relocate(
+        final byte[] jar,
+        final Remapper remapper,
+        final ExecutorService executor) throws IOException
+    {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        new JarRelocator(remapper, executor).relocate(new ByteArrayInputStream(jar),
+                bos);
+        return bos.toByteArray();
+    }
+
+    private static List<Object[]> readEntries(final byte[] jar)
+            throws IOException
+    {
+        List<Object[]> entries = new ArrayList<Object[]>();
+        ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(jar));
+        ZipEntry ze;
+        while ((ze = zis.getNextEntry()) != null) {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            byte[] buf = new byte[1024];
+            int n;
+            while ((n = zis.read(buf)) > 0) {
+                bos.write(buf, 0, n);
+            }
+            entries.add(new Object[] { ze.getName(), bos.toByteArray() });
+            assertEquals(1000000000000L, ze.getTime());
+        }
+        return entries;
+    }
+
+    public void testRelocate() throws IOException {
+        List<Object[]> entries = readEntries(relocate(jar, SHADER, null));
+        String[] names = new String[entries.size()];
+        for (int i = 0; i < names.length; ++i) {
+            names[i] = (String) entries.get(i)[0];
+        }
+        assertEquals(Arrays.asList(new String[] {
+            "META-INF/MANIFEST.MF",
+            "META-INF/services/shaded.p.Spi",
+            "shaded/p/",
+            "shaded/p/A.class",
+            "shaded/p/B.class",
+            "shaded/p/res.properties",
+            "q/C.class",
+            "root.txt" }), Arrays.asList(names));
+        assertEquals("# comment\nshaded.p.B # impl\nq.C\n",
+                new String((byte[]) entries.get(1)[1], "UTF-8"));
+        assertEquals("p/A\n", new String((byte[]) entries.get(7)[1], "UTF-8"));
+
+        ClassNode cn = new ClassNode();
+        new ClassReader((byte[]) entries.get(3)[1]).accept(cn, 0);
+        assertEquals("shaded/p/A", cn.name);
+        FieldNode fn = (FieldNode) cn.fields.get(0);
+        assertEquals("Lshaded/p/B;", fn.desc);
+        assertEquals("Ljava/util/List<Lshaded/p/B;>;", fn.signature);
+        cn = new ClassNode();
+        new ClassReader((byte[]) entries.get(4)[1]).accept(cn, 0);
+        assertEquals("shaded/p/B", cn.name);
+        assertEquals(Arrays.asList(new String[] { "shaded/p/Spi" }),
+                cn.interfaces);
+        // unchanged classes are copied as is
+        assertTrue(Arrays.equals(c, (byte[]) entries.get(6)[1]));
+    }
+
+    public void testDeterministic() throws IOException {
+        byte[] expected = relocate(jar, SHADER, null);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int i = 0; i < 10; ++i) {
+                assertTrue(Arrays.equals(expected, relocate(jar,
+                        SHADER,
+                        executor)));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        // the constant pool scan must not change the result
+        Remapper shader = new Remapper() {
+            @Override
+            public String map(final String typeName) {
+                return SHADER.map(typeName);
+            }
+
+            @Override
+            public String mapFieldName(
+                final String owner,
+                final String name,
+                final String desc)
+            {
+                return name;
+            }
+        };
+        assertTrue(Arrays.equals(expected, relocate(jar, shader, null)));
+    }
+
+    public void testNeedsRemapping() {
+        ClassWriter cw = new ClassWriter(0);
+        cw.visit(V1_5, ACC_PUBLIC, "q/D", null, "java/lang/Object", null);
+        cw.visitField(ACC_PUBLIC,
+                "f",
+                "Lq/G$Inner;",
+                "Lq/G<Ljava/lang/String;>.Inner;",
+                null).visitEnd();
+        cw.visitEnd();
+        ClassReader d = new ClassReader(cw.toByteArray());
+        JarRelocator relocator = new JarRelocator(SHADER, null);
+        assertFalse(relocator.needsRemapping(d));
+        assertFalse(relocator.needsRemapping(new ClassReader(c)));
+        assertTrue(relocator.needsRemapping(new ClassReader(a)));
+        relocator = new JarRelocator(new Remapper() {
+            @Override
+            public String map(final String typeName) {
+                return typeName.equals("q/G$Inner") ? "q/G$Renamed" : null;
+            }
+        }, null);
+        assertTrue(relocator.needsRemapping(d));
+        assertFalse(relocator.needsRemapping(new ClassReader(c)));
+        relocator = new JarRelocator(new SimpleRemapper("x/Y", "x/Z"), null);
+        assertTrue(relocator.needsRemapping(new ClassReader(c)));
+    }
+}
@@ -0,0 +1,260 @@
+/***
+ * ASM tests
+ * Copyright (c) 2000-2011 INRIA, France Telecom
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.objectweb.asm.commons;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.TestCase;
+
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.MethodWriterDelegate;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.splitlarge.SplitMethodWriterDelegate;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.util.CheckClassAdapter;
+import org.objectweb.asm.util.TraceClassVisitor;
+
+/**
+ * ParallelClassWriter unit tests.
+ */
+public class ParallelClassWriterUnitTest extends TestCase implements Opcodes {
+
+    private ExecutorService executor;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        executor.shutdown();
+        super.tearDown();
+    }
+
+    private byte[] write(final byte[] b, final ExecutorService executor) {
+        ParallelClassWriter pcw = new ParallelClassWriter(ClassWriter.COMPUTE_FRAMES,
+                executor);
+        new ClassReader(b).accept(pcw, ClassReader.SKIP_FRAMES);
+        return pcw.toByteArray();
+    }
+
+    public void testDeterministic() throws Exception {
+        byte[] b = new ClassReader(ClassReader.class.getName()).b;
+        byte[] b1 = write(b, null);
+        byte[] b2 = write(b, executor);
+        byte[] b3 = write(b, executor);
+        assertTrue(java.util.Arrays.equals(b1, b2));
+        assertTrue(java.util.Arrays.equals(b1, b3));
+        new ClassReader(b2).accept(new CheckClassAdapter(new ClassNode(), true),
+                0);
+    }
+
+    public void testCopiedMethods() throws Exception {
+        byte[] b = generateMethods();
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+        new ClassReader(b).accept(cw, ClassReader.SKIP_FRAMES);
+        byte[] b1 = write(b, executor);
+        assertEquals(toString(cw.toByteArray()), toString(b1));
+        new ClassReader(b1).accept(new CheckClassAdapter(new ClassNode(), true),
+                0);
+    }
+
+    private static String toString(final byte[] b) {
+        StringWriter sw = new StringWriter();
+        new ClassReader(b).accept(new TraceClassVisitor(new PrintWriter(sw)),
+                0);
+        return sw.toString();
+    }
+
+    /**
+     * Generates a class whose methods use all the attributes and constant pool
+     * items that the copied methods can reference. The "ldc" method loads too
+     * many constants to be copied as is.
+     */
+    private static byte[] generateMethods() {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+        cw.visit(V1_7, ACC_PUBLIC, "C", null, "java/lang/Object", null);
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC + ACC_STATIC
+                + ACC_DEPRECATED,
+                "m",
+                "(ILjava/lang/Object;)Ljava/lang/Object;",
+                "<T:Ljava/lang/Object;>(ITT;)Ljava/lang/Object;",
+                new String[] { "java/io/IOException" });
+        AnnotationVisitor av = mv.visitAnnotation("LA;", true);
+        av.visit("i", new Integer(1));
+        av.visit("s", "s");
+        av.visit("c", Type.getType("LC;"));
+        av.visitEnum("e", "LE;", "V");
+        av.visitAnnotation("a", "LB;").visitEnd();
+        AnnotationVisitor aav = av.visitArray("l");
+        aav.visit(null, new Long(2));
+        aav.visitEnd();
+        av.visitEnd();
+        mv.visitParameterAnnotation(1, "LP;", false).visitEnd();
+        mv.visitAnnotationDefault().visit(null, new Double(3));
+        mv.visitCode();
+        Label start = new Label();
+        Label end = new Label();
+        Label handler = new Label();
+        Label dflt = new Label();
+        Label l0 = new Label();
+        Label l1 = new Label();
+        mv.visitTryCatchBlock(start, end, handler, "java/lang/RuntimeException");
+        mv.visitLabel(start);
+        mv.visitVarInsn(ILOAD, 0);
+        mv.visitTableSwitchInsn(0, 1, dflt, new Label[] { l0, l1 });
+        mv.visitLabel(l0);
+        mv.visitLdcInsn("l0");
+        mv.visitInsn(ARETURN);
+        mv.visitLabel(l1);
+        mv.visitLdcInsn(new Long(1));
+        mv.visitInsn(POP2);
+        mv.visitVarInsn(ILOAD, 0);
+        mv.visitLookupSwitchInsn(dflt, new int[] { 5 }, new Label[] { l0 });
+        mv.visitLabel(dflt);
+        mv.visitFieldInsn(GETSTATIC, "java/lang/System", "out",
+                "Ljava/io/PrintStream;");
+        mv.visitInsn(POP);
+        mv.visitTypeInsn(NEW, "java/lang/StringBuffer");
+        mv.visitInsn(DUP);
+        mv.visitMethodInsn(INVOKESPECIAL,
+                "java/lang/StringBuffer",
+                "<init>",
+                "()V");
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitTypeInsn(CHECKCAST, "java/lang/String");
+        mv.visitMethodInsn(INVOKEVIRTUAL,
+                "java/lang/StringBuffer",
+                "append",
+                "(Ljava/lang/String;)Ljava/lang/StringBuffer;");
+        mv.visitMethodInsn(INVOKEINTERFACE,
+                "java/lang/CharSequence",
+                "length",
+                "()I");
+        mv.visitInvokeDynamicInsn("d",
+                "(I)Ljava/lang/Object;",
+                new Handle(H_INVOKESTATIC, "C", "bsm",
+                        "(Ljava/lang/Object;)Ljava/lang/Object;"),
+                new Object[] { "x", Type.getType("()V"), new Integer(4) });
+        mv.visitLabel(end);
+        mv.visitInsn(ARETURN);
+        mv.visitLabel(handler);
+        mv.visitInsn(POP);
+        mv.visitInsn(ICONST_1);
+        mv.visitInsn(ICONST_2);
+        mv.visitMultiANewArrayInsn("[[I", 2);
+        mv.visitInsn(ARETURN);
+        mv.visitLocalVariable("t", "Ljava/lang/Object;", "TT;", start, end, 1);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        mv = cw.visitMethod(ACC_STATIC, "ldc", "()V", null, null);
+        mv.visitCode();
+        for (int i = 0; i < 300; ++i) {
+            mv.visitLdcInsn("c" + i);
+            mv.visitInsn(POP);
+        }
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        mv = cw.visitMethod(ACC_STATIC, "n", "()V", null, null);
+        mv.visitCode();
+        mv.visitLdcInsn("c0");
+        mv.visitInsn(POP);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    public void testSplit() throws Exception {
+        int oldMaxCodeLength = ClassWriter.MAX_CODE_LENGTH;
+        ClassWriter.MAX_CODE_LENGTH = 200;
+        try {
+            ParallelClassWriter pcw = new ParallelClassWriter(ClassWriter.COMPUTE_FRAMES,
+                    executor)
+            {
+                @Override
+                protected MethodWriterDelegate newTooLargeDelegate() {
+                    return new SplitMethodWriterDelegate();
+                }
+            };
+            pcw.visit(V1_6, ACC_PUBLIC, "C", null, "java/lang/Object", null);
+            for (int i = 0; i < 8; ++i) {
+                MethodVisitor mv = pcw.visitMethod(ACC_PUBLIC + ACC_STATIC,
+                        "m" + i,
+                        "()I",
+                        null,
+                        null);
+                mv.visitCode();
+                mv.visitInsn(ICONST_0);
+                mv.visitVarInsn(ISTORE, 0);
+                for (int j = 0; j < 60; ++j) {
+                    mv.visitIincInsn(0, i + 1);
+                    for (int k = 0; k < 5; ++k) {
+                        mv.visitInsn(NOP);
+                    }
+                }
+                mv.visitVarInsn(ILOAD, 0);
+                mv.visitInsn(IRETURN);
+                mv.visitMaxs(0, 0);
+                mv.visitEnd();
+            }
+            pcw.visitEnd();
+            byte[] b = pcw.toByteArray();
+            ClassNode cn = new ClassNode();
+            new ClassReader(b).accept(new CheckClassAdapter(cn, true), 0);
+            assertTrue(cn.methods.size() > 8);
+            Class<?> c = new ClassLoader() {
+                Class<?> define(final byte[] b) {
+                    return defineClass("C", b, 0, b.length);
+                }
+            }.define(b);
+            for (int i = 0; i < 8; ++i) {
+                assertEquals(60 * (i + 1), c.getMethod("m" + i).invoke(null));
+            }
+        } finally {
+            ClassWriter.MAX_CODE_LENGTH = oldMaxCodeLength;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/***
+ * ASM tests
+ * Copyright (c) 2000-2011 INRIA, France Telecom
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.objectweb.asm.commons;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.objectweb.asm.Type;
+
+/**
+ * Remapper and CachingRemapper unit tests.
+ */
+public class RemapperUnitTest extends TestCase {
+
+    private Remapper newRemapper() {
+        Map<String, String> mapping = new HashMap<String, String>();
+        mapping.put("a/A", "b/B");
+        mapping.put("a/C", "a/C");
+        mapping.put("x/X", "LongerName");
+        return new SimpleRemapper(mapping);
+    }
+
+    public void testMapDesc() {
+        Remapper r = newRemapper();
+        String desc = "Ljava/lang/String;";
+        assertSame(desc, r.mapDesc(desc));
+        desc = "La/C;";
+        assertSame(desc, r.mapDesc(desc));
+        assertSame("I", r.mapDesc("I"));
+        assertEquals("Lb/B;", r.mapDesc("La/A;"));
+        assertEquals("[[Lb/B;", r.mapDesc("[[La/A;"));
+        assertEquals("[LLongerName;", r.mapDesc("[Lx/X;"));
+    }
+
+    public void testMapMethodDesc() {
+        Remapper r = newRemapper();
+        String desc = "(I[JLjava/lang/Object;La/C;)V";
+        assertSame(desc, r.mapMethodDesc(desc));
+        assertEquals("()V", r.mapMethodDesc("()V"));
+        assertEquals("(ILb/B;[[Lb/B;J)LLongerName;",
+                r.mapMethodDesc("(ILa/A;[[La/A;J)Lx/X;"));
+        assertEquals("(LLongerName;Ljava/lang/Object;Lb/B;)[I",
+                r.mapMethodDesc("(Lx/X;Ljava/lang/Object;La/A;)[I"));
+    }
+
+    public void testMapType() {
+        Remapper r = newRemapper();
+        assertEquals(null, r.mapType(null));
+        assertEquals("java/lang/Object", r.mapType("java/lang/Object"));
+        assertEquals("b/B", r.mapType("a/A"));
+        assertEquals("[Lb/B;", r.mapType("[La/A;"));
+        assertEquals("[I", r.mapType("[I"));
+        assertEquals(Type.getType("(Lb/B;)V"),
+                r.mapValue(Type.getType("(La/A;)V")));
+        assertEquals(Type.getType("[Lb/B;"), r.mapValue(Type.getType("[La/A;")));
+    }
+
+    public void testMapDescOverridden() {
+        Remapper r = new Remapper() {
+            @Override
+            public String mapDesc(final String desc) {
+                return "La/A;".equals(desc) ? "Lb/B;" : desc;
+            }
+        };
+        assertEquals("(ILb/B;[[La/A;J)Lb/B;",
+                r.mapMethodDesc("(ILa/A;[[La/A;J)La/A;"));
+        assertEquals("Lb/B;", r.mapMethodDesc("La/A;"));
+        assertEquals("[[Lb/B;", r.mapType("[[La/A;"));
+        assertEquals("a/A", r.mapType("a/A"));
+        assertEquals(Type.getType("[Lb/B;"), r.mapValue(Type.getType("[La/A;")));
+        assertEquals(Type.getType("(Lb/B;)V"),
+                r.mapValue(Type.getType("(La/A;)V")));
+
+        final Remapper remapper = r;
+        r = new CachingRemapper(remapper);
+        assertEquals("(Lb/B;)[La/A;", r.mapMethodDesc("(La/A;)[La/A;"));
+        assertEquals("[Lb/B;", r.mapType("[La/A;"));
+    }
+
+    public void testCachingRemapper() {
+        final int[] calls = new int[1];
+        final Remapper remapper = newRemapper();
+        Remapper r = new CachingRemapper(new Remapper() {
+            @Override
+            public String map(final String typeName) {
+                ++calls[0];
+                return remapper.map(typeName);
+            }
+        }, 2);
+        assertEquals("(Lb/B;)V", r.mapMethodDesc("(La/A;)V"));
+        assertEquals("(Lb/B;)V", r.mapMethodDesc("(La/A;)V"));
+        assertEquals(1, calls[0]);
+        assertEquals(null, r.map("java/lang/Object"));
+        assertEquals(null, r.map("java/lang/Object"));
+        assertEquals(2, calls[0]);
+        assertEquals("Lb/B;", r.mapDesc("La/A;"));
+        assertEquals("Ljava/util/List<Lb/B;>;",
+                r.mapSignature("Ljava/util/List<La/A;>;", true));
+        assertEquals("Ljava/util/List<Lb/B;>;",
+                r.mapSignature("Ljava/util/List<La/A;>;", true));
+        assertEquals(null, r.mapSignature(null, false));
+        assertEquals("b/B", r.mapType("a/A"));
+        calls[0] = 0;
+        r.mapMethodDesc("(La/C;)V");
+        r.mapMethodDesc("(La/A;)V");
+        assertEquals(1, calls[0]);
+        r.mapMethodDesc("(Lx/X;)V");
+        r.mapMethodDesc("(La/A;)V");
+        assertEquals(3, calls[0]);
+    }
+}
@@ -0,0 +1,135 @@
+/***
+ * ASM tests
+ * Copyright (c) 2000-2011 INRIA, France Telecom
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.objectweb.asm.commons;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectStreamClass;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.TestCase;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+
+/**
+ * Tests for the static SerialVersionUIDAdder computeSVUID(s) methods.
+ */
+public class SerialVersionUIDComputationUnitTest extends TestCase {
+
+    private static final String[] NAMES = {
+        SerialVersionUIDAdderUnitTest.class.getName(),
+        "java.util.ArrayList",
+        "java.lang.Runnable" };
+
+    public void testComputeSVUID() throws Exception {
+        ClassReader cr = new ClassReader(NAMES[0]);
+        assertEquals(194753646298127968L, SerialVersionUIDAdder.computeSVUID(cr));
+        assertEquals(ObjectStreamClass.lookup(SerialVersionUIDAdderUnitTest.class)
+                .getSerialVersionUID(), SerialVersionUIDAdder.computeSVUID(cr));
+    }
+
+    public void testComputeSHAdigestOverridden() throws Exception {
+        final long[] svuid = new long[1];
+        final int[] calls = new int[1];
+        ClassVisitor cv = new SerialVersionUIDAdder(null) {
+            @Override
+            protected long computeSVUID() throws IOException {
+                svuid[0] = super.computeSVUID();
+                return svuid[0];
+            }
+
+            @Override
+            protected byte[] computeSHAdigest(final byte[] value) {
+                ++calls[0];
+                return super.computeSHAdigest(value);
+            }
+        };
+        new ClassReader(NAMES[0]).accept(cv, 0);
+        assertEquals(1, calls[0]);
+        assertEquals(194753646298127968L, svuid[0]);
+
+        cv = new SerialVersionUIDAdder(null) {
+            @Override
+            protected long computeSVUID() throws IOException {
+                svuid[0] = super.computeSVUID();
+                return svuid[0];
+            }
+
+            @Override
+            protected byte[] computeSHAdigest(final byte[] value) {
+                return new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 };
+            }
+        };
+        new ClassReader(NAMES[0]).accept(cv, 0);
+        assertEquals(0x0807060504030201L, svuid[0]);
+    }
+
+    public void testComputeSVUIDs() throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ZipOutputStream zos = new ZipOutputStream(bos);
+        zos.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+        zos.closeEntry();
+        for (int i = 0; i < NAMES.length; ++i) {
+            zos.putNextEntry(new ZipEntry(NAMES[i].replace('.', '/') + ".class"));
+            ClassReader cr = new ClassReader(NAMES[i]);
+            zos.write(cr.b);
+            zos.closeEntry();
+        }
+        zos.close();
+        byte[] jar = bos.toByteArray();
+
+        Map<String, Long> svuids = SerialVersionUIDAdder.computeSVUIDs(new ByteArrayInputStream(jar),
+                null);
+        assertEquals(NAMES.length, svuids.size());
+        int i = 0;
+        for (Map.Entry<String, Long> e : svuids.entrySet()) {
+            assertEquals(NAMES[i].replace('.', '/'), e.getKey());
+            assertEquals(SerialVersionUIDAdder.computeSVUID(new ClassReader(NAMES[i++])),
+                    e.getValue().longValue());
+        }
+        assertEquals(194753646298127968L,
+                svuids.get(NAMES[0].replace('.', '/')).longValue());
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            assertEquals(svuids,
+                    SerialVersionUIDAdder.computeSVUIDs(new ByteArrayInputStream(jar),
+                            executor));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -31,8 +31,10 @@ package org.objectweb.asm.commons;
 
 import junit.framework.TestCase;
 
+import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 
@@ -78,6 +80,112 @@ public class StaticInitMergerTest extends TestCase implements Opcodes {
         assertEquals(c.getField("counter").getInt(c.newInstance()), 5);
     }
 
+    public void testSplit() throws Exception {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        generateLargeStaticInit(new StaticInitMerger("$clinit$", 1000, cw),
+                V1_1,
+                "B");
+        checkLargeStaticInit(cw.toByteArray(), "B");
+    }
+
+    public void testSplitWithFrames() throws Exception {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+        generateLargeStaticInit(cw, V1_7, "C");
+        ClassReader cr = new ClassReader(cw.toByteArray());
+        cw = new ClassWriter(0);
+        cr.accept(new StaticInitMerger("$clinit$", 1000, cw), 0);
+        checkLargeStaticInit(cw.toByteArray(), "C");
+    }
+
+    private void generateLargeStaticInit(
+        final ClassVisitor cv,
+        final int version,
+        final String name)
+    {
+        cv.visit(version, ACC_PUBLIC, name, null, "java/lang/Object", null);
+        cv.visitField(ACC_PUBLIC + ACC_STATIC, "values", "[I", null, null);
+        cv.visitField(ACC_PUBLIC + ACC_STATIC, "sum", "I", null, null);
+        MethodVisitor mv = cv.visitMethod(ACC_STATIC,
+                "<clinit>",
+                "()V",
+                null,
+                null);
+        mv.visitCode();
+        mv.visitIntInsn(SIPUSH, 1000);
+        mv.visitIntInsn(NEWARRAY, T_INT);
+        mv.visitFieldInsn(PUTSTATIC, name, "values", "[I");
+        for (int i = 0; i < 500; ++i) {
+            mv.visitFieldInsn(GETSTATIC, name, "values", "[I");
+            mv.visitIntInsn(SIPUSH, i);
+            mv.visitIntInsn(SIPUSH, 3 * i);
+            mv.visitInsn(IASTORE);
+        }
+        // sum = values[0] + ... + values[499], with a loop that must not be
+        // split, and a local variable that must not cross a split point
+        Label loop = new Label();
+        Label end = new Label();
+        mv.visitInsn(ICONST_0);
+        mv.visitVarInsn(ISTORE, 0);
+        mv.visitLabel(loop);
+        mv.visitVarInsn(ILOAD, 0);
+        mv.visitIntInsn(SIPUSH, 500);
+        mv.visitJumpInsn(IF_ICMPGE, end);
+        mv.visitFieldInsn(GETSTATIC, name, "sum", "I");
+        mv.visitFieldInsn(GETSTATIC, name, "values", "[I");
+        mv.visitVarInsn(ILOAD, 0);
+        mv.visitInsn(IALOAD);
+        mv.visitInsn(IADD);
+        mv.visitFieldInsn(PUTSTATIC, name, "sum", "I");
+        mv.visitIincInsn(0, 1);
+        mv.visitJumpInsn(GOTO, loop);
+        mv.visitLabel(end);
+        for (int i = 500; i < 1000; ++i) {
+            mv.visitFieldInsn(GETSTATIC, name, "values", "[I");
+            mv.visitIntInsn(SIPUSH, i);
+            mv.visitIntInsn(SIPUSH, 3 * i);
+            mv.visitInsn(IASTORE);
+        }
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        cv.visitEnd();
+    }
+
+    private void checkLargeStaticInit(final byte[] b, final String name)
+        throws Exception
+    {
+        final int[] methods = new int[1];
+        new ClassReader(b).accept(new ClassVisitor(ASM4) {
+            @Override
+            public MethodVisitor visitMethod(
+                final int access,
+                final String name,
+                final String desc,
+                final String signature,
+                final String[] exceptions)
+            {
+                if (!name.startsWith("$clinit$")) {
+                    return null;
+                }
+                ++methods[0];
+                return new CodeSizeEvaluator(null) {
+                    @Override
+                    public void visitEnd() {
+                        assertTrue(getMaxSize() <= 1000);
+                    }
+                };
+            }
+        }, 0);
+        assertTrue(methods[0] > 1);
+
+        Class<?> c = LOADER.defineClass(name, b);
+        int[] values = (int[]) c.getField("values").get(null);
+        for (int i = 0; i < values.length; ++i) {
+            assertEquals(3 * i, values[i]);
+        }
+        assertEquals(3 * 499 * 500 / 2, c.getField("sum").getInt(null));
+    }
+
     // ------------------------------------------------------------------------
 
     static class TestClassLoader extends ClassLoader {
@@ -38,6 +38,8 @@ import org.objectweb.asm.tree.ClassNode;
 import junit.framework.TestCase;
 
 import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
 import java.io.FileNotFoundException;
 
 /**
@@ -60,6 +62,14 @@ public class ClassWriterMethodSizeTest extends TestCase {
     PrintWriter out;
 
     private void startMethod(String className, int access, int maxCodeLength, int sparseThreshold) {
+        startMethod(className, access, maxCodeLength, sparseThreshold, ClassWriter.COMPUTE_FRAMES);
+    }
+
+    private void startMethod(String className, int access, int maxCodeLength, int sparseThreshold, int flags) {
+        startMethod(className, access, maxCodeLength, sparseThreshold, flags, Opcodes.V1_6);
+    }
+
+    private void startMethod(String className, int access, int maxCodeLength, int sparseThreshold, int flags, int version) {
         this.className = className;
         oldMaxCodeLength = ClassWriter.MAX_CODE_LENGTH;
         oldSparseThreshold = BasicBlock.SPARSE_FRAME_TRANSFER_THRESHOLD;
@@ -72,10 +82,10 @@ public class ClassWriterMethodSizeTest extends TestCase {
         catch (FileNotFoundException e) {
         }
         */
-        this.cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES, new SplitMethodWriterDelegate(/* this.out */));
+        this.cw = new ClassWriter(flags, new SplitMethodWriterDelegate(/* this.out */));
         TraceClassVisitor tcv = new TraceClassVisitor(cw, new java.io.PrintWriter(System.out));
         this.cv = tcv;
-        this.cv.visit(Opcodes.V1_6,
+        this.cv.visit(version,
                       Opcodes.ACC_PUBLIC,
                       className,
                       null,
@@ -105,7 +115,7 @@ public class ClassWriterMethodSizeTest extends TestCase {
         }
     }
 
-    private void endMethod() {
+    private byte[] endMethod() {
         try {
             this.mv.visitMaxs(0, 0);
             this.mv.visitEnd();
@@ -116,6 +126,7 @@ public class ClassWriterMethodSizeTest extends TestCase {
             // make sure this code may actually work
             MyClassLoader myClassLoader = new MyClassLoader();
             myClassLoader.defineClass(className, b);
+            return b;
         }
         finally {
             ClassWriter.MAX_CODE_LENGTH = oldMaxCodeLength;
@@ -723,4 +734,183 @@ public class ClassWriterMethodSizeTest extends TestCase {
         endMethod();
     }
 
+    /**
+     * Method with a try/finally block compiled with a subroutine, which
+     * must be inlined before the method can be split.
+     */
+    /**
+     * Method with two large basic blocks loading method handle and dynamic
+     * constants, which the split methods must read back from the constant
+     * pool.
+     */
+    public void testLdcConstants() {
+        Handle invoke = new Handle(Opcodes.H_INVOKESTATIC,
+                "java/lang/invoke/ConstantBootstraps",
+                "invoke",
+                "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;"
+                        + "Ljava/lang/Class;Ljava/lang/invoke/MethodHandle;"
+                        + "[Ljava/lang/Object;)Ljava/lang/Object;");
+        ConstantDynamic c1 = new ConstantDynamic("c1", "J", invoke,
+                new Handle(Opcodes.H_INVOKESTATIC, "java/lang/Long",
+                        "parseLong", "(Ljava/lang/String;)J"), "1");
+        ConstantDynamic c2 = new ConstantDynamic("c2", "Ljava/lang/String;",
+                invoke, new Handle(Opcodes.H_INVOKESTATIC, "java/lang/String",
+                        "valueOf", "(J)Ljava/lang/String;"), c1);
+        Label l1 = new Label();
+        startMethod("LdcConstants", Opcodes.ACC_PUBLIC, 100,
+                    BasicBlock.SPARSE_FRAME_TRANSFER_THRESHOLD,
+                    ClassWriter.COMPUTE_FRAMES, Opcodes.V11);
+        PUSH();
+        IFNE(l1);
+        {
+            int i = 0;
+            while (i < 10) {
+                this.mv.visitLdcInsn(invoke);
+                POP();
+                this.mv.visitLdcInsn(c1);
+                LSTORE(1);
+                ++i;
+            }
+            RETURN();
+        }
+        LABEL(l1);
+        {
+            int i = 0;
+            while (i < 20) {
+                this.mv.visitLdcInsn(c2);
+                POP();
+                ++i;
+            }
+            RETURN();
+        }
+        byte[] b = endMethod();
+        final List<Object> csts = new ArrayList<Object>();
+        new ClassReader(b).accept(new ClassVisitor(Opcodes.ASM4) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+                return new MethodVisitor(Opcodes.ASM4) {
+                    @Override
+                    public void visitLdcInsn(Object cst) {
+                        csts.add(cst);
+                    }
+                };
+            }
+        }, 0);
+        assertEquals(40, csts.size());
+        assertTrue(csts.contains(invoke));
+        assertTrue(csts.contains(c1));
+        assertTrue(csts.contains(c2));
+    }
+
+    public void testSubroutine() {
+        subroutine("Subroutine", Opcodes.V1_6);
+    }
+
+    /**
+     * Pre-1.6 classes are the ones that contain subroutines.
+     */
+    public void testSubroutineV1_5() {
+        subroutine("SubroutineV1_5", Opcodes.V1_5);
+    }
+
+    /**
+     * Method of a pre-1.6 class, with uncompressed frames.
+     */
+    public void testTwo1V1_5() {
+        Label l1 = new Label();
+        startMethod("Two1V1_5", Opcodes.ACC_PUBLIC, 100,
+                    BasicBlock.SPARSE_FRAME_TRANSFER_THRESHOLD, ClassWriter.COMPUTE_FRAMES, Opcodes.V1_5);
+        PUSH();
+        ISTORE(1);
+        ILOAD(1);
+        IFNE(l1);
+        {
+            int i = 0;
+            while (i < 60) {
+                NOP();
+                ++i;
+            }
+        }
+        ILOAD(1);
+        POP();
+        RETURN();
+        LABEL(l1);
+        {
+            int i = 0;
+            while (i < 60) {
+                NOP();
+                ++i;
+            }
+        }
+        RETURN();
+        byte[] b = endMethod();
+        assertEquals(Opcodes.V1_5, new ClassReader(b).readUnsignedShort(6));
+    }
+
+    private void subroutine(String className, int version) {
+        startMethod(className, Opcodes.ACC_PUBLIC, 100,
+                    BasicBlock.SPARSE_FRAME_TRANSFER_THRESHOLD, ClassWriter.COMPUTE_MAXS, version);
+        Label l1 = new Label();
+        Label start = new Label();
+        Label end = new Label();
+        Label handler = new Label();
+        Label sub = new Label();
+        Label after = new Label();
+        this.mv.visitTryCatchBlock(start, end, handler, null);
+        PUSH();
+        ISTORE(1);
+        ILOAD(1);
+        IFNE(l1);
+        LABEL(start);
+        NOP();
+        LABEL(end);
+        this.mv.visitJumpInsn(Opcodes.JSR, sub);
+        GOTO(after);
+        LABEL(handler);
+        this.mv.visitVarInsn(Opcodes.ASTORE, 2);
+        this.mv.visitJumpInsn(Opcodes.JSR, sub);
+        this.mv.visitVarInsn(Opcodes.ALOAD, 2);
+        this.mv.visitInsn(Opcodes.ATHROW);
+        LABEL(sub);
+        this.mv.visitVarInsn(Opcodes.ASTORE, 3);
+        this.mv.visitIincInsn(1, 1);
+        this.mv.visitVarInsn(Opcodes.RET, 3);
+        LABEL(after);
+        {
+            int i = 0;
+            while (i < 60) {
+                NOP();
+                ++i;
+            }
+        }
+        RETURN();
+        LABEL(l1);
+        {
+            int i = 0;
+            while (i < 60) {
+                NOP();
+                ++i;
+            }
+        }
+        RETURN();
+        byte[] b = endMethod();
+        final int[] methods = new int[1];
+        new ClassReader(b).accept(new ClassVisitor(Opcodes.ASM4) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+                ++methods[0];
+                return new MethodVisitor(Opcodes.ASM4) {
+                    @Override
+                    public void visitJumpInsn(int opcode, Label label) {
+                        assertTrue(opcode != Opcodes.JSR);
+                    }
+                    @Override
+                    public void visitVarInsn(int opcode, int var) {
+                        assertTrue(opcode != Opcodes.RET);
+                    }
+                };
+            }
+        }, 0);
+        assertTrue(methods[0] > 2);
+    }
 }
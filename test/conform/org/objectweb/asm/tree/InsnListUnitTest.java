@@ -29,8 +29,12 @@
  */
 package org.objectweb.asm.tree;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.ListIterator;
 import java.util.NoSuchElementException;
+import java.util.Random;
 
 import junit.framework.TestCase;
 
@@ -650,6 +654,82 @@ public class InsnListUnitTest extends TestCase {
         assertEquals(null, insn.getNext());
     }
 
+    public void testRemoveRange() {
+        InsnNode insn = new InsnNode(0);
+        l1.add(new InsnNode(0));
+        l1.add(in1 = new InsnNode(0));
+        l1.add(insn);
+        l1.add(in2 = new InsnNode(0));
+        l1.get(0);
+        l1.remove(in1, in2);
+        assertEquals(1, l1.size());
+        assertEquals(l1.getFirst(), l1.getLast());
+        assertEquals(false, l1.contains(insn));
+        assertEquals(-1, in1.index);
+        assertEquals(-1, insn.index);
+        assertEquals(-1, in2.index);
+        assertEquals(null, in2.getPrevious());
+        assertEquals(null, in2.getNext());
+    }
+
+    public void testSetRange() {
+        InsnNode insn = new InsnNode(0);
+        l1.add(new InsnNode(0));
+        l1.add(insn);
+        l1.add(new InsnNode(0));
+        l1.set(insn, insn, l2);
+        assertEquals(4, l1.size());
+        assertEquals(0, l2.size());
+        assertEquals(in1, l1.get(1));
+        assertEquals(in2, l1.get(2));
+        assertEquals(false, l1.contains(insn));
+    }
+
+    public void testCache() {
+        Random random = new Random(0);
+        List<AbstractInsnNode> list = new ArrayList<AbstractInsnNode>();
+        for (int i = 0; i < 10000; ++i) {
+            int op = random.nextInt(8);
+            int index = list.isEmpty() ? 0 : random.nextInt(list.size());
+            if (op == 0 || list.isEmpty()) {
+                InsnNode insn = new InsnNode(0);
+                l1.add(insn);
+                list.add(insn);
+            } else if (op == 1) {
+                InsnNode insn = new InsnNode(0);
+                l1.insertBefore(list.get(index), insn);
+                list.add(index, insn);
+            } else if (op == 2) {
+                InsnList insns = new InsnList();
+                insns.add(new InsnNode(0));
+                insns.add(new InsnNode(0));
+                list.addAll(index + 1, Arrays.asList(insns.toArray()));
+                l1.insert(list.get(index), insns);
+            } else if (op == 3) {
+                AbstractInsnNode insn = list.remove(index);
+                l1.remove(insn);
+                assertEquals(-1, insn.index);
+            } else if (op == 4) {
+                int end = Math.min(list.size(), index + 3);
+                l1.remove(list.get(index), list.get(end - 1));
+                list.subList(index, end).clear();
+            } else if (op == 5) {
+                InsnNode insn = new InsnNode(0);
+                l1.set(list.get(index), insn);
+                list.set(index, insn);
+            } else {
+                assertEquals(list.get(index), l1.get(index));
+                assertEquals(index, l1.indexOf(list.get(index)));
+            }
+            assertEquals(list.size(), l1.size());
+        }
+        assertEquals(list.toArray(new AbstractInsnNode[list.size()]),
+                l1.toArray());
+        for (int i = 0; i < list.size(); ++i) {
+            assertEquals(i, l1.indexOf(list.get(i)));
+        }
+    }
+
     public void testAcceptor1() {
         l1.add(new InsnNode(55));
         l1.add(new InsnNode(77));
@@ -772,6 +852,14 @@ class CheckedInsnList extends InsnList {
         super.remove(insn);
     }
 
+    @Override
+    public void remove(final AbstractInsnNode from, final AbstractInsnNode to) {
+        if (!(contains(from) && contains(to))) {
+            throw new IllegalArgumentException();
+        }
+        super.remove(from, to);
+    }
+
     @Override
     public void clear() {
         super.removeAll(true);
@@ -0,0 +1,130 @@
+/***
+ * ASM tests
+ * Copyright (c) 2000-2011 INRIA, France Telecom
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.objectweb.asm.tree;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * LazyClassNode unit tests.
+ */
+public class LazyClassNodeUnitTest extends TestCase {
+
+    private static final String[] CLASSES = {
+        "org.objectweb.asm.ClassReader",
+        "org.objectweb.asm.MethodWriter",
+        "org.objectweb.asm.tree.InsnList",
+        "org.objectweb.asm.tree.analysis.Analyzer",
+        "org.objectweb.asm.commons.GeneratorAdapter" };
+
+    private static ClassNode newClassNode(final ClassReader cr, final int flags)
+    {
+        ClassNode cn = new ClassNode();
+        cr.accept(cn, flags);
+        return cn;
+    }
+
+    private static byte[] write(final ClassNode cn) {
+        ClassWriter cw = new ClassWriter(0);
+        cn.accept(cw);
+        return cw.toByteArray();
+    }
+
+    public void testAccept() throws Exception {
+        for (int i = 0; i < CLASSES.length; ++i) {
+            ClassReader cr = new ClassReader(CLASSES[i]);
+            for (int flags = 0; flags <= ClassReader.SKIP_FRAMES; flags += 2) {
+                byte[] expected = write(newClassNode(cr, flags));
+                byte[] actual = write(new LazyClassNode(cr, flags));
+                assertTrue(CLASSES[i], Arrays.equals(expected, actual));
+            }
+        }
+    }
+
+    public void testLazyDecoding() throws Exception {
+        ClassReader cr = new ClassReader(CLASSES[0]);
+        ClassNode expected = newClassNode(cr, 0);
+        ClassNode cn = new LazyClassNode(cr, 0);
+        assertEquals(expected.methods.size(), cn.methods.size());
+        for (int i = 0; i < cn.methods.size(); ++i) {
+            MethodNode emn = expected.methods.get(i);
+            LazyMethodNode mn = (LazyMethodNode) cn.methods.get(i);
+            assertEquals(emn.name, mn.name);
+            assertEquals(emn.maxStack, mn.maxStack);
+            assertEquals(emn.maxLocals, mn.maxLocals);
+            assertEquals(emn.instructions.size() == 0, mn.decoded);
+        }
+        LazyMethodNode mn = (LazyMethodNode) cn.methods.get(1);
+        MethodNode emn = expected.methods.get(1);
+        assertEquals(emn.tryCatchBlocks.size(), mn.tryCatchBlocks.size());
+        assertTrue(mn.decoded);
+        assertEquals(emn.instructions.size(), mn.instructions.size());
+        assertFalse(((LazyMethodNode) cn.methods.get(2)).decoded);
+    }
+
+    public void testInterfaceMethodInsn() throws Exception {
+        ClassWriter cw = new ClassWriter(0);
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, "C", null, "java/lang/Object", null);
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_STATIC, "m", "()V", null, null);
+        mv.visitCode();
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, "I", "m", "()V", true);
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        cw.visitEnd();
+        ClassNode cn = new LazyClassNode(new ClassReader(cw.toByteArray()), 0);
+        MethodInsnNode insn = (MethodInsnNode) cn.methods.get(0).instructions.getFirst();
+        assertTrue(insn.itf);
+    }
+
+    public void testModifiedMethod() throws Exception {
+        ClassReader cr = new ClassReader(CLASSES[0]);
+        ClassNode expected = newClassNode(cr, 0);
+        ClassNode cn = new LazyClassNode(cr, 0);
+        MethodNode emn = expected.methods.get(1);
+        MethodNode mn = cn.methods.get(1);
+        InsnList insns = mn.instructions;
+        mn.instructions = new InsnList();
+        mn.maxStack = 0;
+        assertEquals(emn.localVariables.size(), mn.localVariables.size());
+        assertEquals(0, mn.instructions.size());
+        assertEquals(0, mn.maxStack);
+        InsnList copy = new InsnList();
+        copy.add(insns);
+        assertEquals(emn.instructions.size(), copy.size());
+        assertEquals(0, insns.size());
+    }
+}
@@ -0,0 +1,268 @@
+/***
+ * ASM tests
+ * Copyright (c) 2000-2011 INRIA, France Telecom
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.objectweb.asm.tree.analysis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import junit.framework.TestCase;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.VarInsnNode;
+
+/**
+ * Analyzer unit tests for incremental analysis.
+ */
+public class AnalyzerIncrementalUnitTest extends TestCase implements Opcodes {
+
+    private int edges;
+
+    private Analyzer<SourceValue> newAnalyzer() {
+        Analyzer<SourceValue> a = newNonIncrementalAnalyzer();
+        a.setIncremental(true);
+        return a;
+    }
+
+    private Analyzer<SourceValue> newNonIncrementalAnalyzer() {
+        return new Analyzer<SourceValue>(new SourceInterpreter()) {
+            @Override
+            protected void newControlFlowEdge(final int insn, final int successor)
+            {
+                ++edges;
+            }
+        };
+    }
+
+    private static String toString(final Frame<SourceValue> f, final InsnList insns)
+    {
+        if (f == null) {
+            return "null";
+        }
+        StringBuffer b = new StringBuffer();
+        for (int i = 0; i < f.getLocals() + f.getStackSize(); ++i) {
+            SourceValue v = i < f.getLocals()
+                    ? f.getLocal(i)
+                    : f.getStack(i - f.getLocals());
+            Set<Integer> sources = new TreeSet<Integer>();
+            for (AbstractInsnNode insn : v.insns) {
+                sources.add(insns.indexOf(insn));
+            }
+            b.append(v.getSize()).append(sources).append(' ');
+        }
+        return b.toString();
+    }
+
+    /**
+     * Reanalyzes the given method and checks that the result is the same as
+     * with a full analysis.
+     */
+    private void assertReanalyze(
+        final Analyzer<SourceValue> a,
+        final MethodNode mn,
+        final List<AbstractInsnNode> modified) throws Exception
+    {
+        Frame<SourceValue>[] frames = a.reanalyze("C", mn, modified);
+        Frame<SourceValue>[] expected = newAnalyzer().analyze("C", mn);
+        assertEquals(expected.length, frames.length);
+        for (int i = 0; i < frames.length; ++i) {
+            assertEquals(toString(expected[i], mn.instructions),
+                    toString(frames[i], mn.instructions));
+        }
+    }
+
+    private static MethodNode newMethod(final int blocks) {
+        MethodNode mn = new MethodNode(ACC_STATIC, "m", "(I)V", null, null);
+        for (int i = 1; i <= 4; ++i) {
+            mn.visitInsn(ICONST_0);
+            mn.visitVarInsn(ISTORE, i);
+        }
+        for (int i = 0; i < blocks; ++i) {
+            Label l0 = new Label();
+            mn.visitVarInsn(ILOAD, 0);
+            mn.visitJumpInsn(IFEQ, l0);
+            mn.visitVarInsn(ILOAD, 1 + i % 4);
+            mn.visitVarInsn(ISTORE, 1 + (i + 1) % 4);
+            mn.visitLabel(l0);
+            mn.visitIincInsn(1 + i % 4, 1);
+        }
+        mn.visitInsn(RETURN);
+        mn.visitMaxs(1, 5);
+        return mn;
+    }
+
+    public void testInsertAndRemove() throws Exception {
+        MethodNode mn = newMethod(10);
+        Analyzer<SourceValue> a = newAnalyzer();
+        a.analyze("C", mn);
+        List<AbstractInsnNode> none = Collections.emptyList();
+        AbstractInsnNode insn = mn.instructions.get(20);
+        mn.instructions.insertBefore(insn, new VarInsnNode(ILOAD, 2));
+        mn.instructions.insertBefore(insn, new VarInsnNode(ISTORE, 3));
+        assertReanalyze(a, mn, none);
+        mn.instructions.remove(insn.getPrevious());
+        mn.instructions.remove(insn.getPrevious());
+        mn.instructions.remove(mn.instructions.get(3));
+        mn.instructions.remove(mn.instructions.get(2));
+        assertReanalyze(a, mn, none);
+    }
+
+    public void testModified() throws Exception {
+        MethodNode mn = newMethod(10);
+        Analyzer<SourceValue> a = newAnalyzer();
+        a.analyze("C", mn);
+        List<AbstractInsnNode> modified = new ArrayList<AbstractInsnNode>();
+        VarInsnNode store = (VarInsnNode) mn.instructions.get(11);
+        store.var = 4;
+        modified.add(store);
+        assertReanalyze(a, mn, modified);
+        modified.clear();
+        JumpInsnNode jump = (JumpInsnNode) mn.instructions.get(9);
+        jump.label = (LabelNode) mn.instructions.get(30);
+        modified.add(jump);
+        assertReanalyze(a, mn, modified);
+    }
+
+    public void testUnreachable() throws Exception {
+        MethodNode mn = newMethod(10);
+        Analyzer<SourceValue> a = newAnalyzer();
+        a.analyze("C", mn);
+        AbstractInsnNode insn = mn.instructions.get(26);
+        mn.instructions.insertBefore(insn, new InsnNode(RETURN));
+        List<AbstractInsnNode> none = Collections.emptyList();
+        assertReanalyze(a, mn, none);
+        assertNull(a.getFrames()[40]);
+        mn.instructions.remove(insn.getPrevious());
+        assertReanalyze(a, mn, none);
+        assertNotNull(a.getFrames()[40]);
+    }
+
+    public void testFewerEdges() throws Exception {
+        MethodNode mn = newMethod(1000);
+        Analyzer<SourceValue> a = newAnalyzer();
+        edges = 0;
+        a.analyze("C", mn);
+        int fullEdges = edges;
+        AbstractInsnNode insn = mn.instructions.get(mn.instructions.size() - 10);
+        mn.instructions.insertBefore(insn, new InsnNode(NOP));
+        edges = 0;
+        List<AbstractInsnNode> none = Collections.emptyList();
+        a.reanalyze("C", mn, none);
+        assertTrue(edges < fullEdges / 100);
+        assertReanalyze(a, mn, none);
+    }
+
+    public void testNotIncremental() throws Exception {
+        MethodNode mn = newMethod(100);
+        Analyzer<SourceValue> a = newNonIncrementalAnalyzer();
+        edges = 0;
+        a.analyze("C", mn);
+        int fullEdges = edges;
+        AbstractInsnNode insn = mn.instructions.get(mn.instructions.size() - 10);
+        mn.instructions.insertBefore(insn, new InsnNode(NOP));
+        edges = 0;
+        List<AbstractInsnNode> none = Collections.emptyList();
+        a.reanalyze("C", mn, none);
+        assertTrue(edges >= fullEdges);
+        assertReanalyze(a, mn, none);
+    }
+
+    public void testIncrementalDisabled() throws Exception {
+        MethodNode mn = newMethod(100);
+        Analyzer<SourceValue> a = newAnalyzer();
+        a.analyze("C", mn);
+        a.setIncremental(false);
+        edges = 0;
+        List<AbstractInsnNode> none = Collections.emptyList();
+        a.reanalyze("C", mn, none);
+        int fullEdges = edges;
+        a.setIncremental(true);
+        a.analyze("C", mn);
+        edges = 0;
+        a.reanalyze("C", mn, none);
+        assertTrue(edges < fullEdges);
+    }
+
+    public void testOtherMethod() throws Exception {
+        Analyzer<SourceValue> a = newAnalyzer();
+        a.analyze("C", newMethod(2));
+        MethodNode mn = newMethod(3);
+        List<AbstractInsnNode> none = Collections.emptyList();
+        assertReanalyze(a, mn, none);
+    }
+
+    public void testRandomEdits() throws Exception {
+        ClassNode cn = new ClassNode();
+        new ClassReader(MethodWriter.class.getName()).accept(cn,
+                ClassReader.SKIP_FRAMES);
+        Random random = new Random(0);
+        for (int i = 0; i < cn.methods.size(); ++i) {
+            MethodNode mn = cn.methods.get(i);
+            if (mn.instructions.size() == 0) {
+                continue;
+            }
+            Analyzer<SourceValue> a = newAnalyzer();
+            a.analyze(cn.name, mn);
+            for (int j = 0; j < 3; ++j) {
+                List<AbstractInsnNode> modified = new ArrayList<AbstractInsnNode>();
+                AbstractInsnNode[] insns = mn.instructions.toArray();
+                AbstractInsnNode insn = insns[random.nextInt(insns.length)];
+                if (insn instanceof VarInsnNode && insn.getOpcode() == ILOAD) {
+                    ((VarInsnNode) insn).var = random.nextInt(mn.maxLocals);
+                    modified.add(insn);
+                } else if (insn instanceof VarInsnNode
+                        && insn.getOpcode() == ISTORE)
+                {
+                    mn.instructions.set(insn, new InsnNode(POP));
+                } else {
+                    mn.instructions.insertBefore(insn, new InsnNode(NOP));
+                }
+                try {
+                    assertReanalyze(a, mn, modified);
+                } catch (AnalyzerException e) {
+                    break;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/***
+ * ASM tests
+ * Copyright (c) 2000-2011 INRIA, France Telecom
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.objectweb.asm.tree.analysis;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodWriter;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+/**
+ * Analyzer unit tests for the sparse mode.
+ */
+public class AnalyzerSparseUnitTest extends TestCase {
+
+    private static final Class<?>[] CLASSES = {
+        ClassReader.class,
+        ClassWriter.class,
+        MethodWriter.class,
+        Analyzer.class,
+        Frame.class };
+
+    private static List<MethodNode> getMethods(final Class<?> c)
+            throws Exception
+    {
+        ClassNode cn = new ClassNode();
+        new ClassReader(c.getName()).accept(cn, ClassReader.SKIP_FRAMES);
+        return cn.methods;
+    }
+
+    private static String getOwner(final Class<?> c) {
+        return c.getName().replace('.', '/');
+    }
+
+    public void testSameFramesInOrder() throws Exception {
+        for (int i = 0; i < CLASSES.length; ++i) {
+            String owner = getOwner(CLASSES[i]);
+            List<MethodNode> methods = getMethods(CLASSES[i]);
+            for (int j = 0; j < methods.size(); ++j) {
+                MethodNode mn = methods.get(j);
+                Frame<BasicValue>[] frames = new Analyzer<BasicValue>(new SimpleVerifier()).analyze(owner,
+                        mn);
+                Analyzer<BasicValue> a = new Analyzer<BasicValue>(new SimpleVerifier(),
+                        true);
+                a.analyze(owner, mn);
+                for (int k = 0; k < frames.length; ++k) {
+                    assertEquals(mn.name + " " + k,
+                            String.valueOf(frames[k]),
+                            String.valueOf(a.getFrame(k)));
+                }
+            }
+        }
+    }
+
+    public void testSameFramesInReverseOrder() throws Exception {
+        for (int i = 0; i < CLASSES.length; ++i) {
+            String owner = getOwner(CLASSES[i]);
+            List<MethodNode> methods = getMethods(CLASSES[i]);
+            for (int j = 0; j < methods.size(); ++j) {
+                MethodNode mn = methods.get(j);
+                Frame<BasicValue>[] frames = new Analyzer<BasicValue>(new BasicVerifier()).analyze(owner,
+                        mn);
+                Analyzer<BasicValue> a = new Analyzer<BasicValue>(new BasicVerifier(),
+                        true);
+                a.analyze(owner, mn);
+                for (int k = frames.length - 1; k >= 0; --k) {
+                    assertEquals(mn.name + " " + k,
+                            String.valueOf(frames[k]),
+                            String.valueOf(a.getFrame(k)));
+                }
+            }
+        }
+    }
+
+    public void testStoredFrames() throws Exception {
+        String owner = getOwner(MethodWriter.class);
+        List<MethodNode> methods = getMethods(MethodWriter.class);
+        int dense = 0;
+        int sparse = 0;
+        for (int j = 0; j < methods.size(); ++j) {
+            MethodNode mn = methods.get(j);
+            Frame<BasicValue>[] frames = new Analyzer<BasicValue>(new BasicInterpreter()).analyze(owner,
+                    mn);
+            for (int k = 0; k < frames.length; ++k) {
+                if (frames[k] != null) {
+                    ++dense;
+                }
+            }
+            frames = new Analyzer<BasicValue>(new BasicInterpreter(), true) {
+                @Override
+                protected boolean isFrameKept(final int insn) {
+                    return insn == 1;
+                }
+            }.analyze(owner, mn);
+            if (frames.length > 1) {
+                assertNotNull(frames[1]);
+            }
+            for (int k = 0; k < frames.length; ++k) {
+                if (frames[k] != null) {
+                    ++sparse;
+                }
+            }
+        }
+        assertTrue(sparse * 2 < dense);
+    }
+}
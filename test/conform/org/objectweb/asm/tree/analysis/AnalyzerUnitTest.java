@@ -29,9 +29,13 @@
  */
 package org.objectweb.asm.tree.analysis;
 
+import java.util.HashSet;
+import java.util.Set;
+
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriterComputeMaxsUnitTest;
+import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.MethodNode;
@@ -111,4 +115,42 @@ public class AnalyzerUnitTest extends ClassWriterComputeMaxsUnitTest {
     @Override
     protected void assertGraph(final String graph) {
     }
+
+    /**
+     * Tests that the instructions are processed in reverse postorder: the join
+     * point of the two branches of an "if" is processed only once, after both
+     * branches, even if they store different types in the same local.
+     */
+    public void testReversePostorder() throws AnalyzerException {
+        MethodNode mn = new MethodNode(Opcodes.ACC_STATIC, "m", "(I)V", null, null);
+        Label c = new Label();
+        Label d = new Label();
+        mn.visitCode();
+        mn.visitVarInsn(Opcodes.ILOAD, 0);
+        mn.visitJumpInsn(Opcodes.IFEQ, c);
+        mn.visitInsn(Opcodes.ACONST_NULL);
+        mn.visitVarInsn(Opcodes.ASTORE, 1);
+        mn.visitJumpInsn(Opcodes.GOTO, d);
+        mn.visitLabel(c);
+        mn.visitInsn(Opcodes.ICONST_0);
+        mn.visitVarInsn(Opcodes.ISTORE, 1);
+        mn.visitLabel(d);
+        mn.visitInsn(Opcodes.NOP);
+        mn.visitInsn(Opcodes.RETURN);
+        mn.visitMaxs(1, 2);
+        mn.visitEnd();
+
+        final Set<String> edges = new HashSet<String>();
+        Analyzer<BasicValue> a = new Analyzer<BasicValue>(new BasicInterpreter())
+        {
+            @Override
+            protected void newControlFlowEdge(final int insn, final int successor)
+            {
+                assertTrue(edges.add(insn + " -> " + successor));
+            }
+        };
+        a.analyze("C", mn);
+        assertEquals(BasicValue.UNINITIALIZED_VALUE,
+                a.getFrames()[mn.instructions.size() - 1].getLocal(1));
+    }
 }
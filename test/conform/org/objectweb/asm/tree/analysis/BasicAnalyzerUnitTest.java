@@ -0,0 +1,307 @@
+/***
+ * ASM tests
+ * Copyright (c) 2000-2011 INRIA, France Telecom
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.objectweb.asm.tree.analysis;
+
+import java.util.HashMap;
+
+import junit.framework.TestCase;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+/**
+ * BasicAnalyzer unit tests.
+ */
+public class BasicAnalyzerUnitTest extends TestCase implements Opcodes {
+
+    private MethodNode mn;
+
+    @Override
+    protected void setUp() {
+        mn = new MethodNode(ACC_STATIC, "m", "(IJLjava/lang/Object;)V", null, null);
+    }
+
+    private static void assertSameResults(final String owner, final MethodNode mn)
+            throws Exception
+    {
+        Frame<BasicValue>[] frames = null;
+        String error = null;
+        try {
+            frames = new Analyzer<BasicValue>(new BasicVerifier()).analyze(owner,
+                    mn);
+        } catch (AnalyzerException e) {
+            error = e.getMessage();
+        }
+        BasicAnalyzer a = new BasicAnalyzer();
+        try {
+            a.analyze(owner, mn);
+        } catch (AnalyzerException e) {
+            assertEquals(error, e.getMessage());
+            return;
+        }
+        assertNull(error);
+        assertEquals(frames.length, a.getFrames().length);
+        for (int i = 0; i < frames.length; ++i) {
+            assertEquals(String.valueOf(frames[i]),
+                    String.valueOf(a.getFrame(i)));
+        }
+    }
+
+    private void assertValid() throws Exception {
+        mn.visitInsn(RETURN);
+        mn.visitMaxs(10, 10);
+        assertSameResults("C", mn);
+        new BasicAnalyzer().analyze("C", mn);
+    }
+
+    private void assertInvalid() throws Exception {
+        mn.visitInsn(RETURN);
+        mn.visitMaxs(10, 10);
+        assertSameResults("C", mn);
+        try {
+            new BasicAnalyzer().analyze("C", mn);
+            fail();
+        } catch (AnalyzerException e) {
+        }
+    }
+
+    public void testSameFrames() throws Exception {
+        Class<?>[] classes = {
+            ClassReader.class,
+            ClassWriter.class,
+            MethodWriter.class,
+            Analyzer.class,
+            BasicAnalyzer.class,
+            HashMap.class };
+        for (int i = 0; i < classes.length; ++i) {
+            ClassNode cn = new ClassNode();
+            new ClassReader(classes[i].getName()).accept(cn,
+                    ClassReader.SKIP_FRAMES);
+            for (int j = 0; j < cn.methods.size(); ++j) {
+                assertSameResults(cn.name, cn.methods.get(j));
+            }
+        }
+    }
+
+    public void testTypeCodes() throws Exception {
+        mn.visitInsn(ICONST_0);
+        mn.visitVarInsn(ISTORE, 2);
+        mn.visitInsn(ACONST_NULL);
+        mn.visitInsn(DCONST_0);
+        mn.visitInsn(NOP);
+        mn.visitInsn(RETURN);
+        mn.visitMaxs(3, 5);
+        BasicAnalyzer a = new BasicAnalyzer();
+        int[][] frames = a.analyze("C", mn);
+        assertEquals(5, a.getLocals());
+        int[] f = frames[4];
+        assertEquals(7, f.length);
+        assertEquals(BasicAnalyzer.INT, f[0]);
+        assertEquals(BasicAnalyzer.UNINITIALIZED, f[1]);
+        assertEquals(BasicAnalyzer.INT, f[2]);
+        assertEquals(BasicAnalyzer.REFERENCE, f[3]);
+        assertEquals(BasicAnalyzer.UNINITIALIZED, f[4]);
+        assertEquals(BasicAnalyzer.REFERENCE, f[5]);
+        assertEquals(BasicAnalyzer.DOUBLE, f[6]);
+        assertSame(BasicValue.DOUBLE_VALUE,
+                BasicAnalyzer.getValue(BasicAnalyzer.DOUBLE));
+    }
+
+    public void testDeadCode() throws Exception {
+        Label l0 = new Label();
+        mn.visitJumpInsn(GOTO, l0);
+        mn.visitInsn(NOP);
+        mn.visitLabel(l0);
+        mn.visitInsn(RETURN);
+        mn.visitMaxs(10, 10);
+        BasicAnalyzer a = new BasicAnalyzer();
+        a.analyze("C", mn);
+        assertNull(a.getFrames()[1]);
+        assertNull(a.getFrame(1));
+        assertSameResults("C", mn);
+    }
+
+    public void testMerge() throws Exception {
+        Label l0 = new Label();
+        Label l1 = new Label();
+        mn.visitVarInsn(ILOAD, 0);
+        mn.visitJumpInsn(IFEQ, l0);
+        mn.visitInsn(ICONST_0);
+        mn.visitVarInsn(ISTORE, 4);
+        mn.visitJumpInsn(GOTO, l1);
+        mn.visitLabel(l0);
+        mn.visitInsn(FCONST_0);
+        mn.visitVarInsn(FSTORE, 4);
+        mn.visitLabel(l1);
+        assertValid();
+    }
+
+    public void testTryCatch() throws Exception {
+        Label l0 = new Label();
+        Label l1 = new Label();
+        Label l2 = new Label();
+        mn.visitTryCatchBlock(l0, l1, l2, "java/lang/Exception");
+        mn.visitLabel(l0);
+        mn.visitInsn(ICONST_0);
+        mn.visitVarInsn(ISTORE, 4);
+        mn.visitInsn(ICONST_0);
+        mn.visitInsn(ICONST_0);
+        mn.visitInsn(IDIV);
+        mn.visitInsn(POP);
+        mn.visitLabel(l1);
+        mn.visitInsn(RETURN);
+        mn.visitLabel(l2);
+        mn.visitVarInsn(ASTORE, 5);
+        assertValid();
+    }
+
+    public void testInvoke() throws Exception {
+        mn.visitVarInsn(ALOAD, 3);
+        mn.visitVarInsn(LLOAD, 1);
+        mn.visitLdcInsn("s");
+        mn.visitMethodInsn(INVOKEVIRTUAL, "C", "m", "(J[[Ljava/lang/String;)D");
+        mn.visitInsn(POP2);
+        assertValid();
+    }
+
+    public void testInvalidInvoke() throws Exception {
+        mn.visitVarInsn(ALOAD, 3);
+        mn.visitInsn(FCONST_0);
+        mn.visitLdcInsn("s");
+        mn.visitMethodInsn(INVOKEVIRTUAL, "C", "m", "(J[[Ljava/lang/String;)D");
+        mn.visitInsn(POP2);
+        assertInvalid();
+    }
+
+    public void testSubroutine() throws Exception {
+        Label l0 = new Label();
+        Label l1 = new Label();
+        mn.visitJumpInsn(JSR, l0);
+        mn.visitJumpInsn(GOTO, l1);
+        mn.visitLabel(l0);
+        mn.visitVarInsn(ASTORE, 4);
+        mn.visitInsn(ICONST_0);
+        mn.visitVarInsn(ISTORE, 5);
+        mn.visitVarInsn(RET, 4);
+        mn.visitLabel(l1);
+        assertValid();
+    }
+
+    public void testRetOutsideSubroutine() throws Exception {
+        mn.visitVarInsn(RET, 3);
+        assertInvalid();
+    }
+
+    public void testInvalidLoad() throws Exception {
+        mn.visitVarInsn(ALOAD, 0);
+        assertInvalid();
+    }
+
+    public void testUninitializedLoad() throws Exception {
+        mn.visitVarInsn(ILOAD, 2);
+        assertInvalid();
+    }
+
+    public void testInvalidPop() throws Exception {
+        mn.visitInsn(LCONST_0);
+        mn.visitInsn(POP);
+        assertInvalid();
+    }
+
+    public void testInvalidDup2x2() throws Exception {
+        mn.visitInsn(LCONST_0);
+        mn.visitInsn(ICONST_0);
+        mn.visitInsn(ICONST_0);
+        mn.visitInsn(ICONST_0);
+        mn.visitInsn(DUP2_X2);
+        assertInvalid();
+    }
+
+    public void testInvalidArrayLoad() throws Exception {
+        mn.visitInsn(ICONST_0);
+        mn.visitInsn(ICONST_0);
+        mn.visitInsn(IALOAD);
+        assertInvalid();
+    }
+
+    public void testInvalidArrayStore() throws Exception {
+        mn.visitVarInsn(ALOAD, 3);
+        mn.visitInsn(ICONST_0);
+        mn.visitInsn(FCONST_0);
+        mn.visitInsn(IASTORE);
+        assertInvalid();
+    }
+
+    public void testInvalidReturn() throws Exception {
+        mn.visitInsn(ICONST_0);
+        mn.visitInsn(IRETURN);
+        assertInvalid();
+    }
+
+    public void testInvalidField() throws Exception {
+        mn.visitVarInsn(ALOAD, 3);
+        mn.visitInsn(LCONST_0);
+        mn.visitFieldInsn(PUTFIELD, "C", "f", "I");
+        assertInvalid();
+    }
+
+    public void testInvalidStackHeights() throws Exception {
+        Label l0 = new Label();
+        mn.visitVarInsn(ILOAD, 0);
+        mn.visitJumpInsn(IFEQ, l0);
+        mn.visitInsn(ICONST_0);
+        mn.visitLabel(l0);
+        assertInvalid();
+    }
+
+    public void testInsufficientMaxStack() throws Exception {
+        mn.visitInsn(ICONST_0);
+        mn.visitInsn(ICONST_0);
+        mn.visitInsn(POP2);
+        mn.visitInsn(RETURN);
+        mn.visitMaxs(1, 4);
+        assertSameResults("C", mn);
+    }
+
+    public void testFallOff() throws Exception {
+        mn.visitInsn(NOP);
+        mn.visitMaxs(10, 10);
+        try {
+            new BasicAnalyzer().analyze("C", mn);
+            fail();
+        } catch (AnalyzerException e) {
+        }
+    }
+}
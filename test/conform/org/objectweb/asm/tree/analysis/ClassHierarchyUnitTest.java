@@ -0,0 +1,182 @@
+/***
+ * ASM tests
+ * Copyright (c) 2000-2011 INRIA, France Telecom
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.objectweb.asm.tree.analysis;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+/**
+ * ClassHierarchy unit tests.
+ */
+public class ClassHierarchyUnitTest extends TestCase implements Opcodes {
+
+    private static final Class<?>[] TYPES = {
+        Object.class,
+        String.class,
+        Number.class,
+        Integer.class,
+        Comparable.class,
+        Serializable.class,
+        Cloneable.class,
+        List.class,
+        AbstractList.class,
+        ArrayList.class,
+        Object[].class,
+        String[].class,
+        Number[].class,
+        Integer[][].class,
+        Object[][].class,
+        int[].class,
+        long[].class,
+        int[][].class,
+        Runnable.class,
+        Thread.class,
+        Runnable[].class,
+        Thread[].class,
+        Comparable[].class,
+        Serializable[].class,
+        Cloneable[].class,
+        Iterable[].class,
+        List[][].class,
+        ArrayList[][].class };
+
+    public void testSameAsLoadedClasses() {
+        ClassHierarchy h = new ClassHierarchy();
+        for (int i = 0; i < TYPES.length; ++i) {
+            Type t = Type.getType(TYPES[i]);
+            assertEquals(TYPES[i].isInterface(), h.isInterface(t));
+            Class<?> s = TYPES[i].getSuperclass();
+            assertEquals(s == null ? null : Type.getType(s),
+                    h.getSuperClass(t));
+            for (int j = 0; j < TYPES.length; ++j) {
+                Type u = Type.getType(TYPES[j]);
+                Class<?> c = TYPES[i].isInterface() ? Object.class : TYPES[i];
+                assertEquals(t + " " + u,
+                        c.isAssignableFrom(TYPES[j]),
+                        h.isAssignableFrom(t, u));
+            }
+        }
+    }
+
+    private static byte[] newClass(
+        final String name,
+        final String superName,
+        final int access)
+    {
+        ClassWriter cw = new ClassWriter(0);
+        cw.visit(V1_5, access, name, null, superName, null);
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    public void testAddedClasses() throws AnalyzerException {
+        ClassHierarchy h = new ClassHierarchy(null);
+        h.add(newClass("java/lang/Object", null, ACC_PUBLIC));
+        h.add(newClass("p/A", "java/lang/Object", ACC_PUBLIC));
+        h.add(newClass("p/B", "p/A", ACC_PUBLIC));
+        h.add(newClass("p/C", "p/A", ACC_PUBLIC));
+        h.add(newClass("p/I", "java/lang/Object", ACC_PUBLIC + ACC_INTERFACE
+                + ACC_ABSTRACT));
+        assertTrue(h.isInterface(Type.getObjectType("p/I")));
+        assertTrue(h.isAssignableFrom(Type.getObjectType("p/A"),
+                Type.getObjectType("p/B")));
+        assertFalse(h.isAssignableFrom(Type.getObjectType("p/B"),
+                Type.getObjectType("p/C")));
+        try {
+            h.isInterface(Type.getObjectType("p/D"));
+            fail();
+        } catch (RuntimeException e) {
+        }
+
+        // merges a p/B and a p/C value, classes which cannot be loaded
+        MethodNode mn = new MethodNode(ACC_STATIC,
+                "m",
+                "(ILp/B;Lp/C;)Lp/A;",
+                null,
+                null);
+        Label l0 = new Label();
+        Label l1 = new Label();
+        mn.visitCode();
+        mn.visitVarInsn(ILOAD, 0);
+        mn.visitJumpInsn(IFEQ, l0);
+        mn.visitVarInsn(ALOAD, 1);
+        mn.visitJumpInsn(GOTO, l1);
+        mn.visitLabel(l0);
+        mn.visitVarInsn(ALOAD, 2);
+        mn.visitLabel(l1);
+        mn.visitInsn(ARETURN);
+        mn.visitMaxs(1, 3);
+        mn.visitEnd();
+        SimpleVerifier verifier = new SimpleVerifier();
+        verifier.setClassHierarchy(h);
+        Frame<BasicValue>[] frames = new Analyzer<BasicValue>(verifier).analyze("p/D",
+                mn);
+        assertEquals(Type.getObjectType("p/A"),
+                frames[frames.length - 1].getStack(0).getType());
+    }
+
+    public void testSameFrames() throws Exception {
+        ClassHierarchy h = new ClassHierarchy();
+        Class<?>[] classes = { ClassReader.class, MethodWriter.class };
+        for (int i = 0; i < classes.length; ++i) {
+            ClassNode cn = new ClassNode();
+            new ClassReader(classes[i].getName()).accept(cn, 0);
+            Type t = Type.getObjectType(cn.name);
+            Type s = Type.getObjectType(cn.superName);
+            for (int j = 0; j < cn.methods.size(); ++j) {
+                MethodNode mn = cn.methods.get(j);
+                Frame<BasicValue>[] frames = new Analyzer<BasicValue>(new SimpleVerifier(t,
+                        s,
+                        false)).analyze(cn.name, mn);
+                SimpleVerifier verifier = new SimpleVerifier(t, s, false);
+                verifier.setClassHierarchy(h);
+                Frame<BasicValue>[] hframes = new Analyzer<BasicValue>(verifier).analyze(cn.name,
+                        mn);
+                for (int k = 0; k < frames.length; ++k) {
+                    assertEquals(String.valueOf(frames[k]),
+                            String.valueOf(hframes[k]));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/***
+ * ASM tests
+ * Copyright (c) 2000-2011 INRIA, France Telecom
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.objectweb.asm.tree.analysis;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.TestCase;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+
+/**
+ * ParallelAnalyzer unit tests.
+ */
+public class ParallelAnalyzerUnitTest extends TestCase implements Opcodes {
+
+    private ExecutorService executor;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        executor.shutdown();
+        super.tearDown();
+    }
+
+    private static List<ClassNode> getClasses() throws Exception {
+        Class<?>[] classes = {
+            ClassReader.class,
+            ClassWriter.class,
+            MethodWriter.class,
+            Analyzer.class };
+        List<ClassNode> nodes = new ArrayList<ClassNode>();
+        for (int i = 0; i < classes.length; ++i) {
+            ClassNode cn = new ClassNode();
+            new ClassReader(classes[i].getName()).accept(cn,
+                    ClassReader.SKIP_FRAMES);
+            nodes.add(cn);
+        }
+        return nodes;
+    }
+
+    public void testSameResults() throws Exception {
+        List<ClassNode> classes = getClasses();
+        ParallelAnalyzer<BasicValue> pa = new ParallelAnalyzer<BasicValue>(null,
+                executor)
+        {
+            @Override
+            protected Analyzer<BasicValue> newAnalyzer(
+                final ClassNode cn,
+                final MethodNode mn)
+            {
+                Type superType = cn.superName == null
+                        ? null
+                        : Type.getObjectType(cn.superName);
+                return new Analyzer<BasicValue>(new SimpleVerifier(Type.getObjectType(cn.name),
+                        superType,
+                        (cn.access & ACC_INTERFACE) != 0));
+            }
+        };
+        List<Frame<BasicValue>[][]> results = pa.analyze(classes);
+        assertEquals(classes.size(), results.size());
+        for (int i = 0; i < classes.size(); ++i) {
+            ClassNode cn = classes.get(i);
+            assertEquals(cn.methods.size(), results.get(i).length);
+            for (int j = 0; j < cn.methods.size(); ++j) {
+                MethodNode mn = cn.methods.get(j);
+                Frame<BasicValue>[] frames = pa.newAnalyzer(cn, mn)
+                        .analyze(cn.name, mn);
+                Frame<BasicValue>[] pframes = results.get(i)[j];
+                assertEquals(frames.length, pframes.length);
+                for (int k = 0; k < frames.length; ++k) {
+                    assertEquals(String.valueOf(frames[k]),
+                            String.valueOf(pframes[k]));
+                }
+            }
+        }
+    }
+
+    public void testVerifier() throws Exception {
+        List<ClassNode> classes = getClasses();
+        List<Frame<BasicValue>[][]> results = ParallelAnalyzer.newVerifier(new ClassHierarchy(),
+                executor)
+                .analyze(classes);
+        for (int i = 0; i < classes.size(); ++i) {
+            ClassNode cn = classes.get(i);
+            Type superType = Type.getObjectType(cn.superName);
+            List<Type> interfaces = new ArrayList<Type>();
+            for (int j = 0; j < cn.interfaces.size(); ++j) {
+                interfaces.add(Type.getObjectType(cn.interfaces.get(j)));
+            }
+            for (int j = 0; j < cn.methods.size(); ++j) {
+                MethodNode mn = cn.methods.get(j);
+                Frame<BasicValue>[] frames = new Analyzer<BasicValue>(new SimpleVerifier(Type.getObjectType(cn.name),
+                        superType,
+                        interfaces,
+                        false)).analyze(cn.name, mn);
+                Frame<BasicValue>[] pframes = results.get(i)[j];
+                assertEquals(frames.length, pframes.length);
+                for (int k = 0; k < frames.length; ++k) {
+                    assertEquals(String.valueOf(frames[k]),
+                            String.valueOf(pframes[k]));
+                }
+            }
+        }
+
+        ClassNode cn = new ClassNode();
+        cn.visit(V1_5, ACC_PUBLIC, "C", null, "java/lang/Object", null);
+        MethodNode mn = new MethodNode(ACC_STATIC,
+                "m",
+                "()Ljava/lang/Integer;",
+                null,
+                null);
+        mn.visitCode();
+        mn.visitLdcInsn("s");
+        mn.visitInsn(ARETURN);
+        mn.visitMaxs(1, 0);
+        mn.visitEnd();
+        cn.methods.add(mn);
+        try {
+            ParallelAnalyzer.newVerifier(new ClassHierarchy(), executor)
+                    .analyze(cn);
+            fail();
+        } catch (AnalyzerException e) {
+            assertTrue(e.getMessage().startsWith("C.m()Ljava/lang/Integer;: "));
+        }
+    }
+
+    public void testSequential() throws Exception {
+        ClassNode cn = getClasses().get(0);
+        Frame<BasicValue>[][] frames = new ParallelAnalyzer<BasicValue>(new BasicInterpreter(),
+                null).analyze(cn);
+        assertEquals(cn.methods.size(), frames.length);
+        for (int j = 0; j < frames.length; ++j) {
+            assertEquals(cn.methods.get(j).instructions.size(),
+                    frames[j].length);
+        }
+    }
+
+    private static MethodNode newInvalidMethod(final String name) {
+        MethodNode mn = new MethodNode(ACC_STATIC, name, "()V", null, null);
+        mn.visitCode();
+        mn.visitInsn(ICONST_0);
+        mn.visitInsn(ARETURN);
+        mn.visitMaxs(1, 0);
+        mn.visitEnd();
+        return mn;
+    }
+
+    public void testFirstError() throws Exception {
+        ClassNode cn = new ClassNode();
+        cn.visit(V1_5, ACC_PUBLIC, "C", null, "java/lang/Object", null);
+        for (int i = 0; i < 50; ++i) {
+            cn.methods.add(newInvalidMethod("m" + i));
+        }
+        try {
+            new ParallelAnalyzer<BasicValue>(new BasicVerifier(), executor).analyze(cn);
+            fail();
+        } catch (AnalyzerException e) {
+            assertTrue(e.getMessage().startsWith("C.m0()V: "));
+            AbstractInsnNode insn = cn.methods.get(0).instructions.getLast();
+            assertSame(insn, e.node);
+        }
+    }
+}
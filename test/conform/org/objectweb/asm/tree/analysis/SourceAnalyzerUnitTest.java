@@ -0,0 +1,241 @@
+/***
+ * ASM tests
+ * Copyright (c) 2000-2011 INRIA, France Telecom
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.objectweb.asm.tree.analysis;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.TreeSet;
+
+import junit.framework.TestCase;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.MethodNode;
+
+/**
+ * SourceAnalyzer unit tests.
+ */
+public class SourceAnalyzerUnitTest extends TestCase implements Opcodes {
+
+    private MethodNode mn;
+
+    @Override
+    protected void setUp() {
+        mn = new MethodNode(ACC_STATIC, "m", "(IJLjava/lang/Object;)V", null, null);
+    }
+
+    private static String toString(final Frame<SourceValue> f, final InsnList insns)
+    {
+        if (f == null) {
+            return "null";
+        }
+        StringBuffer b = new StringBuffer();
+        for (int i = 0; i < f.getLocals() + f.getStackSize(); ++i) {
+            SourceValue v = i < f.getLocals()
+                    ? f.getLocal(i)
+                    : f.getStack(i - f.getLocals());
+            Set<Integer> sources = new TreeSet<Integer>();
+            for (AbstractInsnNode insn : v.insns) {
+                sources.add(insns.indexOf(insn));
+            }
+            b.append(v.getSize()).append(sources).append(' ');
+        }
+        return b.toString();
+    }
+
+    private static void assertSameResults(final String owner, final MethodNode mn)
+            throws Exception
+    {
+        Frame<SourceValue>[] frames = null;
+        String error = null;
+        try {
+            frames = new Analyzer<SourceValue>(new SourceInterpreter()).analyze(owner,
+                    mn);
+        } catch (AnalyzerException e) {
+            error = e.getMessage();
+        }
+        SourceAnalyzer a = new SourceAnalyzer();
+        try {
+            a.analyze(owner, mn);
+        } catch (AnalyzerException e) {
+            assertEquals(error, e.getMessage());
+            return;
+        }
+        assertNull(error);
+        assertEquals(frames.length, a.getFrames().length);
+        for (int i = 0; i < frames.length; ++i) {
+            assertEquals(toString(frames[i], mn.instructions),
+                    toString(a.getFrame(i), mn.instructions));
+        }
+    }
+
+    private void assertValid() throws Exception {
+        mn.visitInsn(RETURN);
+        mn.visitMaxs(10, 10);
+        assertSameResults("C", mn);
+        new SourceAnalyzer().analyze("C", mn);
+    }
+
+    public void testSameFrames() throws Exception {
+        Class<?>[] classes = {
+            ClassReader.class,
+            ClassWriter.class,
+            MethodWriter.class,
+            Analyzer.class,
+            SourceAnalyzer.class,
+            HashMap.class };
+        for (int i = 0; i < classes.length; ++i) {
+            ClassNode cn = new ClassNode();
+            new ClassReader(classes[i].getName()).accept(cn,
+                    ClassReader.SKIP_FRAMES);
+            for (int j = 0; j < cn.methods.size(); ++j) {
+                assertSameResults(cn.name, cn.methods.get(j));
+            }
+        }
+    }
+
+    public void testSources() throws Exception {
+        Label l0 = new Label();
+        Label l1 = new Label();
+        mn.visitVarInsn(ILOAD, 0);
+        mn.visitJumpInsn(IFEQ, l0);
+        mn.visitInsn(LCONST_0);
+        mn.visitVarInsn(LSTORE, 4);
+        mn.visitJumpInsn(GOTO, l1);
+        mn.visitLabel(l0);
+        mn.visitInsn(FCONST_0);
+        mn.visitVarInsn(FSTORE, 4);
+        mn.visitLabel(l1);
+        mn.visitVarInsn(ILOAD, 4);
+        mn.visitInsn(DUP);
+        mn.visitInsn(RETURN);
+        mn.visitMaxs(3, 6);
+        SourceAnalyzer a = new SourceAnalyzer();
+        int[][] frames = a.analyze("C", mn);
+        assertEquals(6, a.getLocals());
+        int[] f = frames[9];
+        assertEquals(6, f.length);
+        assertEquals(1, SourceAnalyzer.getSize(f[4]));
+        assertTrue(Arrays.equals(new int[] { 3, 7 },
+                a.getSources(f[4])));
+        assertEquals(0, a.getSources(f[5]).length);
+        assertSame(a.getSources(f[0]), a.getSources(f[3]));
+        f = frames[11];
+        assertEquals(8, f.length);
+        assertTrue(Arrays.equals(new int[] { 9 },
+                a.getSources(f[6])));
+        assertTrue(Arrays.equals(new int[] { 10 },
+                a.getSources(f[7])));
+        assertSameResults("C", mn);
+    }
+
+    public void testTryCatch() throws Exception {
+        Label l0 = new Label();
+        Label l1 = new Label();
+        Label l2 = new Label();
+        mn.visitTryCatchBlock(l0, l1, l2, "java/lang/Exception");
+        mn.visitLabel(l0);
+        mn.visitInsn(ICONST_0);
+        mn.visitVarInsn(ISTORE, 4);
+        mn.visitInsn(ICONST_1);
+        mn.visitVarInsn(ISTORE, 4);
+        mn.visitLabel(l1);
+        mn.visitInsn(RETURN);
+        mn.visitLabel(l2);
+        mn.visitVarInsn(ASTORE, 5);
+        assertValid();
+    }
+
+    public void testLoop() throws Exception {
+        Label l0 = new Label();
+        mn.visitInsn(ICONST_0);
+        mn.visitVarInsn(ISTORE, 4);
+        mn.visitLabel(l0);
+        mn.visitIincInsn(4, 1);
+        mn.visitVarInsn(ILOAD, 4);
+        mn.visitJumpInsn(IFNE, l0);
+        assertValid();
+    }
+
+    public void testSubroutine() throws Exception {
+        Label l0 = new Label();
+        Label l1 = new Label();
+        mn.visitJumpInsn(JSR, l0);
+        mn.visitJumpInsn(GOTO, l1);
+        mn.visitLabel(l0);
+        mn.visitVarInsn(ASTORE, 4);
+        mn.visitInsn(ICONST_0);
+        mn.visitVarInsn(ISTORE, 5);
+        mn.visitVarInsn(RET, 4);
+        mn.visitLabel(l1);
+        assertValid();
+    }
+
+    public void testLargeMethod() throws Exception {
+        for (int i = 1; i <= 20; ++i) {
+            mn.visitInsn(ICONST_0);
+            mn.visitVarInsn(ISTORE, 3 + i);
+        }
+        for (int i = 0; i < 500; ++i) {
+            Label l0 = new Label();
+            mn.visitVarInsn(ILOAD, 0);
+            mn.visitJumpInsn(IFEQ, l0);
+            mn.visitVarInsn(ILOAD, 4 + i % 20);
+            mn.visitVarInsn(ISTORE, 4 + (i * 7) % 20);
+            mn.visitIincInsn(4 + i % 20, 1);
+            mn.visitLabel(l0);
+            mn.visitVarInsn(ILOAD, 4 + (i * 3) % 20);
+            mn.visitVarInsn(ISTORE, 0);
+        }
+        mn.visitInsn(RETURN);
+        mn.visitMaxs(1, 24);
+        assertSameResults("C", mn);
+    }
+
+    public void testInvalidDup() throws Exception {
+        mn.visitInsn(LCONST_0);
+        mn.visitInsn(DUP);
+        mn.visitInsn(RETURN);
+        mn.visitMaxs(10, 10);
+        assertSameResults("C", mn);
+        try {
+            new SourceAnalyzer().analyze("C", mn);
+            fail();
+        } catch (AnalyzerException e) {
+        }
+    }
+}
@@ -187,6 +187,17 @@ public abstract class ALLPerfTest {
             }
         });
 
+        runTestAll("get class info", "ClassHeaderReader", new RunTest() {
+            @Override
+            public void test(byte[] bytes, int[] errors) {
+                ClassHeaderReader chr = new ClassHeaderReader(bytes);
+                chr.getAccess();
+                chr.getClassName();
+                chr.getSuperName();
+                chr.getInterfaces();
+            }
+        });
+
         runTestAll("deserialize", "", new RunTest() {
             @Override
             public void test(byte[] bytes, int[] errors) {
@@ -194,6 +205,18 @@ public abstract class ALLPerfTest {
             }
         });
 
+        runTestAll("deserialize", "shared UTF8Cache", new RunTest() {
+            UTF8Cache cache;
+            @Override
+            public void init() {
+                cache = new UTF8Cache();
+            }
+            @Override
+            public void test(byte[] bytes, int[] errors) {
+                new ClassReader(bytes, cache).accept(new EmptyVisitor(), 0);
+            }
+        });
+
         runTest("deserialize", "tree package", new RunTest() {
             @Override
             public void test(byte[] bytes, int[] errors) {
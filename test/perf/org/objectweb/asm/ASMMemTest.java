@@ -41,6 +41,7 @@ import java.util.jar.JarInputStream;
 
 import org.objectweb.asm.tree.ClassNode;
 import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.LazyClassNode;
 import org.objectweb.asm.tree.MethodNode;
 
 /*
@@ -56,7 +57,7 @@ public class ASMMemTest {
 
     public static void main(final String[] args) {
         if (args.length < 2) {
-            System.out.println("java ASMMemTest <jar-file> <number-of-classes>");
+            System.out.println("java ASMMemTest <jar-file> <number-of-classes> [lazy]");
             System.exit(1);
         }
 
@@ -94,6 +95,7 @@ public class ASMMemTest {
             e.printStackTrace();
         }
 
+        boolean lazy = args.length > 2 && "lazy".equals(args[2]);
         ArrayList<ClassNode> result = new ArrayList<ClassNode>(fileData.size());
         long startmem;
 
@@ -108,8 +110,13 @@ public class ASMMemTest {
             while (files.hasNext()) {
                 byte data[] = files.next();
                 ClassReader reader = new ClassReader(data);
-                ClassNode clazz = new ClassNode();
-                reader.accept(clazz, 0);
+                ClassNode clazz;
+                if (lazy) {
+                    clazz = new LazyClassNode(reader, 0);
+                } else {
+                    clazz = new ClassNode();
+                    reader.accept(clazz, 0);
+                }
                 result.add(clazz);
             }
             time += System.currentTimeMillis();
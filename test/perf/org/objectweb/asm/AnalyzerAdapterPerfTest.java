@@ -0,0 +1,168 @@
+/***
+ * ASM tests
+ * Copyright (c) 2000-2011 INRIA, France Telecom
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.objectweb.asm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.objectweb.asm.commons.AnalyzerAdapter;
+
+/**
+ * Performance test of the {@link AnalyzerAdapter}, in a pipeline similar to
+ * the one of a Java agent transforming all the classes loaded at startup: the
+ * classes of the jars given as arguments (with stack map frames computed
+ * beforehand, for those compiled for JDK 1.5 or less, which do not use
+ * subroutines) are read with expanded frames, each
+ * method is passed through an {@link AnalyzerAdapter}, and the result is
+ * written with a {@link ClassWriter}. The time of the first pass, which
+ * includes the JIT warm up and is thus the most relevant for startup time, is
+ * reported separately from the time of the following passes. The same
+ * pipeline without the {@link AnalyzerAdapter} is also measured, for
+ * reference.
+ */
+public class AnalyzerAdapterPerfTest {
+
+    public static void main(final String[] args) throws IOException {
+        List<byte[]> classes = new ArrayList<byte[]>();
+        for (int i = 0; i < args.length; ++i) {
+            ZipFile zip = new ZipFile(args[i]);
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry e = entries.nextElement();
+                if (e.getName().endsWith(".class")) {
+                    byte[] b = addFrames(readClass(zip.getInputStream(e)));
+                    if (b != null) {
+                        classes.add(b);
+                    }
+                }
+            }
+            zip.close();
+        }
+        for (int i = 0; i < 10; ++i) {
+            String pass = i == 0 ? "first pass" : "pass " + (i + 1);
+            pipelineTest(classes, true, pass);
+            pipelineTest(classes, false, pass);
+        }
+    }
+
+    static byte[] readClass(final InputStream is) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = is.read(buf)) > 0) {
+            bos.write(buf, 0, n);
+        }
+        is.close();
+        return bos.toByteArray();
+    }
+
+    static byte[] addFrames(final byte[] b) {
+        ClassReader cr = new ClassReader(b);
+        if (cr.readShort(6) >= Opcodes.V1_6) {
+            return b;
+        }
+        try {
+            ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+            cr.accept(cw, 0);
+            return cw.toByteArray();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    static void pipelineTest(
+        final List<byte[]> classes,
+        final boolean analyze,
+        final String pass)
+    {
+        long t = System.currentTimeMillis();
+        for (int i = 0; i < classes.size(); ++i) {
+            ClassReader cr = new ClassReader(classes.get(i));
+            ClassWriter cw = new ClassWriter(0);
+            ClassVisitor cv = cw;
+            if (analyze) {
+                cv = new ClassVisitor(Opcodes.ASM4, cw) {
+
+                    private String owner;
+
+                    @Override
+                    public void visit(
+                        final int version,
+                        final int access,
+                        final String name,
+                        final String signature,
+                        final String superName,
+                        final String[] interfaces)
+                    {
+                        owner = name;
+                        super.visit(version,
+                                access,
+                                name,
+                                signature,
+                                superName,
+                                interfaces);
+                    }
+
+                    @Override
+                    public MethodVisitor visitMethod(
+                        final int access,
+                        final String name,
+                        final String desc,
+                        final String signature,
+                        final String[] exceptions)
+                    {
+                        MethodVisitor mv = super.visitMethod(access,
+                                name,
+                                desc,
+                                signature,
+                                exceptions);
+                        return new AnalyzerAdapter(owner,
+                                access,
+                                name,
+                                desc,
+                                mv);
+                    }
+                };
+            }
+            cr.accept(cv, ClassReader.EXPAND_FRAMES);
+            cw.toByteArray();
+        }
+        t = System.currentTimeMillis() - t;
+        System.out.println("ASM read/write time (" + pass + ", "
+                + (analyze ? "with" : "without") + " AnalyzerAdapter, "
+                + classes.size() + " classes): " + t + " ms");
+    }
+}
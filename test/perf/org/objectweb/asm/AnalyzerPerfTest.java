@@ -0,0 +1,250 @@
+/***
+ * ASM tests
+ * Copyright (c) 2000-2011 INRIA, France Telecom
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.objectweb.asm;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.analysis.Analyzer;
+import org.objectweb.asm.tree.analysis.AnalyzerException;
+import org.objectweb.asm.tree.analysis.BasicAnalyzer;
+import org.objectweb.asm.tree.analysis.BasicValue;
+import org.objectweb.asm.tree.analysis.BasicVerifier;
+import org.objectweb.asm.tree.analysis.ClassHierarchy;
+import org.objectweb.asm.tree.analysis.ParallelAnalyzer;
+import org.objectweb.asm.tree.analysis.SimpleVerifier;
+import org.objectweb.asm.tree.analysis.SourceAnalyzer;
+import org.objectweb.asm.tree.analysis.SourceInterpreter;
+import org.objectweb.asm.tree.analysis.SourceValue;
+
+/**
+ * Performance test of the {@link Analyzer} control flow analysis loop, in
+ * dense and sparse mode, on all the methods of the classes contained in the
+ * jars of the JRE and in the jars given as arguments. The number of control
+ * flow edges visited during the analysis is also reported. The
+ * {@link BasicAnalyzer}, the {@link SourceAnalyzer} compared with a
+ * {@link SourceInterpreter}, and the analysis of all the classes with a
+ * {@link ParallelAnalyzer} are also timed.
+ * Finally, a {@link SimpleVerifier} loading the referenced classes is
+ * compared with one using a {@link ClassHierarchy} built from the jars.
+ */
+public class AnalyzerPerfTest {
+
+    static long edges;
+
+    public static void main(final String[] args) throws IOException {
+        List<String> jars = ALLPerfTest.findFiles(System.getProperty("java.home"),
+                ".jar");
+        for (int i = 0; i < args.length; ++i) {
+            jars.add(args[i]);
+        }
+        List<ClassNode> classes = new ArrayList<ClassNode>();
+        for (int i = 0; i < jars.size(); ++i) {
+            ZipFile zip = new ZipFile(jars.get(i));
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry e = entries.nextElement();
+                if (e.getName().endsWith(".class")) {
+                    InputStream is = zip.getInputStream(e);
+                    ClassNode cn = new ClassNode();
+                    new ClassReader(is).accept(cn, ClassReader.SKIP_DEBUG
+                            | ClassReader.SKIP_FRAMES);
+                    is.close();
+                    classes.add(cn);
+                }
+            }
+            zip.close();
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int i = 0; i < 5; ++i) {
+                analyzeTest(classes, false);
+                analyzeTest(classes, true);
+                basicAnalyzerTest(classes);
+                sourceAnalyzerTest(classes, false);
+                sourceAnalyzerTest(classes, true);
+                parallelTest(classes, executor, threads);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        for (int i = 0; i < 3; ++i) {
+            simpleVerifierTest(classes, null);
+            long t = System.currentTimeMillis();
+            ClassHierarchy hierarchy = new ClassHierarchy();
+            for (int j = 0; j < jars.size(); ++j) {
+                hierarchy.add(new File(jars.get(j)));
+            }
+            t = System.currentTimeMillis() - t;
+            System.out.println("ASM class hierarchy scan time: " + t + " ms");
+            simpleVerifierTest(classes, hierarchy);
+        }
+    }
+
+    static void simpleVerifierTest(
+        final List<ClassNode> classes,
+        final ClassHierarchy hierarchy)
+    {
+        int errors = 0;
+        long t = System.currentTimeMillis();
+        for (int i = 0; i < classes.size(); ++i) {
+            ClassNode cn = classes.get(i);
+            Type superType = cn.superName == null
+                    ? null
+                    : Type.getObjectType(cn.superName);
+            for (int j = 0; j < cn.methods.size(); ++j) {
+                SimpleVerifier verifier = new SimpleVerifier(Type.getObjectType(cn.name),
+                        superType,
+                        (cn.access & Opcodes.ACC_INTERFACE) != 0);
+                verifier.setClassHierarchy(hierarchy);
+                try {
+                    new Analyzer<BasicValue>(verifier).analyze(cn.name,
+                            cn.methods.get(j));
+                } catch (Throwable e) {
+                    ++errors;
+                }
+            }
+        }
+        t = System.currentTimeMillis() - t;
+        System.out.println("ASM simple verifier time ("
+                + (hierarchy == null ? "class loader" : "class hierarchy")
+                + ", " + classes.size() + " classes, " + errors + " errors): "
+                + t + " ms");
+    }
+
+    static void basicAnalyzerTest(final List<ClassNode> classes) {
+        int errors = 0;
+        long t = System.currentTimeMillis();
+        for (int i = 0; i < classes.size(); ++i) {
+            ClassNode cn = classes.get(i);
+            for (int j = 0; j < cn.methods.size(); ++j) {
+                try {
+                    new BasicAnalyzer().analyze(cn.name, cn.methods.get(j));
+                } catch (AnalyzerException e) {
+                    ++errors;
+                }
+            }
+        }
+        t = System.currentTimeMillis() - t;
+        System.out.println("ASM basic analyzer time (" + classes.size()
+                + " classes, " + errors + " errors): " + t + " ms");
+    }
+
+    static void sourceAnalyzerTest(
+        final List<ClassNode> classes,
+        final boolean indexes)
+    {
+        int errors = 0;
+        long t = System.currentTimeMillis();
+        for (int i = 0; i < classes.size(); ++i) {
+            ClassNode cn = classes.get(i);
+            for (int j = 0; j < cn.methods.size(); ++j) {
+                MethodNode mn = cn.methods.get(j);
+                try {
+                    if (indexes) {
+                        new SourceAnalyzer().analyze(cn.name, mn);
+                    } else {
+                        new Analyzer<SourceValue>(new SourceInterpreter()).analyze(cn.name,
+                                mn);
+                    }
+                } catch (AnalyzerException e) {
+                    ++errors;
+                }
+            }
+        }
+        t = System.currentTimeMillis() - t;
+        System.out.println("ASM " + (indexes ? "source analyzer" : "source interpreter")
+                + " time (" + classes.size() + " classes, " + errors
+                + " errors): " + t + " ms");
+    }
+
+    static void parallelTest(
+        final List<ClassNode> classes,
+        final ExecutorService executor,
+        final int threads)
+    {
+        String result;
+        long t = System.currentTimeMillis();
+        try {
+            new ParallelAnalyzer<BasicValue>(new BasicVerifier(), executor).analyze(classes);
+            result = "ok";
+        } catch (AnalyzerException e) {
+            result = e.getMessage();
+        }
+        t = System.currentTimeMillis() - t;
+        System.out.println("ASM parallel analyzer time (" + classes.size()
+                + " classes, " + threads + " threads, " + result + "): " + t
+                + " ms");
+    }
+
+    static void analyzeTest(final List<ClassNode> classes, final boolean sparse)
+    {
+        edges = 0;
+        int errors = 0;
+        long t = System.currentTimeMillis();
+        for (int i = 0; i < classes.size(); ++i) {
+            ClassNode cn = classes.get(i);
+            for (int j = 0; j < cn.methods.size(); ++j) {
+                MethodNode mn = cn.methods.get(j);
+                Analyzer<BasicValue> a = new Analyzer<BasicValue>(new BasicVerifier(),
+                        sparse)
+                {
+                    @Override
+                    protected void newControlFlowEdge(
+                        final int insn,
+                        final int successor)
+                    {
+                        ++edges;
+                    }
+                };
+                try {
+                    a.analyze(cn.name, mn);
+                } catch (AnalyzerException e) {
+                    ++errors;
+                }
+            }
+        }
+        t = System.currentTimeMillis() - t;
+        System.out.println("ASM analyzer " + (sparse ? "sparse" : "dense")
+                + " time (" + classes.size() + " classes, " + errors
+                + " errors): " + t + " ms, " + edges + " edges visited");
+    }
+}
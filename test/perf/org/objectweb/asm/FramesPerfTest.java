@@ -0,0 +1,174 @@
+/***
+ * ASM tests
+ * Copyright (c) 2000-2011 INRIA, France Telecom
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.objectweb.asm;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.objectweb.asm.commons.ParallelClassWriter;
+
+/**
+ * Performance test of the {@link ClassWriter#COMPUTE_FRAMES} option on big,
+ * generated methods, made of nested loops and of many branches merging
+ * different reference types. Also compares {@link ClassWriter} with
+ * {@link ParallelClassWriter} on a class containing many such methods.
+ */
+public class FramesPerfTest implements Opcodes {
+
+    final static int N = 200;
+
+    public static void main(final String[] args) {
+        int[] sizes = { 10, 100, 1000 };
+        for (int i = 0; i < sizes.length; ++i) {
+            for (int j = 0; j < 5; ++j) {
+                computeFramesTest(sizes[i]);
+            }
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            byte[] b = generate(new ClassWriter(0), 100, 300);
+            for (int j = 0; j < 5; ++j) {
+                parallelTest(b, null, 1);
+                parallelTest(b, executor, threads);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    static void computeFramesTest(final int blocks) {
+        long t = System.currentTimeMillis();
+        int size = 0;
+        for (int i = 0; i < N; ++i) {
+            size = generate(blocks).length;
+        }
+        t = System.currentTimeMillis() - t;
+        System.out.println("ASM computeFrames time (" + blocks + " blocks, "
+                + size + " bytes): " + ((float) t) / N + " ms/class");
+    }
+
+    static void parallelTest(
+        final byte[] b,
+        final ExecutorService executor,
+        final int threads)
+    {
+        int n = N / 20;
+        long t = System.currentTimeMillis();
+        for (int i = 0; i < n; ++i) {
+            ParallelClassWriter pcw = new ParallelClassWriter(ClassWriter.COMPUTE_FRAMES,
+                    executor)
+            {
+                @Override
+                protected String getCommonSuperClass(
+                    final String type1,
+                    final String type2)
+                {
+                    return "java/lang/Object";
+                }
+            };
+            new ClassReader(b).accept(pcw, ClassReader.SKIP_FRAMES);
+            pcw.toByteArray();
+        }
+        t = System.currentTimeMillis() - t;
+        System.out.println("ASM parallel computeFrames time (" + threads
+                + " threads, " + b.length + " bytes): " + ((float) t) / n
+                + " ms/class");
+    }
+
+    static byte[] generate(final int blocks) {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES) {
+            @Override
+            protected String getCommonSuperClass(
+                final String type1,
+                final String type2)
+            {
+                return "java/lang/Object";
+            }
+        };
+        return generate(cw, 1, blocks);
+    }
+
+    static byte[] generate(
+        final ClassWriter cw,
+        final int methods,
+        final int blocks)
+    {
+        cw.visit(V1_6, ACC_PUBLIC, "Frames", null, "java/lang/Object", null);
+        for (int i = 0; i < methods; ++i) {
+            generate(cw.visitMethod(ACC_PUBLIC + ACC_STATIC,
+                    "m" + (i == 0 ? "" : Integer.toString(i)),
+                    "(I)Ljava/lang/Object;",
+                    null,
+                    null), blocks);
+        }
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    static void generate(final MethodVisitor mv, final int blocks) {
+        mv.visitCode();
+        mv.visitInsn(ACONST_NULL);
+        mv.visitVarInsn(ASTORE, 1);
+        Label loop = new Label();
+        mv.visitLabel(loop);
+        for (int i = 0; i < blocks; ++i) {
+            Label inner = new Label();
+            Label other = new Label();
+            Label join = new Label();
+            mv.visitLabel(inner);
+            mv.visitVarInsn(ILOAD, 0);
+            mv.visitIntInsn(SIPUSH, i);
+            mv.visitJumpInsn(IF_ICMPLT, other);
+            mv.visitLdcInsn("s" + i);
+            mv.visitVarInsn(ASTORE, 1);
+            mv.visitJumpInsn(GOTO, join);
+            mv.visitLabel(other);
+            mv.visitTypeInsn(NEW, "java/lang/StringBuffer");
+            mv.visitInsn(DUP);
+            mv.visitMethodInsn(INVOKESPECIAL,
+                    "java/lang/StringBuffer",
+                    "<init>",
+                    "()V");
+            mv.visitVarInsn(ASTORE, 1);
+            mv.visitLabel(join);
+            mv.visitIincInsn(0, -1);
+            mv.visitVarInsn(ILOAD, 0);
+            mv.visitIntInsn(SIPUSH, i);
+            mv.visitJumpInsn(IF_ICMPGT, inner);
+        }
+        mv.visitVarInsn(ILOAD, 0);
+        mv.visitJumpInsn(IFGT, loop);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitInsn(ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+}
@@ -0,0 +1,184 @@
+/***
+ * ASM tests
+ * Copyright (c) 2000-2011 INRIA, France Telecom
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.objectweb.asm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.objectweb.asm.commons.JSRInlinerAdapter;
+
+/**
+ * Performance test of the {@link JSRInlinerAdapter}. The classes of the jars
+ * given as arguments (typically compiled for JDK 1.2 or 1.3, which used JSR
+ * and RET instructions for <tt>finally</tt> blocks) whose version is less
+ * than 1.6 are read, and the time to inline the subroutines of all their
+ * methods is measured. The time to inline the subroutines of a generated
+ * method with many, nested, <tt>finally</tt> blocks is also measured.
+ */
+public class JSRInlinerPerfTest {
+
+    public static void main(final String[] args) throws IOException {
+        List<byte[]> classes = new ArrayList<byte[]>();
+        for (int i = 0; i < args.length; ++i) {
+            ZipFile zip = new ZipFile(args[i]);
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry e = entries.nextElement();
+                if (e.getName().endsWith(".class")) {
+                    byte[] b = readClass(zip.getInputStream(e));
+                    if (new ClassReader(b).readShort(6) < Opcodes.V1_6) {
+                        classes.add(b);
+                    }
+                }
+            }
+            zip.close();
+        }
+        byte[] generated = generate(200, 3);
+        for (int i = 0; i < 10; ++i) {
+            inlineTest(classes, "legacy classes");
+            List<byte[]> one = new ArrayList<byte[]>();
+            one.add(generated);
+            inlineTest(one, "nested finally blocks");
+        }
+    }
+
+    static byte[] readClass(final InputStream is) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = is.read(buf)) > 0) {
+            bos.write(buf, 0, n);
+        }
+        is.close();
+        return bos.toByteArray();
+    }
+
+    static void inlineTest(final List<byte[]> classes, final String name) {
+        long t = System.currentTimeMillis();
+        for (int i = 0; i < classes.size(); ++i) {
+            new ClassReader(classes.get(i)).accept(new ClassVisitor(Opcodes.ASM4)
+            {
+                @Override
+                public MethodVisitor visitMethod(
+                    final int access,
+                    final String name,
+                    final String desc,
+                    final String signature,
+                    final String[] exceptions)
+                {
+                    return new JSRInlinerAdapter(null,
+                            access,
+                            name,
+                            desc,
+                            signature,
+                            exceptions);
+                }
+            }, 0);
+        }
+        t = System.currentTimeMillis() - t;
+        System.out.println("ASM JSR inlining time (" + name + ", "
+                + classes.size() + " classes): " + t + " ms");
+    }
+
+    /**
+     * Generates a class with a method made of <tt>blocks</tt> consecutive
+     * <tt>try</tt> blocks, each with a <tt>finally</tt> block containing
+     * <tt>depth - 1</tt> nested <tt>try/finally</tt> blocks, compiled as
+     * JDK 1.3 did, i.e. with subroutines.
+     *
+     * @param blocks number of consecutive try/finally blocks.
+     * @param depth nesting depth of the finally blocks.
+     * @return the generated class.
+     */
+    static byte[] generate(final int blocks, final int depth) {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(Opcodes.V1_2, Opcodes.ACC_PUBLIC, "Finally", null,
+                "java/lang/Object", null);
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC
+                + Opcodes.ACC_STATIC, "m", "(I)I", null, null);
+        mv.visitCode();
+        for (int i = 0; i < blocks; ++i) {
+            generateTryFinally(mv, depth, 1);
+        }
+        mv.visitVarInsn(Opcodes.ILOAD, 0);
+        mv.visitInsn(Opcodes.IRETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private static void generateTryFinally(
+        final MethodVisitor mv,
+        final int depth,
+        final int local)
+    {
+        Label start = new Label();
+        Label end = new Label();
+        Label handler = new Label();
+        Label subroutine = new Label();
+        Label after = new Label();
+        mv.visitTryCatchBlock(start, end, handler, null);
+        mv.visitLabel(start);
+        generateBody(mv);
+        mv.visitLabel(end);
+        mv.visitJumpInsn(Opcodes.JSR, subroutine);
+        mv.visitJumpInsn(Opcodes.GOTO, after);
+        mv.visitLabel(handler);
+        mv.visitVarInsn(Opcodes.ASTORE, local);
+        mv.visitJumpInsn(Opcodes.JSR, subroutine);
+        mv.visitVarInsn(Opcodes.ALOAD, local);
+        mv.visitInsn(Opcodes.ATHROW);
+        mv.visitLabel(subroutine);
+        mv.visitVarInsn(Opcodes.ASTORE, local + 1);
+        if (depth > 1) {
+            generateTryFinally(mv, depth - 1, local + 2);
+        } else {
+            generateBody(mv);
+        }
+        mv.visitVarInsn(Opcodes.RET, local + 1);
+        mv.visitLabel(after);
+    }
+
+    private static void generateBody(final MethodVisitor mv) {
+        for (int i = 0; i < 4; ++i) {
+            Label l = new Label();
+            mv.visitLabel(l);
+            mv.visitLineNumber(i + 1, l);
+            mv.visitIincInsn(0, i + 1);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/***
+ * ASM tests
+ * Copyright (c) 2000-2011 INRIA, France Telecom
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.objectweb.asm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.objectweb.asm.commons.AdviceAdapter;
+import org.objectweb.asm.commons.LocalVariablesSorter;
+
+/**
+ * Performance test of the {@link LocalVariablesSorter}, in a pipeline similar
+ * to the one of a profiler instrumenting all the methods of an application at
+ * load time: the classes of the jars given as arguments (with stack map frames
+ * computed beforehand, for those compiled for JDK 1.5 or less) are read with
+ * expanded frames, and an {@link AdviceAdapter} stores the result of
+ * {@link System#nanoTime} in a new local variable at the beginning of each
+ * method, and uses it before each return instruction. The same pipeline
+ * without any instrumentation is also measured, for reference.
+ */
+public class LocalVariablesSorterPerfTest {
+
+    public static void main(final String[] args) throws IOException {
+        List<byte[]> classes = new ArrayList<byte[]>();
+        for (int i = 0; i < args.length; ++i) {
+            ZipFile zip = new ZipFile(args[i]);
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry e = entries.nextElement();
+                if (e.getName().endsWith(".class")) {
+                    byte[] b = addFrames(readClass(zip.getInputStream(e)));
+                    if (b != null) {
+                        classes.add(b);
+                    }
+                }
+            }
+            zip.close();
+        }
+        for (int i = 0; i < 10; ++i) {
+            String pass = i == 0 ? "first pass" : "pass " + (i + 1);
+            instrumentTest(classes, true, pass);
+            instrumentTest(classes, false, pass);
+        }
+    }
+
+    static byte[] readClass(final InputStream is) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = is.read(buf)) > 0) {
+            bos.write(buf, 0, n);
+        }
+        is.close();
+        return bos.toByteArray();
+    }
+
+    static byte[] addFrames(final byte[] b) {
+        ClassReader cr = new ClassReader(b);
+        if (cr.readShort(6) >= Opcodes.V1_6) {
+            return b;
+        }
+        try {
+            ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+            cr.accept(cw, 0);
+            return cw.toByteArray();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    static void instrumentTest(
+        final List<byte[]> classes,
+        final boolean instrument,
+        final String pass)
+    {
+        long t = System.currentTimeMillis();
+        for (int i = 0; i < classes.size(); ++i) {
+            ClassReader cr = new ClassReader(classes.get(i));
+            ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+            ClassVisitor cv = cw;
+            if (instrument) {
+                cv = new ClassVisitor(Opcodes.ASM4, cw) {
+                    @Override
+                    public MethodVisitor visitMethod(
+                        final int access,
+                        final String name,
+                        final String desc,
+                        final String signature,
+                        final String[] exceptions)
+                    {
+                        MethodVisitor mv = super.visitMethod(access,
+                                name,
+                                desc,
+                                signature,
+                                exceptions);
+                        return new TimerAdapter(mv, access, name, desc);
+                    }
+                };
+            }
+            cr.accept(cv, ClassReader.EXPAND_FRAMES);
+            cw.toByteArray();
+        }
+        t = System.currentTimeMillis() - t;
+        System.out.println("ASM read/write time (" + pass + ", "
+                + (instrument ? "with" : "without") + " instrumentation, "
+                + classes.size() + " classes): " + t + " ms");
+    }
+
+    static class TimerAdapter extends AdviceAdapter {
+
+        private int start;
+
+        TimerAdapter(
+            final MethodVisitor mv,
+            final int access,
+            final String name,
+            final String desc)
+        {
+            super(Opcodes.ASM4, mv, access, name, desc);
+        }
+
+        @Override
+        protected void onMethodEnter() {
+            start = newLocal(Type.LONG_TYPE);
+            invokeStatic(Type.getType(System.class),
+                    org.objectweb.asm.commons.Method.getMethod("long nanoTime()"));
+            storeLocal(start);
+        }
+
+        @Override
+        protected void onMethodExit(final int opcode) {
+            if (opcode != ATHROW) {
+                invokeStatic(Type.getType(System.class),
+                        org.objectweb.asm.commons.Method.getMethod("long nanoTime()"));
+                loadLocal(start);
+                math(SUB, Type.LONG_TYPE);
+                pop2();
+            }
+        }
+    }
+}
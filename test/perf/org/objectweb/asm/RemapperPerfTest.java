@@ -0,0 +1,164 @@
+/***
+ * ASM tests
+ * Copyright (c) 2000-2011 INRIA, France Telecom
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.objectweb.asm;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.objectweb.asm.commons.CachingRemapper;
+import org.objectweb.asm.commons.ConstantPoolRemapper;
+import org.objectweb.asm.commons.JarRelocator;
+import org.objectweb.asm.commons.Remapper;
+import org.objectweb.asm.commons.RemappingClassAdapter;
+
+/**
+ * Performance test of a {@link Remapper} used to shade the classes contained
+ * in the jars of the JRE and in the jars given as arguments, i.e. to move all
+ * of them to a "shaded/" package. The time to remap all the classes with a
+ * {@link RemappingClassAdapter} is measured with and without a
+ * {@link CachingRemapper}, and compared with the time needed by a
+ * {@link ConstantPoolRemapper} and by the same transformation with a plain
+ * {@link ClassVisitor} instead of the remapping adapter. The jars
+ * given as arguments are also relocated with a {@link JarRelocator}, with and
+ * without an executor.
+ */
+public class RemapperPerfTest {
+
+    public static void main(final String[] args) throws IOException {
+        List<String> jars = ALLPerfTest.findFiles(System.getProperty("java.home"),
+                ".jar");
+        for (int i = 0; i < args.length; ++i) {
+            jars.add(args[i]);
+        }
+        List<byte[]> classes = new ArrayList<byte[]>();
+        for (int i = 0; i < jars.size(); ++i) {
+            ZipFile zip = new ZipFile(jars.get(i));
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry e = entries.nextElement();
+                if (e.getName().endsWith(".class")) {
+                    classes.add(readClass(zip.getInputStream(e)));
+                }
+            }
+            zip.close();
+        }
+        Remapper shader = new Remapper() {
+            @Override
+            public String map(final String typeName) {
+                return "shaded/" + typeName;
+            }
+        };
+        for (int i = 0; i < 5; ++i) {
+            remapTest(classes, null, "copy");
+            remapTest(classes, shader, "remapper");
+            remapTest(classes, new CachingRemapper(shader), "caching remapper");
+            constantPoolRemapTest(classes, new CachingRemapper(shader));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime()
+                .availableProcessors());
+        for (int i = 0; i < args.length; ++i) {
+            byte[] jar = readClass(new FileInputStream(args[i]));
+            for (int j = 0; j < 5; ++j) {
+                relocateTest(jar, shader, null, args[i]);
+                relocateTest(jar, shader, executor, args[i]);
+            }
+        }
+        executor.shutdown();
+    }
+
+    static byte[] readClass(final InputStream is) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = is.read(buf)) > 0) {
+            bos.write(buf, 0, n);
+        }
+        is.close();
+        return bos.toByteArray();
+    }
+
+    static void relocateTest(
+        final byte[] jar,
+        final Remapper remapper,
+        final ExecutorService executor,
+        final String name) throws IOException
+    {
+        long t = System.currentTimeMillis();
+        new JarRelocator(remapper, executor).relocate(new ByteArrayInputStream(jar),
+                new ByteArrayOutputStream());
+        t = System.currentTimeMillis() - t;
+        System.out.println("ASM " + (executor == null ? "serial" : "parallel")
+                + " relocation time (" + name + "): " + t + " ms");
+    }
+
+    static void constantPoolRemapTest(
+        final List<byte[]> classes,
+        final Remapper remapper)
+    {
+        long t = System.currentTimeMillis();
+        ConstantPoolRemapper cpr = new ConstantPoolRemapper(remapper);
+        for (int i = 0; i < classes.size(); ++i) {
+            cpr.remap(new ClassReader(classes.get(i)));
+        }
+        t = System.currentTimeMillis() - t;
+        System.out.println("ASM constant pool remapper time ("
+                + classes.size() + " classes): " + t + " ms");
+    }
+
+    static void remapTest(
+        final List<byte[]> classes,
+        final Remapper remapper,
+        final String name)
+    {
+        long t = System.currentTimeMillis();
+        for (int i = 0; i < classes.size(); ++i) {
+            ClassWriter cw = new ClassWriter(0);
+            ClassVisitor cv = cw;
+            if (remapper != null) {
+                cv = new RemappingClassAdapter(cw, remapper);
+            }
+            new ClassReader(classes.get(i)).accept(cv,
+                    ClassReader.EXPAND_FRAMES);
+        }
+        t = System.currentTimeMillis() - t;
+        System.out.println("ASM " + name + " time (" + classes.size()
+                + " classes): " + t + " ms");
+    }
+}